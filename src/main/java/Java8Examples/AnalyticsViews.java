@@ -0,0 +1,241 @@
+package Java8Examples;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.*;
+
+// Precomputed analytics for the HTTP service: each endpoint's response is rendered to
+// JSON bytes once, when the views are built, together with a strong ETag derived from
+// the body. Serving a request is then a map lookup, and a client whose If-None-Match
+// matches gets a 304 without any body. Views are immutable; refresh by building a new set.
+public final class AnalyticsViews {
+
+    public static final String EMPLOYEE_DEPARTMENTS = "/api/employees/departments";
+    public static final String FINANCIAL_REPORT = "/api/finance/report";
+    public static final String INVENTORY_LOW_STOCK = "/api/inventory/low-stock";
+    public static final String INVENTORY_TOP_RATED = "/api/inventory/top-rated";
+    public static final String CUSTOMER_SPENDING = "/api/orders/customers";
+
+    public static final class View {
+        private final byte[] body;
+        private final String etag;
+
+        View(byte[] body) {
+            this.body = body;
+            this.etag = '"' + Long.toHexString(DatasetFingerprint.ofBytes(body)) + '"';
+        }
+
+        // Shared array - callers must not modify it
+        public byte[] getBody() { return body; }
+        // Quoted, as sent in the ETag header
+        public String getEtag() { return etag; }
+        public String getContentType() { return "application/json; charset=utf-8"; }
+    }
+
+    private final Map<String, View> views;
+    private final long builtAtMillis;
+
+    private AnalyticsViews(Map<String, View> views) {
+        this.views = Collections.unmodifiableMap(views);
+        this.builtAtMillis = System.currentTimeMillis();
+    }
+
+    // Views over the module datasets, loaded the same way MainExecutor loads them
+    public static AnalyticsViews load() {
+        return of(MainExecutor.loadDataset("employees", SnapshotSchema.EMPLOYEES,
+                        MainExecutor::createSampleEmployees),
+                MainExecutor.loadDataset("transactions", SnapshotSchema.TRANSACTIONS,
+                        MainExecutor::createSampleTransactions),
+                MainExecutor.loadDataset("products", SnapshotSchema.PRODUCTS,
+                        MainExecutor::createSampleProducts),
+                MainExecutor.loadDataset("orders", SnapshotSchema.ORDERS,
+                        MainExecutor::createSampleOrders));
+    }
+
+    static AnalyticsViews of(List<EmployeeDataProcessor.Employee> employees,
+                             List<FinancialCalculator.Transaction> transactions,
+                             List<InventoryManagementSystem.Product> products,
+                             List<OrderProcessingSystem.Order> orders) {
+        AppConfig config = AppConfig.get();
+        Map<String, View> views = new LinkedHashMap<>();
+        views.put(EMPLOYEE_DEPARTMENTS, render(departments(employees)));
+        views.put(FINANCIAL_REPORT, render(financialReport(transactions)));
+        views.put(INVENTORY_LOW_STOCK, render(lowStock(products, config)));
+        views.put(INVENTORY_TOP_RATED, render(topRated(products, config)));
+        views.put(CUSTOMER_SPENDING, render(customerSpending(orders)));
+        return new AnalyticsViews(views);
+    }
+
+    // null for an unknown path
+    public View get(String path) {
+        return views.get(path);
+    }
+
+    public Set<String> getPaths() { return views.keySet(); }
+    public long getBuiltAtMillis() { return builtAtMillis; }
+
+    private static Map<String, Object> departments(List<EmployeeDataProcessor.Employee> employees) {
+        Map<Integer, DoubleSummaryStatistics> byCode = employees.stream()
+                .collect(Collectors.groupingBy(EmployeeDataProcessor.Employee::getDepartmentCode,
+                        Collectors.summarizingDouble(EmployeeDataProcessor.Employee::getSalary)));
+        List<Map<String, Object>> departments = new ArrayList<>();
+        new TreeMap<>(SymbolTable.DEPARTMENTS.decodeKeys(byCode)).forEach((department, stats) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("department", department);
+            row.put("employees", stats.getCount());
+            row.put("averageSalary", stats.getAverage());
+            row.put("minSalary", stats.getMin());
+            row.put("maxSalary", stats.getMax());
+            departments.add(row);
+        });
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("departments", departments);
+        return result;
+    }
+
+    private static Map<String, Object> financialReport(List<FinancialCalculator.Transaction> transactions) {
+        FinancialCalculator.FinancialReport report = FinancialCalculator.summarize(transactions);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("totalIncome", report.getTotalIncome());
+        result.put("totalExpense", report.getTotalExpense());
+        result.put("netProfit", report.getNetProfit());
+        result.put("categoryExpense", new TreeMap<>(report.getCategoryWiseExpense()));
+        result.put("analysis", report.getAnalysis());
+        return result;
+    }
+
+    private static Map<String, Object> lowStock(List<InventoryManagementSystem.Product> products, AppConfig config) {
+        List<Map<String, Object>> rows = products.stream()
+                .filter(InventoryManagementSystem.Product::isLowStock)
+                .sorted(Comparator.comparingInt(InventoryManagementSystem.Product::getQuantity))
+                .map(AnalyticsViews::productRow)
+                .collect(Collectors.toList());
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("threshold", config.getLowStockThreshold());
+        result.put("products", rows);
+        return result;
+    }
+
+    private static Map<String, Object> topRated(List<InventoryManagementSystem.Product> products, AppConfig config) {
+        List<Map<String, Object>> rows = products.stream()
+                .filter(p -> p.getRating() >= config.getTopRatedMinRating())
+                .sorted(Comparator.comparingDouble(InventoryManagementSystem.Product::getRating).reversed()
+                        .thenComparingDouble(InventoryManagementSystem.Product::getPrice))
+                .map(AnalyticsViews::productRow)
+                .collect(Collectors.toList());
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("minRating", config.getTopRatedMinRating());
+        result.put("products", rows);
+        return result;
+    }
+
+    private static Map<String, Object> customerSpending(List<OrderProcessingSystem.Order> orders) {
+        Map<Integer, DoubleSummaryStatistics> byCustomer = orders.stream()
+                .filter(order -> order.getAmount() > 0)
+                .filter(order -> order.getStatusCode() != OrderProcessingSystem.Order.CANCELLED)
+                .collect(Collectors.groupingBy(OrderProcessingSystem.Order::getCustomerCode,
+                        Collectors.summarizingDouble(OrderProcessingSystem.Order::getAmount)));
+        List<Map<String, Object>> customers = SymbolTable.CUSTOMERS.decodeKeys(byCustomer).entrySet().stream()
+                .sorted(Comparator.comparingDouble(
+                        (Map.Entry<String, DoubleSummaryStatistics> e) -> e.getValue().getSum())
+                        .reversed().thenComparing(Map.Entry::getKey))
+                .map(e -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("customer", e.getKey());
+                    row.put("orders", e.getValue().getCount());
+                    row.put("totalSpent", e.getValue().getSum());
+                    return row;
+                })
+                .collect(Collectors.toList());
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("customers", customers);
+        return result;
+    }
+
+    private static Map<String, Object> productRow(InventoryManagementSystem.Product product) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("productId", product.getProductId());
+        row.put("name", product.getName());
+        row.put("category", product.getCategory());
+        row.put("price", product.getPrice());
+        row.put("quantity", product.getQuantity());
+        row.put("rating", product.getRating());
+        return row;
+    }
+
+    private static View render(Object value) {
+        StringBuilder sb = new StringBuilder();
+        appendJson(sb, value);
+        return new View(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Minimal JSON writer for maps, collections, strings, numbers, booleans and null
+    static void appendJson(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof String) {
+            appendString(sb, (String) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                sb.append("null");
+            } else if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+                sb.append((long) number);
+            } else {
+                // Money and averages: two decimals are all any consumer shows
+                sb.append(String.format(Locale.ROOT, "%.2f", number));
+            }
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                appendString(sb, String.valueOf(entry.getKey()));
+                sb.append(':');
+                appendJson(sb, entry.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof Collection) {
+            sb.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                appendJson(sb, element);
+            }
+            sb.append(']');
+        } else {
+            appendString(sb, value.toString());
+        }
+    }
+
+    // Quoted JSON string; also used by App for error messages, which can quote request paths
+    // that decode to quotes or control characters
+    public static void appendString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+}
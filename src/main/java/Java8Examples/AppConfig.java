@@ -0,0 +1,321 @@
+package Java8Examples;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Immutable, typed snapshot of config.properties.
+// The current snapshot lives in a single volatile field, so reading configuration on
+// a hot path costs exactly one volatile load: AppConfig.get().getLowStockThreshold().
+// A pipeline that needs several values consistently should read get() once and keep
+// the snapshot for its whole run. ConfigWatcher swaps in a new snapshot on file changes.
+public final class AppConfig {
+
+    static final String RESOURCE_NAME = "config.properties";
+    static final String CONFIG_FILE_PROPERTY = "config.file";
+    // The settings a module's result depends on; the rest (pools, memory budgets, http,
+    // load test, scheduler) only change how fast it is computed, so they stay out of the
+    // fingerprint and editing them keeps cached results
+    static final List<String> RESULT_PREFIXES = Collections.unmodifiableList(
+            Arrays.asList("employee.", "inventory.", "order.", "analytics."));
+
+    private static volatile AppConfig current = loadInitial();
+
+    private final long version;
+    private final String source;
+    private final boolean systemOverrides;
+    // Every key parsing looks up, set or not
+    private final SortedSet<String> keys = new TreeSet<>();
+    // Every setting read while parsing, as given in the file or system properties
+    private final SortedMap<String, String> settings = new TreeMap<>();
+    private final long fingerprint;
+    private final double highSalaryThreshold;
+    private final int lowStockThreshold;
+    private final double topRatedMinRating;
+    private final double highValueOrderAmount;
+    private final double priorityOrderAmount;
+    private final int recentOrderDays;
+    private final boolean approximateAnalytics;
+    private final int poolSize;
+    private final int shards;
+    private final boolean supervised;
+    private final long moduleTimeoutMs;
+    private final int moduleMaxAttempts;
+    private final long moduleBackoffMs;
+    private final String profilingRecordingFile;
+    private final int batchSize;
+    private final int aggregationParallelism;
+    private final int cacheMaxEntries;
+    private final long cacheTtlSeconds;
+    private final String cacheDir;
+    private final long sortMemoryBudgetBytes;
+    private final String sortTempDir;
+    private final long groupingMemoryBudgetBytes;
+    private final int groupingPartitions;
+    private final double schedulerPriorityWeight;
+    private final double schedulerStandardWeight;
+    private final long schedulerAgingMs;
+    private final long schedulerPrioritySloMs;
+    private final long schedulerStandardSloMs;
+    private final int schedulerQueueCapacity;
+    private final String snapshotDir;
+    private final int httpPort;
+    private final int httpThreads;
+    private final int httpQueueCapacity;
+
+    private AppConfig(Properties props, String source, long version) {
+        this(props, source, version, true);
+    }
+
+    private AppConfig(Properties props, String source, long version, boolean systemOverrides) {
+        this.version = version;
+        this.source = source;
+        this.systemOverrides = systemOverrides;
+        this.highSalaryThreshold = getDouble(props, "employee.highSalaryThreshold", 75000);
+        this.lowStockThreshold = getInt(props, "inventory.lowStockThreshold", 10);
+        this.topRatedMinRating = getDouble(props, "inventory.topRatedMinRating", 4.0);
+        this.highValueOrderAmount = getDouble(props, "order.highValueAmount", 500);
+        this.priorityOrderAmount = getDouble(props, "order.priorityAmount", 1000);
+        this.recentOrderDays = getInt(props, "order.recentDays", 7);
+        this.approximateAnalytics = Boolean.parseBoolean(get(props, "analytics.approximate", "false"));
+        int configuredPoolSize = getInt(props, "executor.poolSize", 0);
+        this.poolSize = configuredPoolSize > 0 ? configuredPoolSize : Runtime.getRuntime().availableProcessors();
+        this.shards = getInt(props, "executor.shards", 1);
+        this.supervised = Boolean.parseBoolean(get(props, "executor.supervised", "false"));
+        this.moduleTimeoutMs = getLong(props, "module.timeoutMs", 30000);
+        this.moduleMaxAttempts = getInt(props, "module.maxAttempts", 3);
+        this.moduleBackoffMs = getLong(props, "module.backoffMs", 200);
+        String recordingFile = get(props, "profiling.recordingFile", "");
+        this.profilingRecordingFile = recordingFile.isEmpty() ? null : recordingFile;
+        this.batchSize = getInt(props, "processing.batchSize", 1024);
+        int configuredAggregationParallelism = getInt(props, "aggregation.parallelism", 0);
+        this.aggregationParallelism = configuredAggregationParallelism > 0 ? configuredAggregationParallelism
+                : Runtime.getRuntime().availableProcessors();
+        this.cacheMaxEntries = getInt(props, "cache.maxEntries", 64);
+        this.cacheTtlSeconds = getLong(props, "cache.ttlSeconds", 3600);
+        String dir = get(props, "cache.dir", "");
+        this.cacheDir = dir.isEmpty() ? null : dir;
+        this.sortMemoryBudgetBytes = getLong(props, "sort.memoryBudgetMb", 64) * 1024 * 1024;
+        String sortDir = get(props, "sort.tempDir", "");
+        this.sortTempDir = sortDir.isEmpty() ? null : sortDir;
+        this.groupingMemoryBudgetBytes = getLong(props, "grouping.memoryBudgetMb", 64) * 1024 * 1024;
+        this.groupingPartitions = getInt(props, "grouping.partitions", 64);
+        this.schedulerPriorityWeight = getDouble(props, "scheduler.priorityWeight", 8);
+        this.schedulerStandardWeight = getDouble(props, "scheduler.standardWeight", 1);
+        this.schedulerAgingMs = getLong(props, "scheduler.agingMs", 250);
+        this.schedulerPrioritySloMs = getLong(props, "scheduler.prioritySloMs", 50);
+        this.schedulerStandardSloMs = getLong(props, "scheduler.standardSloMs", 1000);
+        this.schedulerQueueCapacity = getInt(props, "scheduler.queueCapacity", 10000);
+        String snapDir = get(props, "snapshot.dir", "");
+        this.snapshotDir = snapDir.isEmpty() ? null : snapDir;
+        this.httpPort = getInt(props, "http.port", 8080);
+        int configuredHttpThreads = getInt(props, "http.threads", 0);
+        this.httpThreads = configuredHttpThreads > 0 ? configuredHttpThreads
+                : 2 * Runtime.getRuntime().availableProcessors();
+        this.httpQueueCapacity = getInt(props, "http.queueCapacity", 256);
+
+        require(lowStockThreshold >= 0, "inventory.lowStockThreshold must be >= 0");
+        require(recentOrderDays >= 1, "order.recentDays must be >= 1");
+        require(shards > 0, "executor.shards must be > 0");
+        require(moduleTimeoutMs > 0, "module.timeoutMs must be > 0");
+        require(moduleMaxAttempts > 0, "module.maxAttempts must be > 0");
+        require(moduleBackoffMs >= 0, "module.backoffMs must be >= 0");
+        require(batchSize > 0, "processing.batchSize must be > 0");
+        require(cacheMaxEntries > 0, "cache.maxEntries must be > 0");
+        require(sortMemoryBudgetBytes > 0, "sort.memoryBudgetMb must be > 0");
+        require(groupingMemoryBudgetBytes > 0, "grouping.memoryBudgetMb must be > 0");
+        require(groupingPartitions >= 2 && Integer.bitCount(groupingPartitions) == 1,
+                "grouping.partitions must be a power of two >= 2");
+        require(schedulerPriorityWeight > 0 && schedulerStandardWeight > 0, "scheduler weights must be > 0");
+        require(schedulerAgingMs >= 0, "scheduler.agingMs must be >= 0");
+        require(schedulerQueueCapacity > 0, "scheduler.queueCapacity must be > 0");
+        require(httpPort >= 0 && httpPort <= 65535, "http.port must be between 0 and 65535");
+        require(httpQueueCapacity > 0, "http.queueCapacity must be > 0");
+        StringBuilder resultSettings = new StringBuilder();
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            if (RESULT_PREFIXES.stream().anyMatch(setting.getKey()::startsWith)) {
+                resultSettings.append(setting).append('\n');
+            }
+        }
+        this.fingerprint = DatasetFingerprint.ofBytes(resultSettings.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static AppConfig get() {
+        return current;
+    }
+
+    public long getVersion() { return version; }
+    public String getSource() { return source; }
+    // Equal for two snapshots with the same RESULT_PREFIXES settings, whatever their source,
+    // version and tuning, so cached results stay valid across a reload that changes nothing
+    public long getFingerprint() { return fingerprint; }
+    // The keys this class reads, so callers can tell configuration from other properties
+    public Set<String> getKeys() { return Collections.unmodifiableSet(keys); }
+    public double getHighSalaryThreshold() { return highSalaryThreshold; }
+    public int getLowStockThreshold() { return lowStockThreshold; }
+    public double getTopRatedMinRating() { return topRatedMinRating; }
+    public double getHighValueOrderAmount() { return highValueOrderAmount; }
+    public double getPriorityOrderAmount() { return priorityOrderAmount; }
+    public int getRecentOrderDays() { return recentOrderDays; }
+    public boolean isApproximateAnalytics() { return approximateAnalytics; }
+    public int getPoolSize() { return poolSize; }
+    public int getShards() { return shards; }
+    public boolean isSupervised() { return supervised; }
+    public long getModuleTimeoutMs() { return moduleTimeoutMs; }
+    public int getModuleMaxAttempts() { return moduleMaxAttempts; }
+    public long getModuleBackoffMs() { return moduleBackoffMs; }
+    public String getProfilingRecordingFile() { return profilingRecordingFile; }
+    public int getBatchSize() { return batchSize; }
+    public int getAggregationParallelism() { return aggregationParallelism; }
+    public int getCacheMaxEntries() { return cacheMaxEntries; }
+    public long getCacheTtlSeconds() { return cacheTtlSeconds; }
+    public String getCacheDir() { return cacheDir; }
+    public long getSortMemoryBudgetBytes() { return sortMemoryBudgetBytes; }
+    public String getSortTempDir() { return sortTempDir; }
+    public long getGroupingMemoryBudgetBytes() { return groupingMemoryBudgetBytes; }
+    public int getGroupingPartitions() { return groupingPartitions; }
+    public double getSchedulerPriorityWeight() { return schedulerPriorityWeight; }
+    public double getSchedulerStandardWeight() { return schedulerStandardWeight; }
+    public long getSchedulerAgingMs() { return schedulerAgingMs; }
+    public long getSchedulerPrioritySloMs() { return schedulerPrioritySloMs; }
+    public long getSchedulerStandardSloMs() { return schedulerStandardSloMs; }
+    public int getSchedulerQueueCapacity() { return schedulerQueueCapacity; }
+    public String getSnapshotDir() { return snapshotDir; }
+    public int getHttpPort() { return httpPort; }
+    public int getHttpThreads() { return httpThreads; }
+    public int getHttpQueueCapacity() { return httpQueueCapacity; }
+
+    // Parses the given file and atomically publishes it as the new current snapshot.
+    // On any error the previous snapshot stays in place and the exception is rethrown.
+    static AppConfig reload(Path file) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        return publish(props, file.toString());
+    }
+
+    // Replaces the current snapshot with explicit values; used by tests and benchmarks
+    static AppConfig override(Properties props) {
+        return publish(props, "override");
+    }
+
+    // Reading the version and publishing its successor is one step, so concurrent reloads
+    // and overrides each get their own version and the last one published wins
+    private static synchronized AppConfig publish(Properties props, String source) {
+        AppConfig next = new AppConfig(props, source, current.version + 1);
+        current = next;
+        return next;
+    }
+
+    // The file to watch for changes: -Dconfig.file if set, otherwise the classpath
+    // resource when it lives in a directory (e.g. target/classes) rather than a jar
+    static Path watchableFile() {
+        String external = System.getProperty(CONFIG_FILE_PROPERTY);
+        if (external != null) {
+            return Paths.get(external);
+        }
+        URL resource = AppConfig.class.getClassLoader().getResource(RESOURCE_NAME);
+        if (resource != null && "file".equals(resource.getProtocol())) {
+            try {
+                return Paths.get(resource.toURI());
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static AppConfig loadInitial() {
+        Properties props = new Properties();
+        String source = "defaults";
+        String external = System.getProperty(CONFIG_FILE_PROPERTY);
+        try {
+            if (external != null) {
+                try (Reader reader = Files.newBufferedReader(Paths.get(external), StandardCharsets.UTF_8)) {
+                    props.load(reader);
+                }
+                source = external;
+            } else {
+                try (InputStream in = AppConfig.class.getClassLoader().getResourceAsStream(RESOURCE_NAME)) {
+                    if (in != null) {
+                        props.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+                        source = "classpath:" + RESOURCE_NAME;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read configuration, using defaults: " + e.getMessage());
+        }
+        return initial(props, source);
+    }
+
+    // Runs in the static initializer, where an exception would leave the class unusable for
+    // the rest of the run; an invalid value is reported and the built-in defaults used instead
+    static AppConfig initial(Properties props, String source) {
+        try {
+            return new AppConfig(props, source, 1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid configuration in " + source + " or system properties, using defaults: " +
+                    e.getMessage());
+            return new AppConfig(new Properties(), "defaults", 1, false);
+        }
+    }
+
+    // System properties win over file values so a single run can be tuned from the command line
+    private String get(Properties props, String key, String defaultValue) {
+        keys.add(key);
+        String value = systemOverrides ? System.getProperty(key) : null;
+        if (value == null) {
+            value = props.getProperty(key);
+        }
+        if (value == null) {
+            return defaultValue;
+        }
+        settings.put(key, value.trim());
+        return value.trim();
+    }
+
+    private double getDouble(Properties props, String key, double defaultValue) {
+        String value = get(props, key, null);
+        try {
+            return value == null || value.isEmpty() ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+        }
+    }
+
+    private int getInt(Properties props, String key, int defaultValue) {
+        String value = get(props, key, null);
+        try {
+            return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid integer for " + key + ": " + value, e);
+        }
+    }
+
+    private long getLong(Properties props, String key, long defaultValue) {
+        String value = get(props, key, null);
+        try {
+            return value == null || value.isEmpty() ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid integer for " + key + ": " + value, e);
+        }
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AppConfig[v%d from %s: highSalary=%.0f, lowStock<%d, topRated>=%.1f, " +
+                        "highValue>%.0f, priority>%.0f, recentDays=%d, poolSize=%d, batchSize=%d]",
+                version, source, highSalaryThreshold, lowStockThreshold, topRatedMinRating,
+                highValueOrderAmount, priorityOrderAmount, recentOrderDays, poolSize, batchSize);
+    }
+}
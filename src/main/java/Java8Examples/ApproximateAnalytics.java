@@ -0,0 +1,92 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+// Approximate aggregation mode: Collectors backed by mergeable sketches.
+// Each collector keeps O(1) memory per parallel partition regardless of the number
+// of input records, and partitions are combined with the sketch's merge.
+// Enabled in the modules with analytics.approximate=true.
+public final class ApproximateAnalytics {
+
+    static final int HLL_PRECISION = 14;
+    static final double CMS_EPSILON = 0.001;
+    static final double CMS_DELTA = 0.01;
+    static final int HEAVY_HITTER_CANDIDATES = 64;
+    // Share of all counted keys an item needs to be reported as a heavy hitter
+    static final double HEAVY_HITTER_FRACTION = 0.1;
+
+    private ApproximateAnalytics() {
+    }
+
+    public static boolean isEnabled() {
+        return AppConfig.get().isApproximateAnalytics();
+    }
+
+    // Distinct count of the keys each element contributes (one or many, e.g. skills)
+    public static <T> Collector<T, ?, HyperLogLog> distinctCount(Function<T, ? extends Collection<String>> keys) {
+        return Collector.of(
+                () -> new HyperLogLog(HLL_PRECISION),
+                (sketch, element) -> {
+                    for (String key : keys.apply(element)) {
+                        sketch.add(key);
+                    }
+                },
+                (left, right) -> {
+                    left.merge(right);
+                    return left;
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+
+    public static <T> Collector<T, ?, HyperLogLog> distinctCountOf(Function<T, String> key) {
+        return distinctCount(element -> Collections.singletonList(key.apply(element)));
+    }
+
+    public static <T> Collector<T, ?, KllSketch> quantiles(ToDoubleFunction<T> value) {
+        return Collector.of(
+                KllSketch::new,
+                (sketch, element) -> sketch.update(value.applyAsDouble(element)),
+                (left, right) -> {
+                    left.merge(right);
+                    return left;
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+
+    public static <T> Collector<T, ?, CountMinSketch> frequencies(Function<T, ? extends Collection<String>> keys) {
+        return Collector.of(
+                () -> new CountMinSketch(CMS_EPSILON, CMS_DELTA, HEAVY_HITTER_CANDIDATES),
+                (sketch, element) -> {
+                    for (String key : keys.apply(element)) {
+                        sketch.add(key);
+                    }
+                },
+                (left, right) -> {
+                    left.merge(right);
+                    return left;
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+
+    static String describeQuantiles(String label, KllSketch sketch) {
+        double[] q = sketch.quantiles(0.5, 0.9, 0.99);
+        return String.format("%s: p50=%.2f, p90=%.2f, p99=%.2f (n=%d, rank error <= %.1f%%)",
+                label, q[0], q[1], q[2], sketch.getCount(), sketch.normalizedRankError() * 100);
+    }
+
+    static String describeHeavyHitters(String label, CountMinSketch sketch) {
+        String items = sketch.heavyHitters(HEAVY_HITTER_FRACTION).stream()
+                .map(entry -> entry.getKey() + " ~" + entry.getValue())
+                .collect(Collectors.joining(", "));
+        return String.format("%s (>= %.0f%% of %d): %s (overcount <= %.1f)",
+                label, HEAVY_HITTER_FRACTION * 100, sketch.getTotalCount(), items.isEmpty() ? "none" : items,
+                sketch.errorBound());
+    }
+
+    static String describeDistinct(String label, HyperLogLog sketch) {
+        return String.format("%s: ~%d (standard error %.1f%%)",
+                label, sketch.estimate(), sketch.relativeStandardError() * 100);
+    }
+}
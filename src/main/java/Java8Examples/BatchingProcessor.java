@@ -0,0 +1,206 @@
+package Java8Examples;
+
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Function;
+
+// Processor that maps each item and drops those mapped to null. Upstream is asked for
+// `prefetch` items up front and topped up in batches of half that as buffered items are
+// emitted or dropped, so at most `prefetch` items are ever in flight or buffered, while
+// upstream sees a few large request(n) calls rather than one per item. Downstream demand
+// is honoured exactly and errors skip whatever is still buffered. Supports a single
+// subscriber.
+public class BatchingProcessor<T, R> implements Flow.Processor<T, R> {
+
+    private final Function<? super T, ? extends R> mapper;
+    private final int prefetch;
+    private final int limit;
+    private final BlockingQueue<R> buffer;
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicInteger consumed = new AtomicInteger();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+    private final AtomicReference<Flow.Subscriber<? super R>> downstream = new AtomicReference<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    private boolean terminated;
+
+    public BatchingProcessor(Function<? super T, ? extends R> mapper) {
+        this(mapper, Flow.defaultBufferSize());
+    }
+
+    public BatchingProcessor(Function<? super T, ? extends R> mapper, int prefetch) {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("Prefetch must be positive: " + prefetch);
+        }
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+        this.prefetch = prefetch;
+        this.limit = Math.max(1, prefetch / 2);
+        this.buffer = new ArrayBlockingQueue<>(prefetch);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super R> subscriber) {
+        if (!downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("BatchingProcessor supports a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    error = new IllegalArgumentException("request(" + n + ") must be positive");
+                    done = true;
+                    cancelUpstream();
+                } else {
+                    requested.accumulateAndGet(n, Flow::addDemand);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                cancelUpstream();
+                buffer.clear();
+            }
+        });
+        start();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (!upstream.compareAndSet(null, subscription)) {
+            subscription.cancel();
+            return;
+        }
+        start();
+    }
+
+    // Prefetch once both ends are connected
+    private void start() {
+        Flow.Subscription subscription = upstream.get();
+        if (subscription != null && downstream.get() != null && started.compareAndSet(false, true)) {
+            subscription.request(prefetch);
+        }
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (done || cancelled) {
+            return;
+        }
+        R mapped;
+        try {
+            mapped = mapper.apply(item);
+        } catch (Throwable e) {
+            cancelUpstream();
+            onError(e);
+            return;
+        }
+        if (mapped == null) {
+            replenish();
+        } else if (!buffer.offer(mapped)) {
+            cancelUpstream();
+            onError(new IllegalStateException("Upstream sent more items than were requested"));
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (done) {
+            return;
+        }
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    public int getPrefetch() { return prefetch; }
+
+    // Frees a buffer slot and asks upstream for another batch each time `limit` are free
+    private void replenish() {
+        // Exactly one caller sees the counter reach the limit in each round
+        if (consumed.incrementAndGet() == limit) {
+            consumed.addAndGet(-limit);
+            Flow.Subscription subscription = upstream.get();
+            if (subscription != null && !done) {
+                subscription.request(limit);
+            }
+        }
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Flow.Subscriber<? super R> subscriber = downstream.get();
+            if (subscriber != null && !terminated && done && error != null && !cancelled) {
+                // Errors are not queued behind buffered items
+                buffer.clear();
+                terminated = true;
+                subscriber.onError(error);
+            } else if (subscriber != null && !terminated) {
+                long emitted = 0;
+                long demand = requested.get();
+                while (emitted < demand && !cancelled) {
+                    R item = buffer.poll();
+                    if (item == null) {
+                        break;
+                    }
+                    try {
+                        subscriber.onNext(item);
+                    } catch (Throwable e) {
+                        // A failing subscriber ends the stream, like BufferedPublisher; the
+                        // loop still runs to the wip update so later signals are not wedged
+                        cancelled = true;
+                        cancelUpstream();
+                        buffer.clear();
+                        terminated = true;
+                        subscriber.onError(e);
+                        break;
+                    }
+                    emitted++;
+                    replenish();
+                }
+                if (emitted > 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                if (done && buffer.isEmpty() && !cancelled) {
+                    terminated = true;
+                    subscriber.onComplete();
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void cancelUpstream() {
+        Flow.Subscription subscription = upstream.get();
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+}
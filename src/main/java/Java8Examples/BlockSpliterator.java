@@ -0,0 +1,99 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.*;
+
+// SIZED/SUBSIZED spliterator over an array snapshot of a record list.
+// Splits always land on multiples of the block size, so every leaf task walks whole
+// contiguous blocks of the backing array, and splitting stops at one block instead of
+// going down to single elements. ORDERED can be dropped for order-insensitive
+// pipelines (sums, counts, grouping) so that the stream may skip order bookkeeping.
+public class BlockSpliterator<T> implements Spliterator<T> {
+
+    private final Object[] elements;
+    private final int blockSize;
+    private final int characteristics;
+    private int origin;
+    private final int fence;
+
+    public BlockSpliterator(Object[] elements, int origin, int fence, int blockSize, boolean ordered) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        this.elements = elements;
+        this.origin = origin;
+        this.fence = fence;
+        this.blockSize = blockSize;
+        this.characteristics = Spliterator.SIZED | Spliterator.SUBSIZED | (ordered ? Spliterator.ORDERED : 0);
+    }
+
+    // Stream over the list using the configured block size (processing.batchSize).
+    // Lists of fewer than two blocks are streamed sequentially: splitting them costs
+    // more than it saves.
+    public static <T> Stream<T> stream(List<T> list, boolean ordered) {
+        int blockSize = AppConfig.get().getBatchSize();
+        return StreamSupport.stream(of(list, blockSize, ordered), list.size() >= 2 * blockSize);
+    }
+
+    public static <T> Stream<T> parallelStream(List<T> list, boolean ordered) {
+        return StreamSupport.stream(of(list, AppConfig.get().getBatchSize(), ordered), true);
+    }
+
+    public static <T> BlockSpliterator<T> of(List<T> list, int blockSize, boolean ordered) {
+        // One copy up front buys a flat array walk without per-element list access checks
+        Object[] snapshot = list.toArray();
+        return new BlockSpliterator<>(snapshot, 0, snapshot.length, blockSize, ordered);
+    }
+
+    // No copy: for callers that already hold the records in an array
+    public static <T> BlockSpliterator<T> of(T[] array, int blockSize, boolean ordered) {
+        return new BlockSpliterator<>(array, 0, array.length, blockSize, ordered);
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int remaining = fence - origin;
+        if (remaining <= blockSize) {
+            return null;
+        }
+        int blocks = (remaining + blockSize - 1) / blockSize;
+        int mid = origin + (blocks / 2) * blockSize;
+        BlockSpliterator<T> prefix = new BlockSpliterator<>(elements, origin, mid, blockSize,
+                hasCharacteristics(Spliterator.ORDERED));
+        origin = mid;
+        return prefix;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (origin < fence) {
+            action.accept((T) elements[origin++]);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachRemaining(Consumer<? super T> action) {
+        Object[] a = elements;
+        int hi = fence;
+        int i = origin;
+        origin = hi;
+        for (; i < hi; i++) {
+            action.accept((T) a[i]);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - origin;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+}
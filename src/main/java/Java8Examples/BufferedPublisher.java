@@ -0,0 +1,217 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+// Hot publisher fed by a producer thread, in the spirit of Java 9's SubmissionPublisher.
+// Each subscriber gets a fixed-size ring buffer; submit() blocks while any subscriber's
+// buffer is full, so a fast producer is slowed to the pace of the slowest consumer instead
+// of growing memory. Items are delivered on the executor, never more than requested, one
+// drain task per subscriber at a time. submit() must not be called from the executor's
+// own threads when it has a single worker, or the drain could never run.
+public class BufferedPublisher<T> implements Flow.Publisher<T>, AutoCloseable {
+
+    private final Executor executor;
+    private final int bufferSize;
+    private final List<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger maxBuffered = new AtomicInteger();
+    private volatile boolean closed;
+    private volatile Throwable closedWith;
+
+    public BufferedPublisher() {
+        this(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    public BufferedPublisher(Executor executor, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        BufferedSubscription subscription = new BufferedSubscription(subscriber);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.schedule();
+        }
+    }
+
+    // Hands the item to every current subscriber, waiting for buffer space where needed.
+    // Returns the number of subscribers it was delivered to.
+    public int submit(T item) throws InterruptedException {
+        Objects.requireNonNull(item, "item");
+        if (closed) {
+            throw new IllegalStateException("Publisher is closed");
+        }
+        int delivered = 0;
+        for (BufferedSubscription subscription : subscriptions) {
+            if (subscription.offer(item)) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    // Subscribers receive onComplete once they have drained what is buffered
+    @Override
+    public void close() {
+        closed = true;
+        subscriptions.forEach(BufferedSubscription::schedule);
+    }
+
+    public void closeExceptionally(Throwable error) {
+        closedWith = Objects.requireNonNull(error, "error");
+        close();
+    }
+
+    public int getBufferSize() { return bufferSize; }
+    public int getSubscriberCount() { return subscriptions.size(); }
+    // Highest number of items any one subscriber has had waiting in its buffer
+    public int getMaxBuffered() { return maxBuffered.get(); }
+
+    private final class BufferedSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Object[] ring = new Object[bufferSize];
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private final AtomicInteger wip = new AtomicInteger();
+        // Guarded by lock
+        private int head;
+        private int count;
+        private long demand;
+        private volatile boolean cancelled;
+        private volatile Throwable requestError;
+        private boolean terminated;
+
+        BufferedSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        boolean offer(T item) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (count == ring.length && !cancelled) {
+                    notFull.await();
+                }
+                if (cancelled) {
+                    return false;
+                }
+                ring[(head + count) % ring.length] = item;
+                count++;
+                if (count > maxBuffered.get()) {
+                    maxBuffered.accumulateAndGet(count, Math::max);
+                }
+            } finally {
+                lock.unlock();
+            }
+            schedule();
+            return true;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                requestError = new IllegalArgumentException("request(" + n + ") must be positive");
+            } else {
+                lock.lock();
+                try {
+                    demand = Flow.addDemand(demand, n);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            lock.lock();
+            try {
+                Arrays.fill(ring, null);
+                count = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void drain() {
+            if (terminated || cancelled) {
+                return;
+            }
+            if (requestError != null) {
+                cancel();
+                terminated = true;
+                subscriber.onError(requestError);
+                return;
+            }
+            while (true) {
+                T item;
+                lock.lock();
+                try {
+                    if (cancelled || count == 0 || demand == 0) {
+                        break;
+                    }
+                    item = (T) ring[head];
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    count--;
+                    if (demand != Long.MAX_VALUE) {
+                        demand--;
+                    }
+                    notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    subscriber.onNext(item);
+                } catch (Throwable e) {
+                    cancel();
+                    terminated = true;
+                    subscriber.onError(e);
+                    return;
+                }
+            }
+            boolean empty;
+            lock.lock();
+            try {
+                empty = count == 0;
+            } finally {
+                lock.unlock();
+            }
+            if (closed && empty && !cancelled) {
+                terminated = true;
+                subscriptions.remove(this);
+                if (closedWith != null) {
+                    subscriber.onError(closedWith);
+                } else {
+                    subscriber.onComplete();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package Java8Examples;
+
+import java.time.*;
+
+// Wall clock that caches its last reading and only rereads the system clock after the
+// resolution has passed. LocalDate.now() and LocalDateTime.now() allocate on every call;
+// per-record checks such as "is this product expired" only need the current day, so they
+// read the cached epoch day instead and allocate nothing.
+public final class CoarseClock {
+
+    public static final CoarseClock SYSTEM = new CoarseClock(10, ZoneId.systemDefault());
+
+    private static final class Reading {
+        final long millis;
+        final LocalDateTime now;
+        final LocalDate today;
+        final long epochDay;
+
+        Reading(long millis, ZoneId zone) {
+            this.millis = millis;
+            this.now = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zone);
+            this.today = now.toLocalDate();
+            this.epochDay = today.toEpochDay();
+        }
+    }
+
+    private final long resolutionMillis;
+    private final ZoneId zone;
+    private volatile Reading current;
+
+    public CoarseClock(long resolutionMillis, ZoneId zone) {
+        if (resolutionMillis < 0) {
+            throw new IllegalArgumentException("Negative resolution " + resolutionMillis);
+        }
+        this.resolutionMillis = resolutionMillis;
+        this.zone = zone;
+        this.current = new Reading(System.currentTimeMillis(), zone);
+    }
+
+    private Reading read() {
+        Reading reading = current;
+        long millis = System.currentTimeMillis();
+        // Also reread when the system clock was set back
+        if (millis - reading.millis >= resolutionMillis || millis < reading.millis) {
+            reading = new Reading(millis, zone);
+            current = reading;
+        }
+        return reading;
+    }
+
+    public long millis() { return read().millis; }
+    public long epochDay() { return read().epochDay; }
+    // Shared instances - immutable, so callers may keep them
+    public LocalDate today() { return read().today; }
+    public LocalDateTime now() { return read().now; }
+    public long getResolutionMillis() { return resolutionMillis; }
+    public ZoneId getZone() { return zone; }
+}
@@ -0,0 +1,17 @@
+package Java8Examples;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+// A filter produced by PredicateCompiler: one generated class per FilterSpec whose
+// test() checks every clause inline and whose bulk methods loop over a list calling
+// that test() directly, so the JIT sees a single monomorphic call it can inline.
+// Public because the generated classes live in their own class loader.
+public interface CompiledFilter<T> extends Predicate<T> {
+
+    // Number of elements that pass
+    int count(List<? extends T> source);
+
+    // Appends the passing elements to target and returns how many were added
+    int filterInto(List<? extends T> source, List<? super T> target);
+}
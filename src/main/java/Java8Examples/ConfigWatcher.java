@@ -0,0 +1,99 @@
+package Java8Examples;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+// Watches the configuration file with a WatchService and publishes a fresh
+// AppConfig snapshot whenever it changes. Runs on a single daemon thread.
+public final class ConfigWatcher implements Runnable {
+
+    // Editors often emit several events per save; wait for them to settle
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    private static ConfigWatcher instance;
+
+    private final Path file;
+    private final WatchService watchService;
+    private volatile boolean running = true;
+
+    private ConfigWatcher(Path file) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+    }
+
+    // Starts watching AppConfig.watchableFile() once per JVM; returns false when there is
+    // nothing to watch (e.g. configuration packaged inside a jar)
+    public static synchronized boolean start() {
+        if (instance != null) {
+            return true;
+        }
+        Path file = AppConfig.watchableFile();
+        if (file == null || file.getParent() == null) {
+            return false;
+        }
+        try {
+            instance = new ConfigWatcher(file);
+        } catch (IOException e) {
+            System.err.println("Config hot reload disabled: " + e.getMessage());
+            return false;
+        }
+        Thread thread = new Thread(instance, "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public static synchronized void stop() {
+        if (instance != null) {
+            instance.running = false;
+            try {
+                instance.watchService.close();
+            } catch (IOException e) {
+                // Closing only unblocks the watcher thread
+            }
+            instance = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                Object context = event.context();
+                if (context instanceof Path && file.getFileName().equals(context)) {
+                    changed = true;
+                }
+            }
+            if (changed) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(DEBOUNCE_MILLIS);
+                    // Drain events produced while we were waiting
+                    for (WatchKey pending = watchService.poll(); pending != null; pending = watchService.poll()) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    AppConfig next = AppConfig.reload(file);
+                    System.out.println("Configuration reloaded: " + next);
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Keeping previous configuration, reload failed: " + e.getMessage());
+                }
+            }
+            if (!key.reset()) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package Java8Examples;
+
+import java.util.*;
+
+// Count-Min sketch with a bounded heavy-hitter candidate set.
+// Estimates never undercount; with probability 1 - delta they overcount by at most
+// epsilon * totalCount. Sketches with the same dimensions merge by adding counters.
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[][] counters;
+    private final long[] rowSeeds;
+    private final int candidateCapacity;
+    // Items most likely to be heavy hitters, with their latest estimate
+    private final Map<String, Long> candidates = new HashMap<>();
+    private final double epsilon;
+    private final double delta;
+    private long totalCount;
+    // Lower bound of the smallest candidate estimate (estimates only grow), lets most
+    // non-candidates skip the eviction scan
+    private long candidateFloor;
+
+    public CountMinSketch(double epsilon, double delta, int candidateCapacity) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("epsilon and delta must be within (0, 1)");
+        }
+        this.epsilon = epsilon;
+        this.delta = delta;
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.counters = new long[depth][width];
+        this.candidateCapacity = candidateCapacity;
+        this.rowSeeds = new long[depth];
+        for (int i = 0; i < depth; i++) {
+            rowSeeds[i] = HyperLogLog.mix64(0x9E3779B97F4A7C15L * (i + 1));
+        }
+    }
+
+    public double getEpsilon() { return epsilon; }
+    public double getDelta() { return delta; }
+    public long getTotalCount() { return totalCount; }
+
+    // Largest overcount that holds with probability 1 - delta
+    public double errorBound() {
+        return epsilon * totalCount;
+    }
+
+    public void add(String item) {
+        add(item, 1);
+    }
+
+    public void add(String item, long increment) {
+        long hash = HyperLogLog.hash64(item);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = column(hash, row);
+            counters[row][column] += increment;
+            estimate = Math.min(estimate, counters[row][column]);
+        }
+        totalCount += increment;
+        offerCandidate(item, estimate);
+    }
+
+    public long estimate(String item) {
+        long hash = HyperLogLog.hash64(item);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row][column(hash, row)]);
+        }
+        return estimate;
+    }
+
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge sketches with different dimensions");
+        }
+        for (int row = 0; row < depth; row++) {
+            for (int column = 0; column < width; column++) {
+                counters[row][column] += other.counters[row][column];
+            }
+        }
+        totalCount += other.totalCount;
+        Set<String> union = new HashSet<>(candidates.keySet());
+        union.addAll(other.candidates.keySet());
+        candidates.clear();
+        candidateFloor = 0;
+        for (String item : union) {
+            offerCandidate(item, estimate(item));
+        }
+    }
+
+    // Items whose estimated frequency is at least fraction * totalCount, most frequent first.
+    // Every item whose true frequency reaches the threshold is reported as long as it is
+    // among the candidateCapacity most frequent items.
+    public List<Map.Entry<String, Long>> heavyHitters(double fraction) {
+        double threshold = fraction * totalCount;
+        List<Map.Entry<String, Long>> result = new ArrayList<>();
+        for (String item : candidates.keySet()) {
+            long estimate = estimate(item);
+            if (estimate >= threshold) {
+                result.add(new AbstractMap.SimpleImmutableEntry<>(item, estimate));
+            }
+        }
+        result.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return result;
+    }
+
+    private void offerCandidate(String item, long estimate) {
+        if (candidates.containsKey(item) || candidates.size() < candidateCapacity) {
+            candidates.put(item, estimate);
+            return;
+        }
+        if (estimate <= candidateFloor) {
+            return;
+        }
+        // Evict the weakest candidate when the newcomer beats it
+        String weakest = null;
+        long weakestEstimate = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+            if (entry.getValue() < weakestEstimate) {
+                weakest = entry.getKey();
+                weakestEstimate = entry.getValue();
+            }
+        }
+        if (estimate > weakestEstimate) {
+            candidates.remove(weakest);
+            candidates.put(item, estimate);
+            weakestEstimate = estimate;
+            for (long value : candidates.values()) {
+                weakestEstimate = Math.min(weakestEstimate, value);
+            }
+        }
+        candidateFloor = weakestEstimate;
+    }
+
+    private int column(long hash, int row) {
+        long h = HyperLogLog.mix64(hash ^ rowSeeds[row]);
+        return (int) ((h >>> 1) % width);
+    }
+}
@@ -0,0 +1,306 @@
+package Java8Examples;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.*;
+
+// Joins order line items to the product catalog and feeds the result into finance.
+// Partitioned parallel hash join: both sides are hash-partitioned on the join key
+// (the item's SymbolTable code), then every partition builds a small hash table from
+// its products and probes it with its order lines independently of the others.
+// Per-partition partial aggregates are merged at the end.
+//
+// Revenue attribution: an order's amount is split evenly over its line items, so each
+// line can be attributed without knowing which partition the order's other lines went to.
+// Revenue is kept in whole cents: the remainder cents of the split go to the first lines,
+// so the lines add up to the order amount exactly and every total is the same however
+// many partitions or shards summed it.
+public class CrossModuleJoinEngine {
+
+    static final String UNMATCHED = "UNMATCHED";
+
+    enum JoinKey { NAME, PRODUCT_ID }
+
+    static class StockDepletion {
+        private final InventoryManagementSystem.Product product;
+        private final long unitsOrdered;
+
+        StockDepletion(InventoryManagementSystem.Product product, long unitsOrdered) {
+            this.product = product;
+            this.unitsOrdered = unitsOrdered;
+        }
+
+        public InventoryManagementSystem.Product getProduct() { return product; }
+        public long getUnitsOrdered() { return unitsOrdered; }
+        public long getRemaining() { return product.getQuantity() - unitsOrdered; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d in stock, %d ordered, %d remaining",
+                    product.getName(), product.getQuantity(), unitsOrdered, getRemaining());
+        }
+    }
+
+    static class JoinResult {
+        private final Map<String, Long> revenueCentsByCategory;
+        private final List<StockDepletion> depletion;
+        private final long matchedLines;
+        private final long unmatchedLines;
+        private final List<FinancialCalculator.Transaction> salesTransactions;
+
+        JoinResult(Map<String, Long> revenueCentsByCategory, List<StockDepletion> depletion,
+                   long matchedLines, long unmatchedLines, List<FinancialCalculator.Transaction> salesTransactions) {
+            this.revenueCentsByCategory = revenueCentsByCategory;
+            this.depletion = depletion;
+            this.matchedLines = matchedLines;
+            this.unmatchedLines = unmatchedLines;
+            this.salesTransactions = salesTransactions;
+        }
+
+        public Map<String, Long> getRevenueCentsByCategory() { return revenueCentsByCategory; }
+        public Map<String, Double> getRevenueByCategory() { return toAmounts(revenueCentsByCategory); }
+        public List<StockDepletion> getDepletion() { return depletion; }
+        public long getMatchedLines() { return matchedLines; }
+        public long getUnmatchedLines() { return unmatchedLines; }
+        public List<FinancialCalculator.Transaction> getSalesTransactions() { return salesTransactions; }
+
+        public long getMatchedRevenueCents() {
+            return matchedCents(revenueCentsByCategory);
+        }
+
+        public double getMatchedRevenue() {
+            return getMatchedRevenueCents() / 100.0;
+        }
+
+        // Products whose remaining stock after the ordered units is below the low-stock threshold
+        public List<StockDepletion> getDepletedBelow(int threshold) {
+            return depletion.stream()
+                    .filter(d -> d.getRemaining() < threshold)
+                    .sorted(Comparator.comparingLong(StockDepletion::getRemaining))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // Growable int buffer; one per partition for the probe side
+    private static class IntBuffer {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntBuffer other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+    }
+
+    // Probe side of one parallel worker: (order index, line index, item code) by partition
+    private static class ProbePartitions {
+        private final IntBuffer[] orderIndexes;
+        private final IntBuffer[] lineIndexes;
+        private final IntBuffer[] itemCodes;
+
+        ProbePartitions(int partitions) {
+            orderIndexes = new IntBuffer[partitions];
+            lineIndexes = new IntBuffer[partitions];
+            itemCodes = new IntBuffer[partitions];
+            for (int p = 0; p < partitions; p++) {
+                orderIndexes[p] = new IntBuffer();
+                lineIndexes[p] = new IntBuffer();
+                itemCodes[p] = new IntBuffer();
+            }
+        }
+
+        ProbePartitions merge(ProbePartitions other) {
+            for (int p = 0; p < orderIndexes.length; p++) {
+                orderIndexes[p].addAll(other.orderIndexes[p]);
+                lineIndexes[p].addAll(other.lineIndexes[p]);
+                itemCodes[p].addAll(other.itemCodes[p]);
+            }
+            return this;
+        }
+    }
+
+    // Partial aggregates of one partition
+    private static class PartitionResult {
+        private final long[] revenueCentsByCategoryCode;
+        private long unmatchedCents;
+        private long matched;
+        private long unmatched;
+        private final Map<InventoryManagementSystem.Product, Long> unitsByProduct = new HashMap<>();
+
+        PartitionResult(int categories) {
+            revenueCentsByCategoryCode = new long[categories];
+        }
+    }
+
+    private final JoinKey joinKey;
+    private final int partitions;
+
+    public CrossModuleJoinEngine(JoinKey joinKey, int partitions) {
+        if (Integer.bitCount(partitions) != 1) {
+            throw new IllegalArgumentException("partitions must be a power of two: " + partitions);
+        }
+        this.joinKey = joinKey;
+        this.partitions = partitions;
+    }
+
+    // Two partitions per configured worker, rounded up to a power of two
+    public static CrossModuleJoinEngine withDefaults() {
+        int target = Math.max(1, AppConfig.get().getPoolSize() * 2);
+        return new CrossModuleJoinEngine(JoinKey.NAME, Integer.highestOneBit(target - 1) << 1);
+    }
+
+    static String formatCents(long cents) {
+        return BigDecimal.valueOf(cents, 2).toPlainString();
+    }
+
+    static Map<String, Double> toAmounts(Map<String, Long> cents) {
+        Map<String, Double> amounts = new TreeMap<>();
+        cents.forEach((key, value) -> amounts.put(key, value / 100.0));
+        return amounts;
+    }
+
+    static long matchedCents(Map<String, Long> centsByCategory) {
+        return centsByCategory.entrySet().stream()
+                .filter(e -> !UNMATCHED.equals(e.getKey()))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+
+    // Cents of one line: an even share of the order, the first (cents % lines) lines one more
+    static long lineCents(OrderProcessingSystem.Order order, int line) {
+        long cents = Math.round(order.getAmount() * 100);
+        int lines = order.getItemCodes().length;
+        return cents / lines + (line < cents % lines ? 1 : 0);
+    }
+
+    public JoinResult join(List<OrderProcessingSystem.Order> orders, List<InventoryManagementSystem.Product> catalog) {
+        final OrderProcessingSystem.Order[] orderArray = orders.toArray(new OrderProcessingSystem.Order[0]);
+
+        // Build side: products by partition. Keys are looked up without interning, so a
+        // product no order ever mentioned gets NO_SYMBOL and can simply never match.
+        List<List<InventoryManagementSystem.Product>> buildPartitions = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            buildPartitions.add(new ArrayList<>());
+        }
+        for (InventoryManagementSystem.Product product : catalog) {
+            int code = SymbolTable.ITEMS.codeOf(keyOf(product));
+            if (code != SymbolTable.NO_SYMBOL) {
+                buildPartitions.get(partitionOf(code)).add(product);
+            }
+        }
+
+        // Probe side: valid orders' line items, partitioned in parallel
+        ProbePartitions probe = IntStream.range(0, orderArray.length).parallel()
+                .filter(i -> isBillable(orderArray[i]))
+                .collect(() -> new ProbePartitions(partitions),
+                        (acc, i) -> {
+                            int[] codes = orderArray[i].getItemCodes();
+                            for (int line = 0; line < codes.length; line++) {
+                                int p = partitionOf(codes[line]);
+                                acc.orderIndexes[p].add(i);
+                                acc.lineIndexes[p].add(line);
+                                acc.itemCodes[p].add(codes[line]);
+                            }
+                        },
+                        ProbePartitions::merge);
+
+        int categories = SymbolTable.PRODUCT_CATEGORIES.size();
+        List<PartitionResult> partials = IntStream.range(0, partitions).parallel()
+                .mapToObj(p -> joinPartition(buildPartitions.get(p), probe.orderIndexes[p], probe.lineIndexes[p],
+                        probe.itemCodes[p], orderArray, categories))
+                .collect(Collectors.toList());
+
+        return merge(partials, catalog, categories);
+    }
+
+    private PartitionResult joinPartition(List<InventoryManagementSystem.Product> products, IntBuffer orderIndexes,
+                                          IntBuffer lineIndexes, IntBuffer itemCodes,
+                                          OrderProcessingSystem.Order[] orders, int categories) {
+        Map<Integer, InventoryManagementSystem.Product> table = new HashMap<>(products.size() * 2);
+        for (InventoryManagementSystem.Product product : products) {
+            // First product wins on duplicate keys, like a unique index
+            table.putIfAbsent(SymbolTable.ITEMS.codeOf(keyOf(product)), product);
+        }
+
+        PartitionResult result = new PartitionResult(categories);
+        for (int i = 0; i < itemCodes.size; i++) {
+            OrderProcessingSystem.Order order = orders[orderIndexes.values[i]];
+            long lineCents = lineCents(order, lineIndexes.values[i]);
+            InventoryManagementSystem.Product product = table.get(itemCodes.values[i]);
+            if (product == null) {
+                result.unmatched++;
+                result.unmatchedCents += lineCents;
+            } else {
+                result.matched++;
+                result.revenueCentsByCategoryCode[product.getCategoryCode()] += lineCents;
+                result.unitsByProduct.merge(product, 1L, Long::sum);
+            }
+        }
+        return result;
+    }
+
+    private JoinResult merge(List<PartitionResult> partials, List<InventoryManagementSystem.Product> catalog,
+                             int categories) {
+        long[] revenue = new long[categories];
+        long unmatchedCents = 0;
+        long matched = 0;
+        long unmatched = 0;
+        Map<InventoryManagementSystem.Product, Long> units = new HashMap<>();
+        for (PartitionResult partial : partials) {
+            for (int c = 0; c < categories; c++) {
+                revenue[c] += partial.revenueCentsByCategoryCode[c];
+            }
+            unmatchedCents += partial.unmatchedCents;
+            matched += partial.matched;
+            unmatched += partial.unmatched;
+            partial.unitsByProduct.forEach((product, count) -> units.merge(product, count, Long::sum));
+        }
+
+        Map<String, Long> revenueByCategory = new TreeMap<>();
+        List<FinancialCalculator.Transaction> sales = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int c = 0; c < categories; c++) {
+            if (revenue[c] > 0) {
+                String category = SymbolTable.PRODUCT_CATEGORIES.symbol(c);
+                revenueByCategory.put(category, revenue[c]);
+                sales.add(new FinancialCalculator.Transaction("SALES-" + category.toUpperCase(), revenue[c] / 100.0,
+                        now, "INCOME", "Sales", category + " order revenue"));
+            }
+        }
+        if (unmatchedCents > 0) {
+            revenueByCategory.put(UNMATCHED, unmatchedCents);
+        }
+
+        List<StockDepletion> depletion = catalog.stream()
+                .map(product -> new StockDepletion(product, units.getOrDefault(product, 0L)))
+                .collect(Collectors.toList());
+
+        return new JoinResult(revenueByCategory, depletion, matched, unmatched, sales);
+    }
+
+    private String keyOf(InventoryManagementSystem.Product product) {
+        return joinKey == JoinKey.NAME ? product.getName() : product.getProductId();
+    }
+
+    private static boolean isBillable(OrderProcessingSystem.Order order) {
+        return order.getAmount() > 0
+                && order.getStatusCode() != OrderProcessingSystem.Order.CANCELLED
+                && order.getItemCodes() != null
+                && order.getItemCodes().length > 0;
+    }
+
+    private int partitionOf(int code) {
+        return (int) (HyperLogLog.mix64(code) & (partitions - 1));
+    }
+}
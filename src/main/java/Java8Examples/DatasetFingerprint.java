@@ -0,0 +1,155 @@
+package Java8Examples;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.time.*;
+
+// Fast 64-bit content hash of the module input datasets.
+// Walks every field of every record without allocating, so two lists with the same
+// content always produce the same fingerprint (across JVM restarts as well).
+public final class DatasetFingerprint {
+
+    private static final long SEED = 0xCBF29CE484222325L;
+    private static final long PRIME = 0x100000001B3L;
+    private static final long NULL_MARKER = 0x9E3779B97F4A7C15L;
+
+    private DatasetFingerprint() {
+    }
+
+    public static long ofEmployees(List<EmployeeDataProcessor.Employee> employees) {
+        long h = mix(SEED, employees.size());
+        for (EmployeeDataProcessor.Employee emp : employees) {
+            h = mix(h, emp.getId());
+            h = mix(h, emp.getName());
+            h = mix(h, Double.doubleToLongBits(emp.getSalary()));
+            h = mix(h, emp.getDepartment());
+            h = mix(h, emp.getJoinDate());
+            h = mix(h, emp.getAge());
+            h = mixStrings(h, emp.getSkills());
+        }
+        return finish(h);
+    }
+
+    public static long ofTransactions(List<FinancialCalculator.Transaction> transactions) {
+        long h = mix(SEED, transactions.size());
+        for (FinancialCalculator.Transaction t : transactions) {
+            h = mix(h, t.getId());
+            h = mix(h, Double.doubleToLongBits(t.getAmount()));
+            h = mix(h, t.getTimestamp());
+            h = mix(h, t.getType());
+            h = mix(h, t.getCategory());
+            h = mix(h, t.getDescription());
+        }
+        return finish(h);
+    }
+
+    public static long ofProducts(List<InventoryManagementSystem.Product> products) {
+        long h = mix(SEED, products.size());
+        for (InventoryManagementSystem.Product p : products) {
+            h = mix(h, p.getProductId());
+            h = mix(h, p.getName());
+            h = mix(h, p.getCategory());
+            h = mix(h, Double.doubleToLongBits(p.getPrice()));
+            h = mix(h, p.getQuantity());
+            h = mix(h, Double.doubleToLongBits(p.getRating()));
+            h = mix(h, p.getExpiryDate());
+        }
+        return finish(h);
+    }
+
+    public static long ofOrders(List<OrderProcessingSystem.Order> orders) {
+        long h = mix(SEED, orders.size());
+        for (OrderProcessingSystem.Order order : orders) {
+            h = mix(h, order.getOrderId());
+            h = mix(h, order.getCustomerName());
+            h = mix(h, order.getOrderDate());
+            h = mix(h, Double.doubleToLongBits(order.getAmount()));
+            h = mix(h, order.getStatus());
+            h = mixStrings(h, order.getItems());
+            h = mix(h, order.getShippingAddress());
+        }
+        return finish(h);
+    }
+
+    // Identifies a snapshot by its file instead of its records, so a lazy snapshot view is
+    // fingerprinted without decoding it: path, size, modification time and row count.
+    // Rewriting the snapshot changes its modification time and so its fingerprint.
+    public static long ofSnapshot(Snapshot<?> snapshot) throws IOException {
+        Path file = snapshot.getFile();
+        long h = mix(SEED, file.toAbsolutePath().toString());
+        h = mix(h, Files.size(file));
+        h = mix(h, Files.getLastModifiedTime(file).to(TimeUnit.NANOSECONDS));
+        h = mix(h, snapshot.getRowCount());
+        return finish(h);
+    }
+
+    // Same hash over raw bytes, e.g. a rendered response body
+    public static long ofBytes(byte[] data) {
+        long h = mix(SEED, data.length);
+        for (byte b : data) {
+            h ^= b & 0xFF;
+            h *= PRIME;
+        }
+        return finish(h);
+    }
+
+    private static long mix(long h, long value) {
+        for (int i = 0; i < 8; i++) {
+            h ^= (value >>> (i << 3)) & 0xFF;
+            h *= PRIME;
+        }
+        return h;
+    }
+
+    // Hashes the UTF-16 chars directly instead of String.hashCode() so that the
+    // result is a full 64 bits wide
+    private static long mix(long h, String value) {
+        if (value == null) {
+            return mix(h, NULL_MARKER);
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            h ^= c & 0xFF;
+            h *= PRIME;
+            h ^= c >>> 8;
+            h *= PRIME;
+        }
+        return mix(h, length);
+    }
+
+    private static long mix(long h, LocalDate date) {
+        return date == null ? mix(h, NULL_MARKER) : mix(h, date.toEpochDay());
+    }
+
+    private static long mix(long h, LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return mix(h, NULL_MARKER);
+        }
+        h = mix(h, dateTime.toEpochSecond(ZoneOffset.UTC));
+        return mix(h, dateTime.getNano());
+    }
+
+    private static long mixStrings(long h, List<String> values) {
+        if (values == null) {
+            return mix(h, NULL_MARKER);
+        }
+        h = mix(h, values.size());
+        for (String value : values) {
+            h = mix(h, value);
+        }
+        return h;
+    }
+
+    // Final avalanche step (from MurmurHash3 fmix64)
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
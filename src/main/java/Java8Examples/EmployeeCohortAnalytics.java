@@ -0,0 +1,223 @@
+package Java8Examples;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+// Tenure and join-cohort analytics over a fixed set of employees. Built once: join
+// dates are kept as sorted epoch days with prefix sums of salary and age alongside,
+// both for the whole company and per department code. Every date range query
+// (headcount on a date, a tenure band, a join-year cohort) is two binary searches
+// and a subtraction, so reports never rescan the employees or touch LocalDate objects.
+// Employees who joined on a date count towards the headcount from that day on.
+public class EmployeeCohortAnalytics {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    static class CohortStats {
+        private final String label;
+        private final int headcount;
+        private final double averageSalary;
+        private final double averageAge;
+
+        CohortStats(String label, int headcount, double averageSalary, double averageAge) {
+            this.label = label;
+            this.headcount = headcount;
+            this.averageSalary = averageSalary;
+            this.averageAge = averageAge;
+        }
+
+        public String getLabel() { return label; }
+        public int getHeadcount() { return headcount; }
+        // 0 when the range is empty
+        public double getAverageSalary() { return averageSalary; }
+        public double getAverageAge() { return averageAge; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: headcount=%d, avgSalary=$%.2f, avgAge=%.1f",
+                    label, headcount, averageSalary, averageAge);
+        }
+    }
+
+    // Sorted join days with prefix sums; entry i of a prefix array covers the first i employees
+    private static class Index {
+        private final long[] joinDays;
+        private final double[] salaryPrefix;
+        private final long[] agePrefix;
+
+        Index(List<EmployeeDataProcessor.Employee> sorted) {
+            int n = sorted.size();
+            joinDays = new long[n];
+            salaryPrefix = new double[n + 1];
+            agePrefix = new long[n + 1];
+            for (int i = 0; i < n; i++) {
+                EmployeeDataProcessor.Employee employee = sorted.get(i);
+                joinDays[i] = employee.getJoinDate().toEpochDay();
+                salaryPrefix[i + 1] = salaryPrefix[i] + employee.getSalary();
+                agePrefix[i + 1] = agePrefix[i] + employee.getAge();
+            }
+        }
+
+        // Number of employees who joined on or before the given day
+        int joinedBy(long epochDay) {
+            int low = 0;
+            int high = joinDays.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (joinDays[mid] <= epochDay) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Employees with fromDay < joinDay <= toDay
+        CohortStats range(String label, long fromDay, long toDay) {
+            if (toDay <= fromDay) {
+                return new CohortStats(label, 0, 0, 0);
+            }
+            int from = joinedBy(fromDay);
+            int to = joinedBy(toDay);
+            int count = to - from;
+            if (count == 0) {
+                return new CohortStats(label, 0, 0, 0);
+            }
+            return new CohortStats(label, count, (salaryPrefix[to] - salaryPrefix[from]) / count,
+                    (double) (agePrefix[to] - agePrefix[from]) / count);
+        }
+    }
+
+    private static final Index EMPTY = new Index(Collections.emptyList());
+
+    private final Index all;
+    // Indexed by department code; null where no employee has that code
+    private final Index[] byDepartment;
+
+    public EmployeeCohortAnalytics(Collection<EmployeeDataProcessor.Employee> employees) {
+        List<EmployeeDataProcessor.Employee> sorted = new ArrayList<>(employees);
+        sorted.sort(Comparator.comparing(EmployeeDataProcessor.Employee::getJoinDate));
+        all = new Index(sorted);
+
+        Map<Integer, List<EmployeeDataProcessor.Employee>> groups = new HashMap<>();
+        int maxCode = -1;
+        for (EmployeeDataProcessor.Employee employee : sorted) {
+            // The sort is stable, so every group stays in join order
+            groups.computeIfAbsent(employee.getDepartmentCode(), code -> new ArrayList<>()).add(employee);
+            maxCode = Math.max(maxCode, employee.getDepartmentCode());
+        }
+        byDepartment = new Index[maxCode + 1];
+        groups.forEach((code, members) -> byDepartment[code] = new Index(members));
+    }
+
+    public int size() {
+        return all.joinDays.length;
+    }
+
+    // Join date of the most recent hire; empty when there are no employees
+    public Optional<LocalDate> latestJoinDate() {
+        return size() == 0 ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(all.joinDays[size() - 1]));
+    }
+
+    public int headcountOn(LocalDate date) {
+        return all.joinedBy(date.toEpochDay());
+    }
+
+    public int headcountOn(LocalDate date, String department) {
+        return department(department).joinedBy(date.toEpochDay());
+    }
+
+    // Employees who joined in [from, to)
+    public CohortStats joinedBetween(LocalDate from, LocalDate to) {
+        return joinedBetween(all, label(from, to), from, to);
+    }
+
+    public CohortStats joinedBetween(LocalDate from, LocalDate to, String department) {
+        return joinedBetween(department(department), department + " " + label(from, to), from, to);
+    }
+
+    public CohortStats cohort(int joinYear) {
+        return joinedBetween(all, String.valueOf(joinYear), LocalDate.of(joinYear, 1, 1),
+                LocalDate.of(joinYear + 1, 1, 1));
+    }
+
+    public CohortStats cohort(int joinYear, String department) {
+        return joinedBetween(department(department), department + " " + joinYear,
+                LocalDate.of(joinYear, 1, 1), LocalDate.of(joinYear + 1, 1, 1));
+    }
+
+    // Employees with at least minYears and fewer than maxYears of completed service on asOf
+    public CohortStats tenureBand(LocalDate asOf, int minYears, int maxYears) {
+        return tenureBand(all, bandLabel(minYears, maxYears), asOf, minYears, maxYears);
+    }
+
+    public CohortStats tenureBand(LocalDate asOf, int minYears, int maxYears, String department) {
+        return tenureBand(department(department), department + " " + bandLabel(minYears, maxYears),
+                asOf, minYears, maxYears);
+    }
+
+    // Consecutive bands split at the given year boundaries, with an open-ended last band;
+    // tenureBands(asOf, 1, 3, 5) gives 0-1, 1-3, 3-5 and 5+ years
+    public List<CohortStats> tenureBands(LocalDate asOf, int... boundaries) {
+        List<CohortStats> bands = new ArrayList<>();
+        int lower = 0;
+        for (int boundary : boundaries) {
+            if (boundary <= lower) {
+                throw new IllegalArgumentException("Band boundaries must be increasing: " +
+                        Arrays.toString(boundaries));
+            }
+            bands.add(tenureBand(asOf, lower, boundary));
+            lower = boundary;
+        }
+        bands.add(tenureBand(asOf, lower, Integer.MAX_VALUE));
+        return bands;
+    }
+
+    // One entry per join year from the earliest to the latest, empty years included
+    public List<CohortStats> cohorts() {
+        if (size() == 0) {
+            return Collections.emptyList();
+        }
+        int first = LocalDate.ofEpochDay(all.joinDays[0]).getYear();
+        int last = LocalDate.ofEpochDay(all.joinDays[size() - 1]).getYear();
+        List<CohortStats> cohorts = new ArrayList<>(last - first + 1);
+        for (int year = first; year <= last; year++) {
+            cohorts.add(cohort(year));
+        }
+        return cohorts;
+    }
+
+    private CohortStats tenureBand(Index index, String label, LocalDate asOf, int minYears, int maxYears) {
+        if (minYears < 0 || maxYears <= minYears) {
+            throw new IllegalArgumentException("Invalid tenure band " + minYears + ".." + maxYears);
+        }
+        // tenure >= minYears  <=>  joined on or before asOf - minYears
+        // tenure <  maxYears  <=>  joined after asOf - maxYears
+        long toDay = asOf.minusYears(minYears).toEpochDay();
+        long fromDay = maxYears == Integer.MAX_VALUE || maxYears > asOf.getYear() - LocalDate.MIN.getYear()
+                ? Long.MIN_VALUE : asOf.minusYears(maxYears).toEpochDay();
+        return index.range(label, fromDay, toDay);
+    }
+
+    private static CohortStats joinedBetween(Index index, String label, LocalDate from, LocalDate to) {
+        return index.range(label, from.toEpochDay() - 1, to.toEpochDay() - 1);
+    }
+
+    private Index department(String department) {
+        int code = SymbolTable.DEPARTMENTS.codeOf(department);
+        if (code < 0 || code >= byDepartment.length || byDepartment[code] == null) {
+            return EMPTY;
+        }
+        return byDepartment[code];
+    }
+
+    private static String label(LocalDate from, LocalDate to) {
+        return "[" + DATE.format(from) + " .. " + DATE.format(to) + ")";
+    }
+
+    private static String bandLabel(int minYears, int maxYears) {
+        return maxYears == Integer.MAX_VALUE ? minYears + "+ years" : minYears + "-" + maxYears + " years";
+    }
+}
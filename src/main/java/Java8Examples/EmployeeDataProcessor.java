@@ -9,39 +9,43 @@ import java.time.format.DateTimeFormatter;
 public class EmployeeDataProcessor {
 
     // Employee inner class
+    // Department and skills are stored as SymbolTable codes to avoid duplicate strings
     static class Employee {
         private String id;
         private String name;
         private double salary;
-        private String department;
+        private int departmentCode;
         private LocalDate joinDate;
         private int age;
-        private List<String> skills;
+        private int[] skillCodes;
 
         public Employee(String id, String name, double salary, String department,
                         LocalDate joinDate, int age, List<String> skills) {
             this.id = id;
             this.name = name;
             this.salary = salary;
-            this.department = department;
+            this.departmentCode = SymbolTable.DEPARTMENTS.intern(department);
             this.joinDate = joinDate;
             this.age = age;
-            this.skills = skills;
+            this.skillCodes = SymbolTable.SKILLS.internAll(skills);
         }
 
         // Getters
         public String getId() { return id; }
         public String getName() { return name; }
         public double getSalary() { return salary; }
-        public String getDepartment() { return department; }
+        public String getDepartment() { return SymbolTable.DEPARTMENTS.symbol(departmentCode); }
+        public int getDepartmentCode() { return departmentCode; }
         public LocalDate getJoinDate() { return joinDate; }
         public int getAge() { return age; }
-        public List<String> getSkills() { return skills; }
+        public List<String> getSkills() { return SymbolTable.SKILLS.symbols(skillCodes); }
+        // Shared array - callers must not modify it
+        public int[] getSkillCodes() { return skillCodes; }
 
         @Override
         public String toString() {
             return String.format("Employee[ID:%s, Name:%s, Salary:%.2f, Dept:%s, Age:%d]",
-                    id, name, salary, department, age);
+                    id, name, salary, getDepartment(), age);
         }
     }
 
@@ -49,6 +53,9 @@ public class EmployeeDataProcessor {
         System.out.println("=== EMPLOYEE DATA PROCESSOR - Java 8 Streams & Lambda ===");
 
         List<Employee> employees = createSampleEmployees();
+        AppConfig config = AppConfig.get();
+        double highSalaryThreshold = config.getHighSalaryThreshold();
+        int development = SymbolTable.DEPARTMENTS.intern("Development");
 
         // 1. Lambda Expressions with forEach
         System.out.println("\n--- 1. Lambda Expressions with forEach ---");
@@ -66,49 +73,87 @@ public class EmployeeDataProcessor {
         // 3. Stream Filtering
         System.out.println("\n--- 3. Stream Filtering ---");
         List<Employee> highPaidDevs = employees.stream()
-                .filter(emp -> emp.getSalary() > 75000)
-                .filter(emp -> "Development".equals(emp.getDepartment()))
+                .filter(emp -> emp.getSalary() > highSalaryThreshold)
+                .filter(emp -> emp.getDepartmentCode() == development)
                 .collect(Collectors.toList());
         highPaidDevs.forEach(System.out::println);
 
         // 4. Stream Mapping and Collection
         System.out.println("\n--- 4. Stream Mapping ---");
-        Map<String, Double> deptAvgSalary = employees.stream()
-                .collect(Collectors.groupingBy(
-                        Employee::getDepartment,
-                        Collectors.averagingDouble(Employee::getSalary)
+        IntDoubleMap deptAvgSalary = employees.stream()
+                .collect(PrimitiveCollectors.averagingDoubleByInt(
+                        Employee::getDepartmentCode,
+                        Employee::getSalary
                 ));
         deptAvgSalary.forEach((dept, avg) ->
-                System.out.printf("Department: %s - Average Salary: $%.2f\n", dept, avg)
+                System.out.printf("Department: %s - Average Salary: $%.2f\n", SymbolTable.DEPARTMENTS.symbol(dept), avg)
         );
 
         // 5. Stream Reduction - Statistics
         System.out.println("\n--- 5. Stream Reduction & Statistics ---");
-        DoubleSummaryStatistics stats = employees.stream()
+        DoubleSummaryStatistics stats = BlockSpliterator.stream(employees, false)
                 .mapToDouble(Employee::getSalary)
                 .summaryStatistics();
         System.out.printf("Salary Statistics: Count=%d, Min=%.2f, Max=%.2f, Average=%.2f, Sum=%.2f\n",
                 stats.getCount(), stats.getMin(), stats.getMax(),
                 stats.getAverage(), stats.getSum());
+        if (ApproximateAnalytics.isEnabled()) {
+            KllSketch salarySketch = BlockSpliterator.parallelStream(employees, false)
+                    .collect(ApproximateAnalytics.quantiles(Employee::getSalary));
+            System.out.println(ApproximateAnalytics.describeQuantiles("Approximate salary percentiles", salarySketch));
+        }
 
         // 6. FlatMap for nested collections
         System.out.println("\n--- 6. FlatMap for Skills ---");
+        if (ApproximateAnalytics.isEnabled()) {
+            HyperLogLog skillSketch = BlockSpliterator.parallelStream(employees, false)
+                    .collect(ApproximateAnalytics.distinctCount(Employee::getSkills));
+            System.out.println(ApproximateAnalytics.describeDistinct("Approximate unique skills", skillSketch));
+        }
         List<String> allSkills = employees.stream()
-                .flatMap(emp -> emp.getSkills().stream())
+                .flatMapToInt(emp -> IntStream.of(emp.getSkillCodes()))
                 .distinct()
+                .mapToObj(SymbolTable.SKILLS::symbol)
                 .sorted()
                 .collect(Collectors.toList());
         System.out.println("All unique skills: " + allSkills);
 
         // 7. Custom Comparator with Lambda
         System.out.println("\n--- 7. Sorting with Lambda Comparator ---");
-        List<Employee> sortedBySalary = employees.stream()
-                .sorted((e1, e2) -> Double.compare(e2.getSalary(), e1.getSalary()))
-                .collect(Collectors.toList());
+        Comparator<Employee> bySalaryDesc = (e1, e2) -> Double.compare(e2.getSalary(), e1.getSalary());
+        List<Employee> sortedBySalary;
+        try (Stream<Employee> sorted = ExternalSorter.of(RecordCodecs.EMPLOYEE, bySalaryDesc).sort(employees.stream())) {
+            sortedBySalary = sorted.collect(Collectors.toList());
+        }
         sortedBySalary.forEach(emp ->
                 System.out.printf("%s: $%.2f\n", emp.getName(), emp.getSalary())
         );
 
+        // 8. Tenure & Cohort Analytics over precomputed join-date indexes
+        System.out.println("\n--- 8. Tenure & Cohort Analytics ---");
+        EmployeeCohortAnalytics cohorts = new EmployeeCohortAnalytics(employees);
+        LocalDate asOf = LocalDate.of(2024, 1, 1);
+        System.out.println("Headcount on 2020-12-31: " + cohorts.headcountOn(LocalDate.of(2020, 12, 31)));
+        System.out.println("Development headcount on 2020-12-31: " +
+                cohorts.headcountOn(LocalDate.of(2020, 12, 31), "Development"));
+        System.out.println("Tenure bands as of " + asOf + ":");
+        cohorts.tenureBands(asOf, 2, 4).forEach(band -> System.out.println("  " + band));
+        System.out.println("Join-year cohorts:");
+        cohorts.cohorts().forEach(cohort -> System.out.println("  " + cohort));
+
+        // 9. Concurrent salary updates with consistent department statistics
+        System.out.println("\n--- 9. Batched Salary Updates ---");
+        SalaryStore salaryStore = new SalaryStore(employees);
+        SalaryStore.Snapshot before = salaryStore.snapshot();
+        SalaryStore.Snapshot after = salaryStore.batch()
+                .raiseDepartment("Testing", 10)
+                .raise("E008", 5)
+                .transfer("E004", "Management")
+                .commit();
+        System.out.println("Before: " + before.getDepartmentStats().values());
+        System.out.println("After:  " + after.getDepartmentStats().values());
+        System.out.println("Company: " + after.getTotal());
+
         // Output for next class
         String processedData = "EMPLOYEE_PROCESSING_COMPLETED:" + employees.size() + "_RECORDS";
         System.out.println("\n" + processedData);
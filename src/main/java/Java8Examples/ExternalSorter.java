@@ -0,0 +1,358 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+// External merge sort for inputs that do not fit in the heap.
+// Input is cut into chunks of about half the memory budget; each full chunk is sorted
+// with Arrays.parallelSort and spilled as a sorted run on a background thread while the
+// next chunk fills up, so at most two chunks are resident. The runs are then k-way
+// merged lazily and handed back as a Stream. Inputs that fit in one chunk never touch disk.
+public class ExternalSorter<T> {
+
+    // Bound on simultaneously open run files; more runs are pre-merged in passes
+    static final int MAX_MERGE_FAN_IN = 64;
+    private static final int IO_BUFFER_BYTES = 64 * 1024;
+
+    static class Stats {
+        private final int runs;
+        private final long records;
+        private final long spilledBytes;
+        private final int mergePasses;
+
+        Stats(int runs, long records, long spilledBytes, int mergePasses) {
+            this.runs = runs;
+            this.records = records;
+            this.spilledBytes = spilledBytes;
+            this.mergePasses = mergePasses;
+        }
+
+        public int getRuns() { return runs; }
+        public long getRecords() { return records; }
+        public long getSpilledBytes() { return spilledBytes; }
+        public int getMergePasses() { return mergePasses; }
+        public boolean isInMemory() { return runs == 0; }
+
+        @Override
+        public String toString() {
+            return isInMemory()
+                    ? String.format("SortStats[%d records, in memory]", records)
+                    : String.format("SortStats[%d records, %d runs, %d KB spilled, %d extra merge passes]",
+                    records, runs, spilledBytes / 1024, mergePasses);
+        }
+    }
+
+    private final RecordCodec<T> codec;
+    private final Comparator<? super T> comparator;
+    private final long memoryBudgetBytes;
+    private final Path tempDirectory;
+    private volatile Stats lastStats;
+
+    public ExternalSorter(RecordCodec<T> codec, Comparator<? super T> comparator,
+                          long memoryBudgetBytes, Path tempDirectory) {
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("memoryBudgetBytes must be positive: " + memoryBudgetBytes);
+        }
+        this.codec = codec;
+        this.comparator = comparator;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.tempDirectory = tempDirectory;
+    }
+
+    // Sorter using the memory budget and temp directory from AppConfig
+    public static <T> ExternalSorter<T> of(RecordCodec<T> codec, Comparator<? super T> comparator) {
+        AppConfig config = AppConfig.get();
+        String dir = config.getSortTempDir();
+        return new ExternalSorter<>(codec, comparator, config.getSortMemoryBudgetBytes(),
+                dir != null ? Paths.get(dir) : Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    public Stats getLastStats() {
+        return lastStats;
+    }
+
+    public Stream<T> sort(Stream<T> input) {
+        return sort(input.iterator()).onClose(input::close);
+    }
+
+    // Returns the input in comparator order. Close the stream (or consume it fully)
+    // to release the run files.
+    public Stream<T> sort(Iterator<T> input) {
+        long chunkBudget = Math.max(1, memoryBudgetBytes / 2);
+        List<Path> runs = new ArrayList<>();
+        ExecutorService spiller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "external-sort-spill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Future<Path> pendingSpill = null;
+        long records = 0;
+        long spilledBytes = 0;
+
+        // Covers reading the input and writing the runs; the merge happens as the result is consumed
+        try (StageRecorder.Stage stage = StageRecorder.begin("sort.runs")) {
+            List<T> chunk = new ArrayList<>();
+            long chunkBytes = 0;
+            while (input.hasNext()) {
+                T next = input.next();
+                chunk.add(next);
+                chunkBytes += codec.estimatedHeapBytes(next);
+                records++;
+                if (chunkBytes >= chunkBudget && input.hasNext()) {
+                    // Wait for the previous run so only two chunks are ever resident
+                    if (pendingSpill != null) {
+                        runs.add(pendingSpill.get());
+                    }
+                    final List<T> full = chunk;
+                    pendingSpill = spiller.submit(() -> spill(full));
+                    chunk = new ArrayList<>();
+                    chunkBytes = 0;
+                }
+            }
+
+            if (pendingSpill == null) {
+                T[] sorted = sortChunk(chunk);
+                lastStats = new Stats(0, records, 0, 0);
+                stage.records(records);
+                return Arrays.stream(sorted);
+            }
+
+            runs.add(pendingSpill.get());
+            if (!chunk.isEmpty()) {
+                runs.add(spill(chunk));
+            }
+            for (Path run : runs) {
+                spilledBytes += Files.size(run);
+            }
+
+            int initialRuns = runs.size();
+            int mergePasses = 0;
+            while (runs.size() > MAX_MERGE_FAN_IN) {
+                // Each pass replaces consecutive groups by their merged run in place, so
+                // runs stay in input order, ties still resolve to the earlier run and the
+                // sort stays stable
+                for (int i = 0; i < runs.size(); i++) {
+                    List<Path> group = runs.subList(i, Math.min(i + MAX_MERGE_FAN_IN, runs.size()));
+                    if (group.size() > 1) {
+                        Path merged = mergeToRun(new ArrayList<>(group));
+                        group.clear();
+                        runs.add(i, merged);
+                    }
+                }
+                mergePasses++;
+            }
+            lastStats = new Stats(initialRuns, records, spilledBytes, mergePasses);
+            stage.records(records).bytes(spilledBytes);
+
+            MergeIterator merge = new MergeIterator(runs);
+            Spliterator<T> spliterator = Spliterators.spliterator(merge, records,
+                    Spliterator.ORDERED | Spliterator.NONNULL);
+            return StreamSupport.stream(spliterator, false).onClose(merge::close);
+
+        } catch (IOException e) {
+            discard(runs, pendingSpill);
+            throw new UncheckedIOException("External sort failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discard(runs, pendingSpill);
+            throw new IllegalStateException("External sort interrupted", e);
+        } catch (ExecutionException e) {
+            deleteQuietly(runs);
+            if (e.getCause() instanceof RuntimeException) {
+                // e.g. the comparator failing while a run was sorted
+                throw (RuntimeException) e.getCause();
+            }
+            throw new UncheckedIOException("Spilling a sorted run failed",
+                    e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause()));
+        } catch (RuntimeException e) {
+            // The comparator or the input failed; a run may still be in flight
+            discard(runs, pendingSpill);
+            throw e;
+        } finally {
+            spiller.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T[] sortChunk(List<T> chunk) {
+        T[] array = (T[]) chunk.toArray();
+        // Stable, and fans out to the common pool for large chunks
+        Arrays.parallelSort(array, comparator);
+        return array;
+    }
+
+    private Path spill(List<T> chunk) throws IOException {
+        T[] sorted = sortChunk(chunk);
+        Path run = Files.createTempFile(tempDirectory, "sort-run-", ".bin");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_BYTES))) {
+            VarInts.writeUnsigned(out, sorted.length);
+            for (T value : sorted) {
+                codec.write(out, value);
+            }
+        }
+        return run;
+    }
+
+    private Path mergeToRun(List<Path> group) throws IOException {
+        long total = 0;
+        MergeIterator merge = new MergeIterator(group);
+        try {
+            for (RunReader reader : merge.queue) {
+                total += reader.remaining + 1;
+            }
+            Path run = Files.createTempFile(tempDirectory, "sort-run-", ".bin");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_BYTES))) {
+                VarInts.writeUnsigned(out, total);
+                while (merge.hasNext()) {
+                    codec.write(out, merge.next());
+                }
+            } catch (IOException | RuntimeException e) {
+                deleteQuietly(Collections.singletonList(run));
+                throw e;
+            }
+            return run;
+        } finally {
+            merge.close();
+        }
+    }
+
+    // Deletes the runs written so far, including one still being spilled
+    private static void discard(List<Path> runs, Future<Path> pendingSpill) {
+        if (pendingSpill != null) {
+            try {
+                runs.add(pendingSpill.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // That run was never written
+            }
+        }
+        deleteQuietly(runs);
+    }
+
+    private static void deleteQuietly(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // Best effort; the files live in a temp directory
+            }
+        }
+    }
+
+    private class RunReader {
+        private final Path file;
+        private final int index;
+        private final DataInputStream in;
+        private long remaining;
+        private T head;
+
+        RunReader(Path file, int index) throws IOException {
+            this.file = file;
+            this.index = index;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_BYTES));
+            this.remaining = VarInts.readUnsigned(in);
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                head = null;
+                return false;
+            }
+            head = codec.read(in);
+            remaining--;
+            return true;
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Deleting the file is what matters
+            }
+        }
+    }
+
+    private class MergeIterator implements Iterator<T> {
+        private final List<Path> files;
+        // Every reader opened, also those a failed queue operation dropped from the queue
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> queue;
+        private boolean closed;
+
+        MergeIterator(List<Path> files) throws IOException {
+            this.files = files;
+            // Ties go to the lower run index, which keeps the merge stable
+            this.queue = new PriorityQueue<>(Math.max(1, files.size()), (a, b) -> {
+                int cmp = comparator.compare(a.head, b.head);
+                return cmp != 0 ? cmp : Integer.compare(a.index, b.index);
+            });
+            try {
+                for (int i = 0; i < files.size(); i++) {
+                    RunReader reader = new RunReader(files.get(i), i);
+                    readers.add(reader);
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (queue.isEmpty()) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RunReader reader = null;
+            try {
+                reader = queue.poll();
+                T value = reader.head;
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                    Files.deleteIfExists(reader.file);
+                }
+                return value;
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException("Reading sorted run " + reader.file + " failed", e);
+            } catch (RuntimeException e) {
+                // A failing comparator ends the merge; no run file is left behind
+                close();
+                throw e;
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            queue.clear();
+            deleteQuietly(files);
+        }
+    }
+}
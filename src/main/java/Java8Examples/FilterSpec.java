@@ -0,0 +1,236 @@
+package Java8Examples;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.function.*;
+
+// Declarative filter over a record's getters: a conjunction of "field op constant"
+// clauses plus an optional numeric projection to sum. Fields are resolved to public
+// getters (getX, isX or x()). compile() turns the spec into a generated class, and
+// compileSumming() into one that also sums the projection; composed() builds the
+// equivalent chain of Predicate.and lambdas for comparison.
+// Specs are values: equal type, clauses and projection make equal specs, which is what
+// PredicateCompiler caches generated classes by.
+public final class FilterSpec<T> {
+
+    static final class Clause {
+        private final String field;
+        private final Query.Op op;
+        private final Object value;
+        private final Method getter;
+
+        Clause(String field, Query.Op op, Object value, Method getter) {
+            this.field = field;
+            this.op = op;
+            this.value = value;
+            this.getter = getter;
+        }
+
+        public String getField() { return field; }
+        public Query.Op getOp() { return op; }
+        public Object getValue() { return value; }
+        Method getGetter() { return getter; }
+
+        // The getter follows from the field and the spec's type
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Clause)) {
+                return false;
+            }
+            Clause other = (Clause) o;
+            return field.equals(other.field) && op == other.op && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(field, op, value);
+        }
+
+        @Override
+        public String toString() {
+            return field + " " + op + " " + (value instanceof String ? "'" + value + "'" : value);
+        }
+    }
+
+    private final Class<T> type;
+    private final List<Clause> clauses;
+    private final String sumField;
+    private final Method sumGetter;
+
+    private FilterSpec(Class<T> type, List<Clause> clauses, String sumField, Method sumGetter) {
+        this.type = type;
+        this.clauses = Collections.unmodifiableList(clauses);
+        this.sumField = sumField;
+        this.sumGetter = sumGetter;
+    }
+
+    public static <T> FilterSpec<T> on(Class<T> type) {
+        return new FilterSpec<>(type, new ArrayList<>(), null, null);
+    }
+
+    public FilterSpec<T> where(String field, Query.Op op, Object value) {
+        Method getter = getter(field);
+        Class<?> returnType = getter.getReturnType();
+        if (returnType == String.class) {
+            if (!(value instanceof String) || (op != Query.Op.EQ && op != Query.Op.NE)) {
+                throw new IllegalArgumentException("Text field " + field + " supports = and != with a String");
+            }
+        } else if (returnType == double.class || returnType == float.class) {
+            requireNumber(field, value);
+        } else if (returnType == int.class || returnType == long.class) {
+            requireNumber(field, value);
+            if (((Number) value).doubleValue() != ((Number) value).longValue()) {
+                throw new IllegalArgumentException("Integral field " + field + " compared with " + value);
+            }
+            // The compiled test() compares int fields against an int constant
+            long bound = ((Number) value).longValue();
+            if (returnType == int.class && (bound < Integer.MIN_VALUE || bound > Integer.MAX_VALUE)) {
+                throw new IllegalArgumentException("int field " + field + " compared with out-of-range " + value);
+            }
+        } else if (returnType == boolean.class) {
+            if (!(value instanceof Boolean) || (op != Query.Op.EQ && op != Query.Op.NE)) {
+                throw new IllegalArgumentException("Boolean field " + field + " supports = and != with a Boolean");
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported field type " + returnType + " for " + field);
+        }
+        List<Clause> next = new ArrayList<>(clauses);
+        next.add(new Clause(field, op, value, getter));
+        return new FilterSpec<>(type, next, sumField, sumGetter);
+    }
+
+    public FilterSpec<T> sumOf(String field) {
+        Method getter = getter(field);
+        if (!getter.getReturnType().isPrimitive() || getter.getReturnType() == boolean.class) {
+            throw new IllegalArgumentException("sumOf needs a numeric field: " + field);
+        }
+        return new FilterSpec<>(type, clauses, field, getter);
+    }
+
+    public CompiledFilter<T> compile() {
+        return PredicateCompiler.compile(this);
+    }
+
+    public SummingFilter<T> compileSumming() {
+        if (sumField == null) {
+            throw new IllegalStateException("compileSumming() needs a sumOf projection: " + this);
+        }
+        return (SummingFilter<T>) PredicateCompiler.compile(this);
+    }
+
+    public Class<T> getType() { return type; }
+    public List<Clause> getClauses() { return clauses; }
+    // null when there is no projection
+    public String getSumField() { return sumField; }
+    Method getSumGetter() { return sumGetter; }
+
+    // The same filter as a chain of composed lambdas, the way hand-written code builds it.
+    // Getters become functional-interface instances through LambdaMetafactory.
+    public Predicate<T> composed() {
+        Predicate<T> result = record -> true;
+        for (Clause clause : clauses) {
+            result = result.and(clausePredicate(clause));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Predicate<T> clausePredicate(Clause clause) {
+        Class<?> returnType = clause.getter.getReturnType();
+        Query.Op op = clause.op;
+        if (returnType == String.class || returnType == boolean.class) {
+            Function<T, Object> getter = (Function<T, Object>) lambda(clause.getter, Function.class, "apply",
+                    MethodType.methodType(Object.class, Object.class));
+            Object expected = clause.value;
+            return op == Query.Op.EQ ? record -> expected.equals(getter.apply(record))
+                    : record -> !expected.equals(getter.apply(record));
+        }
+        if (returnType == int.class || returnType == long.class) {
+            ToLongFunction<T> getter = (ToLongFunction<T>) lambda(clause.getter, ToLongFunction.class, "applyAsLong",
+                    MethodType.methodType(long.class, Object.class));
+            long bound = ((Number) clause.value).longValue();
+            return record -> QueryEngine.matches(op, Long.compare(getter.applyAsLong(record), bound));
+        }
+        ToDoubleFunction<T> getter = (ToDoubleFunction<T>) lambda(clause.getter, ToDoubleFunction.class,
+                "applyAsDouble", MethodType.methodType(double.class, Object.class));
+        double bound = ((Number) clause.value).doubleValue();
+        switch (op) {
+            case EQ: return record -> getter.applyAsDouble(record) == bound;
+            case NE: return record -> getter.applyAsDouble(record) != bound;
+            case LT: return record -> getter.applyAsDouble(record) < bound;
+            case LE: return record -> getter.applyAsDouble(record) <= bound;
+            case GT: return record -> getter.applyAsDouble(record) > bound;
+            default: return record -> getter.applyAsDouble(record) >= bound;
+        }
+    }
+
+    private Object lambda(Method getter, Class<?> functionalInterface, String name, MethodType erased) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle target = lookup.unreflect(getter);
+            // Boxes for Function, widens int to long for ToLongFunction
+            MethodType instantiated = erased.returnType() == Object.class ? target.type().wrap()
+                    : target.type().changeReturnType(erased.returnType());
+            CallSite site = LambdaMetafactory.metafactory(lookup, name,
+                    MethodType.methodType(functionalInterface), erased, target, instantiated);
+            return site.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot build lambda for " + getter, e);
+        }
+    }
+
+    private Method getter(String field) {
+        String capitalized = Character.toUpperCase(field.charAt(0)) + field.substring(1);
+        for (String name : new String[] { "get" + capitalized, "is" + capitalized, field }) {
+            try {
+                Method method = type.getMethod(name);
+                if (method.getReturnType() != void.class) {
+                    return method;
+                }
+            } catch (NoSuchMethodException e) {
+                // try the next naming convention
+            }
+        }
+        throw new IllegalArgumentException("No getter for " + field + " on " + type.getSimpleName());
+    }
+
+    private static void requireNumber(String field, Object value) {
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException("Numeric field " + field + " compared with " + value);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FilterSpec)) {
+            return false;
+        }
+        FilterSpec<?> other = (FilterSpec<?>) o;
+        return type == other.type && clauses.equals(other.clauses) && Objects.equals(sumField, other.sumField);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, clauses, sumField);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(type.getName()).append('[');
+        for (int i = 0; i < clauses.size(); i++) {
+            sb.append(i == 0 ? "" : " AND ").append(clauses.get(i));
+        }
+        sb.append(']');
+        if (sumField != null) {
+            sb.append(" sum(").append(sumField).append(')');
+        }
+        return sb.toString();
+    }
+}
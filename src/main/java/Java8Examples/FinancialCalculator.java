@@ -7,15 +7,21 @@ import java.time.format.*;
 import java.time.temporal.ChronoUnit;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class FinancialCalculator {
 
+    // Type and category are stored as SymbolTable codes to avoid duplicate strings
     static class Transaction {
+        static final int INCOME = SymbolTable.TRANSACTION_TYPES.intern("INCOME");
+        static final int EXPENSE = SymbolTable.TRANSACTION_TYPES.intern("EXPENSE");
+
         private String id;
         private double amount;
         private LocalDateTime timestamp;
-        private String type;
-        private String category;
+        private int typeCode;
+        private int categoryCode;
         private String description;
 
         public Transaction(String id, double amount, LocalDateTime timestamp,
@@ -23,16 +29,18 @@ public class FinancialCalculator {
             this.id = id;
             this.amount = amount;
             this.timestamp = timestamp;
-            this.type = type;
-            this.category = category;
+            this.typeCode = SymbolTable.TRANSACTION_TYPES.intern(type);
+            this.categoryCode = SymbolTable.TRANSACTION_CATEGORIES.intern(category);
             this.description = description;
         }
 
         public String getId() { return id; }
         public double getAmount() { return amount; }
         public LocalDateTime getTimestamp() { return timestamp; }
-        public String getType() { return type; }
-        public String getCategory() { return category; }
+        public String getType() { return SymbolTable.TRANSACTION_TYPES.symbol(typeCode); }
+        public int getTypeCode() { return typeCode; }
+        public String getCategory() { return SymbolTable.TRANSACTION_CATEGORIES.symbol(categoryCode); }
+        public int getCategoryCode() { return categoryCode; }
         public String getDescription() { return description; }
 
         // Java 8 compatible optional-like method
@@ -57,6 +65,12 @@ public class FinancialCalculator {
             this.analysis = analysis;
         }
 
+        public double getTotalIncome() { return totalIncome; }
+        public double getTotalExpense() { return totalExpense; }
+        public double getNetProfit() { return netProfit; }
+        public Map<String, Double> getCategoryWiseExpense() { return categoryWiseExpense; }
+        public String getAnalysis() { return analysis; }
+
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder();
@@ -101,30 +115,45 @@ public class FinancialCalculator {
 
         // 3. Grouping transactions by date periods
         System.out.println("\n--- 3. Grouping by Date Periods ---");
-        Map<YearMonth, List<Transaction>> monthlyTransactions = transactions.stream()
-                .collect(Collectors.groupingBy(
-                        t -> YearMonth.from(t.getTimestamp())
+        // Only the count and total are printed, so each month reduces to its statistics
+        // instead of holding its transactions
+        SpillingCollectors.Groups<YearMonth, DoubleSummaryStatistics> monthlyTransactions = transactions.stream()
+                .collect(SpillingCollectors.groupingBy(
+                        t -> YearMonth.from(t.getTimestamp()),
+                        RecordCodecs.TRANSACTION,
+                        Collectors.summarizingDouble(Transaction::getAmount)
                 ));
 
-        monthlyTransactions.forEach((yearMonth, transList) -> {
-            double monthlyTotal = transList.stream()
-                    .mapToDouble(Transaction::getAmount)
-                    .sum();
-            System.out.printf("%s: %d transactions, Total: $%.2f\n",
-                    yearMonth.format(DateTimeFormatter.ofPattern("MMM yyyy")),
-                    transList.size(), monthlyTotal);
-        });
+        monthlyTransactions.forEach((yearMonth, monthly) ->
+                System.out.printf("%s: %d transactions, Total: $%.2f\n",
+                        yearMonth.format(DateTimeFormatter.ofPattern("MMM yyyy")),
+                        monthly.getCount(), monthly.getSum())
+        );
+        System.out.println(monthlyTransactions.getStats());
+
+        if (ApproximateAnalytics.isEnabled()) {
+            KllSketch amountSketch = BlockSpliterator.parallelStream(transactions, false)
+                    .collect(ApproximateAnalytics.quantiles(Transaction::getAmount));
+            System.out.println(ApproximateAnalytics.describeQuantiles("Approximate amount quantiles", amountSketch));
+        }
 
         // 4. CompletableFuture for async calculations
         System.out.println("\n--- 4. CompletableFuture for Async Processing ---");
-        CompletableFuture<FinancialReport> reportFuture =
-                CompletableFuture.supplyAsync(() -> generateFinancialReport(transactions));
+        ExecutorService reportExecutor = Executors.newFixedThreadPool(AppConfig.get().getPoolSize());
+        FinancialReport report;
+        try {
+            CompletableFuture<FinancialReport> reportFuture =
+                    CompletableFuture.supplyAsync(() -> generateFinancialReport(transactions), reportExecutor);
 
-        System.out.println("Generating financial report asynchronously...");
-        System.out.println("Main thread can do other work here...");
+            System.out.println("Generating financial report asynchronously...");
+            System.out.println("Main thread can do other work here...");
 
-        // Get the result
-        FinancialReport report = reportFuture.get();
+            // Get the result
+            report = reportFuture.get();
+        } finally {
+            // Also when the report fails, or the pool's threads would keep the JVM alive
+            reportExecutor.shutdown();
+        }
         System.out.println("\n" + report);
 
         // 5. Traditional null checking instead of Optional
@@ -148,29 +177,54 @@ public class FinancialCalculator {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+        return summarize(transactions);
+    }
 
-        double totalIncome = transactions.stream()
-                .filter(t -> "INCOME".equals(t.getType()))
-                .mapToDouble(Transaction::getAmount)
-                .sum();
-
-        double totalExpense = transactions.stream()
-                .filter(t -> "EXPENSE".equals(t.getType()))
-                .mapToDouble(Transaction::getAmount)
-                .sum();
-
-        Map<String, Double> categoryExpense = transactions.stream()
-                .filter(t -> "EXPENSE".equals(t.getType()))
-                .collect(Collectors.groupingBy(
-                        Transaction::getCategory,
-                        Collectors.summingDouble(Transaction::getAmount)
-                ));
+    // The report aggregation itself, reusable by other modules feeding in transactions.
+    // One fork/join pass on the aggregation pool computes income, expense and the
+    // per-category expense sums together.
+    static FinancialReport summarize(List<Transaction> transactions) {
+        return ForkJoinAggregator.shared().aggregate(transactions, toReport());
+    }
+
+    // The same report built one transaction at a time, for sources that are not a finished list
+    static Collector<Transaction, ?, FinancialReport> toReport() {
+        return Collector.of(ReportAccumulator::new, ReportAccumulator::add, ReportAccumulator::merge,
+                ReportAccumulator::toReport);
+    }
+
+    private static class ReportAccumulator {
+        private double totalIncome;
+        private double totalExpense;
+        private final IntDoubleMap categoryExpense = new IntDoubleMap();
+
+        void add(Transaction t) {
+            if (t.getTypeCode() == Transaction.INCOME) {
+                totalIncome += t.getAmount();
+            } else if (t.getTypeCode() == Transaction.EXPENSE) {
+                totalExpense += t.getAmount();
+                categoryExpense.addTo(t.getCategoryCode(), t.getAmount());
+            }
+        }
 
-        String analysis = totalIncome > totalExpense ?
+        ReportAccumulator merge(ReportAccumulator other) {
+            totalIncome += other.totalIncome;
+            totalExpense += other.totalExpense;
+            categoryExpense.addAll(other.categoryExpense);
+            return this;
+        }
+
+        FinancialReport toReport() {
+            return new FinancialReport(totalIncome, totalExpense,
+                    categoryExpense.toMap(SymbolTable.TRANSACTION_CATEGORIES::symbol),
+                    analyze(totalIncome, totalExpense));
+        }
+    }
+
+    private static String analyze(double totalIncome, double totalExpense) {
+        return totalIncome > totalExpense ?
                 "Healthy financial status with positive cash flow" :
                 "Attention needed: Expenses exceeding income";
-
-        return new FinancialReport(totalIncome, totalExpense, categoryExpense, analysis);
     }
 
     private static String getDetailedAnalysis(List<Transaction> transactions) {
@@ -0,0 +1,44 @@
+package Java8Examples;
+
+// The Reactive Streams interfaces with the same names and signatures as
+// java.util.concurrent.Flow, which only exists from Java 9. Code written against these
+// moves to the JDK versions by swapping the import. Rules that matter here: onNext is
+// never called for more items than have been requested, signals to one subscriber are
+// never concurrent, and request(n) with n <= 0 fails the subscription.
+public final class Flow {
+
+    @FunctionalInterface
+    public interface Publisher<T> {
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    public interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+        void onNext(T item);
+        void onError(Throwable throwable);
+        void onComplete();
+    }
+
+    public interface Subscription {
+        void request(long n);
+        void cancel();
+    }
+
+    public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+
+    public static int defaultBufferSize() {
+        return DEFAULT_BUFFER_SIZE;
+    }
+
+    private Flow() {
+    }
+
+    // Adds two demands without overflowing; Long.MAX_VALUE means unbounded
+    static long addDemand(long current, long n) {
+        long sum = current + n;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+}
@@ -0,0 +1,208 @@
+package Java8Examples;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+// Flow adapters for the module record types, so each module can consume live data at the
+// rate it can handle instead of a finished List. main() runs a local producer stub that
+// pushes generated orders and transactions as fast as it can through a bounded
+// BufferedPublisher and reports the sustained throughput and the deepest buffer seen.
+// Usage: FlowAdapters [items]
+public class FlowAdapters {
+
+    // Cold publisher over an existing collection: items are only pulled as they are requested
+    static class IterablePublisher<T> implements Flow.Publisher<T> {
+        private final Iterable<? extends T> source;
+        private final Executor executor;
+
+        IterablePublisher(Iterable<? extends T> source, Executor executor) {
+            this.source = source;
+            this.executor = executor;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            Iterator<? extends T> iterator = source.iterator();
+            AtomicLong requested = new AtomicLong();
+            AtomicInteger wip = new AtomicInteger();
+            AtomicBoolean cancelled = new AtomicBoolean();
+            Runnable drain = new Runnable() {
+                private boolean terminated;
+
+                @Override
+                public void run() {
+                    int missed = 1;
+                    do {
+                        long emitted = 0;
+                        long demand = requested.get();
+                        if (!terminated && !cancelled.get() && demand < 0) {
+                            terminated = true;
+                            subscriber.onError(new IllegalArgumentException("request(n) must be positive"));
+                        }
+                        try {
+                            while (!terminated && !cancelled.get() && emitted < demand && iterator.hasNext()) {
+                                subscriber.onNext(iterator.next());
+                                emitted++;
+                            }
+                            if (!terminated && !cancelled.get() && !iterator.hasNext()) {
+                                terminated = true;
+                                subscriber.onComplete();
+                            }
+                        } catch (Throwable e) {
+                            // A failing source or subscriber ends the stream, like BufferedPublisher
+                            if (!terminated) {
+                                terminated = true;
+                                cancelled.set(true);
+                                subscriber.onError(e);
+                            }
+                        }
+                        if (emitted > 0 && demand != Long.MAX_VALUE) {
+                            requested.addAndGet(-emitted);
+                        }
+                        missed = wip.addAndGet(-missed);
+                    } while (missed != 0);
+                }
+            };
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    if (n <= 0) {
+                        requested.set(Long.MIN_VALUE);
+                    } else {
+                        requested.accumulateAndGet(n, (current, add) -> current < 0 ? current : Flow.addDemand(current, add));
+                    }
+                    if (wip.getAndIncrement() == 0) {
+                        executor.execute(drain);
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+        }
+    }
+
+    public static <T> Flow.Publisher<T> fromIterable(Iterable<? extends T> source, Executor executor) {
+        return new IterablePublisher<>(source, executor);
+    }
+
+    // Validates each order, runs the processor on the valid ones and passes on those it processed
+    public static Flow.Processor<OrderProcessingSystem.Order, OrderProcessingSystem.Order> orderPipeline(
+            OrderProcessingSystem.OrderValidator validator, OrderProcessingSystem.OrderProcessor processor,
+            int prefetch) {
+        return new BatchingProcessor<>(order ->
+                validator.validate(order) && processor.process(order).isSuccess() ? order : null, prefetch);
+    }
+
+    public static FoldingSubscriber<FinancialCalculator.Transaction, ?, FinancialCalculator.FinancialReport>
+            financialReport(int batchSize) {
+        return FoldingSubscriber.of(FinancialCalculator.toReport(), batchSize);
+    }
+
+    public static FoldingSubscriber<EmployeeDataProcessor.Employee, ?, Map<String, Double>>
+            averageSalaryByDepartment(int batchSize) {
+        return FoldingSubscriber.of(Collectors.groupingBy(EmployeeDataProcessor.Employee::getDepartment,
+                TreeMap::new, Collectors.averagingDouble(EmployeeDataProcessor.Employee::getSalary)), batchSize);
+    }
+
+    public static FoldingSubscriber<InventoryManagementSystem.Product, ?, Map<String, Double>>
+            lowStockValueByCategory(int batchSize) {
+        // Collectors.filtering is Java 9, so in-stock products add nothing and empty categories are dropped
+        return FoldingSubscriber.of(Collectors.collectingAndThen(
+                Collectors.groupingBy(InventoryManagementSystem.Product::getCategory, TreeMap::new,
+                        Collectors.summingDouble(product -> product.isLowStock() ? product.getTotalValue() : 0)),
+                byCategory -> {
+                    byCategory.values().removeIf(value -> value == 0);
+                    return byCategory;
+                }), batchSize);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("=== FLOW ADAPTERS - Backpressured streams for the modules ===");
+        ExecutorService delivery = Executors.newSingleThreadExecutor();
+        try {
+            // 1. Orders: producer stub -> bounded publisher -> validate/process -> statistics
+            System.out.println("\n--- 1. Order Pipeline ---");
+            BufferedPublisher<OrderProcessingSystem.Order> orders = new BufferedPublisher<>(delivery, 256);
+            Flow.Processor<OrderProcessingSystem.Order, OrderProcessingSystem.Order> pipeline = orderPipeline(
+                    order -> order.getAmount() > 0 && order.getStatusCode() != OrderProcessingSystem.Order.CANCELLED,
+                    OrderProcessingSystem::updateOrderStatus, 128);
+            FoldingSubscriber<OrderProcessingSystem.Order, ?, DoubleSummaryStatistics> orderStats =
+                    FoldingSubscriber.of(Collectors.summarizingDouble(OrderProcessingSystem.Order::getAmount), 64);
+            orders.subscribe(pipeline);
+            pipeline.subscribe(orderStats);
+            Random random = new Random(7);
+            long start = System.nanoTime();
+            for (int i = 0; i < items; i++) {
+                orders.submit(createOrder(i, random));
+            }
+            orders.close();
+            DoubleSummaryStatistics stats = orderStats.getResult().get();
+            report("orders", items, start, orders.getMaxBuffered(), orders.getBufferSize());
+            System.out.printf("Processed %d valid orders, total $%.2f%n", stats.getCount(), stats.getSum());
+
+            // 2. Transactions folded straight into a FinancialReport
+            System.out.println("\n--- 2. Transactions into a Financial Report ---");
+            BufferedPublisher<FinancialCalculator.Transaction> transactions = new BufferedPublisher<>(delivery, 256);
+            FoldingSubscriber<FinancialCalculator.Transaction, ?, FinancialCalculator.FinancialReport> reportSubscriber =
+                    financialReport(128);
+            transactions.subscribe(reportSubscriber);
+            start = System.nanoTime();
+            for (int i = 0; i < items; i++) {
+                transactions.submit(createTransaction(i, random));
+            }
+            transactions.close();
+            FinancialCalculator.FinancialReport report = reportSubscriber.getResult().get();
+            report("transactions", items, start, transactions.getMaxBuffered(), transactions.getBufferSize());
+            System.out.printf("Income $%.2f, expense $%.2f, net $%.2f%n",
+                    report.getTotalIncome(), report.getTotalExpense(), report.getNetProfit());
+
+            // 3. Existing lists as cold, demand-driven publishers
+            System.out.println("\n--- 3. Lists as Publishers ---");
+            FoldingSubscriber<EmployeeDataProcessor.Employee, ?, Map<String, Double>> salaries =
+                    averageSalaryByDepartment(4);
+            fromIterable(MainExecutor.createSampleEmployees(), delivery).subscribe(salaries);
+            System.out.println("Average salary by department: " + salaries.getResult().get());
+            FoldingSubscriber<InventoryManagementSystem.Product, ?, Map<String, Double>> lowStock =
+                    lowStockValueByCategory(4);
+            fromIterable(MainExecutor.createSampleProducts(), delivery).subscribe(lowStock);
+            System.out.println("Low-stock value by category: " + lowStock.getResult().get());
+        } finally {
+            delivery.shutdown();
+        }
+    }
+
+    private static void report(String what, int items, long startNanos, int maxBuffered, int bufferSize) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%d %s in %.2fs = %.0f/s, deepest buffer %d of %d, heap used %d MB%n",
+                items, what, seconds, items / seconds, maxBuffered, bufferSize,
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+    }
+
+    private static final String[] STATUSES = { "PENDING", "PENDING", "PENDING", "CANCELLED" };
+    private static final List<String> ITEMS = Arrays.asList("Laptop", "Mouse");
+    private static final String[] CATEGORIES = { "Rent", "Utilities", "Supplies", "Travel" };
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static OrderProcessingSystem.Order createOrder(int i, Random random) {
+        double amount = random.nextInt(20) == 0 ? 0 : 10 + random.nextInt(5000);
+        return new OrderProcessingSystem.Order("ORD-" + i, "Customer-" + random.nextInt(1000),
+                EPOCH.plusSeconds(i), amount, STATUSES[random.nextInt(STATUSES.length)], ITEMS,
+                "Address-" + random.nextInt(100));
+    }
+
+    private static FinancialCalculator.Transaction createTransaction(int i, Random random) {
+        boolean income = random.nextInt(3) == 0;
+        return new FinancialCalculator.Transaction("T" + i, 10 + random.nextInt(5000), EPOCH.plusSeconds(i),
+                income ? "INCOME" : "EXPENSE", income ? "Sales" : CATEGORIES[random.nextInt(CATEGORIES.length)],
+                null);
+    }
+}
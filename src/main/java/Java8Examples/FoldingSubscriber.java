@@ -0,0 +1,98 @@
+package Java8Examples;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.*;
+import java.util.stream.Collector;
+
+// Subscriber that folds every item into a java.util.stream.Collector's container and
+// completes getResult() with the finished value, so any existing Collectors-based
+// aggregation can consume a live Flow. Demand is requested in batches: `batchSize` up
+// front, then half of that again each time half has been folded.
+public class FoldingSubscriber<T, A, R> implements Flow.Subscriber<T> {
+
+    private final BiConsumer<A, ? super T> accumulator;
+    private final Function<A, R> finisher;
+    private final int batchSize;
+    private final int limit;
+    private final A container;
+    private final CompletableFuture<R> result = new CompletableFuture<>();
+    private final AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+    private int sinceLastRequest;
+    private volatile long count;
+
+    public FoldingSubscriber(Collector<? super T, A, R> collector) {
+        this(collector, Flow.defaultBufferSize());
+    }
+
+    public FoldingSubscriber(Collector<? super T, A, R> collector, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.accumulator = collector.accumulator();
+        this.finisher = collector.finisher();
+        this.container = collector.supplier().get();
+        this.batchSize = batchSize;
+        this.limit = Math.max(1, batchSize / 2);
+    }
+
+    public static <T, A, R> FoldingSubscriber<T, A, R> of(Collector<? super T, A, R> collector, int batchSize) {
+        return new FoldingSubscriber<>(collector, batchSize);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (!this.subscription.compareAndSet(null, Objects.requireNonNull(subscription, "subscription"))) {
+            subscription.cancel();
+            return;
+        }
+        subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            accumulator.accept(container, item);
+        } catch (Throwable e) {
+            subscription.get().cancel();
+            result.completeExceptionally(e);
+            return;
+        }
+        count++;
+        if (++sinceLastRequest == limit) {
+            sinceLastRequest = 0;
+            subscription.get().request(limit);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        try {
+            result.complete(finisher.apply(container));
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    // Stops the flow; the result completes exceptionally with a CancellationException
+    public void cancel() {
+        Flow.Subscription current = subscription.get();
+        if (current != null) {
+            current.cancel();
+        }
+        result.cancel(false);
+    }
+
+    public CompletableFuture<R> getResult() { return result; }
+    // Items folded so far
+    public long getCount() { return count; }
+}
@@ -0,0 +1,128 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.Collector;
+
+// Fork/join reduction of array-backed records on a dedicated pool, so report aggregation
+// neither waits behind nor starves parallel streams in the common pool.
+// The unit of work is a Collector, which is already a monoid: supplier() gives the
+// identity, combiner() the associative merge and finisher() the final projection. The JDK
+// collectors (summingDouble, counting, summarizingDouble for min/max, averagingDouble)
+// and PrimitiveCollectors (grouped sums, counts and averages) plug in unchanged.
+// A task keeps forking off the right half of its range and carries on with the left half,
+// so the largest pieces are the ones left for thieves. Splitting stops at the leaf size
+// (records / (parallelism * 8), never below processing.batchSize), or earlier once this
+// worker already has enough queued work that nobody has stolen. A leaf is one loop over
+// a contiguous slice of the array with the accumulator fetched once.
+public final class ForkJoinAggregator {
+
+    private static final int LEAVES_PER_WORKER = 8;
+    // Queued-but-unstolen tasks beyond this mean the other workers are busy: stop splitting
+    private static final int MAX_SURPLUS_TASKS = 3;
+
+    private static final class Shared {
+        // Sized from aggregation.parallelism when first used; later config reloads do not resize it
+        static final ForkJoinAggregator INSTANCE = new ForkJoinAggregator(
+                AppConfig.get().getAggregationParallelism(), AppConfig.get().getBatchSize());
+    }
+
+    private final ForkJoinPool pool;
+    private final int minLeafSize;
+
+    public ForkJoinAggregator(int parallelism, int minLeafSize) {
+        if (minLeafSize <= 0) {
+            throw new IllegalArgumentException("minLeafSize must be positive: " + minLeafSize);
+        }
+        this.minLeafSize = minLeafSize;
+        this.pool = new ForkJoinPool(parallelism, owner -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(owner);
+            thread.setName("aggregate-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    // The process-wide aggregation pool
+    public static ForkJoinAggregator shared() {
+        return Shared.INSTANCE;
+    }
+
+    public <T, A, R> R aggregate(List<? extends T> records, Collector<? super T, A, R> collector) {
+        return aggregate(records.toArray(), collector);
+    }
+
+    // The array is read, never written; elements must all be Ts
+    public <T, A, R> R aggregate(Object[] records, Collector<? super T, A, R> collector) {
+        int leafSize = Math.max(minLeafSize, records.length / (pool.getParallelism() * LEAVES_PER_WORKER));
+        A container = records.length < 2 * minLeafSize
+                // Too small to be worth a hand-off to the pool
+                ? AggregateTask.<T, A>leaf(records, collector, 0, records.length)
+                : pool.invoke(new AggregateTask<T, A>(records, collector, 0, records.length, leafSize));
+        return finish(collector, container);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A, R> R finish(Collector<?, A, R> collector, A container) {
+        return collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)
+                ? (R) container : collector.finisher().apply(container);
+    }
+
+    public int getParallelism() { return pool.getParallelism(); }
+    public long getStealCount() { return pool.getStealCount(); }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static final class AggregateTask<T, A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] records;
+        private final Collector<? super T, A, ?> collector;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        // Tasks forked by the same parent, nearest (leftmost) first
+        private AggregateTask<T, A> nextForked;
+
+        AggregateTask(Object[] records, Collector<? super T, A, ?> collector, int from, int to, int leafSize) {
+            this.records = records;
+            this.collector = collector;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected A compute() {
+            int hi = to;
+            AggregateTask<T, A> forked = null;
+            while (hi - from > leafSize && getSurplusQueuedTaskCount() <= MAX_SURPLUS_TASKS) {
+                int mid = (from + hi) >>> 1;
+                AggregateTask<T, A> right = new AggregateTask<>(records, collector, mid, hi, leafSize);
+                right.nextForked = forked;
+                forked = right;
+                right.fork();
+                hi = mid;
+            }
+            A result = leaf(records, collector, from, hi);
+            // Left to right, so order-sensitive collectors see the records in array order
+            BinaryOperator<A> combiner = collector.combiner();
+            for (AggregateTask<T, A> task = forked; task != null; task = task.nextForked) {
+                result = combiner.apply(result, task.join());
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T, A> A leaf(Object[] records, Collector<? super T, A, ?> collector, int from, int to) {
+            A container = collector.supplier().get();
+            BiConsumer<A, ? super T> accumulator = collector.accumulator();
+            for (int i = from; i < to; i++) {
+                accumulator.accept(container, (T) records[i]);
+            }
+            return container;
+        }
+    }
+}
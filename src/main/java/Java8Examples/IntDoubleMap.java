@@ -0,0 +1,183 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+// Open-addressing hash map from int keys (SymbolTable codes, typically) to primitive
+// doubles. Keys and values sit in two parallel arrays probed linearly, so a slot costs
+// 12 bytes of array instead of a HashMap node plus a boxed Integer and Double. Key 0 is
+// used to mark free slots and is kept in a field of its own. addTo() on an existing key
+// and clear() never allocate. Not thread-safe: parallel work fills one map per thread
+// and combines them with addAll(), as the PrimitiveCollectors do.
+public class IntDoubleMap {
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, double value);
+    }
+
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private double[] values;
+    private int size;
+    private int resizeAt;
+    private boolean hasZeroKey;
+    private double zeroValue;
+
+    public IntDoubleMap() {
+        this(0);
+    }
+
+    public IntDoubleMap(int expectedSize) {
+        allocate(ObjectDoubleMap.capacityFor(expectedSize));
+    }
+
+    public int size() { return size + (hasZeroKey ? 1 : 0); }
+    public boolean isEmpty() { return size() == 0; }
+
+    public boolean containsKey(int key) {
+        return key == FREE ? hasZeroKey : keys[slotOf(key)] != FREE;
+    }
+
+    public double get(int key) {
+        return getOrDefault(key, 0);
+    }
+
+    public double getOrDefault(int key, double defaultValue) {
+        if (key == FREE) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = slotOf(key);
+        return keys[slot] != FREE ? values[slot] : defaultValue;
+    }
+
+    public void put(int key, double value) {
+        if (key == FREE) {
+            hasZeroKey = true;
+            zeroValue = value;
+        } else {
+            // insert() may rehash, so look the array up after it
+            int slot = insert(key);
+            values[slot] = value;
+        }
+    }
+
+    // Adds delta to the key's value (0 when absent) and returns the new value
+    public double addTo(int key, double delta) {
+        if (key == FREE) {
+            hasZeroKey = true;
+            return zeroValue += delta;
+        }
+        int slot = insert(key);
+        return values[slot] += delta;
+    }
+
+    // Adds every entry of other into this map; the combiner for per-thread partial maps
+    public IntDoubleMap addAll(IntDoubleMap other) {
+        // Copying another table in slot order into a smaller one piles its keys into long runs
+        ensureCapacity(size() + other.size());
+        if (keys.length < other.keys.length) {
+            rehash(other.keys.length);
+        }
+        if (other.hasZeroKey) {
+            addTo(FREE, other.zeroValue);
+        }
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != FREE) {
+                addTo(other.keys[i], other.values[i]);
+            }
+        }
+        return this;
+    }
+
+    public void ensureCapacity(int expectedSize) {
+        int capacity = ObjectDoubleMap.capacityFor(expectedSize);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, 0);
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = 0;
+    }
+
+    public void forEach(EntryConsumer action) {
+        if (hasZeroKey) {
+            action.accept(FREE, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    // Boxed copy with decoded keys, e.g. toMap(SymbolTable.DEPARTMENTS::symbol)
+    public <K> Map<K, Double> toMap(IntFunction<K> keyDecoder) {
+        Map<K, Double> result = new HashMap<>(size() * 2);
+        forEach((key, value) -> result.put(keyDecoder.apply(key), value));
+        return result;
+    }
+
+    // Array footprint in bytes, for comparing against boxed maps
+    public long arrayBytes() {
+        return (long) keys.length * (Integer.BYTES + Double.BYTES);
+    }
+
+    @Override
+    public String toString() {
+        return toMap(Integer::valueOf).toString();
+    }
+
+    private int slotOf(int key) {
+        int mask = keys.length - 1;
+        int slot = ObjectDoubleMap.mix(key) & mask;
+        int existing;
+        while ((existing = keys[slot]) != FREE && existing != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int insert(int key) {
+        int slot = slotOf(key);
+        if (keys[slot] == FREE) {
+            if (size >= resizeAt) {
+                rehash(keys.length * 2);
+                slot = slotOf(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                // Keys are distinct, so the first free slot is the right one
+                int slot = ObjectDoubleMap.mix(oldKeys[i]) & mask;
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new double[capacity];
+        resizeAt = capacity / 4 * 3;
+    }
+}
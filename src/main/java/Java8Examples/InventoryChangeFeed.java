@@ -0,0 +1,131 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// The product table as a stream of change events. Every write goes through insert(),
+// update(), delete() or changeStock(), which validates it against the current row, stores
+// the new row and hands listeners a Change carrying both the before and after image, so a
+// consumer can retract the old row and add the new one without looking anything up.
+// Products are immutable; a stock change replaces the row with a copy at the new quantity.
+// Writes are serialized and listeners run on the writing thread in sequence order.
+public class InventoryChangeFeed {
+
+    public enum Kind { INSERTED, UPDATED, DELETED, STOCK_CHANGED }
+
+    public static final class Change {
+        private final Kind kind;
+        private final long sequence;
+        // null for INSERTED
+        private final InventoryManagementSystem.Product before;
+        // null for DELETED
+        private final InventoryManagementSystem.Product after;
+
+        Change(Kind kind, long sequence, InventoryManagementSystem.Product before,
+               InventoryManagementSystem.Product after) {
+            this.kind = kind;
+            this.sequence = sequence;
+            this.before = before;
+            this.after = after;
+        }
+
+        public Kind getKind() { return kind; }
+        public long getSequence() { return sequence; }
+        public InventoryManagementSystem.Product getBefore() { return before; }
+        public InventoryManagementSystem.Product getAfter() { return after; }
+        public String getProductId() { return (after != null ? after : before).getProductId(); }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s %s", sequence, kind, getProductId());
+        }
+    }
+
+    private final Map<String, InventoryManagementSystem.Product> table = new LinkedHashMap<>();
+    private final List<Consumer<? super Change>> listeners = new CopyOnWriteArrayList<>();
+    private long sequence;
+
+    public InventoryChangeFeed() {
+    }
+
+    public InventoryChangeFeed(List<InventoryManagementSystem.Product> products) {
+        products.forEach(this::insert);
+    }
+
+    // Replays the current table as INSERTED events, then delivers every later change
+    public synchronized void subscribe(Consumer<? super Change> listener) {
+        for (InventoryManagementSystem.Product product : table.values()) {
+            listener.accept(new Change(Kind.INSERTED, sequence, null, product));
+        }
+        listeners.add(listener);
+    }
+
+    public synchronized void unsubscribe(Consumer<? super Change> listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized Change insert(InventoryManagementSystem.Product product) {
+        if (table.containsKey(product.getProductId())) {
+            throw new IllegalArgumentException("Product already exists: " + product.getProductId());
+        }
+        return publish(Kind.INSERTED, null, product);
+    }
+
+    public synchronized Change update(InventoryManagementSystem.Product product) {
+        return publish(Kind.UPDATED, existing(product.getProductId()), product);
+    }
+
+    public synchronized Change delete(String productId) {
+        return publish(Kind.DELETED, existing(productId), null);
+    }
+
+    // Adds delta (negative for sales) to the product's quantity, which may not go below zero
+    public synchronized Change changeStock(String productId, int delta) {
+        InventoryManagementSystem.Product before = existing(productId);
+        int quantity = before.getQuantity() + delta;
+        if (quantity < 0) {
+            throw new IllegalArgumentException(String.format("Stock of %s would drop to %d", productId, quantity));
+        }
+        return publish(Kind.STOCK_CHANGED, before, before.withQuantity(quantity));
+    }
+
+    public synchronized InventoryManagementSystem.Product get(String productId) {
+        return table.get(productId);
+    }
+
+    public synchronized int size() {
+        return table.size();
+    }
+
+    // Copy of the table in insertion order
+    public synchronized List<InventoryManagementSystem.Product> getProducts() {
+        return new ArrayList<>(table.values());
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    private InventoryManagementSystem.Product existing(String productId) {
+        InventoryManagementSystem.Product product = table.get(productId);
+        if (product == null) {
+            throw new NoSuchElementException("No such product: " + productId);
+        }
+        return product;
+    }
+
+    private Change publish(Kind kind, InventoryManagementSystem.Product before,
+                           InventoryManagementSystem.Product after) {
+        if (after != null) {
+            table.put(after.getProductId(), after);
+        } else {
+            table.remove(before.getProductId());
+        }
+        Change change = new Change(kind, ++sequence, before, after);
+        for (Consumer<? super Change> listener : listeners) {
+            listener.accept(change);
+        }
+        return change;
+    }
+}
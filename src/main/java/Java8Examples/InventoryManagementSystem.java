@@ -6,10 +6,11 @@ import java.time.*;
 
 public class InventoryManagementSystem {
 
+    // Category is stored as a SymbolTable code to avoid duplicate strings
     static class Product {
         private String productId;
         private String name;
-        private String category;
+        private int categoryCode;
         private double price;
         private int quantity;
         private double rating;
@@ -19,7 +20,7 @@ public class InventoryManagementSystem {
                        int quantity, double rating, LocalDate expiryDate) {
             this.productId = productId;
             this.name = name;
-            this.category = category;
+            this.categoryCode = SymbolTable.PRODUCT_CATEGORIES.intern(category);
             this.price = price;
             this.quantity = quantity;
             this.rating = rating;
@@ -28,25 +29,36 @@ public class InventoryManagementSystem {
 
         public String getProductId() { return productId; }
         public String getName() { return name; }
-        public String getCategory() { return category; }
+        public String getCategory() { return SymbolTable.PRODUCT_CATEGORIES.symbol(categoryCode); }
+        public int getCategoryCode() { return categoryCode; }
         public double getPrice() { return price; }
         public int getQuantity() { return quantity; }
         public double getRating() { return rating; }
         public LocalDate getExpiryDate() { return expiryDate; }
         public double getTotalValue() { return price * quantity; }
 
+        // Copy at a new stock level; the change feed never mutates a published row
+        public Product withQuantity(int newQuantity) {
+            return new Product(productId, name, getCategory(), price, newQuantity, rating, expiryDate);
+        }
+
+        // Compares epoch days against the cached clock: no LocalDate per call
         public boolean isExpired() {
-            return expiryDate.isBefore(LocalDate.now());
+            return isExpired(CoarseClock.SYSTEM.epochDay());
+        }
+
+        public boolean isExpired(long todayEpochDay) {
+            return expiryDate.toEpochDay() < todayEpochDay;
         }
 
         public boolean isLowStock() {
-            return quantity < 10;
+            return quantity < AppConfig.get().getLowStockThreshold();
         }
 
         @Override
         public String toString() {
             return String.format("Product[ID:%s, Name:%s, Category:%s, Price:%.2f, Qty:%d, Rating:%.1f]",
-                    productId, name, category, price, quantity, rating);
+                    productId, name, getCategory(), price, quantity, rating);
         }
     }
 
@@ -54,6 +66,8 @@ public class InventoryManagementSystem {
         System.out.println("=== INVENTORY MANAGEMENT SYSTEM - Java 8 Collectors & Parallel Streams ===\n");
 
         List<Product> products = createSampleProducts();
+        AppConfig config = AppConfig.get();
+        double minTopRating = config.getTopRatedMinRating();
 
         // 1. Advanced Collectors - groupingBy, partitioningBy
         System.out.println("--- 1. Advanced Collectors ---");
@@ -78,8 +92,9 @@ public class InventoryManagementSystem {
         // 2. Complex Collectors - summarizing, joining
         System.out.println("\n--- 2. Complex Collectors ---");
 
-        DoubleSummaryStatistics priceStats = products.stream()
-                .collect(Collectors.summarizingDouble(Product::getPrice));
+        ForkJoinAggregator aggregator = ForkJoinAggregator.shared();
+        DoubleSummaryStatistics priceStats = aggregator.aggregate(products,
+                Collectors.summarizingDouble(Product::getPrice));
         System.out.printf("Price Statistics: Min=%.2f, Max=%.2f, Avg=%.2f\n",
                 priceStats.getMin(), priceStats.getMax(), priceStats.getAverage());
 
@@ -88,8 +103,8 @@ public class InventoryManagementSystem {
                 .collect(Collectors.joining(", ", "[", "]"));
         System.out.println("All Products: " + allProductNames);
 
-        // 3. Parallel Streams for large data processing
-        System.out.println("\n--- 3. Parallel Streams ---");
+        // 3. Parallel Streams and Fork/Join for large data processing
+        System.out.println("\n--- 3. Parallel Streams & Fork/Join ---");
 
         long startTime = System.currentTimeMillis();
         double sequentialTotal = products.stream()
@@ -98,59 +113,91 @@ public class InventoryManagementSystem {
         long sequentialTime = System.currentTimeMillis() - startTime;
 
         startTime = System.currentTimeMillis();
-        double parallelTotal = products.parallelStream()
+        // Block-aligned splits; the sum does not care about encounter order
+        double parallelTotal = BlockSpliterator.parallelStream(products, false)
                 .mapToDouble(Product::getTotalValue)
                 .sum();
         long parallelTime = System.currentTimeMillis() - startTime;
 
+        startTime = System.currentTimeMillis();
+        // Same sum as a fork/join reduction on the aggregation pool, off the common pool
+        double forkJoinTotal = aggregator.aggregate(products, Collectors.summingDouble(Product::getTotalValue));
+        long forkJoinTime = System.currentTimeMillis() - startTime;
+
         System.out.printf("Sequential Total: $%.2f (Time: %d ms)\n", sequentialTotal, sequentialTime);
         System.out.printf("Parallel Total: $%.2f (Time: %d ms)\n", parallelTotal, parallelTime);
+        System.out.printf("Fork/Join Total: $%.2f (Time: %d ms, %d workers)\n",
+                forkJoinTotal, forkJoinTime, aggregator.getParallelism());
         if (parallelTime > 0) {
             System.out.printf("Parallel speedup: %.2fx\n", (double) sequentialTime / parallelTime);
         }
 
-        // 4. Traditional approach instead of ConcurrentHashMap with computeIfAbsent
+        // 4. Per-thread counts merged by the fork/join tasks instead of a shared ConcurrentHashMap
         System.out.println("\n--- 4. Category Count ---");
-        Map<String, Integer> categoryCount = new HashMap<>();
-
-        products.forEach(product -> {
-            String category = product.getCategory();
-            categoryCount.put(category, categoryCount.getOrDefault(category, 0) + 1);
-        });
+        IntLongMap categoryCount = aggregator.aggregate(products,
+                PrimitiveCollectors.countingByInt(Product::getCategoryCode));
 
         System.out.println("Products per category:");
         categoryCount.forEach((category, count) ->
-                System.out.printf("  %s: %d products\n", category, count)
+                System.out.printf("  %s: %d products\n", SymbolTable.PRODUCT_CATEGORIES.symbol(category), count)
         );
 
         // 5. Custom Collector for complex aggregation
         System.out.println("\n--- 5. Custom Aggregation ---");
 
-        Map<String, Double> categoryAvgRating = products.stream()
-                .collect(Collectors.groupingBy(
-                        Product::getCategory,
-                        Collectors.averagingDouble(Product::getRating)
+        IntDoubleMap categoryAvgRating = aggregator.aggregate(products,
+                PrimitiveCollectors.averagingDoubleByInt(
+                        Product::getCategoryCode,
+                        Product::getRating
                 ));
 
         System.out.println("Average Rating by Category:");
         categoryAvgRating.forEach((category, avgRating) ->
-                System.out.printf("  %s: %.1f/5.0\n", category, avgRating)
+                System.out.printf("  %s: %.1f/5.0\n", SymbolTable.PRODUCT_CATEGORIES.symbol(category), avgRating)
         );
 
         // 6. Filtering and sorting with comparators
         System.out.println("\n--- 6. Advanced Filtering & Sorting ---");
 
-        List<Product> topRatedProducts = products.stream()
-                .filter(p -> p.getRating() >= 4.0)
-                .sorted(Comparator.comparingDouble(Product::getRating).reversed()
-                        .thenComparing(Product::getPrice))
-                .collect(Collectors.toList());
+        Comparator<Product> byRatingThenPrice = Comparator.comparingDouble(Product::getRating).reversed()
+                .thenComparing(Product::getPrice);
+        List<Product> topRatedProducts;
+        try (Stream<Product> sorted = ExternalSorter.of(RecordCodecs.PRODUCT, byRatingThenPrice)
+                .sort(products.stream().filter(p -> p.getRating() >= minTopRating))) {
+            topRatedProducts = sorted.collect(Collectors.toList());
+        }
 
-        System.out.println("Top Rated Products (Rating >= 4.0):");
+        System.out.printf("Top Rated Products (Rating >= %.1f):\n", minTopRating);
         topRatedProducts.forEach(p ->
                 System.out.printf("  ★ %.1f - %s ($%.2f)\n", p.getRating(), p.getName(), p.getPrice())
         );
 
+        // 7. Change feed with incrementally maintained aggregates
+        System.out.println("\n--- 7. Incremental Views ---");
+
+        InventoryChangeFeed feed = new InventoryChangeFeed(products);
+        InventoryView view = new InventoryView();
+        feed.subscribe(view::apply);
+
+        feed.changeStock("P002", -5);
+        feed.changeStock("P001", -10);
+        feed.update(new Product("P004", "Coffee Maker", "Appliances", 79.99, 12, 4.4, LocalDate.of(2025, 9, 15)));
+        feed.insert(new Product("P006", "Bookshelf", "Furniture", 149.99, 3, 4.6, LocalDate.of(2029, 1, 31)));
+        feed.delete("P005");
+
+        InventoryView.PriceStats viewPrices = view.getPriceStats();
+        System.out.printf("After %d changes: Total=$%.2f, Min=%.2f, Max=%.2f, Avg=%.2f\n",
+                view.getLastSequence() - products.size(), view.getTotalValue(),
+                viewPrices.getMin(), viewPrices.getMax(), viewPrices.getAverage());
+        System.out.println("Low stock (fewest left first):");
+        view.getLowStock().forEach(p ->
+                System.out.printf("  ⚠ %s - Only %d left\n", p.getName(), p.getQuantity())
+        );
+        System.out.println("Average Rating by Category:");
+        view.getCategoryAverageRatings().forEach((category, avgRating) ->
+                System.out.printf("  %s: %.1f/5.0\n", SymbolTable.PRODUCT_CATEGORIES.symbol(category), avgRating)
+        );
+
         // Output for next class
         String inventorySummary = String.format(
                 "INVENTORY_SUMMARY:TOTAL_PRODUCTS_%d,TOTAL_VALUE_%.2f,CATEGORIES_%d",
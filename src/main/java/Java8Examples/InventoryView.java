@@ -0,0 +1,160 @@
+package Java8Examples;
+
+import java.util.*;
+
+// Inventory aggregates kept current from the change feed instead of being recomputed from
+// the full product list: total stock value, price count/sum/min/max, average rating per
+// category and the low-stock partition. Each change retracts its before image and adds its
+// after image, so an insert, update, delete or stock change costs O(log n):
+// - min/max come from a multiset of prices (price -> number of products at that price),
+//   so deleting the cheapest product exposes the next one instead of forcing a rescan;
+// - ratings are a running sum and count per category code, and a category whose count
+//   drops to zero disappears from the averages;
+// - low-stock and in-stock products sit in two ordered sets keyed by (quantity, id).
+// The low-stock threshold is fixed when the view is created. Not thread-safe; subscribe
+// it to an InventoryChangeFeed, which delivers changes one at a time.
+public class InventoryView {
+
+    private static final Comparator<InventoryManagementSystem.Product> BY_QUANTITY_THEN_ID =
+            Comparator.comparingInt(InventoryManagementSystem.Product::getQuantity)
+                    .thenComparing(InventoryManagementSystem.Product::getProductId);
+
+    static class PriceStats {
+        private final long count;
+        private final double min;
+        private final double max;
+        private final double average;
+
+        PriceStats(long count, double min, double max, double average) {
+            this.count = count;
+            this.min = min;
+            this.max = max;
+            this.average = average;
+        }
+
+        public long getCount() { return count; }
+        // 0 when there are no products
+        public double getMin() { return min; }
+        public double getMax() { return max; }
+        public double getAverage() { return average; }
+
+        @Override
+        public String toString() {
+            return String.format("PriceStats[count=%d, min=%.2f, max=%.2f, avg=%.2f]", count, min, max, average);
+        }
+    }
+
+    private final int lowStockThreshold;
+    private long count;
+    private double totalValue;
+    private double priceSum;
+    private final TreeMap<Double, Integer> prices = new TreeMap<>();
+    private final IntDoubleMap ratingSums = new IntDoubleMap();
+    private final IntLongMap ratingCounts = new IntLongMap();
+    private final TreeSet<InventoryManagementSystem.Product> lowStock = new TreeSet<>(BY_QUANTITY_THEN_ID);
+    private final TreeSet<InventoryManagementSystem.Product> inStock = new TreeSet<>(BY_QUANTITY_THEN_ID);
+    private long lastSequence;
+
+    public InventoryView() {
+        this(AppConfig.get().getLowStockThreshold());
+    }
+
+    public InventoryView(int lowStockThreshold) {
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    // A view over a fixed list, as if every product had just been inserted
+    public static InventoryView of(List<InventoryManagementSystem.Product> products) {
+        InventoryView view = new InventoryView();
+        products.forEach(view::add);
+        return view;
+    }
+
+    public void apply(InventoryChangeFeed.Change change) {
+        if (change.getBefore() != null) {
+            remove(change.getBefore());
+        }
+        if (change.getAfter() != null) {
+            add(change.getAfter());
+        }
+        lastSequence = change.getSequence();
+    }
+
+    public long getCount() { return count; }
+    public double getTotalValue() { return totalValue; }
+    public int getLowStockThreshold() { return lowStockThreshold; }
+    public int getLowStockCount() { return lowStock.size(); }
+    // Sequence number of the last change applied
+    public long getLastSequence() { return lastSequence; }
+
+    public PriceStats getPriceStats() {
+        if (count == 0) {
+            return new PriceStats(0, 0, 0, 0);
+        }
+        return new PriceStats(count, prices.firstKey(), prices.lastKey(), priceSum / count);
+    }
+
+    // Average rating per category code, for the categories that still have products
+    public IntDoubleMap getCategoryAverageRatings() {
+        IntDoubleMap averages = new IntDoubleMap(ratingCounts.size());
+        ratingCounts.forEach((category, products) -> {
+            if (products > 0) {
+                averages.put(category, ratingSums.get(category) / products);
+            }
+        });
+        return averages;
+    }
+
+    // Low-stock products, fewest left first
+    public List<InventoryManagementSystem.Product> getLowStock() {
+        return new ArrayList<>(lowStock);
+    }
+
+    // Same shape as partitioningBy(isLowStock), each side ordered by quantity
+    public Map<Boolean, List<InventoryManagementSystem.Product>> getStockPartitions() {
+        Map<Boolean, List<InventoryManagementSystem.Product>> partitions = new HashMap<>();
+        partitions.put(true, new ArrayList<>(lowStock));
+        partitions.put(false, new ArrayList<>(inStock));
+        return partitions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InventoryView[products=%d, value=%.2f, lowStock=%d, seq=%d]",
+                count, totalValue, lowStock.size(), lastSequence);
+    }
+
+    private void add(InventoryManagementSystem.Product product) {
+        count++;
+        totalValue += product.getTotalValue();
+        priceSum += product.getPrice();
+        prices.merge(product.getPrice(), 1, Integer::sum);
+        ratingSums.addTo(product.getCategoryCode(), product.getRating());
+        ratingCounts.increment(product.getCategoryCode());
+        partitionOf(product).add(product);
+    }
+
+    private void remove(InventoryManagementSystem.Product product) {
+        count--;
+        totalValue -= product.getTotalValue();
+        priceSum -= product.getPrice();
+        // A null result removes the price once its last product is gone
+        prices.computeIfPresent(product.getPrice(), (price, n) -> n == 1 ? null : n - 1);
+        int category = product.getCategoryCode();
+        if (ratingCounts.addTo(category, -1) == 0) {
+            // Drop the rounding left over from adding and subtracting the same ratings
+            ratingSums.put(category, 0);
+        } else {
+            ratingSums.addTo(category, -product.getRating());
+        }
+        partitionOf(product).remove(product);
+        if (count == 0) {
+            totalValue = 0;
+            priceSum = 0;
+        }
+    }
+
+    private TreeSet<InventoryManagementSystem.Product> partitionOf(InventoryManagementSystem.Product product) {
+        return product.getQuantity() < lowStockThreshold ? lowStock : inStock;
+    }
+}
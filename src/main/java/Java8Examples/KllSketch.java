@@ -0,0 +1,224 @@
+package Java8Examples;
+
+import java.util.*;
+
+// KLL quantile sketch for doubles (Karnin, Lang, Liberty 2016).
+// Items live in a stack of compactors; level h items carry weight 2^h. When the sketch
+// is over capacity the lowest full level is sorted and every other item (random offset)
+// is promoted one level up. Memory is O(k) regardless of input size, and two sketches
+// merge by concatenating levels and compacting again.
+public class KllSketch {
+
+    public static final int DEFAULT_K = 200;
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+    private static final int MIN_LEVEL_CAPACITY = 8;
+
+    private final int k;
+    private final List<double[]> levels = new ArrayList<>();
+    private final List<Integer> sizes = new ArrayList<>();
+    // Fixed seed: results are reproducible for the same input order
+    private final SplittableRandom random = new SplittableRandom(0x5DEECE66DL);
+    private int retained;
+    private int totalCapacity;
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k) {
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IllegalArgumentException("k must be >= " + MIN_LEVEL_CAPACITY + ": " + k);
+        }
+        this.k = k;
+        addLevel();
+    }
+
+    public long getCount() { return count; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+    public boolean isEmpty() { return count == 0; }
+
+    // Approximate bound on |estimated rank - true rank| / n with ~99% confidence
+    // (empirical fit published with the Apache DataSketches KLL implementation)
+    public double normalizedRankError() {
+        return 2.296 / Math.pow(k, 0.9723);
+    }
+
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count++;
+        append(0, value);
+        compressWhileNeeded();
+    }
+
+    public void merge(KllSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        while (levels.size() < other.levels.size()) {
+            addLevel();
+        }
+        for (int h = 0; h < other.levels.size(); h++) {
+            double[] theirs = other.levels.get(h);
+            int theirSize = other.sizes.get(h);
+            for (int i = 0; i < theirSize; i++) {
+                append(h, theirs[i]);
+            }
+        }
+        min = count == 0 ? other.min : Math.min(min, other.min);
+        max = count == 0 ? other.max : Math.max(max, other.max);
+        count += other.count;
+        compressWhileNeeded();
+    }
+
+    // Value at the given normalized rank (0 = min, 1 = max)
+    public double quantile(double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("fraction must be within [0, 1]: " + fraction);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (fraction == 0) {
+            return min;
+        }
+        if (fraction == 1) {
+            return max;
+        }
+        double[][] weighted = sortedWeighted();
+        long totalWeight = 0;
+        for (double[] item : weighted) {
+            totalWeight += (long) item[1];
+        }
+        double target = fraction * totalWeight;
+        long cumulative = 0;
+        for (double[] item : weighted) {
+            cumulative += (long) item[1];
+            if (cumulative >= target) {
+                return item[0];
+            }
+        }
+        return max;
+    }
+
+    public double[] quantiles(double... fractions) {
+        double[] result = new double[fractions.length];
+        for (int i = 0; i < fractions.length; i++) {
+            result[i] = quantile(fractions[i]);
+        }
+        return result;
+    }
+
+    // Estimated fraction of inputs <= value
+    public double rank(double value) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long below = 0;
+        long total = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            long weight = 1L << h;
+            double[] level = levels.get(h);
+            int size = sizes.get(h);
+            for (int i = 0; i < size; i++) {
+                total += weight;
+                if (level[i] <= value) {
+                    below += weight;
+                }
+            }
+        }
+        return (double) below / total;
+    }
+
+    // Number of retained items; bounded by roughly 3k
+    public int retainedItems() {
+        return retained;
+    }
+
+    private double[][] sortedWeighted() {
+        double[][] items = new double[retainedItems()][];
+        int n = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            double[] level = levels.get(h);
+            int size = sizes.get(h);
+            for (int i = 0; i < size; i++) {
+                items[n++] = new double[]{level[i], 1L << h};
+            }
+        }
+        Arrays.sort(items, (a, b) -> Double.compare(a[0], b[0]));
+        return items;
+    }
+
+    private int capacity(int level) {
+        int height = levels.size() - 1;
+        int depth = height - level;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void compressWhileNeeded() {
+        while (retained > totalCapacity) {
+            for (int h = 0; h < levels.size(); h++) {
+                if (sizes.get(h) >= capacity(h)) {
+                    compact(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void compact(int level) {
+        if (level + 1 == levels.size()) {
+            addLevel();
+        }
+        double[] items = levels.get(level);
+        int size = sizes.get(level);
+        Arrays.sort(items, 0, size);
+        // An odd item out stays behind so the promoted weight is exact
+        int keep = size % 2;
+        int offset = random.nextBoolean() ? 1 : 0;
+        for (int i = keep + offset; i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+        retained -= size - keep;
+        sizes.set(level, keep);
+    }
+
+    private void append(int level, double value) {
+        double[] items = levels.get(level);
+        int size = sizes.get(level);
+        if (size == items.length) {
+            items = Arrays.copyOf(items, items.length * 2);
+            levels.set(level, items);
+        }
+        items[size] = value;
+        sizes.set(level, size + 1);
+        retained++;
+    }
+
+    private void addLevel() {
+        levels.add(new double[Math.max(MIN_LEVEL_CAPACITY, k)]);
+        sizes.add(0);
+        // Capacities depend on the height, so they all shift when a level is added
+        totalCapacity = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            totalCapacity += capacity(h);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("KllSketch[k=%d, n=%d, retained=%d, levels=%d]", k, count, retainedItems(), levels.size());
+    }
+}
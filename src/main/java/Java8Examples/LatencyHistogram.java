@@ -0,0 +1,134 @@
+package Java8Examples;
+
+import java.util.concurrent.atomic.*;
+
+// Log-linear histogram of non-negative long values (nanoseconds, typically), in the
+// style of HdrHistogram: values are grouped by their highest set bit and each group is
+// split into 128 linear sub-buckets, so any recorded value is reported to within 1%
+// over the whole long range in under 8k counters. Recording is lock-free and may
+// happen from many threads; drainInto() moves the counts to another histogram, which
+// lets a reporter take per-interval readings without stopping the recorders.
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = 0;
+        double sum = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = counts.get(i);
+            if (c > 0) {
+                count += c;
+                sum += (double) c * midpointOf(i);
+            }
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    // Highest value equivalent to the bucket holding the given percentile (0-100)
+    public long getValueAtPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalent(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c > 0) {
+                counts.addAndGet(i, c);
+                totalCount.add(c);
+            }
+        }
+        max.accumulateAndGet(other.getMax(), Math::max);
+    }
+
+    // Moves everything recorded so far into target and leaves this histogram empty.
+    // Values recorded concurrently end up on one side or the other, never lost.
+    public void drainInto(LatencyHistogram target) {
+        long moved = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts.get(i) > 0) {
+                long c = counts.getAndSet(i, 0);
+                target.counts.addAndGet(i, c);
+                moved += c;
+            }
+        }
+        totalCount.add(-moved);
+        target.totalCount.add(moved);
+        target.max.accumulateAndGet(max.getAndSet(0), Math::max);
+    }
+
+    public void reset() {
+        drainInto(new LatencyHistogram());
+    }
+
+    static int indexOf(long value) {
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        if (msb < SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+        int shift = msb - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long lowestEquivalent(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long sub = index & (SUB_BUCKETS - 1);
+        return (SUB_BUCKETS + sub) << shift;
+    }
+
+    static long highestEquivalent(int index) {
+        int shift = index < SUB_BUCKETS ? 0 : (index >>> SUB_BUCKET_BITS) - 1;
+        return lowestEquivalent(index) + (1L << shift) - 1;
+    }
+
+    private static double midpointOf(int index) {
+        return (lowestEquivalent(index) + (double) highestEquivalent(index)) / 2;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.3fms, p50=%.3fms, p99=%.3fms, p99.9=%.3fms, max=%.3fms",
+                getCount(), getMean() / 1e6, getValueAtPercentile(50) / 1e6, getValueAtPercentile(99) / 1e6,
+                getValueAtPercentile(99.9) / 1e6, getMax() / 1e6);
+    }
+}
@@ -1,13 +1,34 @@
 package Java8Examples;
 
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.*;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.io.*;
+import java.nio.file.*;
 import java.util.concurrent.*;
 
 public class MainExecutor {
 
+    // Module results keyed by input fingerprint; set cache.dir to keep them across runs
+    private static final ResultCache RESULT_CACHE = new ResultCache(
+            AppConfig.get().getCacheMaxEntries(),
+            TimeUnit.SECONDS.toMillis(AppConfig.get().getCacheTtlSeconds()),
+            AppConfig.get().getCacheDir() != null ? Paths.get(AppConfig.get().getCacheDir()) : null);
+
+    // amount > 0 AND status != CANCELLED, generated once as its own class
+    private static final CompiledFilter<OrderProcessingSystem.Order> VALID_ORDER =
+            FilterSpec.on(OrderProcessingSystem.Order.class)
+                    .where("amount", Query.Op.GT, 0)
+                    .where("statusCode", Query.Op.NE, OrderProcessingSystem.Order.CANCELLED)
+                    .compile();
+
+    // Snapshot-backed datasets are read lazily for the rest of the run, so their snapshots
+    // stay open until main() is done with them
+    private static final List<Snapshot<?>> OPEN_SNAPSHOTS = new CopyOnWriteArrayList<>();
+
     public static void main(String[] args) {
         System.out.println("=== MAIN EXECUTOR - All 4 Classes Execution (Java 8 Compatible) ===");
 
@@ -16,6 +37,23 @@ public class MainExecutor {
             LocalDateTime startTime = LocalDateTime.now();
             System.out.println("Execution started at: " +
                     startTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            System.out.println("Configuration: " + AppConfig.get());
+            if (ConfigWatcher.start()) {
+                System.out.println("Watching " + AppConfig.watchableFile() + " for configuration changes");
+            }
+            if (AppConfig.get().getProfilingRecordingFile() != null) {
+                StageRecorder.start(Paths.get(AppConfig.get().getProfilingRecordingFile()));
+                System.out.println("Recording pipeline stages to " + AppConfig.get().getProfilingRecordingFile());
+            }
+
+            if (AppConfig.get().getShards() > 1) {
+                executeSharded(AppConfig.get().getShards(), startTime);
+                return;
+            }
+            if (AppConfig.get().isSupervised()) {
+                executeSupervised(startTime);
+                return;
+            }
 
             // Execute all classes sequentially
             Map<String, String> results = new HashMap<>();
@@ -23,30 +61,59 @@ public class MainExecutor {
             System.out.println("\n" + repeatString("=", 60));
             System.out.println("STEP 1: Executing EmployeeDataProcessor");
             System.out.println(repeatString("=", 60));
-            String employeeResult = executeEmployeeDataProcessor();
-            results.put("EMPLOYEE", employeeResult);
-            System.out.println("Employee Result: " + employeeResult);
+            List<EmployeeDataProcessor.Employee> employees = loadDataset("employees",
+                    SnapshotSchema.EMPLOYEES, MainExecutor::createSampleEmployees);
+            ModuleOutput employeeOutput = executeCached("EMPLOYEE",
+                    fingerprint(employees, DatasetFingerprint::ofEmployees),
+                    () -> executeEmployeeDataProcessor(employees));
+            System.out.print(employeeOutput.getReport());
+            results.put("EMPLOYEE", employeeOutput.getResult());
+            System.out.println("Employee Result: " + employeeOutput.getResult());
 
             System.out.println("\n" + repeatString("=", 60));
             System.out.println("STEP 2: Executing FinancialCalculator");
             System.out.println(repeatString("=", 60));
-            String financialResult = executeFinancialCalculator();
-            results.put("FINANCIAL", financialResult);
-            System.out.println("Financial Result: " + financialResult);
+            List<FinancialCalculator.Transaction> transactions = loadDataset("transactions",
+                    SnapshotSchema.TRANSACTIONS, MainExecutor::createSampleTransactions);
+            ModuleOutput financialOutput = executeCached("FINANCIAL",
+                    fingerprint(transactions, DatasetFingerprint::ofTransactions),
+                    () -> executeFinancialCalculator(transactions));
+            System.out.print(financialOutput.getReport());
+            results.put("FINANCIAL", financialOutput.getResult());
+            System.out.println("Financial Result: " + financialOutput.getResult());
 
             System.out.println("\n" + repeatString("=", 60));
             System.out.println("STEP 3: Executing InventoryManagementSystem");
             System.out.println(repeatString("=", 60));
-            String inventoryResult = executeInventoryManagementSystem();
-            results.put("INVENTORY", inventoryResult);
-            System.out.println("Inventory Result: " + inventoryResult);
+            List<InventoryManagementSystem.Product> products = loadDataset("products",
+                    SnapshotSchema.PRODUCTS, MainExecutor::createSampleProducts);
+            ModuleOutput inventoryOutput = executeCached("INVENTORY",
+                    fingerprint(products, DatasetFingerprint::ofProducts),
+                    () -> executeInventoryManagementSystem(products));
+            System.out.print(inventoryOutput.getReport());
+            results.put("INVENTORY", inventoryOutput.getResult());
+            System.out.println("Inventory Result: " + inventoryOutput.getResult());
 
             System.out.println("\n" + repeatString("=", 60));
             System.out.println("STEP 4: Executing OrderProcessingSystem");
             System.out.println(repeatString("=", 60));
-            String orderResult = executeOrderProcessingSystem();
-            results.put("ORDER", orderResult);
-            System.out.println("Order Result: " + orderResult);
+            List<OrderProcessingSystem.Order> orders = loadDataset("orders",
+                    SnapshotSchema.ORDERS, MainExecutor::createSampleOrders);
+            ModuleOutput orderOutput = executeCached("ORDER",
+                    fingerprint(orders, DatasetFingerprint::ofOrders),
+                    () -> executeOrderProcessingSystem(orders));
+            System.out.print(orderOutput.getReport());
+            results.put("ORDER", orderOutput.getResult());
+            System.out.println("Order Result: " + orderOutput.getResult());
+
+            System.out.println("\n" + repeatString("=", 60));
+            System.out.println("STEP 5: Joining Orders x Inventory x Finance");
+            System.out.println(repeatString("=", 60));
+            ModuleOutput joinedOutput = StageRecorder.inModule("JOINED",
+                    () -> executeCrossModuleJoin(orders, products, transactions));
+            System.out.print(joinedOutput.getReport());
+            results.put("JOINED", joinedOutput.getResult());
+            System.out.println("Joined Result: " + joinedOutput.getResult());
 
             // Execution end time
             LocalDateTime endTime = LocalDateTime.now();
@@ -59,164 +126,396 @@ public class MainExecutor {
             System.err.println("Error in main execution: " + e.getMessage());
             e.printStackTrace();
             System.exit(1);
+        } finally {
+            closeSnapshots();
         }
     }
 
-    private static String executeEmployeeDataProcessor() {
+    // Same datasets and results, aggregated by worker JVMs over partitioned data
+    private static void executeSharded(int shards, LocalDateTime startTime) throws Exception {
+        System.out.println("\n" + repeatString("=", 60));
+        System.out.println("SHARDED EXECUTION: " + shards + " worker JVMs");
+        System.out.println(repeatString("=", 60));
+        List<EmployeeDataProcessor.Employee> employees = loadDataset("employees",
+                SnapshotSchema.EMPLOYEES, MainExecutor::createSampleEmployees);
+        List<FinancialCalculator.Transaction> transactions = loadDataset("transactions",
+                SnapshotSchema.TRANSACTIONS, MainExecutor::createSampleTransactions);
+        List<InventoryManagementSystem.Product> products = loadDataset("products",
+                SnapshotSchema.PRODUCTS, MainExecutor::createSampleProducts);
+        List<OrderProcessingSystem.Order> orders = loadDataset("orders",
+                SnapshotSchema.ORDERS, MainExecutor::createSampleOrders);
+
+        ShardedExecutor executor = new ShardedExecutor(shards, Files.createTempDirectory("shards"));
+        PartialAggregates merged;
+        // execute() throws IOException, which a time() body cannot
+        StageRecorder.Stage stage = StageRecorder.begin("shards.execute",
+                employees.size() + transactions.size() + products.size() + orders.size());
         try {
-            System.out.println("Processing Employee Data...");
-
-            List<EmployeeDataProcessor.Employee> employees = createSampleEmployees();
-
-            // Employee data processing
-            long employeeCount = employees.size();
-            double avgSalary = employees.stream()
-                    .mapToDouble(EmployeeDataProcessor.Employee::getSalary)
-                    .average()
-                    .orElse(0.0);
-
-            List<String> highPaidEmployees = employees.stream()
-                    .filter(emp -> emp.getSalary() > 75000)
-                    .map(EmployeeDataProcessor.Employee::getName)
-                    .collect(Collectors.toList());
+            merged = executor.execute(employees, transactions, products, orders);
+        } finally {
+            stage.close();
+            executor.cleanUp();
+        }
+        System.out.println("  partitioning: " + executor.getPartitionMillis() + " ms");
+        executor.getShardStats().forEach(stats -> System.out.println("  " + stats));
+
+        System.out.println("Total Employees: " + merged.getEmployeeCount());
+        System.out.println("Average Salary: $" + String.format("%.2f", merged.getAverageSalary()));
+        System.out.println("Max Salary: $" + String.format("%.2f", merged.getMaxSalary()));
+        System.out.println("High Paid Employees: " + merged.getHighPaidEmployees());
+        System.out.println("Total Income: $" + String.format("%.2f", merged.getTotalIncome()));
+        System.out.println("Total Expense: $" + String.format("%.2f", merged.getTotalExpense()));
+        System.out.println("Total Transactions: " + merged.getTransactionCount());
+        System.out.println("Total Inventory Value: $" + String.format("%.2f", merged.getInventoryValue()));
+        System.out.println("Low Stock Products: " + merged.getLowStockProducts());
+        System.out.println("Products by Category: " + merged.getProductsByCategory());
+        System.out.println("Valid Orders: " + merged.getValidOrders() + " of " + merged.getOrderCount());
+        System.out.println("Top Customers: " + merged.getTopCustomers());
+        System.out.println("Matched Order Lines: " + merged.getMatchedLines() +
+                " (unmatched: " + merged.getUnmatchedLines() + ")");
+        System.out.println("Revenue by Category: " + merged.getRevenueByCategory());
+
+        printFinalSummary(merged.toResults(), Duration.between(startTime, LocalDateTime.now()));
+    }
 
-            double maxSalary = employees.stream()
-                    .mapToDouble(EmployeeDataProcessor.Employee::getSalary)
-                    .max()
-                    .orElse(0.0);
+    // The same five steps run concurrently under a ModuleSupervisor: each module on its own
+    // bulkhead with a deadline and retries, so a slow or hung module is reported as timed
+    // out instead of holding up the rest of the batch
+    private static void executeSupervised(LocalDateTime startTime) {
+        AppConfig config = AppConfig.get();
+        System.out.println("\n" + repeatString("=", 60));
+        System.out.printf("SUPERVISED EXECUTION: timeout %d ms, %d attempts, backoff %d ms%n",
+                config.getModuleTimeoutMs(), config.getModuleMaxAttempts(), config.getModuleBackoffMs());
+        System.out.println(repeatString("=", 60));
+        List<EmployeeDataProcessor.Employee> employees = loadDataset("employees",
+                SnapshotSchema.EMPLOYEES, MainExecutor::createSampleEmployees);
+        List<FinancialCalculator.Transaction> transactions = loadDataset("transactions",
+                SnapshotSchema.TRANSACTIONS, MainExecutor::createSampleTransactions);
+        List<InventoryManagementSystem.Product> products = loadDataset("products",
+                SnapshotSchema.PRODUCTS, MainExecutor::createSampleProducts);
+        List<OrderProcessingSystem.Order> orders = loadDataset("orders",
+                SnapshotSchema.ORDERS, MainExecutor::createSampleOrders);
+
+        List<ModuleSupervisor.ModuleResult> results = new ArrayList<>();
+        try (ModuleSupervisor supervisor = ModuleSupervisor.fromConfig()) {
+            List<CompletableFuture<ModuleSupervisor.ModuleResult>> pending = Arrays.asList(
+                    superviseCached(supervisor, "EMPLOYEE",
+                            fingerprint(employees, DatasetFingerprint::ofEmployees),
+                            () -> runEmployeeDataProcessor(employees)),
+                    superviseCached(supervisor, "FINANCIAL",
+                            fingerprint(transactions, DatasetFingerprint::ofTransactions),
+                            () -> runFinancialCalculator(transactions)),
+                    superviseCached(supervisor, "INVENTORY",
+                            fingerprint(products, DatasetFingerprint::ofProducts),
+                            () -> runInventoryManagementSystem(products)),
+                    superviseCached(supervisor, "ORDER",
+                            fingerprint(orders, DatasetFingerprint::ofOrders),
+                            () -> runOrderProcessingSystem(orders)),
+                    supervisor.submit("JOINED", () -> StageRecorder.inModule("JOINED",
+                            () -> runCrossModuleJoin(orders, products, transactions))));
+            pending.forEach(result -> results.add(result.join()));
+        }
+        // Reports are printed once every module has settled, in module order; an attempt
+        // abandoned after its deadline writes only into its own buffer
+        for (ModuleSupervisor.ModuleResult result : results) {
+            System.out.println("\n" + repeatString("-", 60));
+            System.out.println(result.getModule());
+            System.out.println(repeatString("-", 60));
+            System.out.print(result.getReport());
+        }
+        printSupervisedSummary(results, Duration.between(startTime, LocalDateTime.now()));
+    }
 
-            System.out.println("Total Employees: " + employeeCount);
-            System.out.println("Average Salary: $" + String.format("%.2f", avgSalary));
-            System.out.println("Max Salary: $" + String.format("%.2f", maxSalary));
-            System.out.println("High Paid Employees: " + highPaidEmployees);
+    // A cache hit replays the module's report as well as its result, so the output does
+    // not depend on the cache state
+    private static CompletableFuture<ModuleSupervisor.ModuleResult> superviseCached(
+            ModuleSupervisor supervisor, String module, long fingerprint, Supplier<ModuleOutput> execution) {
+        long configFingerprint = AppConfig.get().getFingerprint();
+        ModuleOutput cached = RESULT_CACHE.get(module, fingerprint, configFingerprint);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(ModuleSupervisor.ModuleResult.cached(module, cached));
+        }
+        return supervisor.submit(module, () -> StageRecorder.inModule(module, execution)).thenApply(result -> {
+            if (result.isSuccess()) {
+                RESULT_CACHE.put(module, fingerprint, configFingerprint,
+                        new ModuleOutput(result.getValue(), result.getReport()));
+            }
+            return result;
+        });
+    }
 
-            return "EMPLOYEE_PROCESSED:" + employeeCount + "_EMPLOYEES_AVG_SALARY_" +
-                    String.format("%.2f", avgSalary);
+    // Cache key of a loaded dataset. A list served by an open snapshot is identified by the
+    // snapshot file, so the lookup does not build every record of the lazy view; any other
+    // list is hashed record by record
+    static <T> long fingerprint(List<T> records, ToLongFunction<List<T>> content) {
+        for (Snapshot<?> snapshot : OPEN_SNAPSHOTS) {
+            if (snapshot.records() == records) {
+                try {
+                    return DatasetFingerprint.ofSnapshot(snapshot);
+                } catch (IOException e) {
+                    System.err.println("Hashing the records of " + snapshot.getFile() + " instead: " + e.getMessage());
+                    break;
+                }
+            }
+        }
+        return content.applyAsLong(records);
+    }
 
-        } catch (Exception e) {
-            return "EMPLOYEE_ERROR:" + e.getMessage();
+    private static ModuleOutput executeCached(String module, long fingerprint, Supplier<ModuleOutput> execution) {
+        long configFingerprint = AppConfig.get().getFingerprint();
+        ModuleOutput cached = RESULT_CACHE.get(module, fingerprint, configFingerprint);
+        if (cached != null) {
+            return cached;
+        }
+        ModuleOutput output = StageRecorder.inModule(module, execution);
+        // Failed runs are encoded as "<MODULE>_ERROR:..." and must never be replayed
+        if (!output.getResult().contains("ERROR")) {
+            RESULT_CACHE.put(module, fingerprint, configFingerprint, output);
         }
+        return output;
     }
 
-    private static String executeFinancialCalculator() {
+    // Sequential mode reports failures as "<MODULE>_ERROR:" results; the supervised mode
+    // calls the run* methods directly and keeps the exception
+    private static ModuleOutput executeEmployeeDataProcessor(List<EmployeeDataProcessor.Employee> employees) {
         try {
-            System.out.println("Processing Financial Data...");
-
-            List<FinancialCalculator.Transaction> transactions = createSampleTransactions();
-
-            // Financial calculations
-            double totalIncome = transactions.stream()
-                    .filter(t -> "INCOME".equals(t.getType()))
-                    .mapToDouble(FinancialCalculator.Transaction::getAmount)
-                    .sum();
-
-            double totalExpense = transactions.stream()
-                    .filter(t -> "EXPENSE".equals(t.getType()))
-                    .mapToDouble(FinancialCalculator.Transaction::getAmount)
-                    .sum();
-
-            double netProfit = totalIncome - totalExpense;
-
-            long transactionCount = transactions.stream().count();
-
-            System.out.println("Total Income: $" + String.format("%.2f", totalIncome));
-            System.out.println("Total Expense: $" + String.format("%.2f", totalExpense));
-            System.out.println("Net Profit: $" + String.format("%.2f", netProfit));
-            System.out.println("Total Transactions: " + transactionCount);
-
-            return "FINANCIAL_PROCESSED:INCOME_" + String.format("%.2f", totalIncome) +
-                    "_EXPENSE_" + String.format("%.2f", totalExpense);
-
+            return runEmployeeDataProcessor(employees);
         } catch (Exception e) {
-            return "FINANCIAL_ERROR:" + e.getMessage();
+            return ModuleOutput.error("EMPLOYEE", e);
         }
     }
 
-    private static String executeInventoryManagementSystem() {
-        try {
-            System.out.println("Processing Inventory Data...");
-
-            List<InventoryManagementSystem.Product> products = createSampleProducts();
-
-            // Inventory analysis
-            long totalProducts = products.size();
-            double totalValue = products.stream()
-                    .mapToDouble(InventoryManagementSystem.Product::getTotalValue)
-                    .sum();
-
-            long lowStockCount = products.stream()
-                    .filter(InventoryManagementSystem.Product::isLowStock)
-                    .count();
+    private static ModuleOutput runEmployeeDataProcessor(List<EmployeeDataProcessor.Employee> employees) {
+        StringWriter report = new StringWriter();
+        PrintWriter out = new PrintWriter(report);
+        out.println("Processing Employee Data...");
+        double highSalaryThreshold = AppConfig.get().getHighSalaryThreshold();
+
+        // Employee data processing
+        long employeeCount = employees.size();
+        double avgSalary = StageRecorder.time("average.salary", employees.size(), () ->
+                BlockSpliterator.stream(employees, false)
+                        .mapToDouble(EmployeeDataProcessor.Employee::getSalary)
+                        .average()
+                        .orElse(0.0));
+
+        List<String> highPaidEmployees = StageRecorder.time("filter.highPaid", employees.size(), () ->
+                employees.stream()
+                        .filter(emp -> emp.getSalary() > highSalaryThreshold)
+                        .map(EmployeeDataProcessor.Employee::getName)
+                        .collect(Collectors.toList()));
+
+        double maxSalary = employees.stream()
+                .mapToDouble(EmployeeDataProcessor.Employee::getSalary)
+                .max()
+                .orElse(0.0);
+
+        out.println("Total Employees: " + employeeCount);
+        out.println("Average Salary: $" + String.format("%.2f", avgSalary));
+        out.println("Max Salary: $" + String.format("%.2f", maxSalary));
+        out.println("High Paid Employees: " + highPaidEmployees);
+        out.println(StageRecorder.time("report.tenureBands", employees.size(), () -> {
+            EmployeeCohortAnalytics cohorts = new EmployeeCohortAnalytics(employees);
+            // As of the newest hire, so the same dataset gives the same report on any day
+            LocalDate asOf = cohorts.latestJoinDate().orElse(LocalDate.ofEpochDay(0));
+            return "Tenure Bands as of " + asOf + ": " + cohorts.tenureBands(asOf, 2, 5);
+        }));
+
+        return new ModuleOutput("EMPLOYEE_PROCESSED:" + employeeCount + "_EMPLOYEES_AVG_SALARY_" +
+                String.format("%.2f", avgSalary), report.toString());
+    }
 
-            Map<String, Long> productsByCategory = products.stream()
-                    .collect(Collectors.groupingBy(
-                            InventoryManagementSystem.Product::getCategory,
-                            Collectors.counting()
-                    ));
+    private static ModuleOutput executeFinancialCalculator(List<FinancialCalculator.Transaction> transactions) {
+        try {
+            return runFinancialCalculator(transactions);
+        } catch (Exception e) {
+            return ModuleOutput.error("FINANCIAL", e);
+        }
+    }
 
-            List<String> lowStockItems = products.stream()
-                    .filter(InventoryManagementSystem.Product::isLowStock)
-                    .map(InventoryManagementSystem.Product::getName)
-                    .collect(Collectors.toList());
+    private static ModuleOutput runFinancialCalculator(List<FinancialCalculator.Transaction> transactions) {
+        StringWriter report = new StringWriter();
+        PrintWriter out = new PrintWriter(report);
+        out.println("Processing Financial Data...");
+
+        // Financial calculations
+        // Income and expense totals, one pass each
+        double[] totalsByType = StageRecorder.time("filter.sumByType", 2L * transactions.size(), () ->
+                new double[] {
+                        transactions.stream()
+                                .filter(t -> t.getTypeCode() == FinancialCalculator.Transaction.INCOME)
+                                .mapToDouble(FinancialCalculator.Transaction::getAmount)
+                                .sum(),
+                        transactions.stream()
+                                .filter(t -> t.getTypeCode() == FinancialCalculator.Transaction.EXPENSE)
+                                .mapToDouble(FinancialCalculator.Transaction::getAmount)
+                                .sum()
+                });
+        double totalIncome = totalsByType[0];
+        double totalExpense = totalsByType[1];
+
+        double netProfit = totalIncome - totalExpense;
+
+        long transactionCount = transactions.stream().count();
+
+        out.println("Total Income: $" + String.format("%.2f", totalIncome));
+        out.println("Total Expense: $" + String.format("%.2f", totalExpense));
+        out.println("Net Profit: $" + String.format("%.2f", netProfit));
+        out.println("Total Transactions: " + transactionCount);
+
+        return new ModuleOutput("FINANCIAL_PROCESSED:INCOME_" + String.format("%.2f", totalIncome) +
+                "_EXPENSE_" + String.format("%.2f", totalExpense), report.toString());
+    }
 
-            System.out.println("Total Products: " + totalProducts);
-            System.out.println("Total Inventory Value: $" + String.format("%.2f", totalValue));
-            System.out.println("Low Stock Items: " + lowStockCount);
-            System.out.println("Low Stock Products: " + lowStockItems);
-            System.out.println("Products by Category: " + productsByCategory);
+    private static ModuleOutput executeInventoryManagementSystem(List<InventoryManagementSystem.Product> products) {
+        try {
+            return runInventoryManagementSystem(products);
+        } catch (Exception e) {
+            return ModuleOutput.error("INVENTORY", e);
+        }
+    }
 
-            return "INVENTORY_PROCESSED:PRODUCTS_" + totalProducts + "_VALUE_" +
-                    String.format("%.2f", totalValue);
+    private static ModuleOutput runInventoryManagementSystem(List<InventoryManagementSystem.Product> products) {
+        StringWriter report = new StringWriter();
+        PrintWriter out = new PrintWriter(report);
+        out.println("Processing Inventory Data...");
+
+        // Inventory analysis
+        long totalProducts = products.size();
+        double totalValue = StageRecorder.time("sum.value", products.size(), () ->
+                BlockSpliterator.stream(products, false)
+                        .mapToDouble(InventoryManagementSystem.Product::getTotalValue)
+                        .sum());
+
+        // The count comes from the list instead of a second filter pass
+        List<String> lowStockItems = StageRecorder.time("filter.lowStock", products.size(), () ->
+                products.stream()
+                        .filter(InventoryManagementSystem.Product::isLowStock)
+                        .map(InventoryManagementSystem.Product::getName)
+                        .collect(Collectors.toList()));
+        long lowStockCount = lowStockItems.size();
+
+        IntLongMap productsByCategory = StageRecorder.time("groupingBy.category", products.size(), () ->
+                products.stream().collect(
+                        PrimitiveCollectors.countingByInt(InventoryManagementSystem.Product::getCategoryCode)));
+        StringJoiner categoryCounts = new StringJoiner(", ", "{", "}");
+        productsByCategory.forEach((category, count) ->
+                categoryCounts.add(SymbolTable.PRODUCT_CATEGORIES.symbol(category) + "=" + count));
+
+        out.println("Total Products: " + totalProducts);
+        out.println("Total Inventory Value: $" + String.format("%.2f", totalValue));
+        out.println("Low Stock Items: " + lowStockCount);
+        out.println("Low Stock Products: " + lowStockItems);
+        out.println("Products by Category: " + categoryCounts);
+
+        return new ModuleOutput("INVENTORY_PROCESSED:PRODUCTS_" + totalProducts + "_VALUE_" +
+                String.format("%.2f", totalValue), report.toString());
+    }
 
+    private static ModuleOutput executeOrderProcessingSystem(List<OrderProcessingSystem.Order> orders) {
+        try {
+            return runOrderProcessingSystem(orders);
         } catch (Exception e) {
-            return "INVENTORY_ERROR:" + e.getMessage();
+            return ModuleOutput.error("ORDER", e);
         }
     }
 
-    private static String executeOrderProcessingSystem() {
-        try {
-            System.out.println("Processing Order Data...");
-
-            List<OrderProcessingSystem.Order> orders = createSampleOrders();
-
-            // Order processing
-            long totalOrders = orders.size();
-            long validOrders = orders.stream()
-                    .filter(order -> order.getAmount() > 0)
-                    .filter(order -> !"CANCELLED".equals(order.getStatus()))
-                    .count();
-
-            double totalOrderValue = orders.stream()
-                    .mapToDouble(OrderProcessingSystem.Order::getAmount)
-                    .sum();
-
-            Map<String, Double> customerSpending = orders.stream()
-                    .filter(order -> order.getAmount() > 0)
-                    .collect(Collectors.groupingBy(
-                            OrderProcessingSystem.Order::getCustomerName,
-                            Collectors.summingDouble(OrderProcessingSystem.Order::getAmount)
-                    ));
-
-            // Find top customer
-            Map.Entry<String, Double> topCustomer = customerSpending.entrySet().stream()
-                    .max(Map.Entry.comparingByValue())
-                    .orElse(new AbstractMap.SimpleEntry<String, Double>("None", 0.0));
-
-            System.out.println("Total Orders: " + totalOrders);
-            System.out.println("Valid Orders: " + validOrders);
-            System.out.println("Total Order Value: $" + String.format("%.2f", totalOrderValue));
-            System.out.println("Top Customer: " + topCustomer.getKey() + " ($" +
-                    String.format("%.2f", topCustomer.getValue()) + ")");
-
-            return "ORDER_PROCESSED:VALID_" + validOrders + "_TOTAL_VALUE_" +
-                    String.format("%.2f", totalOrderValue);
+    private static ModuleOutput runOrderProcessingSystem(List<OrderProcessingSystem.Order> orders) {
+        StringWriter report = new StringWriter();
+        PrintWriter out = new PrintWriter(report);
+        out.println("Processing Order Data...");
+
+        // Order processing
+        long totalOrders = orders.size();
+        long validOrders = StageRecorder.time("filter.valid", orders.size(), () -> VALID_ORDER.count(orders));
+
+        double totalOrderValue = StageRecorder.time("sum.value", orders.size(), () ->
+                BlockSpliterator.stream(orders, false)
+                        .mapToDouble(OrderProcessingSystem.Order::getAmount)
+                        .sum());
+
+        IntDoubleMap customerSpending = StageRecorder.time("groupingBy.customer", orders.size(), () ->
+                orders.stream()
+                        .filter(order -> order.getAmount() > 0)
+                        .collect(PrimitiveCollectors.summingDoubleByInt(
+                                OrderProcessingSystem.Order::getCustomerCode,
+                                OrderProcessingSystem.Order::getAmount
+                        )));
+
+        // Find top customer by code; only the winner's name is looked up
+        int[] topCustomerCode = {SymbolTable.NO_SYMBOL};
+        double[] topSpending = {0.0};
+        customerSpending.forEach((customer, spending) -> {
+            if (topCustomerCode[0] == SymbolTable.NO_SYMBOL || spending > topSpending[0]) {
+                topCustomerCode[0] = customer;
+                topSpending[0] = spending;
+            }
+        });
+        String topCustomer = topCustomerCode[0] == SymbolTable.NO_SYMBOL ?
+                "None" : SymbolTable.CUSTOMERS.symbol(topCustomerCode[0]);
+
+        out.println("Total Orders: " + totalOrders);
+        out.println("Valid Orders: " + validOrders);
+        out.println("Total Order Value: $" + String.format("%.2f", totalOrderValue));
+        out.println("Top Customer: " + topCustomer + " ($" +
+                String.format("%.2f", topSpending[0]) + ")");
+
+        if (ApproximateAnalytics.isEnabled()) {
+            CountMinSketch itemSketch = BlockSpliterator.parallelStream(orders, false)
+                    .filter(VALID_ORDER)
+                    .collect(ApproximateAnalytics.frequencies(OrderProcessingSystem.Order::getItems));
+            out.println(ApproximateAnalytics.describeHeavyHitters("Popular items", itemSketch));
+        }
 
+        return new ModuleOutput("ORDER_PROCESSED:VALID_" + validOrders + "_TOTAL_VALUE_" +
+                String.format("%.2f", totalOrderValue), report.toString());
+    }
+
+    private static ModuleOutput executeCrossModuleJoin(List<OrderProcessingSystem.Order> orders,
+                                                       List<InventoryManagementSystem.Product> products,
+                                                       List<FinancialCalculator.Transaction> transactions) {
+        try {
+            return runCrossModuleJoin(orders, products, transactions);
         } catch (Exception e) {
-            return "ORDER_ERROR:" + e.getMessage();
+            return ModuleOutput.error("JOINED", e);
         }
     }
 
+    private static ModuleOutput runCrossModuleJoin(List<OrderProcessingSystem.Order> orders,
+                                                   List<InventoryManagementSystem.Product> products,
+                                                   List<FinancialCalculator.Transaction> transactions) {
+        StringWriter report = new StringWriter();
+        PrintWriter out = new PrintWriter(report);
+        out.println("Joining order items to the product catalog...");
+
+        CrossModuleJoinEngine.JoinResult join = StageRecorder.time("join.catalog", orders.size() + products.size(),
+                () -> CrossModuleJoinEngine.withDefaults().join(orders, products));
+
+        out.println("Matched Order Lines: " + join.getMatchedLines() +
+                " (unmatched: " + join.getUnmatchedLines() + ")");
+        out.println("Revenue by Category:");
+        join.getRevenueCentsByCategory().forEach((category, cents) ->
+                out.printf("  %s: $%s%n", category, CrossModuleJoinEngine.formatCents(cents)));
+        out.println("Stock After Orders (below low-stock threshold):");
+        StageRecorder.time("sort.depletion", join.getDepletion().size(),
+                () -> join.getDepletedBelow(AppConfig.get().getLowStockThreshold()))
+                .forEach(depletion -> out.println("  " + depletion));
+
+        // Order revenue flows into the financial aggregation as INCOME transactions
+        List<FinancialCalculator.Transaction> combined = new ArrayList<>(transactions);
+        combined.addAll(join.getSalesTransactions());
+        FinancialCalculator.FinancialReport financialReport = StageRecorder.time("report.financial", combined.size(),
+                () -> FinancialCalculator.summarize(combined));
+        out.println("Financial Report incl. Order Revenue:");
+        out.print(financialReport);
+        out.println();
+
+        return new ModuleOutput("JOIN_PROCESSED:MATCHED_" + join.getMatchedLines() + "_REVENUE_" +
+                CrossModuleJoinEngine.formatCents(join.getMatchedRevenueCents()), report.toString());
+    }
+
     private static void printFinalSummary(Map<String, String> results, Duration duration) {
+        printStageProfile();
         System.out.println("\n" + repeatString("=", 70));
         System.out.println("FINAL EXECUTION SUMMARY");
         System.out.println(repeatString("=", 70));
@@ -241,6 +540,10 @@ public class MainExecutor {
                 .filter(result -> !result.contains("ERROR"))
                 .count();
 
+        System.out.println("\n" + repeatString("-", 70));
+        System.out.println("RESULT CACHE: " + RESULT_CACHE.getStats() +
+                (RESULT_CACHE.isDiskTierEnabled() ? "" : " (disk tier disabled)"));
+
         System.out.println("\n" + repeatString("-", 70));
         System.out.printf("OVERALL STATUS: %d/%d modules executed successfully%n",
                 successCount, results.size());
@@ -265,6 +568,66 @@ public class MainExecutor {
         }
     }
 
+    private static void printSupervisedSummary(List<ModuleSupervisor.ModuleResult> results, Duration duration) {
+        printStageProfile();
+        System.out.println("\n" + repeatString("=", 70));
+        System.out.println("FINAL EXECUTION SUMMARY (SUPERVISED)");
+        System.out.println(repeatString("=", 70));
+
+        System.out.println("Execution Date: " +
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        System.out.println("Total Duration: " + duration.toMillis() + " ms");
+
+        System.out.println("\n" + repeatString("-", 70));
+        System.out.printf("%-10s %-9s %10s %8s %8s  %s%n", "MODULE", "STATUS", "LATENCY", "ATTEMPTS",
+                "TIMEOUTS", "RESULT");
+        System.out.println(repeatString("-", 70));
+        for (ModuleSupervisor.ModuleResult result : results) {
+            String detail = result.isSuccess() ? result.getValue() : result.getError();
+            System.out.printf("%-10s %-9s %8.1fms %8d %8d  %s%n", result.getModule(),
+                    result.isCached() ? "CACHED" : result.getStatus(), result.getLatencyNanos() / 1e6,
+                    result.getAttempts(), result.getTimeouts(),
+                    detail.length() > 40 ? detail.substring(0, 40) + "..." : detail);
+        }
+
+        long successCount = results.stream().filter(ModuleSupervisor.ModuleResult::isSuccess).count();
+
+        System.out.println("\n" + repeatString("-", 70));
+        System.out.println("RESULT CACHE: " + RESULT_CACHE.getStats() +
+                (RESULT_CACHE.isDiskTierEnabled() ? "" : " (disk tier disabled)"));
+
+        System.out.println("\n" + repeatString("-", 70));
+        System.out.printf("OVERALL STATUS: %d/%d modules executed successfully%n",
+                successCount, results.size());
+
+        if (successCount == results.size()) {
+            System.out.println("ALL MODULES EXECUTED SUCCESSFULLY!");
+            System.out.println("\nMAIN_EXECUTION_COMPLETED:" + results.stream()
+                    .filter(result -> !"JOINED".equals(result.getModule()))
+                    .map(ModuleSupervisor.ModuleResult::getValue)
+                    .collect(Collectors.joining("|")) + "|DURATION_" + duration.toMillis() + "ms");
+        } else {
+            System.out.println("SOME MODULES FAILED - CHECK LOGS FOR DETAILS");
+            System.exit(1);
+        }
+    }
+
+    // Ends the stage recording, if one was started, and prints where the time went
+    private static void printStageProfile() {
+        Path recording = StageRecorder.stop();
+        if (recording == null) {
+            return;
+        }
+        System.out.println("\n" + repeatString("=", 70));
+        System.out.println("STAGE PROFILE (" + recording + ")");
+        System.out.println(repeatString("=", 70));
+        try {
+            System.out.print(StageRecordingAnalyzer.summarize(recording));
+        } catch (IOException e) {
+            System.err.println("Could not read stage recording " + recording + ": " + e.getMessage());
+        }
+    }
+
     // ✅ Java 8-friendly String repeat helper
     private static String repeatString(String str, int count) {
         StringBuilder sb = new StringBuilder();
@@ -274,8 +637,78 @@ public class MainExecutor {
         return sb.toString();
     }
 
+    // Loads a dataset from <snapshot.dir>/<name>.snap, or builds the sample data and writes
+    // the snapshot for the next run. Without snapshot.dir the sample data is used directly.
+    static <T> List<T> loadDataset(String name, SnapshotSchema<T> schema, Supplier<List<T>> sample) {
+        try (StageRecorder.Stage stage = StageRecorder.begin("load." + name)) {
+            List<T> records = readOrBuildDataset(name, schema, sample);
+            String snapshotDir = AppConfig.get().getSnapshotDir();
+            Path file = snapshotDir != null ? Paths.get(snapshotDir, name + ".snap") : null;
+            stage.records(records.size());
+            if (file != null && Files.exists(file)) {
+                try {
+                    stage.bytes(Files.size(file));
+                } catch (IOException e) {
+                    // Only the event's byte count is missing
+                }
+            }
+            return records;
+        }
+    }
+
+    private static <T> List<T> readOrBuildDataset(String name, SnapshotSchema<T> schema, Supplier<List<T>> sample) {
+        String snapshotDir = AppConfig.get().getSnapshotDir();
+        if (snapshotDir == null) {
+            return sample.get();
+        }
+        Path file = Paths.get(snapshotDir, name + ".snap");
+        long start = System.nanoTime();
+        if (Files.exists(file)) {
+            Snapshot<T> snapshot = null;
+            try {
+                snapshot = Snapshot.open(file, schema);
+                // The lazy view decodes columns and builds records as the modules read them
+                List<T> records = snapshot.records();
+                OPEN_SNAPSHOTS.add(snapshot);
+                System.out.printf("Opened %d %s from snapshot %s in %.2f ms%n", records.size(), name, file,
+                        (System.nanoTime() - start) / 1e6);
+                return records;
+            } catch (IOException | RuntimeException e) {
+                closeQuietly(snapshot);
+                System.err.println("Ignoring unreadable snapshot " + file + ": " + e.getMessage());
+            }
+        }
+        List<T> records = sample.get();
+        try {
+            Files.createDirectories(file.getParent());
+            SnapshotWriter.write(file, schema, records);
+            System.out.printf("Wrote %d %s to snapshot %s (%d bytes)%n", records.size(), name, file, Files.size(file));
+        } catch (IOException e) {
+            System.err.println("Could not write snapshot " + file + ": " + e.getMessage());
+        }
+        return records;
+    }
+
+    static void closeSnapshots() {
+        for (Snapshot<?> snapshot : OPEN_SNAPSHOTS) {
+            closeQuietly(snapshot);
+        }
+        OPEN_SNAPSHOTS.clear();
+    }
+
+    private static void closeQuietly(Snapshot<?> snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            snapshot.close();
+        } catch (IOException e) {
+            System.err.println("Could not close snapshot " + snapshot.getFile() + ": " + e.getMessage());
+        }
+    }
+
     // Sample data creation methods
-    private static List<EmployeeDataProcessor.Employee> createSampleEmployees() {
+    static List<EmployeeDataProcessor.Employee> createSampleEmployees() {
         return Arrays.asList(
                 new EmployeeDataProcessor.Employee("E001", "Aarav Sharma", 85000, "Development",
                         LocalDate.of(2020, 3, 15), 28,
@@ -292,7 +725,7 @@ public class MainExecutor {
         );
     }
 
-    private static List<FinancialCalculator.Transaction> createSampleTransactions() {
+    static List<FinancialCalculator.Transaction> createSampleTransactions() {
         return Arrays.asList(
                 new FinancialCalculator.Transaction("T001", 5000.0,
                         LocalDateTime.of(2024, 1, 15, 10, 30),
@@ -309,7 +742,7 @@ public class MainExecutor {
         );
     }
 
-    private static List<InventoryManagementSystem.Product> createSampleProducts() {
+    static List<InventoryManagementSystem.Product> createSampleProducts() {
         return Arrays.asList(
                 new InventoryManagementSystem.Product("P001", "Laptop", "Electronics", 899.99, 15, 4.5, LocalDate.of(2026, 12, 31)),
                 new InventoryManagementSystem.Product("P002", "Smartphone", "Electronics", 699.99, 8, 4.3, LocalDate.of(2026, 12, 31)),
@@ -318,18 +751,18 @@ public class MainExecutor {
         );
     }
 
-    private static List<OrderProcessingSystem.Order> createSampleOrders() {
+    static List<OrderProcessingSystem.Order> createSampleOrders() {
         return Arrays.asList(
-                new OrderProcessingSystem.Order("ORD001", "Rajesh Kumar", LocalDateTime.now().minusDays(2),
+                new OrderProcessingSystem.Order("ORD001", "Rajesh Kumar", LocalDateTime.of(2024, 1, 18, 11, 0),
                         1200.50, "PENDING",
                         Arrays.asList("Laptop", "Mouse", "Keyboard"), "Mumbai"),
-                new OrderProcessingSystem.Order("ORD002", "Priya Sharma", LocalDateTime.now().minusDays(5),
+                new OrderProcessingSystem.Order("ORD002", "Priya Sharma", LocalDateTime.of(2024, 1, 15, 16, 45),
                         450.75, "PENDING",
                         Arrays.asList("Books", "Notebooks"), "Delhi"),
-                new OrderProcessingSystem.Order("ORD003", "Amit Patel", LocalDateTime.now().minusDays(1),
+                new OrderProcessingSystem.Order("ORD003", "Amit Patel", LocalDateTime.of(2024, 1, 19, 9, 20),
                         890.00, "PENDING",
                         Arrays.asList("Smartphone", "Case"), "Bangalore"),
-                new OrderProcessingSystem.Order("ORD004", "Neha Gupta", LocalDateTime.now().minusDays(3),
+                new OrderProcessingSystem.Order("ORD004", "Neha Gupta", LocalDateTime.of(2024, 1, 17, 13, 10),
                         2300.25, "CANCELLED",
                         Arrays.asList("TV", "Sound System"), "Kolkata")
         );
@@ -0,0 +1,24 @@
+package Java8Examples;
+
+// What one module run produces: its one-line result and the report text it prints.
+// Modules write their report into a buffer instead of System.out, so the executor prints
+// each report exactly once and whole, and a run abandoned after a timeout has nowhere to
+// write once the batch is over.
+public final class ModuleOutput {
+
+    private final String result;
+    private final String report;
+
+    ModuleOutput(String result, String report) {
+        this.result = result;
+        this.report = report;
+    }
+
+    // A failed run: no report, the failure encoded as "<MODULE>_ERROR:<message>"
+    static ModuleOutput error(String module, Exception e) {
+        return new ModuleOutput(module + "_ERROR:" + e.getMessage(), "");
+    }
+
+    public String getResult() { return result; }
+    public String getReport() { return report; }
+}
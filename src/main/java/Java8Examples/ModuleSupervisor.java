@@ -0,0 +1,239 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Runs modules isolated from each other and reports typed outcomes instead of
+// "<MODULE>_ERROR:" strings.
+// Bulkheads: every module gets its own daemon thread, so a module that hangs or ignores
+// interrupts only ties up its own thread, never another module's. One thread also means
+// a module's attempts run one after another: a retry waits until the attempt it replaces
+// has really stopped, so two attempts never work on the same records at once.
+// Deadlines: an attempt that has not finished timeoutMillis after it was submitted
+// (time spent queued behind an abandoned attempt that ignores its interrupt counts) is
+// cancelled with an interrupt and counted as a timeout.
+// Retries: a failed or timed-out attempt is retried up to maxAttempts in total, after
+// backoffMillis, then 2 x backoffMillis, 4 x ..., so a module costs at most
+// maxAttempts x timeoutMillis plus the backoffs whatever state it is in.
+// Modules run concurrently; a batch takes as long as its slowest module.
+public class ModuleSupervisor implements AutoCloseable {
+
+    enum Status { SUCCESS, FAILED, TIMED_OUT }
+
+    static class ModuleResult {
+        private final String module;
+        private final Status status;
+        private final String value;
+        private final String report;
+        private final String error;
+        private final int attempts;
+        private final int timeouts;
+        private final long latencyNanos;
+        private final boolean cached;
+
+        ModuleResult(String module, Status status, ModuleOutput output, String error, int attempts, int timeouts,
+                     long latencyNanos, boolean cached) {
+            this.module = module;
+            this.status = status;
+            this.value = output != null ? output.getResult() : null;
+            this.report = output != null ? output.getReport() : "";
+            this.error = error;
+            this.attempts = attempts;
+            this.timeouts = timeouts;
+            this.latencyNanos = latencyNanos;
+            this.cached = cached;
+        }
+
+        // A result served from a cache without running the module
+        static ModuleResult cached(String module, ModuleOutput output) {
+            return new ModuleResult(module, Status.SUCCESS, output, null, 0, 0, 0, true);
+        }
+
+        public String getModule() { return module; }
+        public Status getStatus() { return status; }
+        public boolean isSuccess() { return status == Status.SUCCESS; }
+        // The module's result; null unless it succeeded
+        public String getValue() { return value; }
+        // What the module printed; empty unless it succeeded
+        public String getReport() { return report; }
+        // Why the last attempt failed; null on success
+        public String getError() { return error; }
+        public int getAttempts() { return attempts; }
+        public int getTimeouts() { return timeouts; }
+        // From submission to the final outcome, retries and backoff included
+        public long getLatencyNanos() { return latencyNanos; }
+        public boolean isCached() { return cached; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s after %d attempt(s), %d timeout(s), %.1f ms%s - %s", module, status,
+                    attempts, timeouts, latencyNanos / 1e6, cached ? " (cached)" : "",
+                    isSuccess() ? value : error);
+        }
+    }
+
+    private final long timeoutNanos;
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final Map<String, ExecutorService> bulkheads = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private final Set<Supervision> outstanding = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    ModuleSupervisor(long timeoutMillis, int maxAttempts, long backoffMillis) {
+        if (timeoutMillis <= 0 || maxAttempts <= 0 || backoffMillis < 0) {
+            throw new IllegalArgumentException("Need a positive timeout and attempts, and a backoff >= 0");
+        }
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.maxAttempts = maxAttempts;
+        this.backoffNanos = TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "module-supervisor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Deadlines of attempts that finished in time would otherwise pile up in the queue
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    static ModuleSupervisor fromConfig() {
+        AppConfig config = AppConfig.get();
+        return new ModuleSupervisor(config.getModuleTimeoutMs(), config.getModuleMaxAttempts(),
+                config.getModuleBackoffMs());
+    }
+
+    // Starts the module on its bulkhead; the future always completes normally
+    public CompletableFuture<ModuleResult> submit(String module, Callable<ModuleOutput> task) {
+        CompletableFuture<ModuleResult> result = new CompletableFuture<>();
+        if (closed) {
+            result.complete(new ModuleResult(module, Status.FAILED, null, "supervisor closed", 0, 0, 0, false));
+            return result;
+        }
+        ExecutorService bulkhead = bulkheads.computeIfAbsent(module, this::newBulkhead);
+        Supervision supervision = new Supervision(module, task, bulkhead, result);
+        outstanding.add(supervision);
+        supervision.attempt();
+        return result;
+    }
+
+    // Interrupts whatever is still running and drops pending retries; every module that
+    // has no outcome yet fails with "supervisor closed", so no future is left incomplete
+    @Override
+    public void close() {
+        closed = true;
+        timer.shutdownNow();
+        bulkheads.values().forEach(ExecutorService::shutdownNow);
+        for (Supervision supervision : outstanding) {
+            supervision.finish(Status.FAILED, null, "supervisor closed");
+        }
+    }
+
+    private ExecutorService newBulkhead(String module) {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "module-" + module.toLowerCase());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // One module's attempts. The next attempt is only scheduled once the previous one has
+    // settled, so the counters have a single writer at a time; they are volatile because
+    // close() may report them from another thread. A settled attempt can still be running
+    // (it timed out and ignored the interrupt), but the single bulkhead thread keeps its
+    // successor queued until it returns.
+    private final class Supervision {
+        private final String module;
+        private final Callable<ModuleOutput> task;
+        private final ExecutorService bulkhead;
+        private final CompletableFuture<ModuleResult> result;
+        private final long startNanos = System.nanoTime();
+        private volatile int attempts;
+        private volatile int timeouts;
+        private volatile ScheduledFuture<?> deadline;
+
+        Supervision(String module, Callable<ModuleOutput> task, ExecutorService bulkhead,
+                    CompletableFuture<ModuleResult> result) {
+            this.module = module;
+            this.task = task;
+            this.bulkhead = bulkhead;
+            this.result = result;
+        }
+
+        void attempt() {
+            attempts++;
+            // Whichever of completion and deadline gets here first decides the attempt
+            AtomicBoolean settled = new AtomicBoolean();
+            Future<?> running;
+            try {
+                running = bulkhead.submit(() -> {
+                    ModuleOutput value;
+                    try {
+                        value = task.call();
+                    } catch (Throwable e) {
+                        if (settled.compareAndSet(false, true)) {
+                            cancelDeadline();
+                            retryOrFinish(Status.FAILED, e.getMessage() != null ? e.getMessage() : e.toString());
+                        }
+                        return;
+                    }
+                    if (settled.compareAndSet(false, true)) {
+                        cancelDeadline();
+                        finish(Status.SUCCESS, value, null);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                finish(Status.FAILED, null, "supervisor closed");
+                return;
+            }
+            try {
+                deadline = timer.schedule(() -> {
+                    if (settled.compareAndSet(false, true)) {
+                        running.cancel(true);
+                        timeouts++;
+                        retryOrFinish(Status.TIMED_OUT, "no result after " +
+                                TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+                    }
+                }, timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // close() stopped the timer; without a deadline the attempt is not supervised
+                if (settled.compareAndSet(false, true)) {
+                    running.cancel(true);
+                    finish(Status.FAILED, null, "supervisor closed");
+                }
+                return;
+            }
+            // The attempt may have settled before its deadline was set
+            if (settled.get()) {
+                cancelDeadline();
+            }
+        }
+
+        private void cancelDeadline() {
+            ScheduledFuture<?> current = deadline;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+
+        private void retryOrFinish(Status status, String error) {
+            if (attempts >= maxAttempts) {
+                finish(status, null, error);
+                return;
+            }
+            long backoff = backoffNanos << Math.min(attempts - 1, 20);
+            try {
+                timer.schedule(this::attempt, backoff, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                finish(status, null, error);
+            }
+        }
+
+        // The first outcome wins; close() may race a finishing attempt
+        private void finish(Status status, ModuleOutput value, String error) {
+            result.complete(new ModuleResult(module, status, value, error, attempts, timeouts,
+                    System.nanoTime() - startNanos, false));
+            outstanding.remove(this);
+        }
+    }
+}
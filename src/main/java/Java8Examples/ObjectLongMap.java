@@ -0,0 +1,181 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.function.ObjLongConsumer;
+
+// Open-addressing hash map from object keys to primitive longs, for grouped counts
+// without a boxed Long per update. Keys, their mixed hashes and values live in parallel
+// arrays probed linearly; a probe only calls equals() when the stored hash matches, so
+// walking past other keys never touches them. addTo() on an existing key and clear()
+// never allocate, so one map can be reused across batches. Null keys are not supported.
+// Not thread-safe: parallel work fills one map per thread and combines them with addAll().
+public class ObjectLongMap<K> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private Object[] keys;
+    private int[] hashes;
+    private long[] values;
+    private int size;
+    private int resizeAt;
+
+    public ObjectLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public ObjectLongMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public boolean containsKey(K key) {
+        return keys[slotOf(key, mix(key.hashCode()))] != null;
+    }
+
+    public long get(K key) {
+        return getOrDefault(key, 0);
+    }
+
+    public long getOrDefault(K key, long defaultValue) {
+        int slot = slotOf(key, mix(key.hashCode()));
+        return keys[slot] != null ? values[slot] : defaultValue;
+    }
+
+    public void put(K key, long value) {
+        int slot = insert(key);
+        values[slot] = value;
+    }
+
+    // Adds delta to the key's value (0 when absent) and returns the new value
+    public long addTo(K key, long delta) {
+        int slot = insert(key);
+        return values[slot] += delta;
+    }
+
+    public long increment(K key) {
+        return addTo(key, 1);
+    }
+
+    // Adds every entry of other into this map; the combiner for per-thread partial maps
+    @SuppressWarnings("unchecked")
+    public ObjectLongMap<K> addAll(ObjectLongMap<? extends K> other) {
+        // Copying another table in slot order into a smaller one piles its keys into long runs
+        ensureCapacity(size + other.size);
+        if (keys.length < other.keys.length) {
+            rehash(other.keys.length);
+        }
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != null) {
+                addTo((K) other.keys[i], other.values[i]);
+            }
+        }
+        return this;
+    }
+
+    public void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjLongConsumer<? super K> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept((K) keys[i], values[i]);
+            }
+        }
+    }
+
+    // Boxed copy, for printing and for APIs that take a Map
+    public Map<K, Long> toMap() {
+        Map<K, Long> result = new HashMap<>(size * 2);
+        forEach(result::put);
+        return result;
+    }
+
+    // Array footprint in bytes (compressed oops), not counting the keys themselves
+    public long arrayBytes() {
+        return (long) keys.length * (Integer.BYTES + Integer.BYTES + Long.BYTES);
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    // Slot holding the key, or the empty slot where it would go
+    private int slotOf(Object key, int hash) {
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        Object existing;
+        while ((existing = keys[slot]) != null
+                && (hashes[slot] != hash || existing != key && !existing.equals(key))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int insert(K key) {
+        int hash = mix(key.hashCode());
+        int slot = slotOf(key, hash);
+        if (keys[slot] == null) {
+            if (size >= resizeAt) {
+                rehash(keys.length * 2);
+                slot = slotOf(key, hash);
+            }
+            keys[slot] = key;
+            hashes[slot] = hash;
+            size++;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        long[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                // Keys are distinct, so the first free slot is the right one
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        hashes = new int[capacity];
+        values = new long[capacity];
+        resizeAt = capacity / 4 * 3;
+    }
+
+    // Power of two that keeps expectedSize entries under a 0.75 load factor
+    static int capacityFor(int expectedSize) {
+        int needed = Math.max(MIN_CAPACITY, (int) Math.min(1 << 30, (long) expectedSize * 4 / 3 + 1));
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    // Spreads String hashes, whose low bits are often similar, across the table
+    static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,386 @@
+package Java8Examples;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-loop load and soak test for the order pipeline: validation, updateOrderStatus
+// processing and notification. Orders are scheduled at a fixed rate and each one's latency
+// is measured from when it was due to be sent, not from when a worker picked it up, so a
+// stalled pipeline shows up as the queueing delay it causes (no coordinated omission).
+// Every report interval prints throughput, latency percentiles, GC activity and the
+// allocation rate (both from JMX); at the end the run fails with exit code 1 if any
+// regression threshold was crossed.
+//
+// Usage: OrderLoadHarness [key=value ...]
+//   rate=2000            orders per second
+//   duration=60s         measured run length (s, m or h suffix)
+//   warmup=10s           run before measuring, excluded from the results
+//   threads=2            pipeline worker threads
+//   report=5s            progress interval
+//   p99Ms=50             fail when p99 latency exceeds this
+//   p999Ms=250           fail when p99.9 latency exceeds this
+//   maxGcPauseMs=200     fail when a single GC pause exceeds this
+//   minThroughput=0.95   fail when completed/s falls below this fraction of the rate
+//   maxAllocMbPerSec=0   fail when the allocation rate exceeds this (0 = no limit)
+//   queue=100000         orders allowed to wait for a worker; beyond that they are dropped
+public class OrderLoadHarness {
+
+    static class Settings {
+        private final Map<String, String> values = new LinkedHashMap<>();
+
+        Settings(String[] args) {
+            values.put("rate", "2000");
+            values.put("duration", "60s");
+            values.put("warmup", "10s");
+            values.put("threads", "2");
+            values.put("report", "5s");
+            values.put("p99Ms", "50");
+            values.put("p999Ms", "250");
+            values.put("maxGcPauseMs", "200");
+            values.put("minThroughput", "0.95");
+            values.put("maxAllocMbPerSec", "0");
+            values.put("queue", "100000");
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq <= 0 || !values.containsKey(arg.substring(0, eq))) {
+                    throw new IllegalArgumentException("Unknown argument " + arg + ", expected one of " + values.keySet());
+                }
+                values.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+            // The send loop advances by 1e9 / rate whole nanoseconds, so it must be at least 1
+            double rate = number("rate");
+            if (!(rate > 0) || (long) (1e9 / rate) < 1) {
+                throw new IllegalArgumentException("Bad rate " + values.get("rate") +
+                        ", expected more than 0 and at most 1e9 orders per second");
+            }
+        }
+
+        double number(String key) {
+            return Double.parseDouble(values.get(key));
+        }
+
+        long nanos(String key) {
+            String value = values.get(key).trim();
+            char unit = value.charAt(value.length() - 1);
+            if (Character.isDigit(unit)) {
+                return TimeUnit.SECONDS.toNanos(Long.parseLong(value));
+            }
+            long amount = Long.parseLong(value.substring(0, value.length() - 1));
+            switch (unit) {
+                case 's': return TimeUnit.SECONDS.toNanos(amount);
+                case 'm': return TimeUnit.MINUTES.toNanos(amount);
+                case 'h': return TimeUnit.HOURS.toNanos(amount);
+                default: throw new IllegalArgumentException("Bad duration " + value);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return values.toString();
+        }
+    }
+
+    // GC pauses from JMX notifications and allocated bytes from the thread MXBean
+    static class JvmMonitor {
+        private final LatencyHistogram pauses = new LatencyHistogram();
+        private final AtomicLong gcCount = new AtomicLong();
+        private final AtomicLong gcMillis = new AtomicLong();
+        private final com.sun.management.ThreadMXBean threads;
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+        private final javax.management.NotificationListener listener = (notification, handback) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                long millis = info.getGcInfo().getDuration();
+                // Concurrent cycles run alongside the application; only count stop-the-world collections
+                if (!info.getGcName().contains("Cycles")) {
+                    pauses.record(TimeUnit.MILLISECONDS.toNanos(millis));
+                    gcCount.incrementAndGet();
+                    gcMillis.addAndGet(millis);
+                }
+            }
+        };
+
+        JvmMonitor() {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            threads = bean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                    ? (com.sun.management.ThreadMXBean) bean : null;
+            if (threads != null && !threads.isThreadAllocatedMemoryEnabled()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (gc instanceof NotificationEmitter) {
+                    ((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+                    emitters.add((NotificationEmitter) gc);
+                }
+            }
+        }
+
+        // Bytes allocated so far by all live threads; -1 when the JVM cannot tell
+        long allocatedBytes() {
+            if (threads == null) {
+                return -1;
+            }
+            long total = 0;
+            for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+                if (bytes > 0) {
+                    total += bytes;
+                }
+            }
+            return total;
+        }
+
+        long heapUsedBytes() {
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+
+        void close() {
+            for (NotificationEmitter emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(listener);
+                } catch (Exception e) {
+                    // already gone
+                }
+            }
+        }
+    }
+
+    static class Result {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private long completed;
+        private long dropped;
+        private double seconds;
+        private double allocMbPerSec;
+        private long maxGcPauseNanos;
+        private final List<String> failures = new ArrayList<>();
+
+        public LatencyHistogram getLatency() { return latency; }
+        public LatencyHistogram getServiceTime() { return serviceTime; }
+        public long getCompleted() { return completed; }
+        public long getDropped() { return dropped; }
+        public double getThroughput() { return seconds == 0 ? 0 : completed / seconds; }
+        public double getAllocMbPerSec() { return allocMbPerSec; }
+        public long getMaxGcPauseNanos() { return maxGcPauseNanos; }
+        public List<String> getFailures() { return failures; }
+        public boolean passed() { return failures.isEmpty(); }
+    }
+
+    private static final String[] STATUSES = { "PENDING", "PENDING", "PENDING", "PENDING", "CANCELLED" };
+    private static final List<List<String>> ITEM_LISTS = Arrays.asList(
+            Arrays.asList("Laptop", "Mouse", "Keyboard"), Arrays.asList("Books", "Notebooks"),
+            Arrays.asList("Smartphone", "Case"), Arrays.asList("TV", "Sound System"), Collections.singletonList("Monitor"));
+
+    private final Settings settings;
+    private final OrderProcessingSystem.OrderValidator validator = order ->
+            order.getAmount() > 0 && order.getStatusCode() != OrderProcessingSystem.Order.CANCELLED
+                    && order.getItemCodes().length > 0;
+    // One reusable result per worker thread instead of one per order
+    private final ThreadLocal<OrderProcessingSystem.ProcessingResult> results =
+            ThreadLocal.withInitial(OrderProcessingSystem.ProcessingResult::new);
+    private final LongAdder notificationChars = new LongAdder();
+    private final OrderProcessingSystem.OrderNotifier notifier = (order, message) ->
+            notificationChars.add(String.format("To %s: order %s %s", order.getCustomerName(),
+                    order.getOrderId(), message).length());
+
+    OrderLoadHarness(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings(args);
+        System.out.println("=== ORDER PIPELINE LOAD TEST - " + settings + " ===\n");
+        Result result = new OrderLoadHarness(settings).run();
+        if (!result.passed()) {
+            System.out.println("\nFAILED:");
+            result.getFailures().forEach(failure -> System.out.println("  " + failure));
+            System.exit(1);
+        }
+        System.out.println("\nPASSED");
+    }
+
+    Result run() throws InterruptedException {
+        double rate = settings.number("rate");
+        long intervalNanos = (long) (1e9 / rate);
+        long warmupNanos = settings.nanos("warmup");
+        long durationNanos = settings.nanos("duration");
+        long reportNanos = settings.nanos("report");
+        int threads = (int) settings.number("threads");
+
+        LatencyHistogram latencyRecorder = new LatencyHistogram();
+        LatencyHistogram serviceRecorder = new LatencyHistogram();
+        AtomicLong completed = new AtomicLong();
+        AtomicLong dropped = new AtomicLong();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>((int) settings.number("queue")));
+        JvmMonitor jvm = new JvmMonitor();
+        Result result = new Result();
+        Random random = new Random(42);
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        long nextReport = start + reportNanos;
+        long intervalStart = start;
+        long intervalCompleted = 0;
+        long intervalAllocated = jvm.allocatedBytes();
+        long intervalGcCount = 0;
+        long intervalGcMillis = 0;
+        long measuredAllocated = warmupNanos == 0 ? intervalAllocated : -1;
+        long measuredCompletedBase = 0;
+        long measuredDroppedBase = 0;
+        boolean measuring = warmupNanos == 0;
+        LatencyHistogram interval = new LatencyHistogram();
+        LatencyHistogram intervalService = new LatencyHistogram();
+
+        System.out.printf("%8s %9s %9s %8s %9s %9s %9s %9s %6s %7s %9s %8s%n", "time", "target/s", "done/s",
+                "backlog", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "GCs", "GC ms", "alloc MB/s", "heap MB");
+        long sequence = 0;
+        long intended = start;
+        while (true) {
+            long now = System.nanoTime();
+            // Send everything that is due; at high rates several orders go out per wake-up
+            while (intended <= now && intended < end) {
+                long due = intended;
+                OrderProcessingSystem.Order order = createOrder(sequence++, random);
+                try {
+                    workers.execute(() -> {
+                        long begin = System.nanoTime();
+                        process(order);
+                        long finish = System.nanoTime();
+                        latencyRecorder.record(finish - due);
+                        serviceRecorder.record(finish - begin);
+                        completed.incrementAndGet();
+                    });
+                } catch (RejectedExecutionException e) {
+                    dropped.incrementAndGet();
+                }
+                intended += intervalNanos;
+            }
+
+            if (now >= nextReport || now >= end) {
+                latencyRecorder.drainInto(interval);
+                serviceRecorder.drainInto(intervalService);
+                double seconds = (now - intervalStart) / 1e9;
+                long done = completed.get();
+                long allocated = jvm.allocatedBytes();
+                long gcCount = jvm.gcCount.get();
+                long gcMillis = jvm.gcMillis.get();
+                System.out.printf("%7.0fs %9.0f %9.0f %8d %9.3f %9.3f %9.3f %9.3f %6d %7d %10.1f %8d%n",
+                        (now - start) / 1e9, rate, (done - intervalCompleted) / seconds, workers.getQueue().size(),
+                        interval.getValueAtPercentile(50) / 1e6, interval.getValueAtPercentile(99) / 1e6,
+                        interval.getValueAtPercentile(99.9) / 1e6, interval.getMax() / 1e6,
+                        gcCount - intervalGcCount, gcMillis - intervalGcMillis,
+                        allocated < 0 ? Double.NaN : (allocated - intervalAllocated) / seconds / (1 << 20),
+                        jvm.heapUsedBytes() >> 20);
+                if (measuring) {
+                    result.latency.add(interval);
+                    result.serviceTime.add(intervalService);
+                }
+                interval.reset();
+                intervalService.reset();
+                intervalStart = now;
+                intervalCompleted = done;
+                intervalAllocated = allocated;
+                intervalGcCount = gcCount;
+                intervalGcMillis = gcMillis;
+                nextReport = now + reportNanos;
+            }
+
+            if (!measuring && now >= measureFrom) {
+                // Warm-up over: its last interval has been reported, drop anything recorded since
+                measuring = true;
+                latencyRecorder.reset();
+                serviceRecorder.reset();
+                measuredAllocated = jvm.allocatedBytes();
+                measuredCompletedBase = completed.get();
+                measuredDroppedBase = dropped.get();
+                jvm.pauses.reset();
+                System.out.println("--- warm-up done, measuring ---");
+            }
+
+            if (now >= end) {
+                break;
+            }
+            LockSupport.parkNanos(Math.max(0, Math.min(intended, nextReport) - System.nanoTime()));
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        latencyRecorder.drainInto(result.latency);
+        serviceRecorder.drainInto(result.serviceTime);
+        result.completed = completed.get() - measuredCompletedBase;
+        result.dropped = dropped.get() - measuredDroppedBase;
+        result.seconds = durationNanos / 1e9;
+        // Taken by the last report, while the workers were still alive to be counted
+        result.allocMbPerSec = intervalAllocated < 0 || measuredAllocated < 0 ? 0
+                : (intervalAllocated - measuredAllocated) / result.seconds / (1 << 20);
+        result.maxGcPauseNanos = jvm.pauses.getMax();
+        jvm.close();
+
+        System.out.println("\nLatency from intended send time: " + result.latency);
+        System.out.println("Service time (what a closed-loop test would report): " + result.serviceTime);
+        System.out.printf("Completed %d orders (%.0f/s against a target of %.0f/s), dropped %d%n",
+                result.completed, result.getThroughput(), rate, result.dropped);
+        System.out.printf("GC pauses: %s%n", jvm.pauses);
+        System.out.printf("Allocation rate: %.1f MB/s, notifications sent: %d chars%n",
+                result.allocMbPerSec, notificationChars.sum());
+
+        checkThresholds(result, rate);
+        return result;
+    }
+
+    private void process(OrderProcessingSystem.Order order) {
+        if (!validator.validate(order)) {
+            notifier.notify(order, "rejected");
+            return;
+        }
+        OrderProcessingSystem.ProcessingResult outcome = OrderProcessingSystem.updateOrderStatus(order, results.get());
+        notifier.notify(order, outcome.getMessage());
+    }
+
+    private void checkThresholds(Result result, double rate) {
+        double p99Ms = result.latency.getValueAtPercentile(99) / 1e6;
+        double p999Ms = result.latency.getValueAtPercentile(99.9) / 1e6;
+        double pauseMs = result.maxGcPauseNanos / 1e6;
+        if (p99Ms > settings.number("p99Ms")) {
+            result.failures.add(String.format("p99 latency %.3f ms > %s ms", p99Ms, settings.values.get("p99Ms")));
+        }
+        if (p999Ms > settings.number("p999Ms")) {
+            result.failures.add(String.format("p99.9 latency %.3f ms > %s ms", p999Ms, settings.values.get("p999Ms")));
+        }
+        if (pauseMs > settings.number("maxGcPauseMs")) {
+            result.failures.add(String.format("GC pause %.0f ms > %s ms", pauseMs, settings.values.get("maxGcPauseMs")));
+        }
+        if (result.getThroughput() < settings.number("minThroughput") * rate) {
+            result.failures.add(String.format("throughput %.0f/s < %s of %.0f/s", result.getThroughput(),
+                    settings.values.get("minThroughput"), rate));
+        }
+        double maxAlloc = settings.number("maxAllocMbPerSec");
+        if (maxAlloc > 0 && result.allocMbPerSec > maxAlloc) {
+            result.failures.add(String.format("allocation rate %.1f MB/s > %s MB/s", result.allocMbPerSec,
+                    settings.values.get("maxAllocMbPerSec")));
+        }
+        if (result.dropped > 0) {
+            result.failures.add(result.dropped + " orders dropped because the worker queue was full");
+        }
+    }
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static OrderProcessingSystem.Order createOrder(long sequence, Random random) {
+        double amount = random.nextInt(50) == 0 ? 0 : 5 + random.nextInt(2500) + random.nextInt(100) / 100.0;
+        return new OrderProcessingSystem.Order("LOAD-" + sequence, "Customer-" + random.nextInt(5000),
+                EPOCH.plusSeconds(sequence), amount, STATUSES[random.nextInt(STATUSES.length)],
+                ITEM_LISTS.get(random.nextInt(ITEM_LISTS.size())), "City-" + random.nextInt(200));
+    }
+}
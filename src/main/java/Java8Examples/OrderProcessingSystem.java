@@ -1,6 +1,7 @@
 package Java8Examples;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.*;
 import java.util.stream.*;
 import java.time.*;
@@ -23,58 +24,96 @@ public class OrderProcessingSystem {
         void notify(Order order, String message);
     }
 
+    // Status and items are stored as SymbolTable codes to avoid duplicate strings; customer and
+    // address hold their WeakSymbolTable symbol, which is reclaimed with the last order using it
     static class Order {
+        static final int PENDING = SymbolTable.ORDER_STATUSES.intern("PENDING");
+        static final int CANCELLED = SymbolTable.ORDER_STATUSES.intern("CANCELLED");
+        static final int PRIORITY = SymbolTable.ORDER_STATUSES.intern("PRIORITY");
+        static final int STANDARD = SymbolTable.ORDER_STATUSES.intern("STANDARD");
+        static final int PROCESSED = SymbolTable.ORDER_STATUSES.intern("PROCESSED");
+
         private String orderId;
-        private String customerName;
+        private WeakSymbolTable.Symbol customer;
         private LocalDateTime orderDate;
         private double amount;
-        private String status;
-        private List<String> items;
-        private String shippingAddress;
+        private int statusCode;
+        private int[] itemCodes;
+        private WeakSymbolTable.Symbol shippingAddress;
 
         public Order(String orderId, String customerName, LocalDateTime orderDate,
                      double amount, String status, List<String> items, String shippingAddress) {
             this.orderId = orderId;
-            this.customerName = customerName;
+            this.customer = SymbolTable.CUSTOMERS.intern(customerName);
             this.orderDate = orderDate;
             this.amount = amount;
-            this.status = status;
-            this.items = items;
-            this.shippingAddress = shippingAddress;
+            this.statusCode = SymbolTable.ORDER_STATUSES.intern(status);
+            this.itemCodes = SymbolTable.ITEMS.internAll(items);
+            this.shippingAddress = SymbolTable.ADDRESSES.intern(shippingAddress);
         }
 
         public String getOrderId() { return orderId; }
-        public String getCustomerName() { return customerName; }
+        public String getCustomerName() { return customer != null ? customer.getText() : null; }
+        public int getCustomerCode() { return customer != null ? customer.getCode() : SymbolTable.NO_SYMBOL; }
         public LocalDateTime getOrderDate() { return orderDate; }
         public double getAmount() { return amount; }
-        public String getStatus() { return status; }
-        public List<String> getItems() { return items; }
-        public String getShippingAddress() { return shippingAddress; }
+        public String getStatus() { return SymbolTable.ORDER_STATUSES.symbol(statusCode); }
+        public int getStatusCode() { return statusCode; }
+        public List<String> getItems() { return SymbolTable.ITEMS.symbols(itemCodes); }
+        // Indexed access without the list view
+        public int getItemCount() { return itemCodes.length; }
+        public String getItem(int index) { return SymbolTable.ITEMS.symbol(itemCodes[index]); }
+        // Shared array - callers must not modify it
+        public int[] getItemCodes() { return itemCodes; }
+        public String getShippingAddress() { return shippingAddress != null ? shippingAddress.getText() : null; }
+        public int getShippingAddressCode() {
+            return shippingAddress != null ? shippingAddress.getCode() : SymbolTable.NO_SYMBOL;
+        }
 
-        public void setStatus(String status) { this.status = status; }
+        public void setStatus(String status) { this.statusCode = SymbolTable.ORDER_STATUSES.intern(status); }
+        public void setStatusCode(int statusCode) { this.statusCode = statusCode; }
 
         @Override
         public String toString() {
             return String.format("Order[ID:%s, Customer:%s, Amount:%.2f, Status:%s, Items:%d]",
-                    orderId, customerName, amount, status, items.size());
+                    orderId, getCustomerName(), amount, getStatus(), itemCodes.length);
         }
     }
 
+    // Mutable so a caller processing many orders can reuse one instance through set();
+    // the timestamp is kept as epoch millis from the cached clock and only turned into a
+    // LocalDateTime when asked for
     static class ProcessingResult {
         private boolean success;
         private String message;
-        private LocalDateTime processedAt;
+        private long processedAtMillis;
+
+        public ProcessingResult() {
+        }
 
         public ProcessingResult(boolean success, String message) {
+            set(success, message);
+        }
+
+        public ProcessingResult set(boolean success, String message) {
             this.success = success;
             this.message = message;
-            this.processedAt = LocalDateTime.now();
+            this.processedAtMillis = CoarseClock.SYSTEM.millis();
+            return this;
+        }
+
+        public boolean isSuccess() { return success; }
+        public String getMessage() { return message; }
+        public long getProcessedAtMillis() { return processedAtMillis; }
+
+        public LocalDateTime getProcessedAt() {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(processedAtMillis), CoarseClock.SYSTEM.getZone());
         }
 
         @Override
         public String toString() {
             return String.format("ProcessingResult[Success:%s, Message:%s, Time:%s]",
-                    success, message, processedAt.format(DateTimeFormatter.ISO_LOCAL_TIME));
+                    success, message, getProcessedAt().format(DateTimeFormatter.ISO_LOCAL_TIME));
         }
     }
 
@@ -82,12 +121,13 @@ public class OrderProcessingSystem {
         System.out.println("=== ORDER PROCESSING SYSTEM - Java 8 Functional Interfaces & Method References ===\n");
 
         List<Order> orders = createSampleOrders();
+        AppConfig config = AppConfig.get();
 
         // 1. Custom Functional Interfaces
         System.out.println("--- 1. Custom Functional Interfaces ---");
 
         OrderValidator amountValidator = order -> order.getAmount() > 0;
-        OrderValidator statusValidator = order -> !"CANCELLED".equals(order.getStatus());
+        OrderValidator statusValidator = order -> order.getStatusCode() != Order.CANCELLED;
 
         Predicate<Order> combinedValidator = amountValidator::validate;
 
@@ -119,10 +159,17 @@ public class OrderProcessingSystem {
         Function<String, String> nameFormatter = name -> "Customer: " + name.toUpperCase();
         Function<Order, String> composedFunction = customerExtractor.andThen(nameFormatter);
 
-        validOrders.stream()
-                .map(composedFunction)
-                .distinct()
-                .forEach(System.out::println);
+        if (ApproximateAnalytics.isEnabled()) {
+            // Only the count is available in approximate mode, not the names themselves
+            HyperLogLog customerSketch = BlockSpliterator.parallelStream(validOrders, false)
+                    .collect(ApproximateAnalytics.distinctCountOf(composedFunction));
+            System.out.println(ApproximateAnalytics.describeDistinct("Approximate distinct customers", customerSketch));
+        } else {
+            validOrders.stream()
+                    .map(composedFunction)
+                    .distinct()
+                    .forEach(System.out::println);
+        }
 
         // 4. Consumer and BiConsumer
         System.out.println("\n--- 4. Consumer Operations ---");
@@ -155,9 +202,10 @@ public class OrderProcessingSystem {
         // 6. Predicate combinations
         System.out.println("\n--- 6. Predicate Combinations ---");
 
-        Predicate<Order> highValue = order -> order.getAmount() > 500;
-        Predicate<Order> recentOrder = order ->
-                order.getOrderDate().isAfter(LocalDateTime.now().minusDays(7));
+        double highValueAmount = config.getHighValueOrderAmount();
+        LocalDateTime recentCutoff = LocalDateTime.now().minusDays(config.getRecentOrderDays());
+        Predicate<Order> highValue = order -> order.getAmount() > highValueAmount;
+        Predicate<Order> recentOrder = order -> order.getOrderDate().isAfter(recentCutoff);
         Predicate<Order> urgentOrder = highValue.and(recentOrder);
 
         List<Order> urgentOrders = validOrders.stream()
@@ -174,32 +222,75 @@ public class OrderProcessingSystem {
         // 7. Complex stream processing with custom functions
         System.out.println("\n--- 7. Complex Stream Processing ---");
 
-        Map<String, Double> customerTotalSpending = validOrders.stream()
-                .collect(Collectors.groupingBy(
+        // Customer keys are unbounded: groups beyond grouping.memoryBudgetMb are spilled to disk
+        SpillingCollectors.Groups<String, Double> customerTotalSpending = validOrders.stream()
+                .collect(SpillingCollectors.groupingBy(
                         Order::getCustomerName,
+                        RecordCodecs.ORDER,
                         Collectors.summingDouble(Order::getAmount)
                 ));
 
         System.out.println("Customer Total Spending:");
-        customerTotalSpending.entrySet().stream()
-                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-                .forEach(entry ->
-                        System.out.printf("  %s: $%.2f\n", entry.getKey(), entry.getValue())
-                );
+        try (Stream<Map.Entry<String, Double>> sorted = ExternalSorter.of(RecordCodecs.STRING_DOUBLE_ENTRY,
+                Map.Entry.<String, Double>comparingByValue().reversed())
+                .sort(customerTotalSpending.stream())) {
+            sorted.forEach(entry ->
+                    System.out.printf("  %s: $%.2f\n", entry.getKey(), entry.getValue())
+            );
+        }
+        System.out.println("  " + customerTotalSpending.getStats());
+
+        // 8. Sliding-window analytics over the order stream
+        System.out.println("\n--- 8. Windowed Order Analytics ---");
+
+        OrderWindowAnalytics windowAnalytics = new OrderWindowAnalytics(
+                closed -> System.out.println("  Closed " + closed));
+        // Windows consume events in event-time order, as an unbounded feed would deliver them
+        orders.stream()
+                .sorted(Comparator.comparing(Order::getOrderDate))
+                .forEach(windowAnalytics);
+        windowAnalytics.advanceTo(LocalDateTime.now());
+        windowAnalytics.slidingSnapshots().forEach(stats -> System.out.println("  " + stats));
+
+        // 9. PRIORITY and STANDARD orders share the workers by weight instead of list order
+        System.out.println("\n--- 9. Tiered Scheduling ---");
+
+        TieredOrderScheduler scheduler = TieredOrderScheduler.fromConfig(OrderProcessingSystem::updateOrderStatus);
+        validOrders.forEach(scheduler::submit);
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler.getStats().forEach(stats -> System.out.println("  " + stats));
 
         // Final output
         String finalOutput = String.format(
                 "ORDER_PROCESSING_COMPLETED:VALID_%d,URGENT_%d,TOTAL_AMOUNT_%.2f",
                 validOrders.size(), urgentOrders.size(),
-                validOrders.stream().mapToDouble(Order::getAmount).sum()
+                BlockSpliterator.stream(validOrders, false).mapToDouble(Order::getAmount).sum()
         );
         System.out.println("\n" + finalOutput);
     }
 
-    private static ProcessingResult updateOrderStatus(Order order) {
-        String newStatus = order.getAmount() > 1000 ? "PRIORITY" : "STANDARD";
-        order.setStatus(newStatus);
-        return new ProcessingResult(true, "Updated to " + newStatus);
+    private static final String UPDATED_TO_PRIORITY = "Updated to " + SymbolTable.ORDER_STATUSES.symbol(Order.PRIORITY);
+    private static final String UPDATED_TO_STANDARD = "Updated to " + SymbolTable.ORDER_STATUSES.symbol(Order.STANDARD);
+
+    static ProcessingResult updateOrderStatus(Order order) {
+        return updateOrderStatus(order, new ProcessingResult());
+    }
+
+    // Fills the caller's holder instead of allocating a result per order
+    static ProcessingResult updateOrderStatus(Order order, ProcessingResult into) {
+        boolean priority = isPriority(order);
+        order.setStatusCode(priority ? Order.PRIORITY : Order.STANDARD);
+        return into.set(true, priority ? UPDATED_TO_PRIORITY : UPDATED_TO_STANDARD);
+    }
+
+    // The PRIORITY label, and the tier TieredOrderScheduler runs the order in
+    static boolean isPriority(Order order) {
+        return order.getAmount() > AppConfig.get().getPriorityOrderAmount();
     }
 
     private static String generateOrderSummary(Order order) {
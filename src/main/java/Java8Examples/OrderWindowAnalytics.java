@@ -0,0 +1,307 @@
+package Java8Examples;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Windowed analytics over an unbounded, event-time ordered stream of orders.
+// Tumbling windows (per minute, per hour) are emitted to a listener as they close.
+// Sliding windows (last minute, last hour, last 7 days) are rings of fixed-width
+// buckets with running totals: an event touches one bucket and expiry subtracts whole
+// buckets as time moves on, so count, revenue and urgent count cost O(1) per event and
+// per query. Distinct customers are kept as one HyperLogLog per bucket and merged on read.
+public class OrderWindowAnalytics implements Consumer<OrderProcessingSystem.Order> {
+
+    private static final int HLL_PRECISION = 11;
+    private static final DateTimeFormatter WINDOW_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    static class WindowStats {
+        private final String window;
+        private final long startMillis;
+        private final long endMillis;
+        private final long orderCount;
+        private final double revenue;
+        private final long urgentCount;
+        private final long distinctCustomers;
+
+        WindowStats(String window, long startMillis, long endMillis, long orderCount,
+                    double revenue, long urgentCount, long distinctCustomers) {
+            this.window = window;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.orderCount = orderCount;
+            this.revenue = revenue;
+            this.urgentCount = urgentCount;
+            this.distinctCustomers = distinctCustomers;
+        }
+
+        public String getWindow() { return window; }
+        public long getStartMillis() { return startMillis; }
+        public long getEndMillis() { return endMillis; }
+        public long getOrderCount() { return orderCount; }
+        public double getRevenue() { return revenue; }
+        public long getUrgentCount() { return urgentCount; }
+        public long getDistinctCustomers() { return distinctCustomers; }
+
+        @Override
+        public String toString() {
+            return String.format("%s [%s .. %s): orders=%d, revenue=$%.2f, urgent=%d, customers~%d",
+                    window, format(startMillis), format(endMillis), orderCount, revenue, urgentCount,
+                    distinctCustomers);
+        }
+    }
+
+    // Mutable per-bucket accumulator shared by both window kinds
+    private static class Bucket {
+        private long index = Long.MIN_VALUE;
+        private long orderCount;
+        private double revenue;
+        private long urgentCount;
+        private final HyperLogLog customers = new HyperLogLog(HLL_PRECISION);
+
+        void reset(long newIndex) {
+            index = newIndex;
+            orderCount = 0;
+            revenue = 0;
+            urgentCount = 0;
+            customers.clear();
+        }
+    }
+
+    static class TumblingWindow {
+        private final String name;
+        private final long sizeMillis;
+        private final Bucket current = new Bucket();
+        private WindowStats lastClosed;
+        private long lateEvents;
+
+        TumblingWindow(String name, Duration size) {
+            this.name = name;
+            this.sizeMillis = size.toMillis();
+        }
+
+        // Returns the closed window when this event starts a new one
+        private WindowStats add(long timeMillis, double revenue, boolean urgent, long customerHash) {
+            long index = Math.floorDiv(timeMillis, sizeMillis);
+            WindowStats closed = null;
+            if (current.index == Long.MIN_VALUE) {
+                current.reset(index);
+            } else if (index > current.index) {
+                closed = snapshot();
+                lastClosed = closed;
+                current.reset(index);
+            } else if (index < current.index) {
+                lateEvents++;
+                return null;
+            }
+            current.orderCount++;
+            current.revenue += revenue;
+            if (urgent) {
+                current.urgentCount++;
+            }
+            current.customers.addHash(customerHash);
+            return closed;
+        }
+
+        WindowStats snapshot() {
+            long start = current.index * sizeMillis;
+            return new WindowStats(name, start, start + sizeMillis, current.orderCount, current.revenue,
+                    current.urgentCount, current.customers.estimate());
+        }
+
+        public WindowStats getLastClosed() {
+            return lastClosed;
+        }
+    }
+
+    static class SlidingWindow {
+        private final String name;
+        private final long bucketMillis;
+        private final Bucket[] buckets;
+        private long newestIndex = Long.MIN_VALUE;
+        private long orderCount;
+        private double revenue;
+        private long urgentCount;
+
+        SlidingWindow(String name, Duration length, Duration bucketWidth) {
+            long lengthMillis = length.toMillis();
+            this.name = name;
+            this.bucketMillis = bucketWidth.toMillis();
+            if (lengthMillis <= 0 || bucketMillis <= 0) {
+                throw new IllegalArgumentException("Window " + name + " needs a positive length and bucket width");
+            }
+            if (lengthMillis % bucketMillis != 0) {
+                throw new IllegalArgumentException("Window length must be a multiple of the bucket width");
+            }
+            this.buckets = new Bucket[(int) (lengthMillis / bucketMillis)];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        // Moves the window end forward; each bucket is expired at most once per lap
+        private void advanceTo(long timeMillis) {
+            long index = Math.floorDiv(timeMillis, bucketMillis);
+            if (newestIndex == Long.MIN_VALUE) {
+                newestIndex = index;
+                return;
+            }
+            if (index <= newestIndex) {
+                return;
+            }
+            long steps = Math.min(index - newestIndex, buckets.length);
+            for (long i = index - steps + 1; i <= index; i++) {
+                Bucket bucket = buckets[(int) Math.floorMod(i, (long) buckets.length)];
+                if (bucket.index != Long.MIN_VALUE) {
+                    orderCount -= bucket.orderCount;
+                    revenue -= bucket.revenue;
+                    urgentCount -= bucket.urgentCount;
+                }
+                bucket.reset(Long.MIN_VALUE);
+            }
+            newestIndex = index;
+        }
+
+        private boolean add(long timeMillis, double amount, boolean urgent, long customerHash) {
+            advanceTo(timeMillis);
+            long index = Math.floorDiv(timeMillis, bucketMillis);
+            if (index <= newestIndex - buckets.length) {
+                return false;
+            }
+            Bucket bucket = buckets[(int) Math.floorMod(index, (long) buckets.length)];
+            if (bucket.index != index) {
+                bucket.reset(index);
+            }
+            bucket.orderCount++;
+            bucket.revenue += amount;
+            orderCount++;
+            revenue += amount;
+            if (urgent) {
+                bucket.urgentCount++;
+                urgentCount++;
+            }
+            bucket.customers.addHash(customerHash);
+            return true;
+        }
+
+        public long getOrderCount() { return orderCount; }
+        public double getRevenue() { return revenue; }
+        public long getUrgentCount() { return urgentCount; }
+
+        public long getDistinctCustomers() {
+            HyperLogLog merged = new HyperLogLog(HLL_PRECISION);
+            for (Bucket bucket : buckets) {
+                if (bucket.index != Long.MIN_VALUE) {
+                    merged.merge(bucket.customers);
+                }
+            }
+            return merged.estimate();
+        }
+
+        WindowStats snapshot() {
+            long end = newestIndex == Long.MIN_VALUE ? 0 : (newestIndex + 1) * bucketMillis;
+            return new WindowStats(name, end - buckets.length * bucketMillis, end, orderCount, revenue,
+                    urgentCount, getDistinctCustomers());
+        }
+    }
+
+    private final List<TumblingWindow> tumblingWindows = new ArrayList<>();
+    private final List<SlidingWindow> slidingWindows = new ArrayList<>();
+    private final Consumer<WindowStats> closedWindowListener;
+    private final double highValueAmount;
+    private long droppedEvents;
+    private long eventCount;
+
+    public OrderWindowAnalytics(Consumer<WindowStats> closedWindowListener) {
+        this.closedWindowListener = closedWindowListener;
+        this.highValueAmount = AppConfig.get().getHighValueOrderAmount();
+        tumblingWindows.add(new TumblingWindow("minute", Duration.ofMinutes(1)));
+        tumblingWindows.add(new TumblingWindow("hour", Duration.ofHours(1)));
+        slidingWindows.add(new SlidingWindow("last-minute", Duration.ofMinutes(1), Duration.ofSeconds(1)));
+        slidingWindows.add(new SlidingWindow("last-hour", Duration.ofHours(1), Duration.ofMinutes(1)));
+        slidingWindows.add(new SlidingWindow("last-7-days",
+                Duration.ofDays(AppConfig.get().getRecentOrderDays()), Duration.ofHours(1)));
+    }
+
+    @Override
+    public synchronized void accept(OrderProcessingSystem.Order order) {
+        long time = toMillis(order.getOrderDate());
+        boolean valid = order.getAmount() > 0 && order.getStatusCode() != OrderProcessingSystem.Order.CANCELLED;
+        double revenue = valid ? order.getAmount() : 0;
+        // Same definition as the batch pipeline: valid, high value, and inside the window
+        boolean urgent = valid && order.getAmount() > highValueAmount;
+        // By name: customer codes are reused once a customer's orders are gone, and the
+        // windows outlive the orders they counted
+        String customerName = order.getCustomerName();
+        long customer = HyperLogLog.hash64(customerName != null ? customerName : "");
+        eventCount++;
+
+        for (TumblingWindow window : tumblingWindows) {
+            WindowStats closed = window.add(time, revenue, urgent, customer);
+            if (closed != null && closedWindowListener != null) {
+                closedWindowListener.accept(closed);
+            }
+        }
+        for (SlidingWindow window : slidingWindows) {
+            if (!window.add(time, revenue, urgent, customer)) {
+                droppedEvents++;
+            }
+        }
+    }
+
+    // Moves all sliding windows forward to wall-clock time without an event
+    public synchronized void advanceTo(LocalDateTime time) {
+        long millis = toMillis(time);
+        for (SlidingWindow window : slidingWindows) {
+            window.advanceTo(millis);
+        }
+    }
+
+    public synchronized WindowStats sliding(String name) {
+        for (SlidingWindow window : slidingWindows) {
+            if (window.name.equals(name)) {
+                return window.snapshot();
+            }
+        }
+        throw new IllegalArgumentException("Unknown sliding window: " + name);
+    }
+
+    public synchronized List<WindowStats> slidingSnapshots() {
+        List<WindowStats> snapshots = new ArrayList<>();
+        for (SlidingWindow window : slidingWindows) {
+            snapshots.add(window.snapshot());
+        }
+        return snapshots;
+    }
+
+    public synchronized List<WindowStats> currentTumblingWindows() {
+        List<WindowStats> snapshots = new ArrayList<>();
+        for (TumblingWindow window : tumblingWindows) {
+            if (window.current.index != Long.MIN_VALUE) {
+                snapshots.add(window.snapshot());
+            }
+        }
+        return snapshots;
+    }
+
+    public synchronized long getEventCount() { return eventCount; }
+    // An event too late for a coarse window is also too late for every finer one
+    public synchronized long getLateEvents() {
+        long late = 0;
+        for (TumblingWindow window : tumblingWindows) {
+            late = Math.max(late, window.lateEvents);
+        }
+        return late;
+    }
+    public synchronized long getDroppedEvents() { return droppedEvents; }
+
+    // LocalDateTime is wall-clock time; treating it as UTC keeps windows aligned to it
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static String format(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), 0, ZoneOffset.UTC).format(WINDOW_FORMAT);
+    }
+}
@@ -0,0 +1,280 @@
+package Java8Examples;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.*;
+
+// Mergeable per-shard aggregates for the four modules and the order/catalog join.
+// Every field is either a sum, a count, a max, a keyed sum or a list that merges by
+// concatenation, so merging shard partials gives the same result as one pass over
+// all data. Averages are kept as (sum, count) and only divided when reported.
+// Top customers stay exact because orders are sharded by customer: a customer's total
+// is complete within one shard, so the global top K is among the shards' top K.
+public class PartialAggregates {
+
+    static final int TOP_CUSTOMERS = 5;
+
+    private long employeeCount;
+    private double salarySum;
+    private double maxSalary = Double.NEGATIVE_INFINITY;
+    private final List<String> highPaidEmployees = new ArrayList<>();
+
+    private long transactionCount;
+    private double totalIncome;
+    private double totalExpense;
+
+    private long productCount;
+    private double inventoryValue;
+    private long lowStockCount;
+    private final List<String> lowStockProducts = new ArrayList<>();
+    private final Map<String, Long> productsByCategory = new TreeMap<>();
+
+    private long orderCount;
+    private long validOrders;
+    private double orderValue;
+    private final Map<String, Double> topCustomers = new LinkedHashMap<>();
+
+    private long matchedLines;
+    private long unmatchedLines;
+    // Whole cents, so shard partials add up to exactly the single-process totals
+    private final Map<String, Long> revenueCentsByCategory = new TreeMap<>();
+    private final Map<String, Long> unitsByProduct = new TreeMap<>();
+
+    // One pass over a shard; the same code computes the single-process baseline
+    public static PartialAggregates compute(List<EmployeeDataProcessor.Employee> employees,
+                                            List<FinancialCalculator.Transaction> transactions,
+                                            List<InventoryManagementSystem.Product> products,
+                                            List<OrderProcessingSystem.Order> orders,
+                                            List<InventoryManagementSystem.Product> catalog) {
+        AppConfig config = AppConfig.get();
+        PartialAggregates partial = new PartialAggregates();
+
+        for (EmployeeDataProcessor.Employee employee : employees) {
+            partial.employeeCount++;
+            partial.salarySum += employee.getSalary();
+            partial.maxSalary = Math.max(partial.maxSalary, employee.getSalary());
+            if (employee.getSalary() > config.getHighSalaryThreshold()) {
+                partial.highPaidEmployees.add(employee.getName());
+            }
+        }
+
+        for (FinancialCalculator.Transaction transaction : transactions) {
+            partial.transactionCount++;
+            if (transaction.getTypeCode() == FinancialCalculator.Transaction.INCOME) {
+                partial.totalIncome += transaction.getAmount();
+            } else if (transaction.getTypeCode() == FinancialCalculator.Transaction.EXPENSE) {
+                partial.totalExpense += transaction.getAmount();
+            }
+        }
+
+        for (InventoryManagementSystem.Product product : products) {
+            partial.productCount++;
+            partial.inventoryValue += product.getTotalValue();
+            if (product.isLowStock()) {
+                partial.lowStockCount++;
+                partial.lowStockProducts.add(product.getName());
+            }
+            partial.productsByCategory.merge(product.getCategory(), 1L, Long::sum);
+        }
+
+        Map<String, Double> customerSpending = new HashMap<>();
+        for (OrderProcessingSystem.Order order : orders) {
+            partial.orderCount++;
+            partial.orderValue += order.getAmount();
+            if (order.getAmount() > 0) {
+                if (order.getStatusCode() != OrderProcessingSystem.Order.CANCELLED) {
+                    partial.validOrders++;
+                }
+                customerSpending.merge(order.getCustomerName(), order.getAmount(), Double::sum);
+            }
+        }
+        partial.topCustomers.putAll(topK(customerSpending));
+
+        if (!orders.isEmpty()) {
+            CrossModuleJoinEngine.JoinResult join = CrossModuleJoinEngine.withDefaults().join(orders, catalog);
+            partial.matchedLines = join.getMatchedLines();
+            partial.unmatchedLines = join.getUnmatchedLines();
+            partial.revenueCentsByCategory.putAll(join.getRevenueCentsByCategory());
+            for (CrossModuleJoinEngine.StockDepletion depletion : join.getDepletion()) {
+                partial.unitsByProduct.put(depletion.getProduct().getProductId(), depletion.getUnitsOrdered());
+            }
+        }
+        return partial;
+    }
+
+    public void merge(PartialAggregates other) {
+        employeeCount += other.employeeCount;
+        salarySum += other.salarySum;
+        maxSalary = Math.max(maxSalary, other.maxSalary);
+        highPaidEmployees.addAll(other.highPaidEmployees);
+
+        transactionCount += other.transactionCount;
+        totalIncome += other.totalIncome;
+        totalExpense += other.totalExpense;
+
+        productCount += other.productCount;
+        inventoryValue += other.inventoryValue;
+        lowStockCount += other.lowStockCount;
+        lowStockProducts.addAll(other.lowStockProducts);
+        other.productsByCategory.forEach((category, count) -> productsByCategory.merge(category, count, Long::sum));
+
+        orderCount += other.orderCount;
+        validOrders += other.validOrders;
+        orderValue += other.orderValue;
+        Map<String, Double> candidates = new HashMap<>(topCustomers);
+        other.topCustomers.forEach((customer, spent) -> candidates.merge(customer, spent, Double::sum));
+        topCustomers.clear();
+        topCustomers.putAll(topK(candidates));
+
+        matchedLines += other.matchedLines;
+        unmatchedLines += other.unmatchedLines;
+        other.revenueCentsByCategory.forEach((category, cents) ->
+                revenueCentsByCategory.merge(category, cents, Long::sum));
+        other.unitsByProduct.forEach((productId, units) -> unitsByProduct.merge(productId, units, Long::sum));
+    }
+
+    public long getEmployeeCount() { return employeeCount; }
+    public double getAverageSalary() { return employeeCount == 0 ? 0.0 : salarySum / employeeCount; }
+    public double getMaxSalary() { return employeeCount == 0 ? 0.0 : maxSalary; }
+    public List<String> getHighPaidEmployees() { return highPaidEmployees; }
+    public long getTransactionCount() { return transactionCount; }
+    public double getTotalIncome() { return totalIncome; }
+    public double getTotalExpense() { return totalExpense; }
+    public long getProductCount() { return productCount; }
+    public double getInventoryValue() { return inventoryValue; }
+    public long getLowStockCount() { return lowStockCount; }
+    public List<String> getLowStockProducts() { return lowStockProducts; }
+    public Map<String, Long> getProductsByCategory() { return productsByCategory; }
+    public long getOrderCount() { return orderCount; }
+    public long getValidOrders() { return validOrders; }
+    public double getOrderValue() { return orderValue; }
+    public Map<String, Double> getTopCustomers() { return topCustomers; }
+    public long getMatchedLines() { return matchedLines; }
+    public long getUnmatchedLines() { return unmatchedLines; }
+    public Map<String, Long> getRevenueCentsByCategory() { return revenueCentsByCategory; }
+    public Map<String, Double> getRevenueByCategory() {
+        return CrossModuleJoinEngine.toAmounts(revenueCentsByCategory);
+    }
+    public Map<String, Long> getUnitsByProduct() { return unitsByProduct; }
+
+    public long getMatchedRevenueCents() {
+        return CrossModuleJoinEngine.matchedCents(revenueCentsByCategory);
+    }
+
+    // Module results in the same format MainExecutor produces in-process
+    public Map<String, String> toResults() {
+        Map<String, String> results = new HashMap<>();
+        results.put("EMPLOYEE", "EMPLOYEE_PROCESSED:" + employeeCount + "_EMPLOYEES_AVG_SALARY_" +
+                String.format("%.2f", getAverageSalary()));
+        results.put("FINANCIAL", "FINANCIAL_PROCESSED:INCOME_" + String.format("%.2f", totalIncome) +
+                "_EXPENSE_" + String.format("%.2f", totalExpense));
+        results.put("INVENTORY", "INVENTORY_PROCESSED:PRODUCTS_" + productCount + "_VALUE_" +
+                String.format("%.2f", inventoryValue));
+        results.put("ORDER", "ORDER_PROCESSED:VALID_" + validOrders + "_TOTAL_VALUE_" +
+                String.format("%.2f", orderValue));
+        results.put("JOINED", "JOIN_PROCESSED:MATCHED_" + matchedLines + "_REVENUE_" +
+                CrossModuleJoinEngine.formatCents(getMatchedRevenueCents()));
+        return results;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(employeeCount);
+        out.writeDouble(salarySum);
+        out.writeDouble(maxSalary);
+        writeStrings(out, highPaidEmployees);
+        out.writeLong(transactionCount);
+        out.writeDouble(totalIncome);
+        out.writeDouble(totalExpense);
+        out.writeLong(productCount);
+        out.writeDouble(inventoryValue);
+        out.writeLong(lowStockCount);
+        writeStrings(out, lowStockProducts);
+        writeLongs(out, productsByCategory);
+        out.writeLong(orderCount);
+        out.writeLong(validOrders);
+        out.writeDouble(orderValue);
+        writeDoubles(out, topCustomers);
+        out.writeLong(matchedLines);
+        out.writeLong(unmatchedLines);
+        writeLongs(out, revenueCentsByCategory);
+        writeLongs(out, unitsByProduct);
+    }
+
+    public static PartialAggregates readFrom(DataInput in) throws IOException {
+        PartialAggregates partial = new PartialAggregates();
+        partial.employeeCount = in.readLong();
+        partial.salarySum = in.readDouble();
+        partial.maxSalary = in.readDouble();
+        readStrings(in, partial.highPaidEmployees);
+        partial.transactionCount = in.readLong();
+        partial.totalIncome = in.readDouble();
+        partial.totalExpense = in.readDouble();
+        partial.productCount = in.readLong();
+        partial.inventoryValue = in.readDouble();
+        partial.lowStockCount = in.readLong();
+        readStrings(in, partial.lowStockProducts);
+        readLongs(in, partial.productsByCategory);
+        partial.orderCount = in.readLong();
+        partial.validOrders = in.readLong();
+        partial.orderValue = in.readDouble();
+        readDoubles(in, partial.topCustomers);
+        partial.matchedLines = in.readLong();
+        partial.unmatchedLines = in.readLong();
+        readLongs(in, partial.revenueCentsByCategory);
+        readLongs(in, partial.unitsByProduct);
+        return partial;
+    }
+
+    private static Map<String, Double> topK(Map<String, Double> spending) {
+        return spending.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(TOP_CUSTOMERS)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue,
+                        (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private static void writeStrings(DataOutput out, List<String> values) throws IOException {
+        VarInts.writeUnsigned(out, values.size());
+        for (String value : values) {
+            RecordCodecs.writeString(out, value);
+        }
+    }
+
+    private static void readStrings(DataInput in, List<String> target) throws IOException {
+        int size = VarInts.readUnsignedInt(in);
+        for (int i = 0; i < size; i++) {
+            target.add(RecordCodecs.readString(in));
+        }
+    }
+
+    private static void writeDoubles(DataOutput out, Map<String, Double> values) throws IOException {
+        VarInts.writeUnsigned(out, values.size());
+        for (Map.Entry<String, Double> entry : values.entrySet()) {
+            RecordCodecs.writeString(out, entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+    }
+
+    private static void readDoubles(DataInput in, Map<String, Double> target) throws IOException {
+        int size = VarInts.readUnsignedInt(in);
+        for (int i = 0; i < size; i++) {
+            target.put(RecordCodecs.readString(in), in.readDouble());
+        }
+    }
+
+    private static void writeLongs(DataOutput out, Map<String, Long> values) throws IOException {
+        VarInts.writeUnsigned(out, values.size());
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            RecordCodecs.writeString(out, entry.getKey());
+            VarInts.writeSigned(out, entry.getValue());
+        }
+    }
+
+    private static void readLongs(DataInput in, Map<String, Long> target) throws IOException {
+        int size = VarInts.readUnsignedInt(in);
+        for (int i = 0; i < size; i++) {
+            target.put(RecordCodecs.readString(in), VarInts.readSigned(in));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.*;
+
+// Compares three ways of running the same filter chains:
+//   lambdas   - hand-written Predicate.and chains, as the modules build them today
+//   composed  - FilterSpec.composed(), the same chain built from getter lambdas
+//   compiled  - FilterSpec.compile(), one generated class per spec
+// All specs are warmed up and measured through the same call sites, so the composed
+// variants see several Predicate implementations there, like a real application does.
+// Usage: PredicateBenchmark [records]
+public class PredicateBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 20;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("=== PREDICATE BENCHMARK - " + size + " records ===\n");
+
+        List<OrderProcessingSystem.Order> orders = createOrders(size);
+        List<EmployeeDataProcessor.Employee> employees = createEmployees(size);
+
+        List<FilterSpec<OrderProcessingSystem.Order>> orderSpecs = Arrays.asList(
+                FilterSpec.on(OrderProcessingSystem.Order.class)
+                        .where("amount", Query.Op.GT, 0)
+                        .where("status", Query.Op.NE, "CANCELLED"),
+                FilterSpec.on(OrderProcessingSystem.Order.class)
+                        .where("amount", Query.Op.GT, 500)
+                        .where("statusCode", Query.Op.EQ, OrderProcessingSystem.Order.PENDING)
+                        .where("amount", Query.Op.LE, 2000));
+        List<Predicate<OrderProcessingSystem.Order>> orderLambdas = Arrays.asList(
+                ((Predicate<OrderProcessingSystem.Order>) order -> order.getAmount() > 0)
+                        .and(order -> !"CANCELLED".equals(order.getStatus())),
+                ((Predicate<OrderProcessingSystem.Order>) order -> order.getAmount() > 500)
+                        .and(order -> order.getStatusCode() == OrderProcessingSystem.Order.PENDING)
+                        .and(order -> order.getAmount() <= 2000));
+
+        List<FilterSpec<EmployeeDataProcessor.Employee>> employeeSpecs = Arrays.asList(
+                FilterSpec.on(EmployeeDataProcessor.Employee.class)
+                        .where("salary", Query.Op.GT, 75000)
+                        .where("department", Query.Op.EQ, "Development"),
+                FilterSpec.on(EmployeeDataProcessor.Employee.class)
+                        .where("age", Query.Op.LT, 30)
+                        .where("salary", Query.Op.GE, 50000)
+                        .where("department", Query.Op.NE, "Testing"));
+        List<Predicate<EmployeeDataProcessor.Employee>> employeeLambdas = Arrays.asList(
+                ((Predicate<EmployeeDataProcessor.Employee>) emp -> emp.getSalary() > 75000)
+                        .and(emp -> "Development".equals(emp.getDepartment())),
+                ((Predicate<EmployeeDataProcessor.Employee>) emp -> emp.getAge() < 30)
+                        .and(emp -> emp.getSalary() >= 50000)
+                        .and(emp -> !"Testing".equals(emp.getDepartment())));
+
+        System.out.printf("%-10s %-70s %12s %8s%n", "Variant", "Filter", "ns/record", "Matches");
+        run("lambdas", orders, orderSpecs, orderLambdas, employees, employeeSpecs, employeeLambdas, 0);
+        run("composed", orders, orderSpecs, orderLambdas, employees, employeeSpecs, employeeLambdas, 1);
+        run("compiled", orders, orderSpecs, orderLambdas, employees, employeeSpecs, employeeLambdas, 2);
+    }
+
+    private static void run(String variant,
+                            List<OrderProcessingSystem.Order> orders,
+                            List<FilterSpec<OrderProcessingSystem.Order>> orderSpecs,
+                            List<Predicate<OrderProcessingSystem.Order>> orderLambdas,
+                            List<EmployeeDataProcessor.Employee> employees,
+                            List<FilterSpec<EmployeeDataProcessor.Employee>> employeeSpecs,
+                            List<Predicate<EmployeeDataProcessor.Employee>> employeeLambdas,
+                            int kind) {
+        List<ToIntFunction<Void>> tasks = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < orderSpecs.size(); i++) {
+            tasks.add(task(orders, orderSpecs.get(i), orderLambdas.get(i), kind));
+            names.add(orderSpecs.get(i).toString());
+        }
+        for (int i = 0; i < employeeSpecs.size(); i++) {
+            tasks.add(task(employees, employeeSpecs.get(i), employeeLambdas.get(i), kind));
+            names.add(employeeSpecs.get(i).toString());
+        }
+
+        // Interleave the filters during warm-up so every call site sees all of them
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (ToIntFunction<Void> task : tasks) {
+                task.applyAsInt(null);
+            }
+        }
+        for (int t = 0; t < tasks.size(); t++) {
+            int matches = 0;
+            long start = System.nanoTime();
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                matches = tasks.get(t).applyAsInt(null);
+            }
+            double nanosPerRecord = (System.nanoTime() - start) / (double) MEASURED_ROUNDS / orders.size();
+            String name = names.get(t).replace("Java8Examples.", "");
+            System.out.printf("%-10s %-70s %12.2f %8d%n", variant,
+                    name.length() > 70 ? name.substring(0, 67) + "..." : name, nanosPerRecord, matches);
+        }
+    }
+
+    private static <T> ToIntFunction<Void> task(List<T> records, FilterSpec<T> spec, Predicate<T> lambda, int kind) {
+        switch (kind) {
+            case 0:
+                return ignored -> count(records, lambda);
+            case 1:
+                Predicate<T> composed = spec.composed();
+                return ignored -> count(records, composed);
+            default:
+                CompiledFilter<T> compiled = spec.compile();
+                return ignored -> compiled.count(records);
+        }
+    }
+
+    // One shared loop, as in library code that accepts any Predicate
+    private static <T> int count(List<T> records, Predicate<T> predicate) {
+        int matches = 0;
+        for (int i = 0, n = records.size(); i < n; i++) {
+            if (predicate.test(records.get(i))) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static List<OrderProcessingSystem.Order> createOrders(int size) {
+        String[] statuses = {"PENDING", "PENDING", "PENDING", "CANCELLED", "PROCESSED"};
+        Random random = new Random(42);
+        List<OrderProcessingSystem.Order> orders = new ArrayList<>(size);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < size; i++) {
+            orders.add(new OrderProcessingSystem.Order("O" + i, "Customer " + random.nextInt(1000),
+                    start.plusMinutes(i), random.nextInt(300000) / 100.0 - 50, statuses[i % statuses.length],
+                    Collections.singletonList("Item " + random.nextInt(100)), "City " + random.nextInt(20)));
+        }
+        return orders;
+    }
+
+    private static List<EmployeeDataProcessor.Employee> createEmployees(int size) {
+        String[] departments = {"Development", "Testing", "Sales", "Support"};
+        Random random = new Random(7);
+        List<EmployeeDataProcessor.Employee> employees = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            employees.add(new EmployeeDataProcessor.Employee("E" + i, "Employee " + i,
+                    30000 + random.nextInt(90000), departments[i % departments.length],
+                    LocalDate.of(2015, 1, 1).plusDays(random.nextInt(3000)), 21 + random.nextInt(40),
+                    Collections.singletonList("Java")));
+        }
+        return employees;
+    }
+}
@@ -0,0 +1,524 @@
+package Java8Examples;
+
+import java.io.*;
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Generates one class per FilterSpec at runtime. The generated class implements
+// CompiledFilter (SummingFilter when the spec has a sumOf projection) with every clause
+// as straight-line bytecode (getter, constant, compare, branch) and loops that call its
+// own final test() method, so there is no chain of Predicate objects and no shared
+// megamorphic call site for the JIT to give up on. The record classes are
+// package-private, so getters are reached through MethodHandles stored in static final
+// fields of the generated class; HotSpot treats those as constants and inlines through
+// invokeExact.
+//
+// Java 8 has no hidden classes or Lookup.defineClass, so each class is defined by its
+// own small class loader. Classes are emitted as version 49, which the JVM verifies
+// by type inference, so no StackMapTable frames have to be computed.
+public final class PredicateCompiler {
+
+    private static final String PACKAGE = "Java8Examples/generated/";
+    private static final String HANDLE = "java/lang/invoke/MethodHandle";
+    private static final String LIST = "java/util/List";
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+    // Keyed by the spec itself: its toString() is for people and can read the same for two
+    // different specs, e.g. when a String constant contains a quote and " AND "
+    private static final Map<FilterSpec<?>, CompiledFilter<?>> CACHE = new ConcurrentHashMap<>();
+    // Handles waiting to be picked up by the static initializer of the class with that id
+    private static final Map<Integer, MethodHandle[]> PENDING = new ConcurrentHashMap<>();
+
+    private PredicateCompiler() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> CompiledFilter<T> compile(FilterSpec<T> spec) {
+        return (CompiledFilter<T>) CACHE.computeIfAbsent(spec, key -> generate(spec));
+    }
+
+    // Called from the generated <clinit>; hands over the getter handles exactly once
+    public static MethodHandle[] handles(int id) {
+        MethodHandle[] handles = PENDING.remove(id);
+        if (handles == null) {
+            throw new IllegalStateException("No handles registered for generated filter " + id);
+        }
+        return handles;
+    }
+
+    private static CompiledFilter<?> generate(FilterSpec<?> spec) {
+        int id = NEXT_ID.incrementAndGet();
+        String className = PACKAGE + spec.getType().getSimpleName() + "Filter" + id;
+        List<FilterSpec.Clause> clauses = spec.getClauses();
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle[] handles = new MethodHandle[clauses.size() + (spec.getSumField() != null ? 1 : 0)];
+        try {
+            for (int i = 0; i < clauses.size(); i++) {
+                handles[i] = erase(lookup.unreflect(clauses.get(i).getGetter()), false);
+            }
+            if (spec.getSumField() != null) {
+                handles[clauses.size()] = erase(lookup.unreflect(spec.getSumGetter()), true);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access getters of " + spec.getType(), e);
+        }
+
+        byte[] bytes = new ClassWriter(className, id, spec, handles).toByteArray();
+        PENDING.put(id, handles);
+        try {
+            Class<?> generated = new GeneratedClassLoader(PredicateCompiler.class.getClassLoader())
+                    .define(className.replace('/', '.'), bytes);
+            return (CompiledFilter<?>) generated.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("Could not load generated filter for " + spec, e);
+        } finally {
+            PENDING.remove(id);
+        }
+    }
+
+    // (Record)X -> (Object)X with X kept primitive; doubles for the projection
+    private static MethodHandle erase(MethodHandle getter, boolean asDouble) {
+        Class<?> returnType = getter.type().returnType();
+        if (asDouble || returnType == float.class) {
+            returnType = double.class;
+        }
+        return getter.asType(MethodType.methodType(returnType, Object.class));
+    }
+
+    private static final class GeneratedClassLoader extends ClassLoader {
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    // Minimal class file writer for exactly the shape of class described above
+    private static final class ClassWriter {
+        private static final int ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ALOAD = 0x19, ASTORE = 0x3a, ASTORE_0 = 0x4b;
+        private static final int ILOAD = 0x15, ISTORE = 0x36, DLOAD = 0x18, DSTORE = 0x39;
+        private static final int ICONST_0 = 0x03, ICONST_1 = 0x04, DCONST_0 = 0x0e, SIPUSH = 0x11;
+        private static final int LDC = 0x12, LDC_W = 0x13, LDC2_W = 0x14, AALOAD = 0x32, POP = 0x57, DADD = 0x63;
+        private static final int LCMP = 0x94, DCMPL = 0x97, DCMPG = 0x98;
+        private static final int IFEQ = 0x99, IFNE = 0x9a, IFLT = 0x9b, IFGE = 0x9c, IFGT = 0x9d, IFLE = 0x9e;
+        private static final int IF_ICMPEQ = 0x9f, IF_ICMPNE = 0xa0, IF_ICMPLT = 0xa1, IF_ICMPGE = 0xa2;
+        private static final int IF_ICMPGT = 0xa3, IF_ICMPLE = 0xa4, GOTO = 0xa7, IINC = 0x84;
+        private static final int IRETURN = 0xac, DRETURN = 0xaf, RETURN = 0xb1;
+        private static final int GETSTATIC = 0xb2, PUTSTATIC = 0xb3, INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7;
+        private static final int INVOKESTATIC = 0xb8, INVOKEINTERFACE = 0xb9;
+
+        private final String className;
+        private final int id;
+        private final FilterSpec<?> spec;
+        private final MethodHandle[] handles;
+        private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(poolBytes);
+        private final Map<String, Integer> poolIndex = new HashMap<>();
+        private int poolCount = 1;
+
+        ClassWriter(String className, int id, FilterSpec<?> spec, MethodHandle[] handles) {
+            this.className = className;
+            this.id = id;
+            this.spec = spec;
+            this.handles = handles;
+        }
+
+        byte[] toByteArray() {
+            try {
+                // Methods first: they fill the constant pool, which precedes them in the file
+                List<byte[]> methods = new ArrayList<>();
+                methods.add(method(0x0008, "<clinit>", "()V", staticInitializer(), 3, 1));
+                methods.add(method(0x0001, "<init>", "()V", constructor(), 1, 1));
+                methods.add(method(0x0001, "test", "(Ljava/lang/Object;)Z", test(), 6, 2));
+                methods.add(method(0x0001, "count", "(Ljava/util/List;)I", count(), 3, 5));
+                methods.add(method(0x0001, "filterInto", "(Ljava/util/List;Ljava/util/List;)I", filterInto(), 3, 7));
+                if (spec.getSumField() != null) {
+                    methods.add(method(0x0001, "sum", "(Ljava/util/List;)D", sum(), 5, 7));
+                }
+                int thisClass = classRef(className);
+                int superClass = classRef("java/lang/Object");
+                int filterInterface = classRef(spec.getSumField() != null
+                        ? "Java8Examples/SummingFilter" : "Java8Examples/CompiledFilter");
+                int handleDescriptor = utf8("L" + HANDLE + ";");
+                int[] fieldNames = new int[handles.length];
+                for (int i = 0; i < handles.length; i++) {
+                    fieldNames[i] = utf8("h" + i);
+                }
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(49);
+                out.writeShort(poolCount);
+                pool.flush();
+                out.write(poolBytes.toByteArray());
+                out.writeShort(0x0031); // public final super
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(1);
+                out.writeShort(filterInterface);
+                out.writeShort(handles.length);
+                for (int fieldName : fieldNames) {
+                    out.writeShort(0x001A); // private static final
+                    out.writeShort(fieldName);
+                    out.writeShort(handleDescriptor);
+                    out.writeShort(0);
+                }
+                out.writeShort(methods.size());
+                for (byte[] method : methods) {
+                    out.write(method);
+                }
+                out.writeShort(0);
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // h0..hn = PredicateCompiler.handles(id)[i]
+        private Code staticInitializer() {
+            Code code = new Code();
+            code.ldc(integerConstant(id));
+            code.op(INVOKESTATIC).u2(methodRef("Java8Examples/PredicateCompiler", "handles",
+                    "(I)[L" + HANDLE + ";", false));
+            code.op(ASTORE_0);
+            for (int i = 0; i < handles.length; i++) {
+                code.op(ALOAD_0).op(SIPUSH).u2(i).op(AALOAD);
+                code.op(PUTSTATIC).u2(fieldRef(className, "h" + i, "L" + HANDLE + ";"));
+            }
+            code.op(RETURN);
+            return code;
+        }
+
+        private Code constructor() {
+            Code code = new Code();
+            code.op(ALOAD_0).op(INVOKESPECIAL).u2(methodRef("java/lang/Object", "<init>", "()V", false));
+            code.op(RETURN);
+            return code;
+        }
+
+        // Every clause jumps to the shared "return false" on failure
+        private Code test() {
+            Code code = new Code();
+            Label fail = new Label();
+            List<FilterSpec.Clause> clauses = spec.getClauses();
+            for (int i = 0; i < clauses.size(); i++) {
+                FilterSpec.Clause clause = clauses.get(i);
+                Class<?> type = handles[i].type().returnType();
+                Object value = clause.getValue();
+                if (type == Object.class || !type.isPrimitive()) {
+                    // expected.equals(getter(record)) is null-safe for a null field
+                    code.ldc(string((String) value));
+                    invokeGetter(code, i, ALOAD_1, -1);
+                    code.op(INVOKEVIRTUAL).u2(methodRef("java/lang/String", "equals", "(Ljava/lang/Object;)Z", false));
+                    code.jump(clause.getOp() == Query.Op.EQ ? IFEQ : IFNE, fail);
+                } else if (type == double.class) {
+                    invokeGetter(code, i, ALOAD_1, -1);
+                    code.op(LDC2_W).u2(doubleConstant(((Number) value).doubleValue()));
+                    // dcmpg for < and <=, dcmpl otherwise, so NaN always fails the clause
+                    Query.Op op = clause.getOp();
+                    code.op(op == Query.Op.LT || op == Query.Op.LE ? DCMPG : DCMPL);
+                    code.jump(negatedZeroBranch(op), fail);
+                } else if (type == long.class) {
+                    invokeGetter(code, i, ALOAD_1, -1);
+                    code.op(LDC2_W).u2(longConstant(((Number) value).longValue()));
+                    code.op(LCMP);
+                    code.jump(negatedZeroBranch(clause.getOp()), fail);
+                } else {
+                    invokeGetter(code, i, ALOAD_1, -1);
+                    int bound = value instanceof Boolean ? ((Boolean) value ? 1 : 0)
+                            : Math.toIntExact(((Number) value).longValue());
+                    code.ldc(integerConstant(bound));
+                    code.jump(negatedIntBranch(clause.getOp()), fail);
+                }
+            }
+            code.op(ICONST_1).op(IRETURN);
+            code.mark(fail);
+            code.op(ICONST_0).op(IRETURN);
+            return code;
+        }
+
+        // locals: 1 source, 2 size, 3 index, 4 count
+        private Code count() {
+            Code code = new Code();
+            Label loop = new Label();
+            Label next = new Label();
+            Label end = new Label();
+            code.op(ALOAD_1).op(INVOKEINTERFACE).u2(methodRef(LIST, "size", "()I", true)).u1(1).u1(0);
+            code.op(ISTORE).u1(2).op(ICONST_0).op(ISTORE).u1(3).op(ICONST_0).op(ISTORE).u1(4);
+            code.mark(loop);
+            code.op(ILOAD).u1(3).op(ILOAD).u1(2).jump(IF_ICMPGE, end);
+            code.op(ALOAD_0).op(ALOAD_1).op(ILOAD).u1(3);
+            code.op(INVOKEINTERFACE).u2(methodRef(LIST, "get", "(I)Ljava/lang/Object;", true)).u1(2).u1(0);
+            code.op(INVOKEVIRTUAL).u2(methodRef(className, "test", "(Ljava/lang/Object;)Z", false));
+            code.jump(IFEQ, next);
+            code.op(IINC).u1(4).u1(1);
+            code.mark(next);
+            code.op(IINC).u1(3).u1(1).jump(GOTO, loop);
+            code.mark(end);
+            code.op(ILOAD).u1(4).op(IRETURN);
+            return code;
+        }
+
+        // locals: 1 source, 2 target, 3 size, 4 index, 5 count, 6 element
+        private Code filterInto() {
+            Code code = new Code();
+            Label loop = new Label();
+            Label next = new Label();
+            Label end = new Label();
+            code.op(ALOAD_1).op(INVOKEINTERFACE).u2(methodRef(LIST, "size", "()I", true)).u1(1).u1(0);
+            code.op(ISTORE).u1(3).op(ICONST_0).op(ISTORE).u1(4).op(ICONST_0).op(ISTORE).u1(5);
+            code.mark(loop);
+            code.op(ILOAD).u1(4).op(ILOAD).u1(3).jump(IF_ICMPGE, end);
+            code.op(ALOAD_1).op(ILOAD).u1(4);
+            code.op(INVOKEINTERFACE).u2(methodRef(LIST, "get", "(I)Ljava/lang/Object;", true)).u1(2).u1(0);
+            code.op(ASTORE).u1(6);
+            code.op(ALOAD_0).op(ALOAD).u1(6);
+            code.op(INVOKEVIRTUAL).u2(methodRef(className, "test", "(Ljava/lang/Object;)Z", false));
+            code.jump(IFEQ, next);
+            code.op(0x2c).op(ALOAD).u1(6); // aload_2
+            code.op(INVOKEINTERFACE).u2(methodRef(LIST, "add", "(Ljava/lang/Object;)Z", true)).u1(2).u1(0);
+            code.op(POP).op(IINC).u1(5).u1(1);
+            code.mark(next);
+            code.op(IINC).u1(4).u1(1).jump(GOTO, loop);
+            code.mark(end);
+            code.op(ILOAD).u1(5).op(IRETURN);
+            return code;
+        }
+
+        // locals: 1 source, 2 size, 3 index, 4-5 total, 6 element
+        private Code sum() {
+            Code code = new Code();
+            Label loop = new Label();
+            Label next = new Label();
+            Label end = new Label();
+            code.op(ALOAD_1).op(INVOKEINTERFACE).u2(methodRef(LIST, "size", "()I", true)).u1(1).u1(0);
+            code.op(ISTORE).u1(2).op(ICONST_0).op(ISTORE).u1(3).op(DCONST_0).op(DSTORE).u1(4);
+            code.mark(loop);
+            code.op(ILOAD).u1(3).op(ILOAD).u1(2).jump(IF_ICMPGE, end);
+            code.op(ALOAD_1).op(ILOAD).u1(3);
+            code.op(INVOKEINTERFACE).u2(methodRef(LIST, "get", "(I)Ljava/lang/Object;", true)).u1(2).u1(0);
+            code.op(ASTORE).u1(6);
+            code.op(ALOAD_0).op(ALOAD).u1(6);
+            code.op(INVOKEVIRTUAL).u2(methodRef(className, "test", "(Ljava/lang/Object;)Z", false));
+            code.jump(IFEQ, next);
+            code.op(DLOAD).u1(4);
+            invokeGetter(code, handles.length - 1, ALOAD, 6);
+            code.op(DADD).op(DSTORE).u1(4);
+            code.mark(next);
+            code.op(IINC).u1(3).u1(1).jump(GOTO, loop);
+            code.mark(end);
+            code.op(DLOAD).u1(4).op(DRETURN);
+            return code;
+        }
+
+        // getstatic h<i>; load record; invokeExact (Object)X
+        private void invokeGetter(Code code, int handle, int loadOp, int local) {
+            code.op(GETSTATIC).u2(fieldRef(className, "h" + handle, "L" + HANDLE + ";"));
+            code.op(loadOp);
+            if (local >= 0) {
+                code.u1(local);
+            }
+            code.op(INVOKEVIRTUAL).u2(methodRef(HANDLE, "invokeExact",
+                    handles[handle].type().toMethodDescriptorString(), false));
+        }
+
+        private static int negatedZeroBranch(Query.Op op) {
+            switch (op) {
+                case EQ: return IFNE;
+                case NE: return IFEQ;
+                case LT: return IFGE;
+                case LE: return IFGT;
+                case GT: return IFLE;
+                default: return IFLT;
+            }
+        }
+
+        private static int negatedIntBranch(Query.Op op) {
+            switch (op) {
+                case EQ: return IF_ICMPNE;
+                case NE: return IF_ICMPEQ;
+                case LT: return IF_ICMPGE;
+                case LE: return IF_ICMPGT;
+                case GT: return IF_ICMPLE;
+                default: return IF_ICMPLT;
+            }
+        }
+
+        private byte[] method(int access, String name, String descriptor, Code code, int maxStack, int maxLocals)
+                throws IOException {
+            byte[] body = code.resolve();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + body.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+            return bytes.toByteArray();
+        }
+
+        // Constant pool entries, deduplicated by a descriptive key
+        private int entry(String key, int slots, PoolWriter writer) {
+            Integer index = poolIndex.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                writer.write(pool);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            int assigned = poolCount;
+            poolCount += slots;
+            poolIndex.put(key, assigned);
+            return assigned;
+        }
+
+        private int utf8(String value) {
+            return entry("U" + value, 1, out -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        private int classRef(String internalName) {
+            int name = utf8(internalName);
+            return entry("C" + internalName, 1, out -> {
+                out.writeByte(7);
+                out.writeShort(name);
+            });
+        }
+
+        private int string(String value) {
+            int text = utf8(value);
+            return entry("S" + value, 1, out -> {
+                out.writeByte(8);
+                out.writeShort(text);
+            });
+        }
+
+        private int integerConstant(int value) {
+            return entry("I" + value, 1, out -> {
+                out.writeByte(3);
+                out.writeInt(value);
+            });
+        }
+
+        private int longConstant(long value) {
+            return entry("J" + value, 2, out -> {
+                out.writeByte(5);
+                out.writeLong(value);
+            });
+        }
+
+        private int doubleConstant(double value) {
+            return entry("D" + Double.doubleToRawLongBits(value), 2, out -> {
+                out.writeByte(6);
+                out.writeDouble(value);
+            });
+        }
+
+        private int nameAndType(String name, String descriptor) {
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            return entry("N" + name + ":" + descriptor, 1, out -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+        }
+
+        private int fieldRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nat = nameAndType(name, descriptor);
+            return entry("F" + owner + "." + name + ":" + descriptor, 1, out -> {
+                out.writeByte(9);
+                out.writeShort(ownerIndex);
+                out.writeShort(nat);
+            });
+        }
+
+        private int methodRef(String owner, String name, String descriptor, boolean isInterface) {
+            int ownerIndex = classRef(owner);
+            int nat = nameAndType(name, descriptor);
+            return entry("M" + owner + "." + name + descriptor, 1, out -> {
+                out.writeByte(isInterface ? 11 : 10);
+                out.writeShort(ownerIndex);
+                out.writeShort(nat);
+            });
+        }
+
+        private interface PoolWriter {
+            void write(DataOutputStream out) throws IOException;
+        }
+
+        private static final class Label {
+            private int position = -1;
+        }
+
+        // Bytecode buffer with forward branch patching
+        private static final class Code {
+            private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            private final List<int[]> fixups = new ArrayList<>();
+            private final List<Label> fixupLabels = new ArrayList<>();
+
+            Code op(int opcode) {
+                bytes.write(opcode);
+                return this;
+            }
+
+            Code u1(int value) {
+                bytes.write(value);
+                return this;
+            }
+
+            Code u2(int value) {
+                bytes.write(value >>> 8);
+                bytes.write(value);
+                return this;
+            }
+
+            Code ldc(int index) {
+                return index < 256 ? op(LDC).u1(index) : op(LDC_W).u2(index);
+            }
+
+            Code jump(int opcode, Label target) {
+                int at = bytes.size();
+                op(opcode);
+                fixups.add(new int[] { at, bytes.size() });
+                fixupLabels.add(target);
+                return u2(0);
+            }
+
+            void mark(Label label) {
+                label.position = bytes.size();
+            }
+
+            byte[] resolve() {
+                byte[] code = bytes.toByteArray();
+                for (int i = 0; i < fixups.size(); i++) {
+                    int[] fixup = fixups.get(i);
+                    int offset = fixupLabels.get(i).position - fixup[0];
+                    code[fixup[1]] = (byte) (offset >>> 8);
+                    code[fixup[1] + 1] = (byte) offset;
+                }
+                return code;
+            }
+        }
+    }
+}
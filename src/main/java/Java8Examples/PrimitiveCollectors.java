@@ -0,0 +1,76 @@
+package Java8Examples;
+
+import java.util.function.*;
+import java.util.stream.Collector;
+
+// groupingBy-style collectors that produce primitive maps instead of Map<K, Double> or
+// Map<K, Long>: no boxed key or value per record and no boxed result per group. Each
+// thread of a parallel stream fills its own map and the partial maps are merged with
+// addAll(), so they are as parallel-safe as Collectors.groupingBy.
+public final class PrimitiveCollectors {
+
+    private PrimitiveCollectors() {
+    }
+
+    // Sum of value per int key, e.g. summingDoubleByInt(Order::getCustomerCode, Order::getAmount)
+    public static <T> Collector<T, ?, IntDoubleMap> summingDoubleByInt(ToIntFunction<? super T> key,
+                                                                       ToDoubleFunction<? super T> value) {
+        return Collector.of(IntDoubleMap::new,
+                (map, t) -> map.addTo(key.applyAsInt(t), value.applyAsDouble(t)),
+                IntDoubleMap::addAll,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public static <T> Collector<T, ?, IntLongMap> countingByInt(ToIntFunction<? super T> key) {
+        return Collector.of(IntLongMap::new,
+                (map, t) -> map.increment(key.applyAsInt(t)),
+                IntLongMap::addAll,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    // Mean of value per int key; sums and counts are kept apart until the finisher divides
+    public static <T> Collector<T, ?, IntDoubleMap> averagingDoubleByInt(ToIntFunction<? super T> key,
+                                                                         ToDoubleFunction<? super T> value) {
+        return Collector.of(IntAverages::new,
+                (averages, t) -> averages.add(key.applyAsInt(t), value.applyAsDouble(t)),
+                IntAverages::addAll,
+                IntAverages::toAverages);
+    }
+
+    public static <T, K> Collector<T, ?, ObjectDoubleMap<K>> summingDouble(Function<? super T, ? extends K> key,
+                                                                           ToDoubleFunction<? super T> value) {
+        return Collector.<T, ObjectDoubleMap<K>>of(ObjectDoubleMap::new,
+                (map, t) -> map.addTo(key.apply(t), value.applyAsDouble(t)),
+                ObjectDoubleMap::addAll,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public static <T, K> Collector<T, ?, ObjectLongMap<K>> counting(Function<? super T, ? extends K> key) {
+        return Collector.<T, ObjectLongMap<K>>of(ObjectLongMap::new,
+                (map, t) -> map.increment(key.apply(t)),
+                ObjectLongMap::addAll,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    private static final class IntAverages {
+        private final IntDoubleMap sums = new IntDoubleMap();
+        private final IntLongMap counts = new IntLongMap();
+
+        void add(int key, double value) {
+            sums.addTo(key, value);
+            counts.increment(key);
+        }
+
+        IntAverages addAll(IntAverages other) {
+            sums.addAll(other.sums);
+            counts.addAll(other.counts);
+            return this;
+        }
+
+        IntDoubleMap toAverages() {
+            IntDoubleMap averages = new IntDoubleMap(sums.size());
+            sums.forEach((key, sum) -> averages.put(key, sum / counts.get(key)));
+            return averages;
+        }
+    }
+}
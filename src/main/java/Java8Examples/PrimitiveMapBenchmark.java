@@ -0,0 +1,208 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+// Memory footprint and accumulate throughput of the primitive maps against HashMap and
+// ConcurrentHashMap with boxed values, at 10^3 .. maxKeys distinct keys. Int keys are
+// dense codes as SymbolTable hands them out; String keys are built up front, so the
+// footprint column counts the map alone. Each variant applies the same stream of random
+// updates ("add amount to key"); the parallel rows split it across the common pool and
+// merge per-thread maps (primitive) or share one map (ConcurrentHashMap).
+// Footprint is the heap growth after a full GC, averaged over copies for small sizes.
+// Usage: PrimitiveMapBenchmark [maxKeys] [updates]   (10^7 keys needs about -Xmx4g)
+public class PrimitiveMapBenchmark {
+
+    private static final int MEASURED_ROUNDS = 3;
+    // Rough upper bound of heap per key for the heaviest variant, String keys included
+    private static final long BYTES_PER_KEY_NEEDED = 300;
+
+    private interface Variant {
+        // Builds a map holding every key, returned so the caller can measure it
+        Object build(int keys);
+        // Applies all updates and returns a checksum so the work cannot be dropped
+        double accumulate(int keys, int[] updates);
+    }
+
+    private static String[] names = new String[0];
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int maxKeys = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int updateCount = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+
+        System.out.println("=== PRIMITIVE MAP BENCHMARK - up to " + maxKeys + " keys, " + updateCount +
+                " updates, " + Runtime.getRuntime().availableProcessors() + " cores ===\n");
+
+        Map<String, Variant> variants = new LinkedHashMap<>();
+        variants.put("IntDoubleMap", new Variant() {
+            public Object build(int keys) {
+                IntDoubleMap map = new IntDoubleMap();
+                for (int k = 0; k < keys; k++) {
+                    map.addTo(k, k);
+                }
+                return map;
+            }
+            public double accumulate(int keys, int[] updates) {
+                IntDoubleMap map = new IntDoubleMap();
+                for (int key : updates) {
+                    map.addTo(key, key & 127);
+                }
+                return map.get(updates[0]);
+            }
+        });
+        variants.put("HashMap<Integer,Double>", new Variant() {
+            public Object build(int keys) {
+                Map<Integer, Double> map = new HashMap<>();
+                for (int k = 0; k < keys; k++) {
+                    map.merge(k, (double) k, Double::sum);
+                }
+                return map;
+            }
+            public double accumulate(int keys, int[] updates) {
+                Map<Integer, Double> map = new HashMap<>();
+                for (int key : updates) {
+                    map.merge(key, (double) (key & 127), Double::sum);
+                }
+                return map.get(updates[0]);
+            }
+        });
+        variants.put("ConcurrentHashMap<Integer,Double>", new Variant() {
+            public Object build(int keys) {
+                Map<Integer, Double> map = new ConcurrentHashMap<>();
+                for (int k = 0; k < keys; k++) {
+                    map.merge(k, (double) k, Double::sum);
+                }
+                return map;
+            }
+            public double accumulate(int keys, int[] updates) {
+                Map<Integer, Double> map = new ConcurrentHashMap<>();
+                for (int key : updates) {
+                    map.merge(key, (double) (key & 127), Double::sum);
+                }
+                return map.get(updates[0]);
+            }
+        });
+        variants.put("IntDoubleMap parallel", new Variant() {
+            public Object build(int keys) {
+                return null;
+            }
+            public double accumulate(int keys, int[] updates) {
+                // Same merge as PrimitiveCollectors, without boxing the int stream
+                IntDoubleMap map = Arrays.stream(updates).parallel()
+                        .collect(IntDoubleMap::new, (m, key) -> m.addTo(key, key & 127), IntDoubleMap::addAll);
+                return map.get(updates[0]);
+            }
+        });
+        variants.put("ConcurrentHashMap parallel", new Variant() {
+            public Object build(int keys) {
+                return null;
+            }
+            public double accumulate(int keys, int[] updates) {
+                Map<Integer, Double> map = new ConcurrentHashMap<>();
+                Arrays.stream(updates).parallel().forEach(key -> map.merge(key, (double) (key & 127), Double::sum));
+                return map.get(updates[0]);
+            }
+        });
+        variants.put("ObjectDoubleMap<String>", new Variant() {
+            public Object build(int keys) {
+                ObjectDoubleMap<String> map = new ObjectDoubleMap<>();
+                for (int k = 0; k < keys; k++) {
+                    map.addTo(names[k], k);
+                }
+                return map;
+            }
+            public double accumulate(int keys, int[] updates) {
+                ObjectDoubleMap<String> map = new ObjectDoubleMap<>();
+                for (int key : updates) {
+                    map.addTo(names[key], key & 127);
+                }
+                return map.get(names[updates[0]]);
+            }
+        });
+        variants.put("HashMap<String,Double>", new Variant() {
+            public Object build(int keys) {
+                Map<String, Double> map = new HashMap<>();
+                for (int k = 0; k < keys; k++) {
+                    map.merge(names[k], (double) k, Double::sum);
+                }
+                return map;
+            }
+            public double accumulate(int keys, int[] updates) {
+                Map<String, Double> map = new HashMap<>();
+                for (int key : updates) {
+                    map.merge(names[key], (double) (key & 127), Double::sum);
+                }
+                return map.get(names[updates[0]]);
+            }
+        });
+
+        System.out.printf("%10s %-34s %12s %12s%n", "Keys", "Map", "bytes/key", "M updates/s");
+        for (int size = 1000; size <= maxKeys; size *= 10) {
+            int keys = size;
+            if ((long) keys * BYTES_PER_KEY_NEEDED > Runtime.getRuntime().maxMemory()) {
+                System.out.printf("%10d skipped: needs about %d MB of heap (-Xmx)%n",
+                        keys, keys * BYTES_PER_KEY_NEEDED >> 20);
+                continue;
+            }
+            names = null;
+            names = IntStream.range(0, keys).mapToObj(k -> "customer-" + k).toArray(String[]::new);
+            Random random = new Random(keys);
+            int[] updates = new int[updateCount];
+            for (int i = 0; i < updates.length; i++) {
+                updates[i] = random.nextInt(keys);
+            }
+            for (Map.Entry<String, Variant> variant : variants.entrySet()) {
+                long bytes = footprint(variant.getValue(), keys);
+                double seconds = bestOf(() -> variant.getValue().accumulate(keys, updates));
+                System.out.printf("%10d %-34s %12s %12.1f%n", keys, variant.getKey(),
+                        bytes < 0 ? "-" : String.format("%.1f", bytes / (double) keys), updates.length / seconds / 1e6);
+            }
+            System.out.println();
+        }
+    }
+
+    // Heap growth caused by a map holding every key; -1 for variants that build nothing new.
+    // Small maps are built many times over so that GC noise averages out.
+    private static long footprint(Variant variant, int keys) {
+        int copies = Math.max(1, 1_000_000 / keys);
+        Object[] maps = new Object[copies];
+        long before = usedHeap();
+        for (int i = 0; i < copies; i++) {
+            maps[i] = variant.build(keys);
+            if (maps[i] == null) {
+                return -1;
+            }
+        }
+        // Keep the maps reachable until after the measurement
+        sink = maps;
+        long after = usedHeap();
+        sink = null;
+        return Math.max(0, after - before) / copies;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Best wall time in seconds over the measured rounds, after one warm-up round
+    private static double bestOf(DoubleSupplier run) {
+        double checksum = run.getAsDouble();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            checksum += run.getAsDouble();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (checksum == -1) {
+            System.out.println(checksum);
+        }
+        return best / 1e9;
+    }
+}
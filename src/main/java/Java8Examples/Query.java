@@ -0,0 +1,368 @@
+package Java8Examples;
+
+import java.util.*;
+
+// Parsed form of the small query language understood by QueryEngine:
+//
+//   [EXPLAIN] SELECT item, ... FROM table
+//       [WHERE column op literal [AND ...]]
+//       [GROUP BY column, ...] [ORDER BY item [ASC|DESC]] [LIMIT n]
+//
+// An item is a column, count(*) or count/sum/avg/min/max(column). Operators are
+// = != <> < <= > >=, literals are numbers or 'quoted text' (dates as 'yyyy-MM-dd').
+// Keywords are case-insensitive, column and table names are not.
+public class Query {
+
+    enum Op {
+        EQ("="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Op(String symbol) {
+            this.symbol = symbol;
+        }
+
+        @Override
+        public String toString() {
+            return symbol;
+        }
+    }
+
+    enum Aggregate { COUNT, SUM, AVG, MIN, MAX }
+
+    static class Condition {
+        private final String column;
+        private final Op op;
+        private final Object literal;
+
+        Condition(String column, Op op, Object literal) {
+            this.column = column;
+            this.op = op;
+            this.literal = literal;
+        }
+
+        public String getColumn() { return column; }
+        public Op getOp() { return op; }
+        // Double for numeric literals, String for quoted ones
+        public Object getLiteral() { return literal; }
+
+        @Override
+        public String toString() {
+            if (literal instanceof String) {
+                return column + " " + op + " '" + literal + "'";
+            }
+            double number = (Double) literal;
+            return column + " " + op + " " + (number == Math.rint(number) ? String.valueOf((long) number)
+                    : String.valueOf(number));
+        }
+    }
+
+    static class SelectItem {
+        private final Aggregate aggregate;
+        private final String column;
+
+        SelectItem(Aggregate aggregate, String column) {
+            this.aggregate = aggregate;
+            this.column = column;
+        }
+
+        // null for a plain column
+        public Aggregate getAggregate() { return aggregate; }
+        // "*" for count(*)
+        public String getColumn() { return column; }
+
+        public String label() {
+            return aggregate == null ? column : aggregate.name().toLowerCase() + "(" + column + ")";
+        }
+
+        @Override
+        public String toString() {
+            return label();
+        }
+    }
+
+    private final boolean explain;
+    private final List<SelectItem> items;
+    private final String table;
+    private final List<Condition> conditions;
+    private final List<String> groupBy;
+    private final String orderBy;
+    private final boolean descending;
+    private final int limit;
+
+    private Query(boolean explain, List<SelectItem> items, String table, List<Condition> conditions,
+                  List<String> groupBy, String orderBy, boolean descending, int limit) {
+        this.explain = explain;
+        this.items = Collections.unmodifiableList(items);
+        this.table = table;
+        this.conditions = Collections.unmodifiableList(conditions);
+        this.groupBy = Collections.unmodifiableList(groupBy);
+        this.orderBy = orderBy;
+        this.descending = descending;
+        this.limit = limit;
+    }
+
+    public boolean isExplain() { return explain; }
+    public List<SelectItem> getItems() { return items; }
+    public String getTable() { return table; }
+    public List<Condition> getConditions() { return conditions; }
+    public List<String> getGroupBy() { return groupBy; }
+    // Label of a select item, or null
+    public String getOrderBy() { return orderBy; }
+    public boolean isDescending() { return descending; }
+    // -1 when there is no LIMIT
+    public int getLimit() { return limit; }
+
+    public boolean isAggregate() {
+        return !groupBy.isEmpty() || items.stream().anyMatch(item -> item.getAggregate() != null);
+    }
+
+    public static Query parse(String text) {
+        return new Parser(text).parse();
+    }
+
+    // Hand-written tokenizer and recursive-descent parser; errors carry the offset
+    private static class Parser {
+        private final String text;
+        private final List<String> tokens = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+        private int next;
+
+        Parser(String text) {
+            this.text = text;
+            tokenize();
+        }
+
+        Query parse() {
+            boolean explain = acceptKeyword("EXPLAIN");
+            expectKeyword("SELECT");
+            List<SelectItem> items = new ArrayList<>();
+            do {
+                items.add(selectItem());
+            } while (accept(","));
+
+            expectKeyword("FROM");
+            String table = identifier();
+
+            List<Condition> conditions = new ArrayList<>();
+            if (acceptKeyword("WHERE")) {
+                do {
+                    conditions.add(condition());
+                } while (acceptKeyword("AND"));
+            }
+
+            List<String> groupBy = new ArrayList<>();
+            if (acceptKeyword("GROUP")) {
+                expectKeyword("BY");
+                do {
+                    groupBy.add(identifier());
+                } while (accept(","));
+            }
+
+            String orderBy = null;
+            boolean descending = false;
+            if (acceptKeyword("ORDER")) {
+                expectKeyword("BY");
+                orderBy = selectItem().label();
+                if (acceptKeyword("DESC")) {
+                    descending = true;
+                } else {
+                    acceptKeyword("ASC");
+                }
+            }
+
+            int limit = -1;
+            if (acceptKeyword("LIMIT")) {
+                limit = (int) number();
+            }
+            if (next < tokens.size()) {
+                throw error("Unexpected '" + tokens.get(next) + "'");
+            }
+
+            Query query = new Query(explain, items, table, conditions, groupBy, orderBy, descending, limit);
+            if (query.isAggregate()) {
+                for (SelectItem item : items) {
+                    if (item.getAggregate() == null && !groupBy.contains(item.getColumn())) {
+                        throw new IllegalArgumentException("Column " + item.getColumn() +
+                                " must appear in GROUP BY or inside an aggregate");
+                    }
+                }
+            }
+            if (orderBy != null && items.stream().noneMatch(item -> item.label().equals(query.orderBy))) {
+                throw new IllegalArgumentException("ORDER BY " + orderBy + " is not a selected item");
+            }
+            return query;
+        }
+
+        private SelectItem selectItem() {
+            String name = identifier();
+            if (accept("(")) {
+                Aggregate aggregate;
+                try {
+                    aggregate = Aggregate.valueOf(name.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw error("Unknown aggregate " + name);
+                }
+                String column = accept("*") ? "*" : identifier();
+                if (column.equals("*") && aggregate != Aggregate.COUNT) {
+                    throw error(name + "(*) is not supported");
+                }
+                expect(")");
+                return new SelectItem(aggregate, column);
+            }
+            return new SelectItem(null, name);
+        }
+
+        private Condition condition() {
+            String column = identifier();
+            String symbol = peek();
+            Op op;
+            switch (symbol == null ? "" : symbol) {
+                case "=": op = Op.EQ; break;
+                case "!=":
+                case "<>": op = Op.NE; break;
+                case "<": op = Op.LT; break;
+                case "<=": op = Op.LE; break;
+                case ">": op = Op.GT; break;
+                case ">=": op = Op.GE; break;
+                default: throw error("Expected a comparison operator");
+            }
+            next++;
+            String token = peek();
+            if (token != null && token.startsWith("'")) {
+                next++;
+                return new Condition(column, op, token.substring(1, token.length() - 1).replace("''", "'"));
+            }
+            return new Condition(column, op, number());
+        }
+
+        private double number() {
+            String token = peek();
+            try {
+                double value = Double.parseDouble(token);
+                next++;
+                return value;
+            } catch (NumberFormatException | NullPointerException e) {
+                throw error("Expected a number");
+            }
+        }
+
+        private String identifier() {
+            String token = peek();
+            if (token == null || !(Character.isLetter(token.charAt(0)) || token.charAt(0) == '_')) {
+                throw error("Expected a name");
+            }
+            next++;
+            return token;
+        }
+
+        private String peek() {
+            return next < tokens.size() ? tokens.get(next) : null;
+        }
+
+        private boolean accept(String symbol) {
+            if (symbol.equals(peek())) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String symbol) {
+            if (!accept(symbol)) {
+                throw error("Expected '" + symbol + "'");
+            }
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            if (keyword.equalsIgnoreCase(peek())) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expectKeyword(String keyword) {
+            if (!acceptKeyword(keyword)) {
+                throw error("Expected " + keyword);
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            int position = next < positions.size() ? positions.get(next) : text.length();
+            return new IllegalArgumentException(message + " at offset " + position + " in: " + text);
+        }
+
+        private void tokenize() {
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                int start = i;
+                if (Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                if (Character.isLetter(c) || c == '_') {
+                    while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_')) {
+                        i++;
+                    }
+                } else if (Character.isDigit(c) || (c == '-' && i + 1 < text.length()
+                        && Character.isDigit(text.charAt(i + 1)))) {
+                    i++;
+                    while (i < text.length() && (Character.isDigit(text.charAt(i)) || text.charAt(i) == '.')) {
+                        i++;
+                    }
+                } else if (c == '\'') {
+                    i++;
+                    while (true) {
+                        if (i >= text.length()) {
+                            throw new IllegalArgumentException("Unterminated string at offset " + start + " in: " + text);
+                        }
+                        if (text.charAt(i) == '\'') {
+                            if (i + 1 < text.length() && text.charAt(i + 1) == '\'') {
+                                i += 2;
+                                continue;
+                            }
+                            i++;
+                            break;
+                        }
+                        i++;
+                    }
+                } else if ((c == '<' || c == '>' || c == '!') && i + 1 < text.length()
+                        && (text.charAt(i + 1) == '=' || (c == '<' && text.charAt(i + 1) == '>'))) {
+                    i += 2;
+                } else if ("(),*=<>".indexOf(c) >= 0) {
+                    i++;
+                } else {
+                    throw new IllegalArgumentException("Unexpected character '" + c + "' at offset " + i +
+                            " in: " + text);
+                }
+                tokens.add(text.substring(start, i));
+                positions.add(start);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(explain ? "EXPLAIN SELECT " : "SELECT ");
+        sb.append(String.join(", ", items.stream().map(SelectItem::label).toArray(String[]::new)));
+        sb.append(" FROM ").append(table);
+        if (!conditions.isEmpty()) {
+            sb.append(" WHERE ");
+            for (int i = 0; i < conditions.size(); i++) {
+                sb.append(i == 0 ? "" : " AND ").append(conditions.get(i));
+            }
+        }
+        if (!groupBy.isEmpty()) {
+            sb.append(" GROUP BY ").append(String.join(", ", groupBy));
+        }
+        if (orderBy != null) {
+            sb.append(" ORDER BY ").append(orderBy).append(descending ? " DESC" : "");
+        }
+        if (limit >= 0) {
+            sb.append(" LIMIT ").append(limit);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,723 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.*;
+
+// Plans and runs Query statements against registered QueryTables.
+//
+// Planning: every WHERE condition gets a selectivity estimate from the column
+// statistics. The planner costs each usable access path (a hash index for equality,
+// a sorted index for ranges, or a scan) together with the filters left over, and
+// takes the cheapest. All predicates are pushed below the aggregation into the scan
+// loop, and the residual filters run most selective first.
+//
+// Execution: the plan compiles each filter into an IntPredicate over row ids (array
+// lookups when the table has a column store, record getters otherwise) and runs
+// access, filters and aggregation as one fused loop with no intermediate collections.
+// EXPLAIN runs the query and shows the plan with estimated and actual row counts.
+public class QueryEngine {
+
+    // Relative cost of evaluating one predicate on one row
+    private static final double ROW_COST = 1.0;
+    private static final double COLUMNAR_COST = 0.2;
+    // No statistics for text ranges; the textbook guess
+    private static final double TEXT_RANGE_SELECTIVITY = 1.0 / 3;
+
+    static class QueryResult {
+        private final List<String> columns;
+        private final List<Object[]> rows;
+        private final String plan;
+        private final long elapsedMicros;
+
+        QueryResult(List<String> columns, List<Object[]> rows, String plan, long elapsedMicros) {
+            this.columns = columns;
+            this.rows = rows;
+            this.plan = plan;
+            this.elapsedMicros = elapsedMicros;
+        }
+
+        public List<String> getColumns() { return columns; }
+        public List<Object[]> getRows() { return rows; }
+        // Plan text for EXPLAIN statements, otherwise null
+        public String getPlan() { return plan; }
+        public long getElapsedMicros() { return elapsedMicros; }
+
+        @Override
+        public String toString() {
+            if (plan != null) {
+                return plan;
+            }
+            String[][] cells = new String[rows.size() + 1][columns.size()];
+            int[] widths = new int[columns.size()];
+            for (int c = 0; c < columns.size(); c++) {
+                cells[0][c] = columns.get(c);
+            }
+            for (int r = 0; r < rows.size(); r++) {
+                for (int c = 0; c < columns.size(); c++) {
+                    Object value = rows.get(r)[c];
+                    cells[r + 1][c] = value instanceof Double ? String.format("%.2f", value) : String.valueOf(value);
+                }
+            }
+            for (String[] line : cells) {
+                for (int c = 0; c < line.length; c++) {
+                    widths[c] = Math.max(widths[c], line[c].length());
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int r = 0; r < cells.length; r++) {
+                for (int c = 0; c < columns.size(); c++) {
+                    sb.append(c == 0 ? "" : " | ").append(String.format("%-" + widths[c] + "s", cells[r][c]));
+                }
+                sb.append('\n');
+                if (r == 0) {
+                    for (int c = 0; c < columns.size(); c++) {
+                        sb.append(c == 0 ? "" : "-+-").append(repeat('-', widths[c]));
+                    }
+                    sb.append('\n');
+                }
+            }
+            sb.append(String.format("(%d rows, %.2f ms)%n", rows.size(), elapsedMicros / 1000.0));
+            return sb.toString();
+        }
+    }
+
+    private final Map<String, QueryTable<?>> tables = new LinkedHashMap<>();
+
+    public QueryEngine register(QueryTable<?> table) {
+        tables.put(table.getName(), table);
+        return this;
+    }
+
+    public QueryTable<?> table(String name) {
+        QueryTable<?> table = tables.get(name);
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown table " + name + ", available: " + tables.keySet());
+        }
+        return table;
+    }
+
+    public QueryResult execute(String text) {
+        Query query = Query.parse(text);
+        return execute(table(query.getTable()), query);
+    }
+
+    public String explain(String text) {
+        Query query = Query.parse(text);
+        Plan<?> plan = new Plan<>(table(query.getTable()), query);
+        plan.run();
+        return plan.explain();
+    }
+
+    private <T> QueryResult execute(QueryTable<T> table, Query query) {
+        Plan<T> plan = new Plan<>(table, query);
+        QueryResult result = plan.run();
+        return query.isExplain()
+                ? new QueryResult(result.columns, result.rows, plan.explain(), result.elapsedMicros)
+                : result;
+    }
+
+    // Tables over the four datasets with indexes on the usual lookup columns
+    public static QueryEngine forDatasets(List<EmployeeDataProcessor.Employee> employees,
+                                          List<FinancialCalculator.Transaction> transactions,
+                                          List<InventoryManagementSystem.Product> products,
+                                          List<OrderProcessingSystem.Order> orders) {
+        return new QueryEngine()
+                .register(QueryTable.of("employees", SnapshotSchema.EMPLOYEES, employees)
+                        .withHashIndex("department").withSortedIndex("salary").withColumnStore())
+                .register(QueryTable.of("transactions", SnapshotSchema.TRANSACTIONS, transactions)
+                        .withHashIndex("type").withHashIndex("category").withSortedIndex("timestamp")
+                        .withColumnStore())
+                .register(QueryTable.of("products", SnapshotSchema.PRODUCTS, products)
+                        .withHashIndex("category").withSortedIndex("quantity"))
+                .register(QueryTable.of("orders", SnapshotSchema.ORDERS, orders)
+                        .withHashIndex("customerName").withHashIndex("status").withSortedIndex("amount")
+                        .withColumnStore());
+    }
+
+    // Candidate way of producing row ids before the filters run
+    private static final class AccessPath {
+        private final String description;
+        private final Query.Condition condition;
+        private final double estimatedRows;
+        private final double cost;
+        private final Supplier<int[]> rowIds;
+
+        AccessPath(String description, Query.Condition condition, double estimatedRows, double cost,
+                   Supplier<int[]> rowIds) {
+            this.description = description;
+            this.condition = condition;
+            this.estimatedRows = estimatedRows;
+            this.cost = cost;
+            this.rowIds = rowIds;
+        }
+    }
+
+    private static final class Filter {
+        private final Query.Condition condition;
+        private final double selectivity;
+        private IntPredicate test;
+        private long actual;
+
+        Filter(Query.Condition condition, double selectivity) {
+            this.condition = condition;
+            this.selectivity = selectivity;
+        }
+    }
+
+    private static final class Accumulator {
+        private long count;
+        private double sum;
+        private double minKey = Double.POSITIVE_INFINITY;
+        private double maxKey = Double.NEGATIVE_INFINITY;
+        private Object min;
+        private Object max;
+
+        void add(double key, Object value) {
+            count++;
+            sum += key;
+            if (key < minKey) {
+                minKey = key;
+                min = value;
+            }
+            if (key > maxKey) {
+                maxKey = key;
+                max = value;
+            }
+        }
+
+        void addText(String value) {
+            count++;
+            if (min == null || value.compareTo((String) min) < 0) {
+                min = value;
+            }
+            if (max == null || value.compareTo((String) max) > 0) {
+                max = value;
+            }
+        }
+
+        Object result(Query.Aggregate aggregate) {
+            switch (aggregate) {
+                case COUNT: return count;
+                case SUM: return sum;
+                case AVG: return count == 0 ? null : sum / count;
+                case MIN: return min;
+                default: return max;
+            }
+        }
+    }
+
+    private interface RowSink {
+        void accept(int row);
+
+        List<Object[]> rows();
+    }
+
+    private static final class Plan<T> {
+        private final QueryTable<T> table;
+        private final Query query;
+        private final List<AccessPath> candidates = new ArrayList<>();
+        private final AccessPath access;
+        private final List<Filter> filters = new ArrayList<>();
+        private final double estimatedGroups;
+        private long actualAccessRows;
+        private long actualGroups;
+        private long actualOutputRows;
+        private boolean stoppedAtLimit;
+
+        Plan(QueryTable<T> table, Query query) {
+            this.table = table;
+            this.query = query;
+            int n = table.size();
+            double filterCost = table.hasColumnStore() ? COLUMNAR_COST : ROW_COST;
+
+            List<Filter> all = new ArrayList<>();
+            for (Query.Condition condition : query.getConditions()) {
+                all.add(new Filter(condition, selectivity(condition)));
+            }
+            for (Query.SelectItem item : query.getItems()) {
+                if (!item.getColumn().equals("*")) {
+                    checkAggregate(item, table.column(item.getColumn()));
+                }
+            }
+
+            // 1. Access paths: a scan, plus every index that can answer one of the conditions
+            candidates.add(new AccessPath(table.hasColumnStore() ? "ColumnarScan " + table.getName()
+                    : "FullScan " + table.getName(), null, n,
+                    residualCost(all, null, n, filterCost), () -> null));
+            for (Filter filter : all) {
+                Query.Condition condition = filter.condition;
+                QueryTable.Column<T> column = table.column(condition.getColumn());
+                Object literal = column.literal(condition.getLiteral());
+                double matches = n * filter.selectivity;
+                double cost = Math.log(n + 1) / Math.log(2) + matches * ROW_COST
+                        + residualCost(all, filter, matches, filterCost);
+                Map<Object, int[]> hashIndex = table.hashIndex(condition.getColumn());
+                QueryTable.SortedIndex sortedIndex = table.sortedIndex(condition.getColumn());
+                if (hashIndex != null && condition.getOp() == Query.Op.EQ) {
+                    candidates.add(new AccessPath("IndexLookup " + table.getName() + "." + condition +
+                            " via hash index", condition, matches, cost,
+                            () -> hashIndex.getOrDefault(literal, new int[0])));
+                } else if (sortedIndex != null && condition.getOp() != Query.Op.NE) {
+                    candidates.add(new AccessPath("IndexRange " + table.getName() + "." + condition +
+                            " via sorted index", condition, matches, cost,
+                            () -> sortedIndex.range(condition.getOp(), (Double) literal)));
+                }
+            }
+            AccessPath best = candidates.get(0);
+            for (AccessPath candidate : candidates) {
+                if (candidate.cost < best.cost) {
+                    best = candidate;
+                }
+            }
+            this.access = best;
+
+            // 2. Residual filters, most selective first, compiled against the row ids
+            for (Filter filter : all) {
+                if (filter.condition != access.condition) {
+                    filter.test = compile(filter.condition);
+                    filters.add(filter);
+                }
+            }
+            filters.sort(Comparator.comparingDouble(f -> f.selectivity));
+
+            double groups = 1;
+            for (String column : query.getGroupBy()) {
+                groups *= table.stats(column).getDistinct();
+            }
+            this.estimatedGroups = Math.max(1, Math.min(groups, estimatedFilteredRows()));
+        }
+
+        QueryResult run() {
+            long start = System.nanoTime();
+            int[] rowIds = access.rowIds.get();
+            int count = rowIds == null ? table.size() : rowIds.length;
+            IntPredicate[] tests = new IntPredicate[filters.size()];
+            long[] passed = new long[tests.length];
+            for (int f = 0; f < tests.length; f++) {
+                tests[f] = filters.get(f).test;
+            }
+            RowSink sink = query.isAggregate() ? new AggregateSink() : new ProjectSink();
+            // Without ORDER BY or aggregation the loop can stop as soon as LIMIT rows passed
+            long stopAfter = !query.isAggregate() && query.getOrderBy() == null && query.getLimit() >= 0
+                    ? query.getLimit() : Long.MAX_VALUE;
+
+            // 3. The fused loop: access -> filters -> aggregate/project, row id at a time
+            long emitted = 0;
+            int i = 0;
+            rows:
+            for (; i < count && emitted < stopAfter; i++) {
+                int row = rowIds == null ? i : rowIds[i];
+                for (int f = 0; f < tests.length; f++) {
+                    if (!tests[f].test(row)) {
+                        continue rows;
+                    }
+                    passed[f]++;
+                }
+                sink.accept(row);
+                emitted++;
+            }
+            actualAccessRows = i;
+            stoppedAtLimit = i < count;
+            for (int f = 0; f < tests.length; f++) {
+                filters.get(f).actual = passed[f];
+            }
+
+            List<Object[]> output = sink.rows();
+            actualGroups = output.size();
+            if (query.getOrderBy() != null) {
+                int index = labelIndex(query.getOrderBy());
+                Comparator<Object[]> order = (a, b) -> compareValues(a[index], b[index]);
+                output.sort(query.isDescending() ? order.reversed() : order);
+            }
+            if (query.getLimit() >= 0 && output.size() > query.getLimit()) {
+                output = new ArrayList<>(output.subList(0, query.getLimit()));
+            }
+            actualOutputRows = output.size();
+
+            List<String> labels = new ArrayList<>();
+            for (Query.SelectItem item : query.getItems()) {
+                labels.add(item.label());
+            }
+            return new QueryResult(labels, output, null, (System.nanoTime() - start) / 1000);
+        }
+
+        String explain() {
+            List<String> lines = new ArrayList<>();
+            double estimate = access.estimatedRows;
+            lines.add(line(access.description, estimate, actualAccessRows) +
+                    (stoppedAtLimit ? " (stopped at LIMIT)" : ""));
+            for (Filter filter : filters) {
+                estimate *= filter.selectivity;
+                lines.add(line(String.format("Filter %s (selectivity %.3f, %s)", filter.condition, filter.selectivity,
+                        table.hasColumnStore() ? "column arrays" : "record getters"), estimate, filter.actual));
+            }
+            if (query.isAggregate()) {
+                List<String> aggregates = new ArrayList<>();
+                for (Query.SelectItem item : query.getItems()) {
+                    if (item.getAggregate() != null) {
+                        aggregates.add(item.label());
+                    }
+                }
+                lines.add(line("HashAggregate group by " + query.getGroupBy() + " computing " + aggregates,
+                        estimatedGroups, actualGroups));
+                estimate = estimatedGroups;
+            }
+            if (query.getOrderBy() != null) {
+                lines.add(line("Sort by " + query.getOrderBy() + (query.isDescending() ? " DESC" : " ASC"),
+                        estimate, actualGroups));
+            }
+            if (query.getLimit() >= 0) {
+                estimate = Math.min(estimate, query.getLimit());
+                lines.add(line("Limit " + query.getLimit(), estimate, actualOutputRows));
+            }
+            lines.add(line("Project " + query.getItems(), estimate, actualOutputRows));
+
+            StringBuilder sb = new StringBuilder("Plan for: ").append(query).append('\n');
+            for (int i = lines.size() - 1, depth = 0; i >= 0; i--, depth++) {
+                sb.append(repeat(' ', 2 + depth * 2)).append(lines.get(i)).append('\n');
+            }
+            sb.append("Access paths considered:\n");
+            for (AccessPath candidate : candidates) {
+                sb.append(String.format("  %s%s: est %.0f rows, cost %.1f%n", candidate == access ? "* " : "  ",
+                        candidate.description, candidate.estimatedRows, candidate.cost));
+            }
+            return sb.toString();
+        }
+
+        private static String line(String operator, double estimate, long actual) {
+            return String.format("%s  [est=%d actual=%d]", operator, Math.round(estimate), actual);
+        }
+
+        private double estimatedFilteredRows() {
+            double estimate = access.estimatedRows;
+            for (Filter filter : filters) {
+                estimate *= filter.selectivity;
+            }
+            return estimate;
+        }
+
+        // Cost of running every filter except the one the access path already answered
+        private static double residualCost(List<Filter> all, Filter answered, double rows, double perRow) {
+            List<Filter> residual = new ArrayList<>(all);
+            residual.remove(answered);
+            residual.sort(Comparator.comparingDouble(f -> f.selectivity));
+            double cost = 0;
+            for (Filter filter : residual) {
+                cost += rows * perRow;
+                rows *= filter.selectivity;
+            }
+            return cost;
+        }
+
+        private double selectivity(Query.Condition condition) {
+            QueryTable.Column<T> column = table.column(condition.getColumn());
+            Object literal = column.literal(condition.getLiteral());
+            QueryTable.ColumnStats stats = table.stats(column.getName());
+            double nonNullFraction = table.size() == 0 ? 0 : (double) stats.getNonNull() / table.size();
+            double selectivity;
+            switch (condition.getOp()) {
+                case EQ:
+                    selectivity = 1 / stats.getDistinct();
+                    if (column.getType() != QueryTable.Type.TEXT
+                            && ((Double) literal < stats.getMin() || (Double) literal > stats.getMax())) {
+                        selectivity = 0;
+                    }
+                    break;
+                case NE:
+                    selectivity = 1 - 1 / stats.getDistinct();
+                    break;
+                default:
+                    if (column.getType() == QueryTable.Type.TEXT) {
+                        selectivity = TEXT_RANGE_SELECTIVITY;
+                        break;
+                    }
+                    double key = (Double) literal;
+                    double min = stats.getMin();
+                    double max = stats.getMax();
+                    boolean below = condition.getOp() == Query.Op.LT || condition.getOp() == Query.Op.LE;
+                    if (max == min) {
+                        selectivity = matches(condition.getOp(), Double.compare(min, key)) ? 1 : 0;
+                    } else {
+                        selectivity = below ? (key - min) / (max - min) : (max - key) / (max - min);
+                    }
+            }
+            return Math.max(0, Math.min(1, selectivity)) * nonNullFraction;
+        }
+
+        private IntPredicate compile(Query.Condition condition) {
+            QueryTable.Column<T> column = table.column(condition.getColumn());
+            Object literal = column.literal(condition.getLiteral());
+            Query.Op op = condition.getOp();
+            if (column.getType() == QueryTable.Type.TEXT) {
+                String text = (String) literal;
+                QueryTable.TextColumn textColumn = table.textColumn(column.getName());
+                if (textColumn != null) {
+                    // Decide once per dictionary entry; the row test is two array reads
+                    String[] dictionary = textColumn.getDictionary();
+                    boolean[] matching = new boolean[dictionary.length];
+                    for (int code = 0; code < dictionary.length; code++) {
+                        matching[code] = matches(op, dictionary[code].compareTo(text));
+                    }
+                    int[] codes = textColumn.getCodes();
+                    return row -> codes[row] >= 0 && matching[codes[row]];
+                }
+                List<T> rows = table.getRows();
+                return row -> {
+                    Object value = column.valueOf(rows.get(row));
+                    return value != null && matches(op, ((String) value).compareTo(text));
+                };
+            }
+
+            double bound = (Double) literal;
+            double[] keys = table.numericColumn(column.getName());
+            IntToDoubleFunction key;
+            if (keys != null) {
+                // Specialized per operator so the loop body is a single comparison
+                switch (op) {
+                    case EQ: return row -> keys[row] == bound;
+                    case NE: return row -> keys[row] != bound && !Double.isNaN(keys[row]);
+                    case LT: return row -> keys[row] < bound;
+                    case LE: return row -> keys[row] <= bound;
+                    case GT: return row -> keys[row] > bound;
+                    default: return row -> keys[row] >= bound;
+                }
+            }
+            List<T> rows = table.getRows();
+            key = row -> column.keyOf(column.valueOf(rows.get(row)));
+            return row -> {
+                double value = key.applyAsDouble(row);
+                return !Double.isNaN(value) && matches(op, Double.compare(value, bound));
+            };
+        }
+
+        private IntFunction<Object> valueReader(String columnName) {
+            QueryTable.TextColumn textColumn = table.textColumn(columnName);
+            if (textColumn != null) {
+                return textColumn::valueAt;
+            }
+            QueryTable.Column<T> column = table.column(columnName);
+            List<T> rows = table.getRows();
+            return row -> column.valueOf(rows.get(row));
+        }
+
+        private IntToDoubleFunction keyReader(String columnName) {
+            double[] keys = table.numericColumn(columnName);
+            if (keys != null) {
+                return row -> keys[row];
+            }
+            QueryTable.Column<T> column = table.column(columnName);
+            List<T> rows = table.getRows();
+            return row -> column.keyOf(column.valueOf(rows.get(row)));
+        }
+
+        private void checkAggregate(Query.SelectItem item, QueryTable.Column<T> column) {
+            Query.Aggregate aggregate = item.getAggregate();
+            if ((aggregate == Query.Aggregate.SUM || aggregate == Query.Aggregate.AVG)
+                    && column.getType() != QueryTable.Type.NUMBER) {
+                throw new IllegalArgumentException(item.label() + " needs a numeric column");
+            }
+        }
+
+        private int labelIndex(String label) {
+            for (int i = 0; i < query.getItems().size(); i++) {
+                if (query.getItems().get(i).label().equals(label)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Unknown item " + label);
+        }
+
+        private final class ProjectSink implements RowSink {
+            private final List<IntFunction<Object>> readers = new ArrayList<>();
+            private final List<Object[]> rows = new ArrayList<>();
+
+            ProjectSink() {
+                for (Query.SelectItem item : query.getItems()) {
+                    // Original record values, so ints stay ints and dates stay dates
+                    QueryTable.Column<T> column = table.column(item.getColumn());
+                    List<T> records = table.getRows();
+                    readers.add(row -> column.valueOf(records.get(row)));
+                }
+            }
+
+            @Override
+            public void accept(int row) {
+                Object[] values = new Object[readers.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readers.get(i).apply(row);
+                }
+                rows.add(values);
+            }
+
+            @Override
+            public List<Object[]> rows() {
+                return rows;
+            }
+        }
+
+        private final class AggregateSink implements RowSink {
+            private final List<IntFunction<Object>> groupReaders = new ArrayList<>();
+            private final Query.SelectItem[] items;
+            private final IntToDoubleFunction[] keys;
+            // Per item, null for count(*) and plain columns
+            private final List<IntFunction<Object>> values = new ArrayList<>();
+            private final boolean[] text;
+            private final Map<Object, Accumulator[]> groups = new LinkedHashMap<>();
+
+            AggregateSink() {
+                for (String column : query.getGroupBy()) {
+                    groupReaders.add(valueReader(column));
+                }
+                items = query.getItems().toArray(new Query.SelectItem[0]);
+                keys = new IntToDoubleFunction[items.length];
+                text = new boolean[items.length];
+                for (int i = 0; i < items.length; i++) {
+                    values.add(null);
+                    if (items[i].getAggregate() == null || items[i].getColumn().equals("*")) {
+                        continue;
+                    }
+                    QueryTable.Column<T> column = table.column(items[i].getColumn());
+                    values.set(i, valueReader(column.getName()));
+                    text[i] = column.getType() == QueryTable.Type.TEXT;
+                    if (!text[i]) {
+                        keys[i] = keyReader(column.getName());
+                    }
+                }
+            }
+
+            @Override
+            public void accept(int row) {
+                Object groupKey;
+                if (groupReaders.isEmpty()) {
+                    groupKey = Collections.emptyList();
+                } else if (groupReaders.size() == 1) {
+                    groupKey = groupReaders.get(0).apply(row);
+                } else {
+                    Object[] parts = new Object[groupReaders.size()];
+                    for (int g = 0; g < parts.length; g++) {
+                        parts[g] = groupReaders.get(g).apply(row);
+                    }
+                    groupKey = Arrays.asList(parts);
+                }
+                Accumulator[] accumulators = groups.get(groupKey);
+                if (accumulators == null) {
+                    accumulators = new Accumulator[items.length];
+                    for (int i = 0; i < items.length; i++) {
+                        accumulators[i] = new Accumulator();
+                    }
+                    groups.put(groupKey, accumulators);
+                }
+                for (int i = 0; i < items.length; i++) {
+                    if (items[i].getAggregate() == null) {
+                        continue;
+                    }
+                    IntFunction<Object> value = values.get(i);
+                    if (value == null) {
+                        accumulators[i].count++;
+                    } else if (text[i]) {
+                        Object textValue = value.apply(row);
+                        if (textValue != null) {
+                            accumulators[i].addText((String) textValue);
+                        }
+                    } else {
+                        double key = keys[i].applyAsDouble(row);
+                        if (!Double.isNaN(key)) {
+                            Query.Aggregate aggregate = items[i].getAggregate();
+                            // The original value is only needed for MIN/MAX output
+                            boolean extreme = (aggregate == Query.Aggregate.MIN && key < accumulators[i].minKey)
+                                    || (aggregate == Query.Aggregate.MAX && key > accumulators[i].maxKey);
+                            accumulators[i].add(key, extreme ? value.apply(row) : null);
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public List<Object[]> rows() {
+                List<Object[]> rows = new ArrayList<>();
+                if (groups.isEmpty() && query.getGroupBy().isEmpty()) {
+                    // Aggregates over no rows still produce one row, e.g. count(*) = 0
+                    Accumulator[] empty = new Accumulator[items.length];
+                    for (int i = 0; i < items.length; i++) {
+                        empty[i] = new Accumulator();
+                    }
+                    groups.put(Collections.emptyList(), empty);
+                }
+                for (Map.Entry<Object, Accumulator[]> group : groups.entrySet()) {
+                    Object[] row = new Object[items.length];
+                    for (int i = 0; i < items.length; i++) {
+                        if (items[i].getAggregate() != null) {
+                            row[i] = group.getValue()[i].result(items[i].getAggregate());
+                        } else {
+                            int part = query.getGroupBy().indexOf(items[i].getColumn());
+                            row[i] = query.getGroupBy().size() == 1 ? group.getKey()
+                                    : ((List<?>) group.getKey()).get(part);
+                        }
+                    }
+                    rows.add(row);
+                }
+                return rows;
+            }
+        }
+    }
+
+    static boolean matches(Query.Op op, int comparison) {
+        switch (op) {
+            case EQ: return comparison == 0;
+            case NE: return comparison != 0;
+            case LT: return comparison < 0;
+            case LE: return comparison <= 0;
+            case GT: return comparison > 0;
+            default: return comparison >= 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    // Ad-hoc console over the MainExecutor datasets: each argument is a statement,
+    // without arguments statements are read from stdin, one per line
+    public static void main(String[] args) throws IOException {
+        QueryEngine engine = forDatasets(
+                MainExecutor.loadDataset("employees", SnapshotSchema.EMPLOYEES, MainExecutor::createSampleEmployees),
+                MainExecutor.loadDataset("transactions", SnapshotSchema.TRANSACTIONS,
+                        MainExecutor::createSampleTransactions),
+                MainExecutor.loadDataset("products", SnapshotSchema.PRODUCTS, MainExecutor::createSampleProducts),
+                MainExecutor.loadDataset("orders", SnapshotSchema.ORDERS, MainExecutor::createSampleOrders));
+
+        List<String> statements = new ArrayList<>(Arrays.asList(args));
+        if (statements.isEmpty()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    statements.add(line);
+                }
+            }
+        }
+        for (String statement : statements) {
+            System.out.println("> " + statement);
+            try {
+                System.out.println(engine.execute(statement));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Error: " + e.getMessage());
+            }
+        }
+    }
+}
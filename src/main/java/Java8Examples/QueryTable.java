@@ -0,0 +1,360 @@
+package Java8Examples;
+
+import java.time.*;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+
+// A list of records exposed to QueryEngine under a table name, together with the
+// access structures the planner can choose from: hash indexes (value -> row ids),
+// sorted indexes (row ids ordered by value, for ranges) and an optional column store
+// that keeps every column as a primitive array so filters and aggregates never touch
+// the records. Indexes and the column store describe the list as it was when they
+// were built; register a new table after the underlying data changes.
+public class QueryTable<T> {
+
+    // Numbers and dates/times compare through a double key; text compares as String
+    enum Type { NUMBER, TEXT, TEMPORAL }
+
+    static final class Column<T> {
+        private final String name;
+        private final Type type;
+        private final Function<T, Object> getter;
+
+        Column(String name, Type type, Function<T, Object> getter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+        }
+
+        public String getName() { return name; }
+        public Type getType() { return type; }
+        Object valueOf(T record) { return getter.apply(record); }
+
+        // NaN for null so that no comparison matches it
+        double keyOf(Object value) {
+            if (value == null) {
+                return Double.NaN;
+            }
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            if (value instanceof LocalDate) {
+                return ((LocalDate) value).toEpochDay() * 86400.0;
+            }
+            if (value instanceof LocalDateTime) {
+                LocalDateTime dateTime = (LocalDateTime) value;
+                return dateTime.toEpochSecond(ZoneOffset.UTC) + dateTime.getNano() / 1e9;
+            }
+            throw new IllegalArgumentException("Column " + name + " has no numeric key for " + value);
+        }
+
+        // Converts a query literal into this column's comparison domain
+        Object literal(Object literal) {
+            switch (type) {
+                case NUMBER:
+                    if (!(literal instanceof Double)) {
+                        throw new IllegalArgumentException("Column " + name + " is numeric, got '" + literal + "'");
+                    }
+                    return literal;
+                case TEMPORAL:
+                    if (!(literal instanceof String)) {
+                        throw new IllegalArgumentException("Column " + name + " needs a quoted date, got " + literal);
+                    }
+                    String text = (String) literal;
+                    try {
+                        return keyOf(text.length() <= 10 ? LocalDate.parse(text) : LocalDateTime.parse(text));
+                    } catch (DateTimeParseException e) {
+                        throw new IllegalArgumentException("Invalid date for " + name + ": " + text, e);
+                    }
+                default:
+                    return literal instanceof Double ? formatNumber((Double) literal) : literal;
+            }
+        }
+
+        private static String formatNumber(double value) {
+            return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+        }
+    }
+
+    // Planner statistics for one column
+    static final class ColumnStats {
+        private final long nonNull;
+        private final double distinct;
+        private final double min;
+        private final double max;
+
+        ColumnStats(long nonNull, double distinct, double min, double max) {
+            this.nonNull = nonNull;
+            this.distinct = distinct;
+            this.min = min;
+            this.max = max;
+        }
+
+        public long getNonNull() { return nonNull; }
+        public double getDistinct() { return distinct; }
+        // Key range; NaN for text columns
+        public double getMin() { return min; }
+        public double getMax() { return max; }
+    }
+
+    static final class SortedIndex {
+        private final double[] keys;
+        private final int[] rowIds;
+
+        SortedIndex(double[] keys, int[] rowIds) {
+            this.keys = keys;
+            this.rowIds = rowIds;
+        }
+
+        // Row ids whose key satisfies "key op bound"; not for NE
+        int[] range(Query.Op op, double bound) {
+            int from = 0;
+            int to = keys.length;
+            switch (op) {
+                case EQ: from = lowerBound(bound); to = upperBound(bound); break;
+                case LT: to = lowerBound(bound); break;
+                case LE: to = upperBound(bound); break;
+                case GT: from = upperBound(bound); break;
+                case GE: from = lowerBound(bound); break;
+                default: throw new IllegalArgumentException("Sorted index cannot answer " + op);
+            }
+            return from >= to ? new int[0] : Arrays.copyOfRange(rowIds, from, to);
+        }
+
+        private int lowerBound(double key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int upperBound(double key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] <= key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    // Dictionary-encoded text column; code -1 is null
+    static final class TextColumn {
+        private final String[] dictionary;
+        private final int[] codes;
+
+        TextColumn(String[] dictionary, int[] codes) {
+            this.dictionary = dictionary;
+            this.codes = codes;
+        }
+
+        public String[] getDictionary() { return dictionary; }
+        public int[] getCodes() { return codes; }
+
+        String valueAt(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary[code];
+        }
+    }
+
+    private final String name;
+    private final List<T> rows;
+    private final Map<String, Column<T>> columns = new LinkedHashMap<>();
+    private final Map<String, ColumnStats> stats = new HashMap<>();
+    private final Map<String, Map<Object, int[]>> hashIndexes = new HashMap<>();
+    private final Map<String, SortedIndex> sortedIndexes = new HashMap<>();
+    private final Map<String, double[]> numericColumns = new HashMap<>();
+    private final Map<String, TextColumn> textColumns = new HashMap<>();
+    private boolean columnStore;
+
+    public QueryTable(String name, List<T> rows) {
+        this.name = name;
+        this.rows = rows;
+    }
+
+    // Exposes every scalar column of a snapshot schema; list columns are not queryable
+    public static <T> QueryTable<T> of(String name, SnapshotSchema<T> schema, List<T> rows) {
+        QueryTable<T> table = new QueryTable<>(name, rows);
+        for (SnapshotSchema.Column<T> column : schema.getColumns()) {
+            switch (column.getCodec()) {
+                case VARINT:
+                case DOUBLE:
+                    table.addColumn(column.getName(), Type.NUMBER, column::valueOf);
+                    break;
+                case DATE_DELTA:
+                case DATETIME_DELTA:
+                    table.addColumn(column.getName(), Type.TEMPORAL, column::valueOf);
+                    break;
+                case STRING:
+                case DICTIONARY:
+                    table.addColumn(column.getName(), Type.TEXT, column::valueOf);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return table;
+    }
+
+    public QueryTable<T> addColumn(String columnName, Type type, Function<T, Object> getter) {
+        columns.put(columnName, new Column<>(columnName, type, getter));
+        return this;
+    }
+
+    public QueryTable<T> withHashIndex(String columnName) {
+        Column<T> column = column(columnName);
+        Map<Object, List<Integer>> buckets = new HashMap<>();
+        for (int row = 0; row < rows.size(); row++) {
+            Object value = column.valueOf(rows.get(row));
+            if (value != null) {
+                Object key = column.type == Type.TEXT ? value : column.keyOf(value);
+                buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+            }
+        }
+        Map<Object, int[]> index = new HashMap<>();
+        buckets.forEach((key, rowList) -> index.put(key, rowList.stream().mapToInt(Integer::intValue).toArray()));
+        hashIndexes.put(columnName, index);
+        return this;
+    }
+
+    public QueryTable<T> withSortedIndex(String columnName) {
+        Column<T> column = column(columnName);
+        if (column.type == Type.TEXT) {
+            throw new IllegalArgumentException("Sorted indexes need a numeric or date column: " + columnName);
+        }
+        double[] allKeys = new double[rows.size()];
+        int nonNull = 0;
+        Integer[] order = new Integer[rows.size()];
+        for (int row = 0; row < rows.size(); row++) {
+            allKeys[row] = column.keyOf(column.valueOf(rows.get(row)));
+            if (!Double.isNaN(allKeys[row])) {
+                order[nonNull++] = row;
+            }
+        }
+        Arrays.sort(order, 0, nonNull, (a, b) -> Double.compare(allKeys[a], allKeys[b]));
+        double[] keys = new double[nonNull];
+        int[] rowIds = new int[nonNull];
+        for (int i = 0; i < nonNull; i++) {
+            rowIds[i] = order[i];
+            keys[i] = allKeys[order[i]];
+        }
+        sortedIndexes.put(columnName, new SortedIndex(keys, rowIds));
+        return this;
+    }
+
+    // Decodes every column into primitive arrays (doubles, or dictionary codes for text)
+    public QueryTable<T> withColumnStore() {
+        for (Column<T> column : columns.values()) {
+            if (column.type == Type.TEXT) {
+                Map<String, Integer> dictionary = new HashMap<>();
+                List<String> values = new ArrayList<>();
+                int[] codes = new int[rows.size()];
+                for (int row = 0; row < rows.size(); row++) {
+                    String value = (String) column.valueOf(rows.get(row));
+                    if (value == null) {
+                        codes[row] = -1;
+                        continue;
+                    }
+                    Integer code = dictionary.get(value);
+                    if (code == null) {
+                        code = values.size();
+                        dictionary.put(value, code);
+                        values.add(value);
+                    }
+                    codes[row] = code;
+                }
+                textColumns.put(column.name, new TextColumn(values.toArray(new String[0]), codes));
+            } else {
+                double[] keys = new double[rows.size()];
+                for (int row = 0; row < rows.size(); row++) {
+                    keys[row] = column.keyOf(column.valueOf(rows.get(row)));
+                }
+                numericColumns.put(column.name, keys);
+            }
+        }
+        columnStore = true;
+        return this;
+    }
+
+    public String getName() { return name; }
+    public List<T> getRows() { return rows; }
+    public int size() { return rows.size(); }
+    public Collection<Column<T>> getColumns() { return columns.values(); }
+    public boolean hasColumnStore() { return columnStore; }
+
+    public Column<T> column(String columnName) {
+        Column<T> column = columns.get(columnName);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown column " + columnName + " in " + name +
+                    ", available: " + columns.keySet());
+        }
+        return column;
+    }
+
+    Map<Object, int[]> hashIndex(String columnName) {
+        return hashIndexes.get(columnName);
+    }
+
+    SortedIndex sortedIndex(String columnName) {
+        return sortedIndexes.get(columnName);
+    }
+
+    double[] numericColumn(String columnName) {
+        return numericColumns.get(columnName);
+    }
+
+    TextColumn textColumn(String columnName) {
+        return textColumns.get(columnName);
+    }
+
+    // Computed on first use; distinct counts come from a HyperLogLog sketch
+    synchronized ColumnStats stats(String columnName) {
+        ColumnStats columnStats = stats.get(columnName);
+        if (columnStats == null) {
+            Column<T> column = column(columnName);
+            HyperLogLog distinct = new HyperLogLog(12);
+            long nonNull = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (T record : rows) {
+                Object value = column.valueOf(record);
+                if (value == null) {
+                    continue;
+                }
+                nonNull++;
+                if (column.type == Type.TEXT) {
+                    distinct.add((String) value);
+                } else {
+                    double key = column.keyOf(value);
+                    distinct.add(Double.doubleToLongBits(key));
+                    min = Math.min(min, key);
+                    max = Math.max(max, key);
+                }
+            }
+            columnStats = column.type == Type.TEXT || nonNull == 0
+                    ? new ColumnStats(nonNull, Math.max(1, distinct.estimate()), Double.NaN, Double.NaN)
+                    : new ColumnStats(nonNull, Math.max(1, distinct.estimate()), min, max);
+            stats.put(columnName, columnStats);
+        }
+        return columnStats;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryTable[%s, %d rows, columns=%s, hashIndexes=%s, sortedIndexes=%s, columnStore=%s]",
+                name, rows.size(), columns.keySet(), hashIndexes.keySet(), sortedIndexes.keySet(), columnStore);
+    }
+}
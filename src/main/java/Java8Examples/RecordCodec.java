@@ -0,0 +1,15 @@
+package Java8Examples;
+
+import java.io.*;
+
+// Binary serialization of one record type, used when records have to leave the heap
+// (sort runs, spill files). Implementations must be stateless and thread-safe.
+public interface RecordCodec<T> {
+
+    void write(DataOutput out, T value) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    // Rough retained heap size of one decoded record, used to honour memory budgets
+    long estimatedHeapBytes(T value);
+}
@@ -0,0 +1,241 @@
+package Java8Examples;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+
+// RecordCodec implementations for the four domain record types.
+// Symbol fields are written as their SymbolTable codes, so the output is only
+// meaningful inside the JVM that wrote it (spill files, sort runs). WeakSymbolTable
+// fields (order customer and address) are written as text, since their codes can be
+// reused once the in-memory records are gone.
+public final class RecordCodecs {
+
+    // Object header + reference fields; close enough for budget accounting
+    private static final long RECORD_OVERHEAD = 64;
+    private static final long STRING_OVERHEAD = 48;
+
+    private RecordCodecs() {
+    }
+
+    static final RecordCodec<EmployeeDataProcessor.Employee> EMPLOYEE = new RecordCodec<EmployeeDataProcessor.Employee>() {
+        @Override
+        public void write(DataOutput out, EmployeeDataProcessor.Employee emp) throws IOException {
+            writeString(out, emp.getId());
+            writeString(out, emp.getName());
+            out.writeDouble(emp.getSalary());
+            writeCode(out, emp.getDepartmentCode());
+            writeDate(out, emp.getJoinDate());
+            VarInts.writeSigned(out, emp.getAge());
+            writeCodes(out, emp.getSkillCodes());
+        }
+
+        @Override
+        public EmployeeDataProcessor.Employee read(DataInput in) throws IOException {
+            String id = readString(in);
+            String name = readString(in);
+            double salary = in.readDouble();
+            String department = SymbolTable.DEPARTMENTS.symbol(readCode(in));
+            LocalDate joinDate = readDate(in);
+            int age = (int) VarInts.readSigned(in);
+            return new EmployeeDataProcessor.Employee(id, name, salary, department, joinDate, age,
+                    decodeList(SymbolTable.SKILLS, readCodes(in)));
+        }
+
+        @Override
+        public long estimatedHeapBytes(EmployeeDataProcessor.Employee emp) {
+            return RECORD_OVERHEAD + stringBytes(emp.getId()) + stringBytes(emp.getName())
+                    + 32 + arrayBytes(emp.getSkillCodes());
+        }
+    };
+
+    static final RecordCodec<FinancialCalculator.Transaction> TRANSACTION = new RecordCodec<FinancialCalculator.Transaction>() {
+        @Override
+        public void write(DataOutput out, FinancialCalculator.Transaction t) throws IOException {
+            writeString(out, t.getId());
+            out.writeDouble(t.getAmount());
+            writeDateTime(out, t.getTimestamp());
+            writeCode(out, t.getTypeCode());
+            writeCode(out, t.getCategoryCode());
+            writeString(out, t.getDescription());
+        }
+
+        @Override
+        public FinancialCalculator.Transaction read(DataInput in) throws IOException {
+            String id = readString(in);
+            double amount = in.readDouble();
+            LocalDateTime timestamp = readDateTime(in);
+            String type = SymbolTable.TRANSACTION_TYPES.symbol(readCode(in));
+            String category = SymbolTable.TRANSACTION_CATEGORIES.symbol(readCode(in));
+            return new FinancialCalculator.Transaction(id, amount, timestamp, type, category, readString(in));
+        }
+
+        @Override
+        public long estimatedHeapBytes(FinancialCalculator.Transaction t) {
+            return RECORD_OVERHEAD + stringBytes(t.getId()) + stringBytes(t.getDescription()) + 48;
+        }
+    };
+
+    static final RecordCodec<InventoryManagementSystem.Product> PRODUCT = new RecordCodec<InventoryManagementSystem.Product>() {
+        @Override
+        public void write(DataOutput out, InventoryManagementSystem.Product p) throws IOException {
+            writeString(out, p.getProductId());
+            writeString(out, p.getName());
+            writeCode(out, p.getCategoryCode());
+            out.writeDouble(p.getPrice());
+            VarInts.writeSigned(out, p.getQuantity());
+            out.writeDouble(p.getRating());
+            writeDate(out, p.getExpiryDate());
+        }
+
+        @Override
+        public InventoryManagementSystem.Product read(DataInput in) throws IOException {
+            String productId = readString(in);
+            String name = readString(in);
+            String category = SymbolTable.PRODUCT_CATEGORIES.symbol(readCode(in));
+            double price = in.readDouble();
+            int quantity = (int) VarInts.readSigned(in);
+            double rating = in.readDouble();
+            return new InventoryManagementSystem.Product(productId, name, category, price, quantity, rating,
+                    readDate(in));
+        }
+
+        @Override
+        public long estimatedHeapBytes(InventoryManagementSystem.Product p) {
+            return RECORD_OVERHEAD + stringBytes(p.getProductId()) + stringBytes(p.getName()) + 32;
+        }
+    };
+
+    static final RecordCodec<OrderProcessingSystem.Order> ORDER = new RecordCodec<OrderProcessingSystem.Order>() {
+        @Override
+        public void write(DataOutput out, OrderProcessingSystem.Order order) throws IOException {
+            writeString(out, order.getOrderId());
+            writeString(out, order.getCustomerName());
+            writeDateTime(out, order.getOrderDate());
+            out.writeDouble(order.getAmount());
+            writeCode(out, order.getStatusCode());
+            writeCodes(out, order.getItemCodes());
+            writeString(out, order.getShippingAddress());
+        }
+
+        @Override
+        public OrderProcessingSystem.Order read(DataInput in) throws IOException {
+            String orderId = readString(in);
+            String customer = readString(in);
+            LocalDateTime orderDate = readDateTime(in);
+            double amount = in.readDouble();
+            String status = SymbolTable.ORDER_STATUSES.symbol(readCode(in));
+            List<String> items = decodeList(SymbolTable.ITEMS, readCodes(in));
+            String address = readString(in);
+            return new OrderProcessingSystem.Order(orderId, customer, orderDate, amount, status, items, address);
+        }
+
+        @Override
+        public long estimatedHeapBytes(OrderProcessingSystem.Order order) {
+            return RECORD_OVERHEAD + stringBytes(order.getOrderId()) + 48 + arrayBytes(order.getItemCodes());
+        }
+    };
+
+    // For sorting grouped results such as customer -> total spending
+    static final RecordCodec<Map.Entry<String, Double>> STRING_DOUBLE_ENTRY = new RecordCodec<Map.Entry<String, Double>>() {
+        @Override
+        public void write(DataOutput out, Map.Entry<String, Double> entry) throws IOException {
+            writeString(out, entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+
+        @Override
+        public Map.Entry<String, Double> read(DataInput in) throws IOException {
+            String key = readString(in);
+            return new AbstractMap.SimpleImmutableEntry<>(key, in.readDouble());
+        }
+
+        @Override
+        public long estimatedHeapBytes(Map.Entry<String, Double> entry) {
+            return RECORD_OVERHEAD + stringBytes(entry.getKey()) + 16;
+        }
+    };
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Codes are shifted by one so that NO_SYMBOL (-1) still fits an unsigned varint
+    private static void writeCode(DataOutput out, int code) throws IOException {
+        VarInts.writeUnsigned(out, code + 1L);
+    }
+
+    private static int readCode(DataInput in) throws IOException {
+        return VarInts.readUnsignedInt(in) - 1;
+    }
+
+    private static void writeCodes(DataOutput out, int[] codes) throws IOException {
+        if (codes == null) {
+            VarInts.writeUnsigned(out, 0);
+            return;
+        }
+        VarInts.writeUnsigned(out, codes.length + 1L);
+        for (int code : codes) {
+            writeCode(out, code);
+        }
+    }
+
+    private static int[] readCodes(DataInput in) throws IOException {
+        int length = VarInts.readUnsignedInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        int[] codes = new int[length];
+        for (int i = 0; i < length; i++) {
+            codes[i] = readCode(in);
+        }
+        return codes;
+    }
+
+    private static List<String> decodeList(SymbolTable table, int[] codes) {
+        return codes == null ? null : new ArrayList<>(table.symbols(codes));
+    }
+
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            VarInts.writeSigned(out, date.toEpochDay());
+        }
+    }
+
+    private static LocalDate readDate(DataInput in) throws IOException {
+        return in.readBoolean() ? LocalDate.ofEpochDay(VarInts.readSigned(in)) : null;
+    }
+
+    private static void writeDateTime(DataOutput out, LocalDateTime dateTime) throws IOException {
+        out.writeBoolean(dateTime != null);
+        if (dateTime != null) {
+            VarInts.writeSigned(out, dateTime.toEpochSecond(ZoneOffset.UTC));
+            VarInts.writeUnsigned(out, dateTime.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long epochSecond = VarInts.readSigned(in);
+        int nano = VarInts.readUnsignedInt(in);
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+    }
+
+    private static long arrayBytes(int[] values) {
+        return values == null ? 0 : 16 + 4L * values.length;
+    }
+}
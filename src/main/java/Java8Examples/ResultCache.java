@@ -0,0 +1,206 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Two-tier cache for module outputs keyed by (module, input fingerprint, config fingerprint).
+// The config fingerprint is part of the key because the same input gives a different
+// result under different thresholds, and the configuration can be reloaded at runtime.
+// Tier 1 is an in-memory LRU with size and TTL eviction, tier 2 is an optional
+// directory of small files so that results survive JVM restarts.
+// Entries hold the module's report as well as its result, so a hit prints the same
+// output as a run.
+public class ResultCache {
+
+    static class Stats {
+        private final AtomicLong memoryHits = new AtomicLong();
+        private final AtomicLong diskHits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+        private final AtomicLong expirations = new AtomicLong();
+
+        public long getMemoryHits() { return memoryHits.get(); }
+        public long getDiskHits() { return diskHits.get(); }
+        public long getHits() { return memoryHits.get() + diskHits.get(); }
+        public long getMisses() { return misses.get(); }
+        public long getEvictions() { return evictions.get(); }
+        public long getExpirations() { return expirations.get(); }
+
+        public double getHitRatio() {
+            long lookups = getHits() + getMisses();
+            return lookups == 0 ? 0.0 : (double) getHits() / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Hits=%d (memory=%d, disk=%d), Misses=%d, HitRatio=%.1f%%, Evictions=%d, Expired=%d",
+                    getHits(), getMemoryHits(), getDiskHits(), getMisses(), getHitRatio() * 100,
+                    getEvictions(), getExpirations());
+        }
+    }
+
+    private static class Entry {
+        private final ModuleOutput value;
+        private final long createdAtMillis;
+
+        Entry(ModuleOutput value, long createdAtMillis) {
+            this.value = value;
+            this.createdAtMillis = createdAtMillis;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Path diskDirectory;
+    private final Stats stats = new Stats();
+    private final LinkedHashMap<String, Entry> memory;
+
+    public ResultCache(int maxEntries, long ttlMillis, Path diskDirectory) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.diskDirectory = diskDirectory;
+        // Access-ordered so that the eldest entry is the least recently used one
+        this.memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ResultCache.Entry> eldest) {
+                if (size() > ResultCache.this.maxEntries) {
+                    stats.evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        if (diskDirectory != null) {
+            try {
+                Files.createDirectories(diskDirectory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create cache directory " + diskDirectory, e);
+            }
+        }
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    public boolean isDiskTierEnabled() {
+        return diskDirectory != null;
+    }
+
+    // Returns the cached output, or null when absent or expired in both tiers
+    public ModuleOutput get(String module, long inputFingerprint, long configFingerprint) {
+        String key = key(module, inputFingerprint, configFingerprint);
+        long now = System.currentTimeMillis();
+
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                if (!isExpired(entry, now)) {
+                    stats.memoryHits.incrementAndGet();
+                    return entry.value;
+                }
+                memory.remove(key);
+                stats.expirations.incrementAndGet();
+            }
+        }
+
+        Entry diskEntry = readFromDisk(key, now);
+        if (diskEntry != null) {
+            stats.diskHits.incrementAndGet();
+            synchronized (memory) {
+                memory.put(key, diskEntry);
+            }
+            return diskEntry.value;
+        }
+
+        stats.misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String module, long inputFingerprint, long configFingerprint, ModuleOutput output) {
+        String key = key(module, inputFingerprint, configFingerprint);
+        Entry entry = new Entry(output, System.currentTimeMillis());
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        writeToDisk(key, entry);
+    }
+
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        if (diskDirectory != null) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(diskDirectory, "*.cache")) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not clear cache directory: " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlMillis > 0 && now - entry.createdAtMillis > ttlMillis;
+    }
+
+    private static String key(String module, long inputFingerprint, long configFingerprint) {
+        return module + "-" + String.format("%016x-%016x", inputFingerprint, configFingerprint);
+    }
+
+    // Disk format: the creation time in epoch millis, the result and the report, the
+    // first two terminated by a newline; the report is kept byte for byte
+    private Entry readFromDisk(String key, long now) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        Path file = diskDirectory.resolve(key + ".cache");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            int timeEnd = content.indexOf('\n');
+            int resultEnd = content.indexOf('\n', timeEnd + 1);
+            if (timeEnd < 0 || resultEnd < 0) {
+                throw new IOException("truncated entry");
+            }
+            long createdAt = Long.parseLong(content.substring(0, timeEnd));
+            Entry entry = new Entry(new ModuleOutput(content.substring(timeEnd + 1, resultEnd),
+                    content.substring(resultEnd + 1)), createdAt);
+            if (isExpired(entry, now)) {
+                stats.expirations.incrementAndGet();
+                Files.deleteIfExists(file);
+                return null;
+            }
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            // A corrupt or half-written file is treated as a miss
+            System.err.println("Ignoring unreadable cache file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        if (diskDirectory == null) {
+            return;
+        }
+        Path target = diskDirectory.resolve(key + ".cache");
+        try {
+            // Write to a temp file and rename so that readers never see a partial file
+            Path temp = Files.createTempFile(diskDirectory, key, ".tmp");
+            Files.write(temp, (entry.createdAtMillis + "\n" + entry.value.getResult() + "\n" +
+                    entry.value.getReport()).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not persist cache entry " + key + ": " + e.getMessage());
+        }
+    }
+}
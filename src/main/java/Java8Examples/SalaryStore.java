@@ -0,0 +1,431 @@
+package Java8Examples;
+
+import java.util.*;
+
+// Concurrent salary store for a fixed set of employees. State lives in an immutable
+// Snapshot (salary and department per employee plus count/sum/min/max per department)
+// published through a volatile reference. Per-employee arrays are split into fixed pages;
+// a batch of raises and transfers is applied by one writer at a time to copies of just the
+// pages it touches, department totals are adjusted as it goes, and the new snapshot is
+// swapped in with a single write. Readers take one volatile read and never block: they
+// see either all of a batch or none of it.
+public class SalaryStore {
+
+    static class DepartmentStats {
+        private final String department;
+        private final int count;
+        private final double sum;
+        private final double min;
+        private final double max;
+
+        DepartmentStats(String department, int count, double sum, double min, double max) {
+            this.department = department;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        public String getDepartment() { return department; }
+        public int getCount() { return count; }
+        public double getSum() { return sum; }
+        // 0 for an empty department
+        public double getMin() { return count == 0 ? 0 : min; }
+        public double getMax() { return count == 0 ? 0 : max; }
+        public double getAverage() { return count == 0 ? 0 : sum / count; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: count=%d, sum=%.2f, min=%.2f, max=%.2f, avg=%.2f",
+                    department, count, sum, getMin(), getMax(), getAverage());
+        }
+    }
+
+    // Everything a reader sees; never modified once published
+    static final class Snapshot {
+        private final long version;
+        private final int size;
+        // Paged by slot; pages are shared between snapshots until a batch writes to them
+        private final double[][] salaries;
+        private final int[][] departments;
+        // Indexed by department code
+        private final int[] counts;
+        private final double[] sums;
+        private final double[] mins;
+        private final double[] maxs;
+
+        private Snapshot(long version, int size, double[][] salaries, int[][] departments,
+                         int[] counts, double[] sums, double[] mins, double[] maxs) {
+            this.version = version;
+            this.size = size;
+            this.salaries = salaries;
+            this.departments = departments;
+            this.counts = counts;
+            this.sums = sums;
+            this.mins = mins;
+            this.maxs = maxs;
+        }
+
+        // Number of batches applied before this snapshot
+        public long getVersion() { return version; }
+
+        public int size() { return size; }
+
+        double salary(int slot) {
+            return salaries[slot >>> PAGE_BITS][slot & PAGE_MASK];
+        }
+
+        int department(int slot) {
+            return departments[slot >>> PAGE_BITS][slot & PAGE_MASK];
+        }
+
+        public DepartmentStats getDepartmentStats(String department) {
+            int code = SymbolTable.DEPARTMENTS.codeOf(department);
+            return code >= 0 && code < counts.length ? stats(code) : new DepartmentStats(department, 0, 0, 0, 0);
+        }
+
+        // Non-empty departments by name
+        public Map<String, DepartmentStats> getDepartmentStats() {
+            Map<String, DepartmentStats> result = new TreeMap<>();
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    result.put(SymbolTable.DEPARTMENTS.symbol(code), stats(code));
+                }
+            }
+            return result;
+        }
+
+        // Company-wide totals, consistent with the department figures of the same snapshot
+        public DepartmentStats getTotal() {
+            int count = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    count += counts[code];
+                    sum += sums[code];
+                    min = Math.min(min, mins[code]);
+                    max = Math.max(max, maxs[code]);
+                }
+            }
+            return new DepartmentStats("ALL", count, sum, min, max);
+        }
+
+        private DepartmentStats stats(int code) {
+            return new DepartmentStats(SymbolTable.DEPARTMENTS.symbol(code), counts[code], sums[code],
+                    mins[code], maxs[code]);
+        }
+    }
+
+    // Changes recorded against a store and applied together by commit(). Department names
+    // are only resolved at commit, so a batch that fails leaves the symbol table untouched.
+    class Batch {
+        private final List<Change> changes = new ArrayList<>();
+
+        public Batch setSalary(String employeeId, double salary) {
+            requireValidSalary(salary);
+            changes.add(new Change(Kind.SET, slot(employeeId), salary, null));
+            return this;
+        }
+
+        // Adds amount (negative for a cut) to the salary current at commit time
+        public Batch adjustSalary(String employeeId, double amount) {
+            changes.add(new Change(Kind.ADJUST, slot(employeeId), amount, null));
+            return this;
+        }
+
+        public Batch raise(String employeeId, double percent) {
+            changes.add(new Change(Kind.RAISE, slot(employeeId), percent, null));
+            return this;
+        }
+
+        public Batch raiseDepartment(String department, double percent) {
+            changes.add(new Change(Kind.RAISE_DEPARTMENT, -1, percent, Objects.requireNonNull(department)));
+            return this;
+        }
+
+        public Batch transfer(String employeeId, String department) {
+            changes.add(new Change(Kind.TRANSFER, slot(employeeId), 0, Objects.requireNonNull(department)));
+            return this;
+        }
+
+        public int size() {
+            return changes.size();
+        }
+
+        // Publishes every change or, if any of them is invalid, none
+        public Snapshot commit() {
+            return apply(changes);
+        }
+    }
+
+    private enum Kind { SET, ADJUST, RAISE, RAISE_DEPARTMENT, TRANSFER }
+
+    private static class Change {
+        private final Kind kind;
+        // Employee slot; unused for RAISE_DEPARTMENT
+        private final int target;
+        // Salary, amount or raise percent; unused for TRANSFER
+        private final double value;
+        // Raised or new department for RAISE_DEPARTMENT and TRANSFER, otherwise null
+        private final String department;
+
+        Change(Kind kind, int target, double value, String department) {
+            this.kind = kind;
+            this.target = target;
+            this.value = value;
+            this.department = department;
+        }
+    }
+
+    private static final int PAGE_BITS = 7;
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+    private static final int RETOTAL_INTERVAL = 4096;
+
+    private final Map<String, Integer> slots;
+    private final Object writeLock = new Object();
+    private volatile Snapshot current;
+
+    public SalaryStore(Collection<EmployeeDataProcessor.Employee> employees) {
+        int n = employees.size();
+        int pageCount = (n + PAGE_MASK) >>> PAGE_BITS;
+        Map<String, Integer> slotById = new HashMap<>(n * 2);
+        double[][] salaries = new double[pageCount][];
+        int[][] departments = new int[pageCount][];
+        for (int page = 0; page < pageCount; page++) {
+            int length = Math.min(PAGE_MASK + 1, n - (page << PAGE_BITS));
+            salaries[page] = new double[length];
+            departments[page] = new int[length];
+        }
+        int width = 0;
+        int slot = 0;
+        for (EmployeeDataProcessor.Employee employee : employees) {
+            if (slotById.put(employee.getId(), slot) != null) {
+                throw new IllegalArgumentException("Duplicate employee id " + employee.getId());
+            }
+            requireValidSalary(employee.getSalary());
+            salaries[slot >>> PAGE_BITS][slot & PAGE_MASK] = employee.getSalary();
+            departments[slot >>> PAGE_BITS][slot & PAGE_MASK] = employee.getDepartmentCode();
+            width = Math.max(width, employee.getDepartmentCode() + 1);
+            slot++;
+        }
+        slots = Collections.unmodifiableMap(slotById);
+        Snapshot empty = new Snapshot(0, n, salaries, departments, new int[width], new double[width],
+                new double[width], new double[width]);
+        current = new Draft(empty).publish(0, true);
+    }
+
+    // The latest published snapshot; hold on to it to read several figures consistently
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    public Batch batch() {
+        return new Batch();
+    }
+
+    public double getSalary(String employeeId) {
+        return current.salary(slot(employeeId));
+    }
+
+    public String getDepartment(String employeeId) {
+        return SymbolTable.DEPARTMENTS.symbol(current.department(slot(employeeId)));
+    }
+
+    public Set<String> getEmployeeIds() {
+        return slots.keySet();
+    }
+
+    private Snapshot apply(List<Change> changes) {
+        synchronized (writeLock) {
+            Snapshot base = current;
+            // Departments this batch transfers into for the first time get provisional codes
+            // for a dry run; they are interned only once the batch is known to apply
+            Map<String, Integer> newDepartments = new HashMap<>();
+            int provisional = Math.max(base.counts.length, SymbolTable.DEPARTMENTS.size());
+            for (Change change : changes) {
+                if (change.kind == Kind.TRANSFER && !newDepartments.containsKey(change.department)
+                        && SymbolTable.DEPARTMENTS.codeOf(change.department) == SymbolTable.NO_SYMBOL) {
+                    newDepartments.put(change.department, provisional++);
+                }
+            }
+            if (!newDepartments.isEmpty()) {
+                draft(base, changes, newDepartments);
+                newDepartments.replaceAll((department, code) -> SymbolTable.DEPARTMENTS.intern(department));
+            }
+            Draft draft = draft(base, changes, newDepartments);
+            // Periodically re-total everything so rounding in the running sums cannot accumulate
+            boolean retotalAll = (base.version + 1) % RETOTAL_INTERVAL == 0;
+            Snapshot next = draft.publish(base.version + 1, retotalAll);
+            current = next;
+            return next;
+        }
+    }
+
+    // Applies the changes to a working copy of base; throws if any of them is invalid
+    private static Draft draft(Snapshot base, List<Change> changes, Map<String, Integer> newDepartments) {
+        Draft draft = new Draft(base);
+        for (Change change : changes) {
+            int target = change.target;
+            switch (change.kind) {
+                case SET:
+                    draft.update(target, change.value, draft.department(target));
+                    break;
+                case ADJUST:
+                    draft.update(target, draft.salary(target) + change.value, draft.department(target));
+                    break;
+                case RAISE:
+                    draft.update(target, raised(draft.salary(target), change.value), draft.department(target));
+                    break;
+                case RAISE_DEPARTMENT:
+                    int code = departmentCode(change.department, newDepartments);
+                    for (int slot = 0; slot < base.size(); slot++) {
+                        if (draft.department(slot) == code) {
+                            draft.update(slot, raised(draft.salary(slot), change.value), code);
+                        }
+                    }
+                    break;
+                case TRANSFER:
+                    draft.update(target, draft.salary(target), departmentCode(change.department, newDepartments));
+                    break;
+            }
+        }
+        return draft;
+    }
+
+    // NO_SYMBOL for a department nobody has ever been in, which matches no employee
+    private static int departmentCode(String department, Map<String, Integer> newDepartments) {
+        Integer code = newDepartments.get(department);
+        return code != null ? code : SymbolTable.DEPARTMENTS.codeOf(department);
+    }
+
+    // Writer-side working copy of a snapshot. Page directories are cloned up front and a
+    // page is copied the first time it is written; department totals are kept up to date
+    // incrementally, and a department is only rescanned when it loses its min or max.
+    private static class Draft {
+        private final int size;
+        private final double[][] salaries;
+        private final int[][] departments;
+        private final BitSet copiedSalaryPages = new BitSet();
+        private final BitSet copiedDepartmentPages = new BitSet();
+        private int[] counts;
+        private double[] sums;
+        private double[] mins;
+        private double[] maxs;
+        private final BitSet rescan = new BitSet();
+
+        Draft(Snapshot base) {
+            size = base.size;
+            salaries = base.salaries.clone();
+            departments = base.departments.clone();
+            counts = base.counts.clone();
+            sums = base.sums.clone();
+            mins = base.mins.clone();
+            maxs = base.maxs.clone();
+        }
+
+        double salary(int slot) {
+            return salaries[slot >>> PAGE_BITS][slot & PAGE_MASK];
+        }
+
+        int department(int slot) {
+            return departments[slot >>> PAGE_BITS][slot & PAGE_MASK];
+        }
+
+        void update(int slot, double salary, int department) {
+            requireValidSalary(salary);
+            int page = slot >>> PAGE_BITS;
+            int offset = slot & PAGE_MASK;
+            double oldSalary = salaries[page][offset];
+            int oldDepartment = departments[page][offset];
+            counts[oldDepartment]--;
+            sums[oldDepartment] -= oldSalary;
+            if (oldSalary == mins[oldDepartment] || oldSalary == maxs[oldDepartment]) {
+                rescan.set(oldDepartment);
+            }
+
+            if (!copiedSalaryPages.get(page)) {
+                salaries[page] = salaries[page].clone();
+                copiedSalaryPages.set(page);
+            }
+            salaries[page][offset] = salary;
+            if (department != oldDepartment) {
+                if (!copiedDepartmentPages.get(page)) {
+                    departments[page] = departments[page].clone();
+                    copiedDepartmentPages.set(page);
+                }
+                departments[page][offset] = department;
+                ensureWidth(department + 1);
+            }
+
+            counts[department]++;
+            sums[department] += salary;
+            mins[department] = Math.min(mins[department], salary);
+            maxs[department] = Math.max(maxs[department], salary);
+        }
+
+        Snapshot publish(long version, boolean retotalAll) {
+            if (retotalAll) {
+                rescan.set(0, counts.length);
+            }
+            if (!rescan.isEmpty()) {
+                for (int code = rescan.nextSetBit(0); code >= 0; code = rescan.nextSetBit(code + 1)) {
+                    counts[code] = 0;
+                    sums[code] = 0;
+                    mins[code] = Double.POSITIVE_INFINITY;
+                    maxs[code] = Double.NEGATIVE_INFINITY;
+                }
+                for (int slot = 0; slot < size; slot++) {
+                    int code = department(slot);
+                    if (rescan.get(code)) {
+                        double salary = salary(slot);
+                        counts[code]++;
+                        sums[code] += salary;
+                        mins[code] = Math.min(mins[code], salary);
+                        maxs[code] = Math.max(maxs[code], salary);
+                    }
+                }
+            }
+            return new Snapshot(version, size, salaries, departments, counts, sums, mins, maxs);
+        }
+
+        private void ensureWidth(int width) {
+            if (width > counts.length) {
+                int oldWidth = counts.length;
+                counts = Arrays.copyOf(counts, width);
+                sums = Arrays.copyOf(sums, width);
+                mins = Arrays.copyOf(mins, width);
+                maxs = Arrays.copyOf(maxs, width);
+                Arrays.fill(mins, oldWidth, width, Double.POSITIVE_INFINITY);
+                Arrays.fill(maxs, oldWidth, width, Double.NEGATIVE_INFINITY);
+            }
+        }
+    }
+
+    private static double raised(double salary, double percent) {
+        double result = salary * (1 + percent / 100);
+        requireValidSalary(result);
+        return result;
+    }
+
+    private static void requireValidSalary(double salary) {
+        if (!(salary >= 0) || Double.isInfinite(salary)) {
+            throw new IllegalArgumentException("Invalid salary " + salary);
+        }
+    }
+
+    private int slot(String employeeId) {
+        Integer slot = slots.get(employeeId);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown employee " + employeeId);
+        }
+        return slot;
+    }
+
+    @Override
+    public String toString() {
+        Snapshot snapshot = current;
+        return "SalaryStore[employees=" + snapshot.size() + ", version=" + snapshot.getVersion() + "]";
+    }
+}
@@ -0,0 +1,190 @@
+package Java8Examples;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Read and write throughput of SalaryStore under contention, against the same data kept
+// in mutable arrays behind a ReentrantReadWriteLock. Writers commit batches that move a
+// random amount of salary from one employee to another and transfer both to random
+// departments, which leaves headcount and payroll unchanged; readers total every
+// department and count any read where those invariants break (a half-applied batch).
+// Usage: SalaryStoreBenchmark [employees] [readers] [writers] [seconds]
+public class SalaryStoreBenchmark {
+
+    private static final String[] DEPARTMENTS = { "Development", "Testing", "Management", "HR", "Sales", "Support" };
+    private static final int[] DEPARTMENT_CODES = SymbolTable.DEPARTMENTS.internAll(Arrays.asList(DEPARTMENTS));
+    private static final int PAIRS_PER_BATCH = 8;
+    private static final double MAX_ADJUSTMENT = 500;
+
+    // The lock-based alternative: readers and writers exclude each other
+    static class LockedStore {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final double[] salaries;
+        private final int[] departments;
+        private final int[] counts;
+        private final double[] sums;
+
+        LockedStore(List<EmployeeDataProcessor.Employee> employees) {
+            int n = employees.size();
+            salaries = new double[n];
+            departments = new int[n];
+            for (int i = 0; i < n; i++) {
+                salaries[i] = employees.get(i).getSalary();
+                departments[i] = employees.get(i).getDepartmentCode();
+            }
+            int width = Arrays.stream(departments).max().orElse(-1) + 1;
+            counts = new int[width];
+            sums = new double[width];
+            for (int i = 0; i < n; i++) {
+                counts[departments[i]]++;
+                sums[departments[i]] += salaries[i];
+            }
+        }
+
+        void apply(int[] slots, double[] amounts, int[] newDepartments) {
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < slots.length; i++) {
+                    int slot = slots[i];
+                    counts[departments[slot]]--;
+                    sums[departments[slot]] -= salaries[slot];
+                    salaries[slot] += amounts[i];
+                    departments[slot] = newDepartments[i];
+                    counts[departments[slot]]++;
+                    sums[departments[slot]] += salaries[slot];
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // Same work as a SalaryStore reader: the totals over every department
+        double[] totals() {
+            lock.readLock().lock();
+            try {
+                int count = 0;
+                double sum = 0;
+                for (int code = 0; code < counts.length; code++) {
+                    count += counts[code];
+                    sum += sums[code];
+                }
+                return new double[] { count, sum };
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int writers = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        System.out.println("=== SALARY STORE BENCHMARK - " + size + " employees, " + readers + " readers, " +
+                writers + " writers, " + seconds + "s per run ===\n");
+        List<EmployeeDataProcessor.Employee> employees = createEmployees(size);
+        double payroll = employees.stream().mapToDouble(EmployeeDataProcessor.Employee::getSalary).sum();
+
+        SalaryStore store = new SalaryStore(employees);
+        String[] ids = employees.stream().map(EmployeeDataProcessor.Employee::getId).toArray(String[]::new);
+        LockedStore locked = new LockedStore(employees);
+
+        System.out.printf("%-22s %14s %14s %12s%n", "Store", "reads/s", "batches/s", "torn reads");
+        // A short untimed run of each warms up the JIT
+        run("copy-on-write", store, ids, null, size, payroll, readers, writers, 1, false);
+        run("read-write lock", null, ids, locked, size, payroll, readers, writers, 1, false);
+        run("copy-on-write", store, ids, null, size, payroll, readers, writers, seconds, true);
+        run("read-write lock", null, ids, locked, size, payroll, readers, writers, seconds, true);
+    }
+
+    private static void run(String name, SalaryStore store, String[] ids, LockedStore locked, int size,
+                            double payroll, int readers, int writers, int seconds, boolean print)
+            throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+        LongAdder batches = new LongAdder();
+        LongAdder torn = new LongAdder();
+        ExecutorService pool = Executors.newFixedThreadPool(readers + writers);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int r = 0; r < readers; r++) {
+            futures.add(pool.submit(() -> {
+                while (running.get()) {
+                    double count;
+                    double sum;
+                    if (store != null) {
+                        SalaryStore.DepartmentStats total = store.snapshot().getTotal();
+                        count = total.getCount();
+                        sum = total.getSum();
+                    } else {
+                        double[] totals = locked.totals();
+                        count = totals[0];
+                        sum = totals[1];
+                    }
+                    // Adjustments are whole dollars on whole-dollar salaries, so the sum is exact
+                    if (count != size || sum != payroll) {
+                        torn.increment();
+                    }
+                    reads.increment();
+                }
+            }));
+        }
+        for (int w = 0; w < writers; w++) {
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int[] slots = new int[PAIRS_PER_BATCH * 2];
+                double[] amounts = new double[slots.length];
+                int[] newDepartments = new int[slots.length];
+                while (running.get()) {
+                    for (int i = 0; i < slots.length; i += 2) {
+                        slots[i] = random.nextInt(size);
+                        slots[i + 1] = random.nextInt(size);
+                        amounts[i] = Math.floor(random.nextDouble(MAX_ADJUSTMENT));
+                        amounts[i + 1] = -amounts[i];
+                    }
+                    for (int i = 0; i < slots.length; i++) {
+                        newDepartments[i] = DEPARTMENT_CODES[random.nextInt(DEPARTMENT_CODES.length)];
+                    }
+                    if (store != null) {
+                        SalaryStore.Batch batch = store.batch();
+                        for (int i = 0; i < slots.length; i++) {
+                            batch.adjustSalary(ids[slots[i]], amounts[i])
+                                    .transfer(ids[slots[i]], SymbolTable.DEPARTMENTS.symbol(newDepartments[i]));
+                        }
+                        batch.commit();
+                    } else {
+                        locked.apply(slots, amounts, newDepartments);
+                    }
+                    batches.increment();
+                }
+            }));
+        }
+
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        if (print) {
+            System.out.printf("%-22s %14.0f %14.0f %12d%n", name, reads.sum() / (double) seconds,
+                    batches.sum() / (double) seconds, torn.sum());
+        }
+    }
+
+    private static List<EmployeeDataProcessor.Employee> createEmployees(int size) {
+        Random random = new Random(42);
+        List<EmployeeDataProcessor.Employee> employees = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            employees.add(new EmployeeDataProcessor.Employee(String.format("E%06d", i), "Employee " + i,
+                    40_000 + random.nextInt(80_000), DEPARTMENTS[random.nextInt(DEPARTMENTS.length)],
+                    LocalDate.of(2015, 1, 1).plusDays(random.nextInt(3000)), 22 + random.nextInt(40),
+                    Collections.singletonList("Java")));
+        }
+        return employees;
+    }
+}
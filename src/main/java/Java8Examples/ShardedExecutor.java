@@ -0,0 +1,237 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Runs the module aggregations in N worker JVMs over partitioned data.
+// The coordinator hash-partitions each dataset on its natural key (department,
+// transaction month, product category, customer), writes one snapshot per dataset
+// and shard into a work directory, and starts one worker process per shard.
+// The product catalog is small and broadcast to every worker for the order join.
+// Each worker writes its PartialAggregates to shard-<i>.partial; the coordinator
+// merges them into the same results MainExecutor computes in a single JVM.
+public class ShardedExecutor {
+
+    static final String WORKER_FLAG = "--worker";
+
+    private static final long WORKER_TIMEOUT_MINUTES = 10;
+
+    static class ShardStats {
+        private final int shard;
+        private final long rows;
+        private final long millis;
+
+        ShardStats(int shard, long rows, long millis) {
+            this.shard = shard;
+            this.rows = rows;
+            this.millis = millis;
+        }
+
+        public int getShard() { return shard; }
+        public long getRows() { return rows; }
+        public long getMillis() { return millis; }
+
+        @Override
+        public String toString() {
+            return String.format("shard %d: %d rows in %d ms", shard, rows, millis);
+        }
+    }
+
+    private final int shards;
+    private final Path workDirectory;
+    private final List<ShardStats> shardStats = new ArrayList<>();
+    private long partitionMillis;
+
+    public ShardedExecutor(int shards, Path workDirectory) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("shards must be positive: " + shards);
+        }
+        this.shards = shards;
+        this.workDirectory = workDirectory;
+    }
+
+    public List<ShardStats> getShardStats() {
+        return shardStats;
+    }
+
+    // Coordinator time spent partitioning and writing shard inputs in the last execute()
+    public long getPartitionMillis() {
+        return partitionMillis;
+    }
+
+    public PartialAggregates execute(List<EmployeeDataProcessor.Employee> employees,
+                                     List<FinancialCalculator.Transaction> transactions,
+                                     List<InventoryManagementSystem.Product> products,
+                                     List<OrderProcessingSystem.Order> orders) throws IOException, InterruptedException {
+        Files.createDirectories(workDirectory);
+        shardStats.clear();
+        long partitionStart = System.nanoTime();
+
+        // 1. Partition and write the shard inputs
+        long[] rows = new long[shards];
+        writeShards("employees", SnapshotSchema.EMPLOYEES, employees,
+                EmployeeDataProcessor.Employee::getDepartment, rows);
+        writeShards("transactions", SnapshotSchema.TRANSACTIONS, transactions,
+                t -> t.getTimestamp() == null ? null : YearMonth.from(t.getTimestamp()).toString(), rows);
+        writeShards("products", SnapshotSchema.PRODUCTS, products,
+                InventoryManagementSystem.Product::getCategory, rows);
+        writeShards("orders", SnapshotSchema.ORDERS, orders,
+                OrderProcessingSystem.Order::getCustomerName, rows);
+        SnapshotWriter.write(workDirectory.resolve("catalog.snap"), SnapshotSchema.PRODUCTS, products);
+        partitionMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - partitionStart);
+
+        // 2. Start one worker per shard
+        List<Process> workers = new ArrayList<>();
+        long[] started = new long[shards];
+        try {
+            for (int shard = 0; shard < shards; shard++) {
+                started[shard] = System.nanoTime();
+                workers.add(startWorker(shard));
+            }
+
+            // 3. Wait for all of them and merge their partials
+            PartialAggregates merged = new PartialAggregates();
+            for (int shard = 0; shard < shards; shard++) {
+                Process worker = workers.get(shard);
+                if (!worker.waitFor(WORKER_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                    throw new IOException("Worker for shard " + shard + " timed out, see " + logFile(shard));
+                }
+                if (worker.exitValue() != 0) {
+                    throw new IOException("Worker for shard " + shard + " failed with exit code " +
+                            worker.exitValue() + ", see " + logFile(shard));
+                }
+                shardStats.add(new ShardStats(shard, rows[shard],
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started[shard])));
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        Files.newInputStream(partialFile(shard))))) {
+                    merged.merge(PartialAggregates.readFrom(in));
+                }
+            }
+            return merged;
+        } finally {
+            for (Process worker : workers) {
+                worker.destroyForcibly();
+            }
+        }
+    }
+
+    // Deletes the work directory and everything the shards wrote into it
+    public void cleanUp() throws IOException {
+        if (!Files.exists(workDirectory)) {
+            return;
+        }
+        List<Path> paths = new ArrayList<>();
+        Files.walk(workDirectory).forEach(paths::add);
+        Collections.reverse(paths);
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    static int shardOf(String key, int shards) {
+        // String.hashCode is specified, so every JVM agrees on the partitioning
+        return key == null ? 0 : Math.floorMod(key.hashCode(), shards);
+    }
+
+    private <T> void writeShards(String dataset, SnapshotSchema<T> schema, List<T> records,
+                                 Function<T, String> partitionKey, long[] rows) throws IOException {
+        List<List<T>> partitions = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (T record : records) {
+            partitions.get(shardOf(partitionKey.apply(record), shards)).add(record);
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            Path directory = Files.createDirectories(shardDirectory(workDirectory, shard));
+            SnapshotWriter.write(directory.resolve(dataset + ".snap"), schema, partitions.get(shard));
+            rows[shard] += partitions.get(shard).size();
+        }
+    }
+
+    // Configuration system properties as -D options, so that workers see the coordinator's
+    // overrides; taken from the keys AppConfig reads, so a new setting is forwarded too
+    static List<String> forwardedSettings() {
+        Set<String> keys = AppConfig.get().getKeys();
+        List<String> options = new ArrayList<>();
+        for (String key : new TreeSet<>(System.getProperties().stringPropertyNames())) {
+            if (keys.contains(key) || key.equals(AppConfig.CONFIG_FILE_PROPERTY)) {
+                options.add("-D" + key + "=" + System.getProperty(key));
+            }
+        }
+        return options;
+    }
+
+    private Process startWorker(int shard) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(forwardedSettings());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardedExecutor.class.getName());
+        command.add(WORKER_FLAG);
+        command.add(workDirectory.toString());
+        command.add(String.valueOf(shard));
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile(shard).toFile())
+                .start();
+    }
+
+    private Path logFile(int shard) {
+        return workDirectory.resolve("shard-" + shard + ".log");
+    }
+
+    private Path partialFile(int shard) {
+        return workDirectory.resolve("shard-" + shard + ".partial");
+    }
+
+    private static Path shardDirectory(Path workDirectory, int shard) {
+        return workDirectory.resolve("shard-" + shard);
+    }
+
+    // Worker entry point: ShardedExecutor --worker <workDirectory> <shard>
+    public static void main(String[] args) {
+        if (args.length != 3 || !WORKER_FLAG.equals(args[0])) {
+            System.err.println("Usage: ShardedExecutor " + WORKER_FLAG + " <workDirectory> <shard>");
+            System.exit(2);
+        }
+        Path workDirectory = Paths.get(args[1]);
+        int shard = Integer.parseInt(args[2]);
+        try {
+            long start = System.nanoTime();
+            Path directory = shardDirectory(workDirectory, shard);
+            PartialAggregates partial = PartialAggregates.compute(
+                    load(directory.resolve("employees.snap"), SnapshotSchema.EMPLOYEES),
+                    load(directory.resolve("transactions.snap"), SnapshotSchema.TRANSACTIONS),
+                    load(directory.resolve("products.snap"), SnapshotSchema.PRODUCTS),
+                    load(directory.resolve("orders.snap"), SnapshotSchema.ORDERS),
+                    load(workDirectory.resolve("catalog.snap"), SnapshotSchema.PRODUCTS));
+
+            // Temp file and rename, so the coordinator never reads a partial partial
+            Path target = workDirectory.resolve("shard-" + shard + ".partial");
+            Path temp = Files.createTempFile(workDirectory, "shard-" + shard, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                partial.writeTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.printf("Shard %d aggregated %d employees, %d transactions, %d products, %d orders in %.1f ms%n",
+                    shard, partial.getEmployeeCount(), partial.getTransactionCount(), partial.getProductCount(),
+                    partial.getOrderCount(), (System.nanoTime() - start) / 1e6);
+        } catch (Exception e) {
+            System.err.println("Shard " + shard + " failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static <T> List<T> load(Path file, SnapshotSchema<T> schema) throws IOException {
+        try (Snapshot<T> snapshot = Snapshot.open(file, schema)) {
+            return new ArrayList<>(snapshot.records());
+        }
+    }
+}
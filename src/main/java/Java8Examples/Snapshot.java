@@ -0,0 +1,380 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.*;
+
+// Memory-mapped, lazily decoded view of a snapshot written by SnapshotWriter.
+// Opening reads only the directory. Each column is mapped and decoded the first time
+// something touches it, so e.g. the row count or a salary average never decode names
+// or dates. DOUBLE columns are fixed width and are read in place without decoding.
+// records() materializes a record the first time its row is accessed and keeps it, so
+// repeated reads see the same (mutable) record; the snapshot must stay open while the
+// view is in use, since columns are mapped on first touch.
+public class Snapshot<T> implements Closeable {
+
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private final Path file;
+    private final SnapshotSchema<T> schema;
+    private final FileChannel channel;
+    private final long rowCount;
+    private final long dataStart;
+    private final long[] offsets;
+    private final long[] lengths;
+    private final MappedByteBuffer[] mapped;
+    private final Object[] decoded;
+    private List<T> records;
+
+    private Snapshot(Path file, SnapshotSchema<T> schema) throws IOException {
+        this.file = file;
+        this.schema = schema;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer preamble = ByteBuffer.allocate(12);
+            readFully(preamble, 0);
+            preamble.flip();
+            if (preamble.getInt() != SnapshotWriter.MAGIC) {
+                throw new IOException(file + " is not a snapshot file");
+            }
+            int version = preamble.getInt();
+            if (version != SnapshotWriter.VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+            ByteBuffer directoryBytes = ByteBuffer.allocate(preamble.getInt());
+            readFully(directoryBytes, 12);
+            this.dataStart = 12 + directoryBytes.capacity();
+
+            DataInputStream directory = new DataInputStream(new ByteArrayInputStream(directoryBytes.array()));
+            String recordType = directory.readUTF();
+            if (!recordType.equals(schema.getRecordType())) {
+                throw new IOException("Snapshot " + file + " holds " + recordType + " records, expected " +
+                        schema.getRecordType());
+            }
+            this.rowCount = directory.readLong();
+            int columnCount = directory.readInt();
+            List<SnapshotSchema.Column<T>> columns = schema.getColumns();
+            if (columnCount != columns.size()) {
+                throw new IOException("Column count mismatch in " + file);
+            }
+            this.offsets = new long[columnCount];
+            this.lengths = new long[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                String name = directory.readUTF();
+                int codec = directory.readByte();
+                if (!name.equals(columns.get(i).getName()) || codec != columns.get(i).getCodec().ordinal()) {
+                    throw new IOException("Column " + i + " of " + file + " does not match schema");
+                }
+                offsets[i] = directory.readLong();
+                lengths[i] = directory.readLong();
+            }
+            this.mapped = new MappedByteBuffer[columnCount];
+            this.decoded = new Object[columnCount];
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static <T> Snapshot<T> open(Path file, SnapshotSchema<T> schema) throws IOException {
+        return new Snapshot<>(file, schema);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    // Lazy record view; the first get(i) builds the record for row i from the columns
+    public synchronized List<T> records() {
+        if (records != null) {
+            return records;
+        }
+        if (rowCount > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many rows for a List view: " + rowCount);
+        }
+        final int size = (int) rowCount;
+        final AtomicReferenceArray<T> rows = new AtomicReferenceArray<>(size);
+        class Records extends AbstractList<T> implements RandomAccess {
+            @Override
+            public T get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Row " + index + " of " + size);
+                }
+                T record = rows.get(index);
+                if (record == null) {
+                    // Parallel readers may both build it; the first one published wins
+                    T created = schema.create(new Row(index));
+                    record = rows.compareAndSet(index, null, created) ? created : rows.get(index);
+                }
+                return record;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        }
+        records = new Records();
+        return records;
+    }
+
+    // Streams a DOUBLE column straight from the mapped file
+    public DoubleStream doubles(String columnName) {
+        int column = schema.indexOf(columnName);
+        requireCodec(column, SnapshotSchema.Codec.DOUBLE);
+        ByteBuffer buffer = segment(column);
+        return IntStream.range(0, (int) rowCount).mapToDouble(row -> buffer.getDouble(row * 8));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public class Row {
+        private final int row;
+
+        Row(int row) {
+            this.row = row;
+        }
+
+        public String getString(int column) {
+            Object values = decodedColumn(column);
+            if (values instanceof DictionaryColumn) {
+                DictionaryColumn dictionaryColumn = (DictionaryColumn) values;
+                return dictionaryColumn.value(dictionaryColumn.codes[row]);
+            }
+            return ((String[]) values)[row];
+        }
+
+        public List<String> getStringList(int column) {
+            DictionaryListColumn values = (DictionaryListColumn) decodedColumn(column);
+            int start = values.starts[row];
+            if (start < 0) {
+                return null;
+            }
+            int end = values.starts[row + 1] < 0 ? nextStart(values, row) : values.starts[row + 1];
+            List<String> result = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                result.add(values.value(values.codes[i]));
+            }
+            return result;
+        }
+
+        public double getDouble(int column) {
+            return segment(column).getDouble(row * 8);
+        }
+
+        public long getLong(int column) {
+            return ((long[]) decodedColumn(column))[row];
+        }
+
+        public LocalDate getDate(int column) {
+            long epochDay = ((long[]) decodedColumn(column))[row];
+            return epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        }
+
+        public LocalDateTime getDateTime(int column) {
+            DateTimeColumn values = (DateTimeColumn) decodedColumn(column);
+            long seconds = values.epochSeconds[row];
+            return seconds == NULL_DATE ? null
+                    : LocalDateTime.ofEpochSecond(seconds, values.nanos[row], ZoneOffset.UTC);
+        }
+    }
+
+    private static int nextStart(DictionaryListColumn values, int row) {
+        for (int r = row + 1; r < values.starts.length; r++) {
+            if (values.starts[r] >= 0) {
+                return values.starts[r];
+            }
+        }
+        return values.codes.length;
+    }
+
+    private static final class DictionaryColumn {
+        private final String[] dictionary;
+        private final int[] codes;
+
+        DictionaryColumn(String[] dictionary, int[] codes) {
+            this.dictionary = dictionary;
+            this.codes = codes;
+        }
+
+        String value(int code) {
+            return code == 0 ? null : dictionary[code - 1];
+        }
+    }
+
+    // starts[row] indexes into codes (-1 for a null list); starts has rowCount + 1 entries
+    private static final class DictionaryListColumn {
+        private final String[] dictionary;
+        private final int[] starts;
+        private final int[] codes;
+
+        DictionaryListColumn(String[] dictionary, int[] starts, int[] codes) {
+            this.dictionary = dictionary;
+            this.starts = starts;
+            this.codes = codes;
+        }
+
+        // Code 0 is a null element, as in DictionaryColumn
+        String value(int code) {
+            return code == 0 ? null : dictionary[code - 1];
+        }
+    }
+
+    private static final class DateTimeColumn {
+        private final long[] epochSeconds;
+        private final int[] nanos;
+
+        DateTimeColumn(long[] epochSeconds, int[] nanos) {
+            this.epochSeconds = epochSeconds;
+            this.nanos = nanos;
+        }
+    }
+
+    private synchronized ByteBuffer segment(int column) {
+        if (mapped[column] == null) {
+            if (lengths[column] > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Column " + column + " exceeds 2 GB and cannot be mapped");
+            }
+            try {
+                mapped[column] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + offsets[column],
+                        lengths[column]);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Mapping column " + column + " of " + file + " failed", e);
+            }
+        }
+        // Each caller gets its own position; the mapping itself is shared
+        return mapped[column].duplicate();
+    }
+
+    private synchronized Object decodedColumn(int column) {
+        if (decoded[column] == null) {
+            decoded[column] = decode(column, segment(column));
+        }
+        return decoded[column];
+    }
+
+    private Object decode(int column, ByteBuffer in) {
+        int rows = (int) rowCount;
+        switch (schema.getColumns().get(column).getCodec()) {
+            case STRING: {
+                String[] values = new String[rows];
+                for (int r = 0; r < rows; r++) {
+                    values[r] = readText(in);
+                }
+                return values;
+            }
+            case DICTIONARY: {
+                String[] dictionary = readDictionary(in);
+                int[] codes = new int[rows];
+                for (int r = 0; r < rows; r++) {
+                    codes[r] = (int) VarInts.readUnsigned(in);
+                }
+                return new DictionaryColumn(dictionary, codes);
+            }
+            case DICTIONARY_LIST: {
+                String[] dictionary = readDictionary(in);
+                int[] starts = new int[rows + 1];
+                int[] codes = new int[16];
+                int size = 0;
+                for (int r = 0; r < rows; r++) {
+                    int count = (int) VarInts.readUnsigned(in) - 1;
+                    if (count < 0) {
+                        starts[r] = -1;
+                        continue;
+                    }
+                    starts[r] = size;
+                    if (size + count > codes.length) {
+                        codes = Arrays.copyOf(codes, Math.max(codes.length * 2, size + count));
+                    }
+                    for (int i = 0; i < count; i++) {
+                        codes[size++] = (int) VarInts.readUnsigned(in);
+                    }
+                }
+                starts[rows] = size;
+                return new DictionaryListColumn(dictionary, starts, Arrays.copyOf(codes, size));
+            }
+            case VARINT: {
+                long[] values = new long[rows];
+                for (int r = 0; r < rows; r++) {
+                    values[r] = VarInts.readSigned(in);
+                }
+                return values;
+            }
+            case DATE_DELTA:
+                return readDeltas(in, rows, null);
+            case DATETIME_DELTA: {
+                int[] nanos = new int[rows];
+                long[] seconds = readDeltas(in, rows, nanos);
+                return new DateTimeColumn(seconds, nanos);
+            }
+            default:
+                throw new IllegalStateException("Column " + column + " is read in place");
+        }
+    }
+
+    private static long[] readDeltas(ByteBuffer in, int rows, int[] nanos) {
+        long[] values = new long[rows];
+        long previous = 0;
+        for (int r = 0; r < rows; r++) {
+            long raw = VarInts.readUnsigned(in);
+            if (raw == 0) {
+                values[r] = NULL_DATE;
+                continue;
+            }
+            raw--;
+            previous += (raw >>> 1) ^ -(raw & 1);
+            values[r] = previous;
+            if (nanos != null) {
+                nanos[r] = (int) VarInts.readUnsigned(in);
+            }
+        }
+        return values;
+    }
+
+    private static String[] readDictionary(ByteBuffer in) {
+        String[] dictionary = new String[(int) VarInts.readUnsigned(in)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readText(in);
+        }
+        return dictionary;
+    }
+
+    private static String readText(ByteBuffer in) {
+        int length = (int) VarInts.readUnsigned(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void requireCodec(int column, SnapshotSchema.Codec codec) {
+        if (schema.getColumns().get(column).getCodec() != codec) {
+            throw new IllegalArgumentException("Column " + schema.getColumns().get(column).getName() +
+                    " is not " + codec);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated snapshot " + file);
+            }
+        }
+    }
+}
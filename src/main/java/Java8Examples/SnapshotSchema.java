@@ -0,0 +1,120 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.Function;
+
+// Column layouts of the four record types in the binary snapshot format.
+// Each column names its codec; the factory rebuilds a record from one row.
+public final class SnapshotSchema<T> {
+
+    enum Codec {
+        // varint length + UTF-8 bytes per row, for high-cardinality text (ids, names)
+        STRING,
+        // per-column dictionary of distinct values followed by one varint code per row
+        DICTIONARY,
+        // varint count per row followed by that many dictionary codes
+        DICTIONARY_LIST,
+        // zig-zag varint
+        VARINT,
+        // fixed 8-byte IEEE 754; fixed width so rows can be read in place
+        DOUBLE,
+        // epoch day as a zig-zag varint delta from the previous row
+        DATE_DELTA,
+        // epoch second delta from the previous row, then nanos as a varint
+        DATETIME_DELTA
+    }
+
+    static final class Column<T> {
+        private final String name;
+        private final Codec codec;
+        private final Function<T, Object> getter;
+
+        Column(String name, Codec codec, Function<T, Object> getter) {
+            this.name = name;
+            this.codec = codec;
+            this.getter = getter;
+        }
+
+        public String getName() { return name; }
+        public Codec getCodec() { return codec; }
+        Object valueOf(T record) { return getter.apply(record); }
+    }
+
+    private final String recordType;
+    private final List<Column<T>> columns;
+    private final Function<Snapshot<T>.Row, T> factory;
+
+    private SnapshotSchema(String recordType, List<Column<T>> columns, Function<Snapshot<T>.Row, T> factory) {
+        this.recordType = recordType;
+        this.columns = Collections.unmodifiableList(columns);
+        this.factory = factory;
+    }
+
+    public String getRecordType() { return recordType; }
+    public List<Column<T>> getColumns() { return columns; }
+
+    int indexOf(String columnName) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).name.equals(columnName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No column " + columnName + " in " + recordType);
+    }
+
+    T create(Snapshot<T>.Row row) {
+        return factory.apply(row);
+    }
+
+    private static <T> Column<T> column(String name, Codec codec, Function<T, Object> getter) {
+        return new Column<>(name, codec, getter);
+    }
+
+    static final SnapshotSchema<EmployeeDataProcessor.Employee> EMPLOYEES = new SnapshotSchema<>("employee",
+            Arrays.asList(
+                    column("id", Codec.STRING, EmployeeDataProcessor.Employee::getId),
+                    column("name", Codec.STRING, EmployeeDataProcessor.Employee::getName),
+                    column("salary", Codec.DOUBLE, EmployeeDataProcessor.Employee::getSalary),
+                    column("department", Codec.DICTIONARY, EmployeeDataProcessor.Employee::getDepartment),
+                    column("joinDate", Codec.DATE_DELTA, EmployeeDataProcessor.Employee::getJoinDate),
+                    column("age", Codec.VARINT, emp -> (long) emp.getAge()),
+                    column("skills", Codec.DICTIONARY_LIST, EmployeeDataProcessor.Employee::getSkills)),
+            row -> new EmployeeDataProcessor.Employee(row.getString(0), row.getString(1), row.getDouble(2),
+                    row.getString(3), row.getDate(4), (int) row.getLong(5), row.getStringList(6)));
+
+    static final SnapshotSchema<FinancialCalculator.Transaction> TRANSACTIONS = new SnapshotSchema<>("transaction",
+            Arrays.asList(
+                    column("id", Codec.STRING, FinancialCalculator.Transaction::getId),
+                    column("amount", Codec.DOUBLE, FinancialCalculator.Transaction::getAmount),
+                    column("timestamp", Codec.DATETIME_DELTA, FinancialCalculator.Transaction::getTimestamp),
+                    column("type", Codec.DICTIONARY, FinancialCalculator.Transaction::getType),
+                    column("category", Codec.DICTIONARY, FinancialCalculator.Transaction::getCategory),
+                    column("description", Codec.STRING, FinancialCalculator.Transaction::getDescription)),
+            row -> new FinancialCalculator.Transaction(row.getString(0), row.getDouble(1), row.getDateTime(2),
+                    row.getString(3), row.getString(4), row.getString(5)));
+
+    static final SnapshotSchema<InventoryManagementSystem.Product> PRODUCTS = new SnapshotSchema<>("product",
+            Arrays.asList(
+                    column("productId", Codec.STRING, InventoryManagementSystem.Product::getProductId),
+                    column("name", Codec.STRING, InventoryManagementSystem.Product::getName),
+                    column("category", Codec.DICTIONARY, InventoryManagementSystem.Product::getCategory),
+                    column("price", Codec.DOUBLE, InventoryManagementSystem.Product::getPrice),
+                    column("quantity", Codec.VARINT, p -> (long) p.getQuantity()),
+                    column("rating", Codec.DOUBLE, InventoryManagementSystem.Product::getRating),
+                    column("expiryDate", Codec.DATE_DELTA, InventoryManagementSystem.Product::getExpiryDate)),
+            row -> new InventoryManagementSystem.Product(row.getString(0), row.getString(1), row.getString(2),
+                    row.getDouble(3), (int) row.getLong(4), row.getDouble(5), row.getDate(6)));
+
+    static final SnapshotSchema<OrderProcessingSystem.Order> ORDERS = new SnapshotSchema<>("order",
+            Arrays.asList(
+                    column("orderId", Codec.STRING, OrderProcessingSystem.Order::getOrderId),
+                    column("customerName", Codec.DICTIONARY, OrderProcessingSystem.Order::getCustomerName),
+                    column("orderDate", Codec.DATETIME_DELTA, OrderProcessingSystem.Order::getOrderDate),
+                    column("amount", Codec.DOUBLE, OrderProcessingSystem.Order::getAmount),
+                    column("status", Codec.DICTIONARY, OrderProcessingSystem.Order::getStatus),
+                    column("items", Codec.DICTIONARY_LIST, OrderProcessingSystem.Order::getItems),
+                    column("shippingAddress", Codec.DICTIONARY, OrderProcessingSystem.Order::getShippingAddress)),
+            row -> new OrderProcessingSystem.Order(row.getString(0), row.getString(1), row.getDateTime(2),
+                    row.getDouble(3), row.getString(4), row.getStringList(5), row.getString(6)));
+}
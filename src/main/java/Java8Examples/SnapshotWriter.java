@@ -0,0 +1,290 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+// Streaming writer for the columnar snapshot format.
+// Records are appended one at a time; every column streams into its own temp file,
+// so memory use is independent of the row count (only dictionaries are held).
+// close() writes the header and column directory and concatenates the columns.
+// Once an append() has failed, or after abort(), close() only deletes the temp files
+// and leaves whatever is at the target untouched.
+//
+// File layout (all integers big-endian):
+//   int magic "JPSN", int version, int directory length, then the directory:
+//   UTF record type, long row count, int column count,
+//   per column: UTF name, byte codec, long offset (from end of directory), long length;
+//   then the column segments back to back.
+public class SnapshotWriter<T> implements Closeable {
+
+    static final int MAGIC = 0x4A50534E;
+    static final int VERSION = 1;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final Path target;
+    private final SnapshotSchema<T> schema;
+    private final List<SnapshotSchema.Column<T>> columns;
+    private final Path[] columnFiles;
+    private final DataOutputStream[] columnOutputs;
+    private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+    // Previous value per column for the delta codecs
+    private final long[] previous;
+    private long rowCount;
+    private boolean closed;
+    private boolean failed;
+
+    public SnapshotWriter(Path target, SnapshotSchema<T> schema) throws IOException {
+        this.target = target;
+        this.schema = schema;
+        this.columns = schema.getColumns();
+        this.columnFiles = new Path[columns.size()];
+        this.columnOutputs = new DataOutputStream[columns.size()];
+        this.previous = new long[columns.size()];
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        try {
+            for (int i = 0; i < columns.size(); i++) {
+                columnFiles[i] = Files.createTempFile(directory, target.getFileName() + ".col" + i + "-", ".tmp");
+                columnOutputs[i] = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(columnFiles[i]), BUFFER_BYTES));
+                dictionaries.add(new LinkedHashMap<>());
+            }
+        } catch (IOException e) {
+            discard();
+            throw e;
+        }
+    }
+
+    public static <T> void write(Path target, SnapshotSchema<T> schema, Iterable<T> records) throws IOException {
+        try (SnapshotWriter<T> writer = new SnapshotWriter<>(target, schema)) {
+            for (T record : records) {
+                writer.append(record);
+            }
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void append(T record) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Snapshot writer for " + target + " is closed");
+        }
+        // A half-written row leaves the columns out of step, so the snapshot must not be published
+        boolean appended = false;
+        try {
+            appendColumns(record);
+            appended = true;
+        } finally {
+            if (!appended) {
+                failed = true;
+            }
+        }
+        rowCount++;
+    }
+
+    // Drops everything appended so far without touching the target
+    public void abort() {
+        failed = true;
+        if (!closed) {
+            closed = true;
+            discard();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void appendColumns(T record) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            SnapshotSchema.Column<T> column = columns.get(i);
+            Object value = column.valueOf(record);
+            DataOutputStream out = columnOutputs[i];
+            switch (column.getCodec()) {
+                case STRING:
+                    writeText(out, (String) value);
+                    break;
+                case DICTIONARY:
+                    VarInts.writeUnsigned(out, dictionaryCode(i, (String) value));
+                    break;
+                case DICTIONARY_LIST:
+                    List<String> values = (List<String>) value;
+                    if (values == null) {
+                        VarInts.writeUnsigned(out, 0);
+                    } else {
+                        VarInts.writeUnsigned(out, values.size() + 1L);
+                        for (String element : values) {
+                            VarInts.writeUnsigned(out, dictionaryCode(i, element));
+                        }
+                    }
+                    break;
+                case VARINT:
+                    VarInts.writeSigned(out, ((Number) value).longValue());
+                    break;
+                case DOUBLE:
+                    out.writeDouble(((Number) value).doubleValue());
+                    break;
+                case DATE_DELTA:
+                    writeDelta(out, i, value == null ? null : ((LocalDate) value).toEpochDay());
+                    break;
+                case DATETIME_DELTA:
+                    LocalDateTime dateTime = (LocalDateTime) value;
+                    writeDelta(out, i, dateTime == null ? null : dateTime.toEpochSecond(ZoneOffset.UTC));
+                    if (dateTime != null) {
+                        VarInts.writeUnsigned(out, dateTime.getNano());
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported codec " + column.getCodec());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (failed) {
+            discard();
+            return;
+        }
+        try {
+            for (DataOutputStream out : columnOutputs) {
+                out.close();
+            }
+
+            // Dictionary columns are prefixed with their dictionary, known only now
+            byte[][] prefixes = new byte[columns.size()][];
+            long[] lengths = new long[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                prefixes[i] = dictionaryPrefix(i);
+                lengths[i] = prefixes[i].length + Files.size(columnFiles[i]);
+            }
+
+            Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(),
+                    ".tmp");
+            boolean published = false;
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+                    DataOutputStream header = new DataOutputStream(directoryBytes);
+                    header.writeUTF(schema.getRecordType());
+                    header.writeLong(rowCount);
+                    header.writeInt(columns.size());
+                    long offset = 0;
+                    for (int i = 0; i < columns.size(); i++) {
+                        header.writeUTF(columns.get(i).getName());
+                        header.writeByte(columns.get(i).getCodec().ordinal());
+                        header.writeLong(offset);
+                        header.writeLong(lengths[i]);
+                        offset += lengths[i];
+                    }
+                    header.flush();
+                    ByteBuffer preamble = ByteBuffer.allocate(12);
+                    preamble.putInt(MAGIC).putInt(VERSION).putInt(directoryBytes.size());
+                    writeFully(channel, preamble.array());
+                    writeFully(channel, directoryBytes.toByteArray());
+
+                    for (int i = 0; i < columns.size(); i++) {
+                        writeFully(channel, prefixes[i]);
+                        try (FileChannel column = FileChannel.open(columnFiles[i], StandardOpenOption.READ)) {
+                            long size = column.size();
+                            long copied = 0;
+                            while (copied < size) {
+                                copied += column.transferTo(copied, size - copied, channel);
+                            }
+                        }
+                    }
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                published = true;
+            } finally {
+                if (!published) {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        } finally {
+            discard();
+        }
+    }
+
+    private long dictionaryCode(int column, String value) {
+        if (value == null) {
+            return 0;
+        }
+        Map<String, Integer> dictionary = dictionaries.get(column);
+        Integer code = dictionary.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.put(value, code);
+        }
+        return code + 1L;
+    }
+
+    private byte[] dictionaryPrefix(int column) throws IOException {
+        SnapshotSchema.Codec codec = columns.get(column).getCodec();
+        if (codec != SnapshotSchema.Codec.DICTIONARY && codec != SnapshotSchema.Codec.DICTIONARY_LIST) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        Map<String, Integer> dictionary = dictionaries.get(column);
+        VarInts.writeUnsigned(out, dictionary.size());
+        for (String value : dictionary.keySet()) {
+            writeText(out, value);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void writeDelta(DataOutputStream out, int column, Long value) throws IOException {
+        if (value == null) {
+            VarInts.writeUnsigned(out, 0);
+            return;
+        }
+        long delta = value - previous[column];
+        previous[column] = value;
+        // Zig-zag the delta, then shift by one so 0 can mean null
+        VarInts.writeUnsigned(out, ((delta << 1) ^ (delta >> 63)) + 1);
+    }
+
+    // varint (byte length + 1) then UTF-8 bytes; 0 means null
+    static void writeText(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            VarInts.writeUnsigned(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        VarInts.writeUnsigned(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void discard() {
+        for (int i = 0; i < columnFiles.length; i++) {
+            try {
+                if (columnOutputs[i] != null) {
+                    columnOutputs[i].close();
+                }
+                if (columnFiles[i] != null) {
+                    Files.deleteIfExists(columnFiles[i]);
+                }
+            } catch (IOException e) {
+                // Temp files only
+            }
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+// groupingBy for key sets that may not fit in the heap. Records are hash-partitioned by
+// key as they arrive and buffered per partition; once the buffered records exceed the
+// memory budget, the largest partition is written to a spill file and every later record
+// of that partition is appended to the file instead. The downstream collector only runs
+// when the Groups are consumed, one partition at a time: a resident partition is grouped
+// from its buffer, a spilled one is read back and grouped while reading. A spilled
+// partition still larger than the budget is first split again on the next bits of the
+// key hash, so only about budget's worth of records is grouped at once.
+// The budget counts buffered records (RecordCodec.estimatedHeapBytes), not groups, and
+// applies per container: a parallel stream can hold one budget per worker thread.
+public final class SpillingCollectors {
+
+    private static final int IO_BUFFER_BYTES = 32 * 1024;
+    // ArrayList slot holding a buffered record
+    private static final long REFERENCE_BYTES = 8;
+
+    private SpillingCollectors() {
+    }
+
+    static class Stats {
+        private final long records;
+        private final int partitions;
+        private final int spilledPartitions;
+        private final long spilledRecords;
+        private final long spilledBytes;
+        private final long peakBufferedBytes;
+        private final int repartitions;
+        private final long groups;
+
+        Stats(long records, int partitions, int spilledPartitions, long spilledRecords, long spilledBytes,
+              long peakBufferedBytes, int repartitions, long groups) {
+            this.records = records;
+            this.partitions = partitions;
+            this.spilledPartitions = spilledPartitions;
+            this.spilledRecords = spilledRecords;
+            this.spilledBytes = spilledBytes;
+            this.peakBufferedBytes = peakBufferedBytes;
+            this.repartitions = repartitions;
+            this.groups = groups;
+        }
+
+        public long getRecords() { return records; }
+        public int getPartitions() { return partitions; }
+        public int getSpilledPartitions() { return spilledPartitions; }
+        public long getSpilledRecords() { return spilledRecords; }
+        // Includes the files written when splitting oversized partitions again
+        public long getSpilledBytes() { return spilledBytes; }
+        public long getPeakBufferedBytes() { return peakBufferedBytes; }
+        public int getRepartitions() { return repartitions; }
+        // Groups emitted so far; complete once the Groups have been consumed
+        public long getGroups() { return groups; }
+        public boolean isInMemory() { return spilledPartitions == 0; }
+
+        @Override
+        public String toString() {
+            return isInMemory()
+                    ? String.format("SpillStats[%d records, %d groups, in memory]", records, groups)
+                    : String.format("SpillStats[%d records, %d groups, %d/%d partitions spilled, " +
+                            "%d records / %d KB on disk, %d repartitions, peak buffer %d KB]",
+                    records, groups, spilledPartitions, partitions, spilledRecords, spilledBytes / 1024,
+                    repartitions, peakBufferedBytes / 1024);
+        }
+    }
+
+    // Grouping using grouping.memoryBudgetMb, grouping.partitions and sort.tempDir from AppConfig
+    public static <T, K, A, D> Collector<T, ?, Groups<K, D>> groupingBy(Function<? super T, ? extends K> classifier,
+                                                                        RecordCodec<T> codec,
+                                                                        Collector<? super T, A, D> downstream) {
+        AppConfig config = AppConfig.get();
+        String dir = config.getSortTempDir();
+        return groupingBy(classifier, codec, downstream, config.getGroupingMemoryBudgetBytes(),
+                config.getGroupingPartitions(),
+                dir != null ? Paths.get(dir) : Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    // partitions must be a power of two; each spilled partition keeps one file open while collecting
+    public static <T, K, A, D> Collector<T, ?, Groups<K, D>> groupingBy(Function<? super T, ? extends K> classifier,
+                                                                        RecordCodec<T> codec,
+                                                                        Collector<? super T, A, D> downstream,
+                                                                        long memoryBudgetBytes, int partitions,
+                                                                        Path tempDirectory) {
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("memoryBudgetBytes must be positive: " + memoryBudgetBytes);
+        }
+        if (partitions < 2 || Integer.bitCount(partitions) != 1) {
+            throw new IllegalArgumentException("partitions must be a power of two >= 2: " + partitions);
+        }
+        Settings<T, K, A, D> settings = new Settings<>(classifier, codec, downstream, memoryBudgetBytes,
+                partitions, tempDirectory);
+        return Collector.of(() -> new Spiller<>(settings, 0, new Counters()),
+                Spiller::accept,
+                Spiller::combine,
+                spiller -> new Groups<>(spiller.finishCollecting()));
+    }
+
+    // The grouped result. Groups are produced lazily, partition by partition, and can be
+    // consumed once; spill files are deleted as their partitions are read, and close()
+    // deletes whatever is left if consumption stops early.
+    public static final class Groups<K, D> implements AutoCloseable {
+        private final Spiller<?, K, ?, D> root;
+        private boolean consumed;
+
+        Groups(Spiller<?, K, ?, D> root) {
+            this.root = root;
+        }
+
+        public Stream<Map.Entry<K, D>> stream() {
+            if (consumed) {
+                throw new IllegalStateException("Groups have already been consumed");
+            }
+            consumed = true;
+            return root.entries().onClose(this::close);
+        }
+
+        public void forEach(BiConsumer<? super K, ? super D> action) {
+            try (Stream<Map.Entry<K, D>> entries = stream()) {
+                entries.forEach(entry -> action.accept(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        // Only for results known to fit in the heap
+        public Map<K, D> toMap() {
+            Map<K, D> result = new HashMap<>();
+            forEach(result::put);
+            return result;
+        }
+
+        public Stats getStats() {
+            return root.stats();
+        }
+
+        @Override
+        public void close() {
+            consumed = true;
+            root.deleteFiles();
+        }
+    }
+
+    private static final class Settings<T, K, A, D> {
+        final Function<? super T, ? extends K> classifier;
+        final RecordCodec<T> codec;
+        final Collector<? super T, A, D> downstream;
+        final long memoryBudgetBytes;
+        final int partitions;
+        final int partitionBits;
+        final Path tempDirectory;
+
+        Settings(Function<? super T, ? extends K> classifier, RecordCodec<T> codec,
+                 Collector<? super T, A, D> downstream, long memoryBudgetBytes, int partitions, Path tempDirectory) {
+            this.classifier = classifier;
+            this.codec = codec;
+            this.downstream = downstream;
+            this.memoryBudgetBytes = memoryBudgetBytes;
+            this.partitions = partitions;
+            this.partitionBits = Integer.numberOfTrailingZeros(partitions);
+            this.tempDirectory = tempDirectory;
+        }
+
+        K keyOf(T value) {
+            return Objects.requireNonNull(classifier.apply(value), "element cannot be mapped to a null key");
+        }
+
+        // Each level of splitting uses the next partitionBits bits of the mixed hash
+        boolean canSplit(int level) {
+            return (level + 2) * partitionBits <= Integer.SIZE;
+        }
+    }
+
+    // Shared by a result and the partitions split off while consuming it
+    private static final class Counters {
+        long peakBufferedBytes;
+        long splitBytes;
+        int repartitions;
+        long groups;
+    }
+
+    private static final class Partition<T> {
+        List<T> buffer = new ArrayList<>();
+        long bufferedBytes;
+        Path file;
+        DataOutputStream out;
+        long spilledRecords;
+        // Heap the spilled records would take again when read back
+        long spilledHeapBytes;
+        long fileBytes;
+
+        boolean isSpilled() {
+            return file != null;
+        }
+    }
+
+    private static final class Spiller<T, K, A, D> {
+        private final Settings<T, K, A, D> settings;
+        private final int level;
+        private final Counters counters;
+        private final Partition<T>[] partitions;
+        private long records;
+        private long bufferedBytes;
+
+        @SuppressWarnings("unchecked")
+        Spiller(Settings<T, K, A, D> settings, int level, Counters counters) {
+            this.settings = settings;
+            this.level = level;
+            this.counters = counters;
+            this.partitions = (Partition<T>[]) new Partition<?>[settings.partitions];
+            for (int i = 0; i < partitions.length; i++) {
+                partitions[i] = new Partition<>();
+            }
+        }
+
+        void accept(T value) {
+            records++;
+            Partition<T> partition = partitions[partitionOf(settings.keyOf(value))];
+            if (partition.isSpilled()) {
+                write(partition, value);
+                return;
+            }
+            long bytes = settings.codec.estimatedHeapBytes(value) + REFERENCE_BYTES;
+            partition.buffer.add(value);
+            partition.bufferedBytes += bytes;
+            bufferedBytes += bytes;
+            counters.peakBufferedBytes = Math.max(counters.peakBufferedBytes, bufferedBytes);
+            while (bufferedBytes > settings.memoryBudgetBytes) {
+                spill(largestBuffered());
+            }
+        }
+
+        // Merges another thread's partial result: buffers are re-added, spill files appended
+        Spiller<T, K, A, D> combine(Spiller<T, K, A, D> other) {
+            counters.peakBufferedBytes = Math.max(counters.peakBufferedBytes, other.counters.peakBufferedBytes);
+            for (int i = 0; i < partitions.length; i++) {
+                Partition<T> theirs = other.partitions[i];
+                for (T value : theirs.buffer) {
+                    accept(value);
+                }
+                if (theirs.isSpilled()) {
+                    Partition<T> ours = partitions[i];
+                    if (!ours.isSpilled()) {
+                        spill(ours);
+                    }
+                    try {
+                        theirs.out.close();
+                        ours.out.flush();
+                        Files.copy(theirs.file, ours.out);
+                        Files.delete(theirs.file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Merging spill files failed", e);
+                    }
+                    records += theirs.spilledRecords;
+                    ours.spilledRecords += theirs.spilledRecords;
+                    ours.spilledHeapBytes += theirs.spilledHeapBytes;
+                }
+            }
+            return this;
+        }
+
+        // Flushes the spill files so the partitions can be read back
+        Spiller<T, K, A, D> finishCollecting() {
+            for (Partition<T> partition : partitions) {
+                if (partition.isSpilled()) {
+                    try {
+                        partition.out.close();
+                        partition.fileBytes = Files.size(partition.file);
+                    } catch (IOException e) {
+                        deleteFiles();
+                        throw new UncheckedIOException("Closing spill file " + partition.file + " failed", e);
+                    }
+                }
+            }
+            return this;
+        }
+
+        Stream<Map.Entry<K, D>> entries() {
+            return IntStream.range(0, partitions.length).boxed().flatMap(this::partitionEntries);
+        }
+
+        Stats stats() {
+            int spilled = 0;
+            long spilledRecords = 0;
+            for (Partition<T> partition : partitions) {
+                if (partition.isSpilled()) {
+                    spilled++;
+                    spilledRecords += partition.spilledRecords;
+                }
+            }
+            return new Stats(records, partitions.length, spilled, spilledRecords, fileBytes() + counters.splitBytes,
+                    counters.peakBufferedBytes, counters.repartitions, counters.groups);
+        }
+
+        long fileBytes() {
+            long bytes = 0;
+            for (Partition<T> partition : partitions) {
+                bytes += partition.fileBytes;
+            }
+            return bytes;
+        }
+
+        void deleteFiles() {
+            for (Partition<T> partition : partitions) {
+                if (partition.isSpilled()) {
+                    try {
+                        partition.out.close();
+                        Files.deleteIfExists(partition.file);
+                    } catch (IOException e) {
+                        // Best effort; the files live in a temp directory
+                    }
+                }
+                partition.buffer = Collections.emptyList();
+            }
+        }
+
+        private Stream<Map.Entry<K, D>> partitionEntries(int index) {
+            Partition<T> partition = partitions[index];
+            if (!partition.isSpilled()) {
+                List<T> buffer = partition.buffer;
+                partition.buffer = Collections.emptyList();
+                return group(buffer.iterator());
+            }
+            try {
+                if (partition.spilledHeapBytes > settings.memoryBudgetBytes && settings.canSplit(level)) {
+                    return split(partition);
+                }
+                try (DataInputStream in = openSpill(partition)) {
+                    return group(new Iterator<T>() {
+                        long remaining = partition.spilledRecords;
+
+                        public boolean hasNext() {
+                            return remaining > 0;
+                        }
+
+                        public T next() {
+                            remaining--;
+                            try {
+                                return settings.codec.read(in);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException("Reading spill file " + partition.file + " failed", e);
+                            }
+                        }
+                    });
+                } finally {
+                    Files.deleteIfExists(partition.file);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Reading spill file " + partition.file + " failed", e);
+            }
+        }
+
+        // Too big to group in one go: spread the partition over the next level's partitions
+        private Stream<Map.Entry<K, D>> split(Partition<T> partition) throws IOException {
+            Spiller<T, K, A, D> child = new Spiller<>(settings, level + 1, counters);
+            try (DataInputStream in = openSpill(partition)) {
+                for (long i = 0; i < partition.spilledRecords; i++) {
+                    child.accept(settings.codec.read(in));
+                }
+            } catch (IOException | RuntimeException e) {
+                child.deleteFiles();
+                throw e;
+            } finally {
+                Files.deleteIfExists(partition.file);
+            }
+            child.finishCollecting();
+            counters.repartitions++;
+            counters.splitBytes += child.fileBytes();
+            return child.entries().onClose(child::deleteFiles);
+        }
+
+        private Stream<Map.Entry<K, D>> group(Iterator<T> values) {
+            Collector<? super T, A, D> downstream = settings.downstream;
+            Supplier<A> supplier = downstream.supplier();
+            BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+            Map<K, A> groups = new HashMap<>();
+            while (values.hasNext()) {
+                T value = values.next();
+                accumulator.accept(groups.computeIfAbsent(settings.keyOf(value), key -> supplier.get()), value);
+            }
+            counters.groups += groups.size();
+            Function<A, D> finisher = downstream.finisher();
+            return groups.entrySet().stream().map(entry ->
+                    new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), finisher.apply(entry.getValue())));
+        }
+
+        private int partitionOf(K key) {
+            int hash = ObjectDoubleMap.mix(key.hashCode());
+            return (hash >>> (level * settings.partitionBits)) & (partitions.length - 1);
+        }
+
+        private Partition<T> largestBuffered() {
+            Partition<T> largest = partitions[0];
+            for (Partition<T> partition : partitions) {
+                if (partition.bufferedBytes > largest.bufferedBytes) {
+                    largest = partition;
+                }
+            }
+            return largest;
+        }
+
+        private void spill(Partition<T> partition) {
+            try (StageRecorder.Stage stage = StageRecorder.begin("groupingBy.spill", partition.buffer.size())) {
+                stage.bytes(partition.bufferedBytes);
+                partition.file = Files.createTempFile(settings.tempDirectory, "group-spill-", ".bin");
+                partition.out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(partition.file), IO_BUFFER_BYTES));
+                for (T value : partition.buffer) {
+                    write(partition, value);
+                }
+            } catch (IOException e) {
+                deleteFiles();
+                throw new UncheckedIOException("Spilling a group partition failed", e);
+            }
+            bufferedBytes -= partition.bufferedBytes;
+            partition.bufferedBytes = 0;
+            partition.buffer = Collections.emptyList();
+        }
+
+        private void write(Partition<T> partition, T value) {
+            try {
+                settings.codec.write(partition.out, value);
+            } catch (IOException e) {
+                deleteFiles();
+                throw new UncheckedIOException("Writing spill file " + partition.file + " failed", e);
+            }
+            partition.spilledRecords++;
+            partition.spilledHeapBytes += settings.codec.estimatedHeapBytes(value) + REFERENCE_BYTES;
+        }
+
+        private DataInputStream openSpill(Partition<T> partition) throws IOException {
+            return new DataInputStream(new BufferedInputStream(Files.newInputStream(partition.file), IO_BUFFER_BYTES));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package Java8Examples;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.*;
+
+// Compares parallel scaling of the block spliterator against the stock ArrayList and
+// Arrays.asList spliterators. Each pipeline runs inside a ForkJoinPool of 1..N workers
+// (a parallel stream started from a pool task runs in that pool).
+// Usage: SpliteratorBenchmark [products] [blockSize]
+public class SpliteratorBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int blockSize = args.length > 1 ? Integer.parseInt(args[1]) : AppConfig.get().getBatchSize();
+        int maxCores = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("=== SPLITERATOR BENCHMARK - " + size + " products, block size " + blockSize + " ===\n");
+
+        InventoryManagementSystem.Product[] array = createProducts(size);
+        List<InventoryManagementSystem.Product> arrayList = new ArrayList<>(Arrays.asList(array));
+        List<InventoryManagementSystem.Product> asList = Arrays.asList(array);
+
+        Map<String, Supplier<Stream<InventoryManagementSystem.Product>>> sources = new LinkedHashMap<>();
+        sources.put("ArrayList", arrayList::parallelStream);
+        sources.put("Arrays.asList", asList::parallelStream);
+        sources.put("Block (ordered)", () -> StreamSupport.stream(BlockSpliterator.of(array, blockSize, true), true));
+        sources.put("Block (unordered)", () -> StreamSupport.stream(BlockSpliterator.of(array, blockSize, false), true));
+        sources.put("Block (list copy)", () -> StreamSupport.stream(BlockSpliterator.of(arrayList, blockSize, false), true));
+
+        // 1, 2, 4, ... and always the full core count
+        TreeSet<Integer> coreCounts = new TreeSet<>();
+        for (int cores = 1; cores < maxCores; cores *= 2) {
+            coreCounts.add(cores);
+        }
+        coreCounts.add(maxCores);
+
+        System.out.printf("%-18s %6s %12s %10s%n", "Source", "Cores", "ms/op", "Speedup");
+        for (Map.Entry<String, Supplier<Stream<InventoryManagementSystem.Product>>> source : sources.entrySet()) {
+            double singleCore = 0;
+            for (int cores : coreCounts) {
+                double millis = measure(source.getValue(), cores);
+                if (cores == 1) {
+                    singleCore = millis;
+                }
+                System.out.printf("%-18s %6d %12.2f %9.2fx%n", source.getKey(), cores, millis, singleCore / millis);
+            }
+        }
+    }
+
+    // Per-record work is the same as the inventory module: value of low-stock lines by category
+    private static double measure(Supplier<Stream<InventoryManagementSystem.Product>> source, int cores)
+            throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(cores);
+        try {
+            Callable<Double> task = () -> source.get()
+                    .filter(InventoryManagementSystem.Product::isLowStock)
+                    .mapToDouble(InventoryManagementSystem.Product::getTotalValue)
+                    .sum();
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                pool.submit(task).get();
+            }
+            long start = System.nanoTime();
+            double sink = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                sink += pool.submit(task).get();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (sink == -1) {
+                System.out.println(sink);
+            }
+            return elapsed / 1e6 / MEASURED_ROUNDS;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static InventoryManagementSystem.Product[] createProducts(int size) {
+        String[] categories = {"Electronics", "Furniture", "Appliances", "Stationery"};
+        Random random = new Random(42);
+        InventoryManagementSystem.Product[] products = new InventoryManagementSystem.Product[size];
+        LocalDate expiry = LocalDate.of(2027, 1, 1);
+        for (int i = 0; i < size; i++) {
+            products[i] = new InventoryManagementSystem.Product("P" + i, "Product " + i,
+                    categories[i % categories.length], 1 + random.nextInt(100000) / 100.0,
+                    random.nextInt(50), 1 + random.nextInt(40) / 10.0, expiry);
+        }
+        return products;
+    }
+}
@@ -0,0 +1,206 @@
+package Java8Examples;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import java.util.function.Supplier;
+
+// Flight-recorder style events for pipeline stages. Code marks a stage with
+//     validOrders = StageRecorder.time("filter.valid", orders.size(), () -> ...);
+// or, when the stage learns its record or byte count along the way, with
+//     try (StageRecorder.Stage stage = StageRecorder.begin("sort.runs")) { ... stage.bytes(n); }
+// and while a recording runs, every stage that closes is appended to the recording file
+// as one event: module, stage, thread, start, duration, records, bytes, and the bytes
+// the thread allocated in between. Without a recording begin() hands out one shared
+// no-op stage, so instrumented code costs a volatile read.
+// An event belongs to the innermost inModule() on the same thread. Work a stage hands to
+// other threads (parallel streams, the common pool) counts toward its duration but not
+// its allocation, which HotSpot tracks per thread.
+// These are the fields custom jdk.jfr events would carry; jdk.jfr is not part of Java 8,
+// so the recording is a small binary file of its own that StageRecordingAnalyzer reads.
+public final class StageRecorder {
+
+    static final int MAGIC = 0x53544752;
+    static final int VERSION = 1;
+    static final String NO_MODULE = "-";
+    // Stage name of the event inModule() records around a whole module
+    static final String MODULE_STAGE = "module";
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+    private static final ThreadLocal<String> MODULE = ThreadLocal.withInitial(() -> NO_MODULE);
+    private static final Stage NO_OP = new Stage(null, null, null, 0);
+
+    private static volatile Recording active;
+
+    private StageRecorder() {
+    }
+
+    public static final class Stage implements AutoCloseable {
+        private final Recording recording;
+        private final String module;
+        private final String name;
+        private final long startNanos;
+        private final long allocatedAtStart;
+        private long records;
+        private long bytes;
+
+        private Stage(Recording recording, String module, String name, long records) {
+            this.recording = recording;
+            this.module = module;
+            this.name = name;
+            this.records = records;
+            this.allocatedAtStart = recording != null ? allocatedBytes() : 0;
+            this.startNanos = System.nanoTime();
+        }
+
+        // Records the stage processed, when only known at the end
+        public Stage records(long records) {
+            if (recording != null) {
+                this.records = records;
+            }
+            return this;
+        }
+
+        // Bytes the stage read, wrote or spilled
+        public Stage bytes(long bytes) {
+            if (recording != null) {
+                this.bytes = bytes;
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (recording != null) {
+                long duration = System.nanoTime() - startNanos;
+                recording.write(module, name, Thread.currentThread().getName(), startNanos, duration, records,
+                        bytes, allocatedBytes() - allocatedAtStart);
+            }
+        }
+    }
+
+    // Starts recording to file, replacing its contents
+    public static synchronized void start(Path file) throws IOException {
+        if (active != null) {
+            throw new IllegalStateException("Already recording to " + active.file);
+        }
+        active = new Recording(file);
+    }
+
+    public static boolean isRecording() {
+        return active != null;
+    }
+
+    // Ends the recording and returns its file, or null if none was running
+    public static synchronized Path stop() {
+        Recording recording = active;
+        if (recording == null) {
+            return null;
+        }
+        active = null;
+        recording.close();
+        return recording.file;
+    }
+
+    public static Stage begin(String stage) {
+        return begin(stage, 0);
+    }
+
+    public static Stage begin(String stage, long records) {
+        Recording recording = active;
+        return recording == null ? NO_OP : new Stage(recording, MODULE.get(), stage, records);
+    }
+
+    // Runs body as one stage over records records and returns its result
+    public static <T> T time(String stage, long records, Supplier<T> body) {
+        Stage event = begin(stage, records);
+        try {
+            return body.get();
+        } finally {
+            event.close();
+        }
+    }
+
+    // Runs body with module as the module of every stage it begins on this thread, and
+    // records the whole body as that module's MODULE_STAGE event
+    public static <T> T inModule(String module, Supplier<T> body) {
+        String outer = MODULE.get();
+        MODULE.set(module);
+        try {
+            return time(MODULE_STAGE, 0, body);
+        } finally {
+            MODULE.set(outer);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported()) {
+                hotspot.setThreadAllocatedMemoryEnabled(true);
+                return hotspot;
+            }
+        }
+        return null;
+    }
+
+    // Events are flushed one by one, so a run that exits early still leaves a readable file.
+    // Stages are coarse (a stream pass, a spill), so a lock per event costs nothing visible.
+    private static final class Recording {
+        private final Path file;
+        private final long startNanos = System.nanoTime();
+        private final DataOutputStream out;
+        private boolean closed;
+
+        Recording(Path file) throws IOException {
+            this.file = file;
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.flush();
+        }
+
+        synchronized void write(String module, String stage, String thread, long stageStartNanos,
+                                long durationNanos, long records, long bytes, long allocatedBytes) {
+            if (closed) {
+                return;
+            }
+            try {
+                out.writeUTF(module);
+                out.writeUTF(stage);
+                out.writeUTF(thread);
+                out.writeLong(stageStartNanos - startNanos);
+                out.writeLong(durationNanos);
+                out.writeLong(records);
+                out.writeLong(bytes);
+                out.writeLong(allocatedBytes);
+                out.flush();
+            } catch (IOException e) {
+                System.err.println("Stage recording to " + file + " failed, recording stopped: " + e.getMessage());
+                close();
+            }
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.err.println("Could not close stage recording " + file + ": " + e.getMessage());
+            }
+        }
+    }
+}
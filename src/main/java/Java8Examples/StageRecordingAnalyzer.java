@@ -0,0 +1,169 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+// Summarizes a StageRecorder recording: one row per module and stage with the number of
+// events, total, average and max time, the share of the recorded wall time, and the
+// records, bytes and allocation the events carried. Modules are listed by time spent,
+// with their own MODULE_STAGE row first. A file cut off mid-event (the run died) is read
+// up to the last complete event.
+// Usage: StageRecordingAnalyzer <recording file>
+public class StageRecordingAnalyzer {
+
+    static class StageSummary {
+        private final String module;
+        private final String stage;
+        private long events;
+        private long totalNanos;
+        private long maxNanos;
+        private long records;
+        private long bytes;
+        private long allocatedBytes;
+
+        StageSummary(String module, String stage) {
+            this.module = module;
+            this.stage = stage;
+        }
+
+        void add(long durationNanos, long records, long bytes, long allocatedBytes) {
+            events++;
+            totalNanos += durationNanos;
+            maxNanos = Math.max(maxNanos, durationNanos);
+            this.records += records;
+            this.bytes += bytes;
+            this.allocatedBytes += allocatedBytes;
+        }
+
+        public String getModule() { return module; }
+        public String getStage() { return stage; }
+        public long getEvents() { return events; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getMaxNanos() { return maxNanos; }
+        public long getRecords() { return records; }
+        public long getBytes() { return bytes; }
+        public long getAllocatedBytes() { return allocatedBytes; }
+    }
+
+    static class Report {
+        private final long startMillis;
+        private final long events;
+        private final long wallNanos;
+        private final List<StageSummary> stages;
+
+        Report(long startMillis, long events, long wallNanos, List<StageSummary> stages) {
+            this.startMillis = startMillis;
+            this.events = events;
+            this.wallNanos = wallNanos;
+            this.stages = stages;
+        }
+
+        public long getStartMillis() { return startMillis; }
+        public long getEvents() { return events; }
+        // From the first event's start to the last event's end
+        public long getWallNanos() { return wallNanos; }
+        public List<StageSummary> getStages() { return stages; }
+
+        public StageSummary find(String module, String stage) {
+            return stages.stream()
+                    .filter(s -> s.getModule().equals(module) && s.getStage().equals(stage))
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d events over %.1f ms of wall time%n", events, wallNanos / 1e6));
+            sb.append(String.format("%-10s %-24s %6s %10s %9s %9s %6s %10s %10s %10s%n", "MODULE", "STAGE",
+                    "EVENTS", "TOTAL ms", "AVG ms", "MAX ms", "WALL%", "RECORDS", "KB", "ALLOC KB"));
+            for (StageSummary s : stages) {
+                boolean moduleRow = StageRecorder.MODULE_STAGE.equals(s.getStage());
+                sb.append(String.format("%-10s %-24s %6d %10.2f %9.2f %9.2f %5.1f%% %10d %10d %10d%n",
+                        s.getModule(), moduleRow ? s.getStage() : "  " + s.getStage(), s.getEvents(),
+                        s.getTotalNanos() / 1e6, s.getTotalNanos() / 1e6 / s.getEvents(), s.getMaxNanos() / 1e6,
+                        wallNanos == 0 ? 0 : 100.0 * s.getTotalNanos() / wallNanos, s.getRecords(),
+                        s.getBytes() / 1024, s.getAllocatedBytes() / 1024));
+            }
+            return sb.toString();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: StageRecordingAnalyzer <recording file>");
+            System.exit(2);
+        }
+        System.out.print(summarize(Paths.get(args[0])));
+    }
+
+    public static Report summarize(Path file) throws IOException {
+        Map<String, Map<String, StageSummary>> byModule = new HashMap<>();
+        long startMillis;
+        long events = 0;
+        long firstStart = Long.MAX_VALUE;
+        long lastEnd = Long.MIN_VALUE;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != StageRecorder.MAGIC) {
+                throw new IOException("Not a stage recording: " + file);
+            }
+            int version = in.readInt();
+            if (version != StageRecorder.VERSION) {
+                throw new IOException("Unsupported stage recording version " + version + ": " + file);
+            }
+            startMillis = in.readLong();
+            while (true) {
+                String module;
+                String stage;
+                long start;
+                long duration;
+                long records;
+                long bytes;
+                long allocated;
+                try {
+                    module = in.readUTF();
+                    stage = in.readUTF();
+                    in.readUTF();
+                    start = in.readLong();
+                    duration = in.readLong();
+                    records = in.readLong();
+                    bytes = in.readLong();
+                    allocated = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                byModule.computeIfAbsent(module, m -> new HashMap<>())
+                        .computeIfAbsent(stage, s -> new StageSummary(module, s))
+                        .add(duration, records, bytes, allocated);
+                events++;
+                firstStart = Math.min(firstStart, start);
+                lastEnd = Math.max(lastEnd, start + duration);
+            }
+        }
+
+        // Modules by total time, each led by its module row, then its stages by total time
+        Comparator<StageSummary> byTime = Comparator.comparingLong(StageSummary::getTotalNanos).reversed();
+        List<Map<String, StageSummary>> modules = new ArrayList<>(byModule.values());
+        modules.sort(Comparator.comparingLong(StageRecordingAnalyzer::moduleNanos).reversed());
+        List<StageSummary> stages = new ArrayList<>();
+        for (Map<String, StageSummary> module : modules) {
+            StageSummary moduleRow = module.get(StageRecorder.MODULE_STAGE);
+            if (moduleRow != null) {
+                stages.add(moduleRow);
+            }
+            module.values().stream()
+                    .filter(s -> s != moduleRow)
+                    .sorted(byTime)
+                    .forEach(stages::add);
+        }
+        return new Report(startMillis, events, events == 0 ? 0 : lastEnd - firstStart, stages);
+    }
+
+    // Time of the module row, or of all stages when the module was never wrapped in inModule()
+    private static long moduleNanos(Map<String, StageSummary> module) {
+        StageSummary moduleRow = module.get(StageRecorder.MODULE_STAGE);
+        return moduleRow != null ? moduleRow.getTotalNanos()
+                : module.values().stream().mapToLong(StageSummary::getTotalNanos).sum();
+    }
+}
@@ -0,0 +1,10 @@
+package Java8Examples;
+
+import java.util.List;
+
+// A CompiledFilter for a spec with a sumOf projection; see FilterSpec.compileSumming().
+public interface SummingFilter<T> extends CompiledFilter<T> {
+
+    // Sum of the spec's projection over the passing elements
+    double sum(List<? extends T> source);
+}
@@ -0,0 +1,134 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Concurrent dictionary that maps low-cardinality strings to dense int codes.
+// Records store the code instead of their own String instance, so every distinct
+// value exists once on the heap and equality / grouping work on plain ints.
+// Codes are assigned in first-seen order and are only stable within one JVM,
+// so anything persisted must be written as the symbol text.
+public final class SymbolTable {
+
+    public static final int NO_SYMBOL = -1;
+
+    // One table per field domain keeps each code space dense (usable as an array index)
+    static final SymbolTable DEPARTMENTS = new SymbolTable("department");
+    static final SymbolTable SKILLS = new SymbolTable("skill");
+    static final SymbolTable TRANSACTION_TYPES = new SymbolTable("transactionType");
+    static final SymbolTable TRANSACTION_CATEGORIES = new SymbolTable("transactionCategory");
+    static final SymbolTable PRODUCT_CATEGORIES = new SymbolTable("productCategory");
+    static final SymbolTable ORDER_STATUSES = new SymbolTable("orderStatus");
+    // Customers and addresses keep arriving in a long-running process, so their symbols
+    // are reclaimed once no record holds them
+    static final WeakSymbolTable CUSTOMERS = new WeakSymbolTable("customer");
+    static final WeakSymbolTable ADDRESSES = new WeakSymbolTable("address");
+    static final SymbolTable ITEMS = new SymbolTable("item");
+
+    private final String name;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // Reverse lookup; replaced (never mutated in place for published slots) when it grows
+    private volatile String[] symbols = new String[16];
+    private volatile int size;
+
+    public SymbolTable(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Returns the code for the symbol, assigning the next free code on first sight
+    public int intern(String symbol) {
+        if (symbol == null) {
+            return NO_SYMBOL;
+        }
+        Integer code = codes.get(symbol);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(symbol);
+            if (code != null) {
+                return code;
+            }
+            int next = size;
+            String[] table = symbols;
+            if (next == table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            // Keep our own canonical copy rather than a substring of some parser buffer
+            table[next] = new String(symbol);
+            symbols = table;
+            size = next + 1;
+            // Publish the code last so that symbol(code) is valid for anyone who can see it
+            codes.put(table[next], next);
+            return next;
+        }
+    }
+
+    public int[] internAll(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = intern(values.get(i));
+        }
+        return result;
+    }
+
+    // Looks a symbol up without interning it; NO_SYMBOL when it was never seen
+    public int codeOf(String symbol) {
+        if (symbol == null) {
+            return NO_SYMBOL;
+        }
+        Integer code = codes.get(symbol);
+        return code == null ? NO_SYMBOL : code;
+    }
+
+    public String symbol(int code) {
+        if (code == NO_SYMBOL) {
+            return null;
+        }
+        if (code < 0 || code >= size) {
+            throw new IllegalArgumentException("Unknown " + name + " code: " + code);
+        }
+        return symbols[code];
+    }
+
+    // Read-only List<String> view over an array of codes; no copying
+    public List<String> symbols(final int[] codeArray) {
+        if (codeArray == null) {
+            return null;
+        }
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return symbol(codeArray[index]);
+            }
+
+            @Override
+            public int size() {
+                return codeArray.length;
+            }
+        };
+    }
+
+    // Turns a map grouped by code back into one keyed by the symbol text
+    public <V> Map<String, V> decodeKeys(Map<Integer, V> byCode) {
+        Map<String, V> result = new HashMap<>();
+        byCode.forEach((code, value) -> result.put(symbol(code), value));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SymbolTable[%s, %d symbols]", name, size);
+    }
+}
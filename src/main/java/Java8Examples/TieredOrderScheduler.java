@@ -0,0 +1,326 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+// Runs orders on a shared pool of workers, taking them from one bounded FIFO queue per
+// priority tier. Tiers share the workers by weight (stride scheduling): each tier has a
+// pass value that grows by 1/weight whenever one of its orders is dequeued, and the
+// non-empty tier with the lowest pass goes next, so with weights 8:1 a backlogged
+// STANDARD tier still gets one worker slot in nine. A tier that was idle rejoins at the
+// current virtual time instead of cashing in the credit it did not use.
+// Aging: a tier's effective weight grows with how long its oldest order has waited
+// (doubling after agingMs, tripling after 2 x agingMs, ...) up to half the top tier's
+// weight, so starved STANDARD work can claim up to a third of the workers while PRIORITY
+// keeps at least two thirds.
+// A full tier queue rejects new orders (shedding) without affecting the other tiers.
+// Latency is measured per tier from submission, or from the intended send time the
+// caller passes in, and checked against the tier's SLO.
+public class TieredOrderScheduler {
+
+    static final int PRIORITY_TIER = 0;
+    static final int STANDARD_TIER = 1;
+
+    static class Tier {
+        private final String name;
+        private final double weight;
+        private final long sloNanos;
+        private final int capacity;
+
+        Tier(String name, double weight, long sloMillis, int capacity) {
+            if (weight <= 0 || capacity <= 0) {
+                throw new IllegalArgumentException("Tier " + name + " needs a positive weight and capacity");
+            }
+            this.name = name;
+            this.weight = weight;
+            this.sloNanos = TimeUnit.MILLISECONDS.toNanos(sloMillis);
+            this.capacity = capacity;
+        }
+
+        public String getName() { return name; }
+        public double getWeight() { return weight; }
+        public long getSloNanos() { return sloNanos; }
+        public int getCapacity() { return capacity; }
+    }
+
+    static class TierStats {
+        private final Tier tier;
+        private final long submitted;
+        private final long completed;
+        private final long failed;
+        private final long shed;
+        private final long aged;
+        private final long sloViolations;
+        private final int queued;
+        private final LatencyHistogram latency;
+
+        TierStats(Tier tier, long submitted, long completed, long failed, long shed, long aged, long sloViolations,
+                  int queued, LatencyHistogram latency) {
+            this.tier = tier;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+            this.shed = shed;
+            this.aged = aged;
+            this.sloViolations = sloViolations;
+            this.queued = queued;
+            this.latency = latency;
+        }
+
+        public String getName() { return tier.getName(); }
+        public long getSubmitted() { return submitted; }
+        public long getCompleted() { return completed; }
+        // Completed orders whose handler threw
+        public long getFailed() { return failed; }
+        public long getShed() { return shed; }
+        // Orders dequeued with an aging boost
+        public long getAged() { return aged; }
+        public long getSloViolations() { return sloViolations; }
+        public int getQueued() { return queued; }
+        public LatencyHistogram getLatency() { return latency; }
+
+        // Share of completed orders within the SLO; shed orders count as misses
+        public double getSloAttainment() {
+            long total = completed + shed;
+            return total == 0 ? 1 : (completed - sloViolations) / (double) total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: done=%d, failed=%d, shed=%d, queued=%d, aged=%d, p50=%.2fms, " +
+                            "p99=%.2fms, max=%.2fms, SLO %dms met %.1f%%",
+                    getName(), completed, failed, shed, queued, aged, latency.getValueAtPercentile(50) / 1e6,
+                    latency.getValueAtPercentile(99) / 1e6, latency.getMax() / 1e6,
+                    TimeUnit.NANOSECONDS.toMillis(tier.getSloNanos()), getSloAttainment() * 100);
+        }
+    }
+
+    private static final class Task {
+        final OrderProcessingSystem.Order order;
+        final long startNanos;
+
+        Task(OrderProcessingSystem.Order order, long startNanos) {
+            this.order = order;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private final Tier[] tiers;
+    private final ToIntFunction<OrderProcessingSystem.Order> router;
+    private final Consumer<OrderProcessingSystem.Order> handler;
+    private final long agingNanos;
+    private final double maxAgedWeight;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<Task>[] queues;
+    private final double[] pass;
+    private double virtualTime;
+    private boolean shutdown;
+
+    private final LongAdder[] submitted;
+    private final LongAdder[] completed;
+    private final LongAdder[] failed;
+    private final LongAdder[] shed;
+    private final LongAdder[] aged;
+    private final LongAdder[] sloViolations;
+    private final LatencyHistogram[] latency;
+    private final Thread[] workers;
+
+    // router maps an order to its tier index (0 to tiers.size() - 1); agingMillis 0 turns aging off
+    @SuppressWarnings("unchecked")
+    TieredOrderScheduler(List<Tier> tiers, int workerCount, long agingMillis,
+                         ToIntFunction<OrderProcessingSystem.Order> router,
+                         Consumer<OrderProcessingSystem.Order> handler) {
+        if (tiers.isEmpty() || workerCount <= 0) {
+            throw new IllegalArgumentException("Need at least one tier and one worker");
+        }
+        this.tiers = tiers.toArray(new Tier[0]);
+        this.router = router;
+        this.handler = handler;
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+        this.maxAgedWeight = tiers.stream().mapToDouble(Tier::getWeight).max().getAsDouble() / 2;
+        int n = this.tiers.length;
+        this.queues = (ArrayDeque<Task>[]) new ArrayDeque<?>[n];
+        this.pass = new double[n];
+        this.submitted = new LongAdder[n];
+        this.completed = new LongAdder[n];
+        this.failed = new LongAdder[n];
+        this.shed = new LongAdder[n];
+        this.aged = new LongAdder[n];
+        this.sloViolations = new LongAdder[n];
+        this.latency = new LatencyHistogram[n];
+        for (int i = 0; i < n; i++) {
+            queues[i] = new ArrayDeque<>();
+            submitted[i] = new LongAdder();
+            completed[i] = new LongAdder();
+            failed[i] = new LongAdder();
+            shed[i] = new LongAdder();
+            aged[i] = new LongAdder();
+            sloViolations[i] = new LongAdder();
+            latency[i] = new LatencyHistogram();
+        }
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::work, "order-scheduler-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    // PRIORITY and STANDARD tiers routed like updateOrderStatus labels orders, sized from AppConfig
+    static TieredOrderScheduler fromConfig(Consumer<OrderProcessingSystem.Order> handler) {
+        AppConfig config = AppConfig.get();
+        List<Tier> tiers = Arrays.asList(
+                new Tier("PRIORITY", config.getSchedulerPriorityWeight(), config.getSchedulerPrioritySloMs(),
+                        config.getSchedulerQueueCapacity()),
+                new Tier("STANDARD", config.getSchedulerStandardWeight(), config.getSchedulerStandardSloMs(),
+                        config.getSchedulerQueueCapacity()));
+        return new TieredOrderScheduler(tiers, config.getPoolSize(), config.getSchedulerAgingMs(),
+                order -> OrderProcessingSystem.isPriority(order) ? PRIORITY_TIER : STANDARD_TIER, handler);
+    }
+
+    public boolean submit(OrderProcessingSystem.Order order) {
+        return submit(order, System.nanoTime());
+    }
+
+    // startNanos is when the order should have entered the system (System.nanoTime() clock);
+    // returns false when the order was shed because its tier's queue is full
+    public boolean submit(OrderProcessingSystem.Order order, long startNanos) {
+        int tier = router.applyAsInt(order);
+        if (tier < 0 || tier >= tiers.length) {
+            throw new IllegalArgumentException("Router sent order " + order.getOrderId() + " to tier " + tier +
+                    ", expected 0 to " + (tiers.length - 1));
+        }
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Scheduler is shut down");
+            }
+            submitted[tier].increment();
+            ArrayDeque<Task> queue = queues[tier];
+            if (queue.size() >= tiers[tier].capacity) {
+                shed[tier].increment();
+                return false;
+            }
+            if (queue.isEmpty()) {
+                pass[tier] = Math.max(pass[tier], virtualTime);
+            }
+            queue.addLast(new Task(order, startNanos));
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<TierStats> getStats() {
+        List<TierStats> stats = new ArrayList<>(tiers.length);
+        for (int i = 0; i < tiers.length; i++) {
+            LatencyHistogram copy = new LatencyHistogram();
+            copy.add(latency[i]);
+            stats.add(new TierStats(tiers[i], submitted[i].sum(), completed[i].sum(), failed[i].sum(),
+                    shed[i].sum(), aged[i].sum(), sloViolations[i].sum(), queued(i), copy));
+        }
+        return stats;
+    }
+
+    public int getWorkerCount() { return workers.length; }
+
+    // Stops accepting orders; the workers finish everything already queued
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread worker : workers) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            worker.join(remaining);
+            if (worker.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int queued(int tier) {
+        lock.lock();
+        try {
+            return queues[tier].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        int[] tier = new int[1];
+        Task task;
+        while ((task = take(tier)) != null) {
+            try {
+                handler.accept(task.order);
+            } catch (Throwable e) {
+                // Errors too (AssertionError, StackOverflowError): one bad order must not take
+                // a worker, and with it a share of the capacity, down for good
+                failed[tier[0]].increment();
+                System.err.println("Order " + task.order.getOrderId() + " failed: " + e);
+            }
+            long elapsed = System.nanoTime() - task.startNanos;
+            latency[tier[0]].record(Math.max(0, elapsed));
+            if (elapsed > tiers[tier[0]].sloNanos) {
+                sloViolations[tier[0]].increment();
+            }
+            completed[tier[0]].increment();
+        }
+    }
+
+    // Next task by weighted-fair order, its tier in tierOut[0]; null once shut down and drained
+    private Task take(int[] tierOut) {
+        lock.lock();
+        try {
+            while (true) {
+                int next = -1;
+                for (int i = 0; i < queues.length; i++) {
+                    // Ties go to the earlier, higher-priority tier
+                    if (!queues[i].isEmpty() && (next < 0 || pass[i] < pass[next])) {
+                        next = i;
+                    }
+                }
+                if (next >= 0) {
+                    Task task = queues[next].pollFirst();
+                    virtualTime = pass[next];
+                    pass[next] += 1 / effectiveWeight(next, System.nanoTime() - task.startNanos);
+                    tierOut[0] = next;
+                    return task;
+                }
+                if (shutdown) {
+                    return null;
+                }
+                notEmpty.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double effectiveWeight(int tier, long waitedNanos) {
+        double weight = tiers[tier].weight;
+        if (agingNanos <= 0 || waitedNanos < agingNanos || weight >= maxAgedWeight) {
+            return weight;
+        }
+        aged[tier].increment();
+        return Math.min(maxAgedWeight, weight * (1 + waitedNanos / (double) agingNanos));
+    }
+}
@@ -0,0 +1,175 @@
+package Java8Examples;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Open-loop comparison of one FIFO queue against TieredOrderScheduler at rising offered
+// load. Orders arrive at a fixed rate, 20% of them PRIORITY (amount above
+// order.priorityAmount); each takes serviceMicros of parked time (a stand-in for I/O such as
+// a payment call) plus updateOrderStatus. Capacity is calibrated first by draining a
+// backlog, then each load level runs for the same time against both schedulers, which get
+// the same total queue space. Latency is measured per class from the intended arrival
+// time, shed orders are counted as SLO misses, and the backlog left at the end of a phase
+// is drained and measured too.
+// Usage: TieredSchedulerBenchmark [workers] [serviceMicros] [phaseSeconds]
+public class TieredSchedulerBenchmark {
+
+    private static final double[] LOADS = { 0.5, 0.9, 1.5, 3.0 };
+    private static final double PRIORITY_SHARE = 0.2;
+    private static final List<String> ITEMS = Arrays.asList("Laptop", "Mouse");
+
+    private static final class BenchOrder extends OrderProcessingSystem.Order {
+        final long intendedNanos;
+        final boolean priority;
+
+        BenchOrder(long sequence, boolean priority, long intendedNanos) {
+            super("B" + sequence, "Customer-" + (sequence % 1000), LocalDateTime.of(2024, 1, 1, 0, 0),
+                    priority ? 2 * AppConfig.get().getPriorityOrderAmount() : 100, "PENDING", ITEMS, "Warehouse");
+            this.intendedNanos = intendedNanos;
+            this.priority = priority;
+        }
+    }
+
+    private static final class ClassResult {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder offered = new LongAdder();
+        final LongAdder shed = new LongAdder();
+        final LongAdder withinSlo = new LongAdder();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        AppConfig config = AppConfig.get();
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        long serviceNanos = TimeUnit.MICROSECONDS.toNanos(args.length > 1 ? Long.parseLong(args[1]) : 1000);
+        long phaseNanos = TimeUnit.SECONDS.toNanos(args.length > 2 ? Long.parseLong(args[2]) : 5);
+
+        System.out.printf("=== TIERED SCHEDULER BENCHMARK - %d workers, %d us service, %d s per phase, weights %.0f:%.0f," +
+                        " aging %d ms ===%n%n", workers, serviceNanos / 1000, phaseNanos / 1_000_000_000L,
+                config.getSchedulerPriorityWeight(), config.getSchedulerStandardWeight(), config.getSchedulerAgingMs());
+
+        double capacity = calibrate(workers, serviceNanos);
+        System.out.printf("Calibrated capacity: %.0f orders/s%n%n", capacity);
+        System.out.printf("%5s %-7s %-9s %10s %10s %8s %9s %9s %9s %8s%n", "load", "queue", "class",
+                "offered/s", "done/s", "shed", "p50 ms", "p99 ms", "max ms", "SLO met");
+        for (double load : LOADS) {
+            for (boolean tiered : new boolean[] { false, true }) {
+                ClassResult[] results = runPhase(tiered, workers, serviceNanos, capacity * load, phaseNanos);
+                for (int c = 0; c < results.length; c++) {
+                    ClassResult r = results[c];
+                    long done = r.latency.getCount();
+                    long total = r.offered.sum();
+                    System.out.printf("%4.1fx %-7s %-9s %10.0f %10.0f %8d %9.2f %9.2f %9.2f %7.1f%%%n",
+                            load, tiered ? "tiered" : "fifo", c == 0 ? "PRIORITY" : "STANDARD",
+                            total / (phaseNanos / 1e9), done / (phaseNanos / 1e9), r.shed.sum(),
+                            r.latency.getValueAtPercentile(50) / 1e6, r.latency.getValueAtPercentile(99) / 1e6,
+                            r.latency.getMax() / 1e6, total == 0 ? 100 : 100.0 * r.withinSlo.sum() / total);
+                }
+            }
+            System.out.println();
+        }
+    }
+
+    // Orders per second the workers get through when they never wait for work
+    private static double calibrate(int workers, long serviceNanos) throws InterruptedException {
+        int backlog = (int) Math.max(1000, workers * 2_000_000_000L / serviceNanos);
+        TieredOrderScheduler scheduler = fifo(workers, serviceNanos, backlog, new ClassResult[2]);
+        long start = System.nanoTime();
+        for (int i = 0; i < backlog; i++) {
+            scheduler.submit(new BenchOrder(i, false, start));
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.MINUTES);
+        return backlog / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static ClassResult[] runPhase(boolean tiered, int workers, long serviceNanos, double rate,
+                                          long phaseNanos) throws InterruptedException {
+        AppConfig config = AppConfig.get();
+        ClassResult[] results = { new ClassResult(), new ClassResult() };
+        int capacity = config.getSchedulerQueueCapacity();
+        TieredOrderScheduler scheduler = tiered
+                ? new TieredOrderScheduler(Arrays.asList(
+                        new TieredOrderScheduler.Tier("PRIORITY", config.getSchedulerPriorityWeight(),
+                                config.getSchedulerPrioritySloMs(), capacity),
+                        new TieredOrderScheduler.Tier("STANDARD", config.getSchedulerStandardWeight(),
+                                config.getSchedulerStandardSloMs(), capacity)),
+                workers, config.getSchedulerAgingMs(),
+                order -> ((BenchOrder) order).priority ? TieredOrderScheduler.PRIORITY_TIER
+                        : TieredOrderScheduler.STANDARD_TIER,
+                handler(serviceNanos, results))
+                : fifo(workers, serviceNanos, 2 * capacity, results);
+
+        long[] sloNanos = { TimeUnit.MILLISECONDS.toNanos(config.getSchedulerPrioritySloMs()),
+                TimeUnit.MILLISECONDS.toNanos(config.getSchedulerStandardSloMs()) };
+        Random random = new Random(48);
+        long interval = (long) (1e9 / rate);
+        long start = System.nanoTime();
+        long end = start + phaseNanos;
+        long intended = start;
+        long sequence = 0;
+        while (intended < end) {
+            long now = System.nanoTime();
+            while (intended <= now && intended < end) {
+                BenchOrder order = new BenchOrder(sequence++, random.nextDouble() < PRIORITY_SHARE, intended);
+                ClassResult result = results[order.priority ? 0 : 1];
+                result.offered.increment();
+                if (!scheduler.submit(order, intended)) {
+                    result.shed.increment();
+                }
+                intended += interval;
+            }
+            LockSupport.parkNanos(intended - System.nanoTime());
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.MINUTES);
+        // The handler only timed the orders; SLO checks use the same clock afterwards
+        for (int c = 0; c < results.length; c++) {
+            results[c].withinSlo.add(countAtOrBelow(results[c].latency, sloNanos[c]));
+        }
+        return results;
+    }
+
+    private static TieredOrderScheduler fifo(int workers, long serviceNanos, int capacity, ClassResult[] results) {
+        return new TieredOrderScheduler(Collections.singletonList(
+                new TieredOrderScheduler.Tier("FIFO", 1, Long.MAX_VALUE / 1_000_000, capacity)),
+                workers, 0, order -> 0, handler(serviceNanos, results));
+    }
+
+    private static Consumer<OrderProcessingSystem.Order> handler(long serviceNanos, ClassResult[] results) {
+        ThreadLocal<OrderProcessingSystem.ProcessingResult> holder =
+                ThreadLocal.withInitial(OrderProcessingSystem.ProcessingResult::new);
+        return order -> {
+            LockSupport.parkNanos(serviceNanos);
+            OrderProcessingSystem.updateOrderStatus(order, holder.get());
+            BenchOrder bench = (BenchOrder) order;
+            ClassResult result = results[bench.priority ? 0 : 1];
+            if (result != null) {
+                result.latency.record(Math.max(0, System.nanoTime() - bench.intendedNanos));
+            }
+        };
+    }
+
+    // Recorded values no greater than limit, to histogram resolution
+    private static long countAtOrBelow(LatencyHistogram histogram, long limit) {
+        long count = histogram.getCount();
+        if (count == 0 || histogram.getMax() <= limit) {
+            return count;
+        }
+        // Binary search on the percentile whose value crosses the limit
+        double low = 0;
+        double high = 100;
+        for (int i = 0; i < 40; i++) {
+            double mid = (low + high) / 2;
+            if (histogram.getValueAtPercentile(mid) <= limit) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return (long) (count * low / 100);
+    }
+}
@@ -0,0 +1,161 @@
+package Java8Examples;
+
+import java.lang.ref.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Symbol table for high-cardinality domains (customers, addresses) whose values come and
+// go with the records that use them. A SymbolTable keeps every symbol it has ever seen,
+// which is fine for departments or statuses but grows without bound in a long-running
+// process fed new customers. Here records hold the Symbol itself (one reference, the same
+// size as an int code) and the table only references it weakly: once no record uses a
+// symbol any more it is reclaimed and its code is handed to the next new symbol, so the
+// table is bounded by the live records.
+// Codes stay dense, but a code only names its symbol while some record still holds it:
+// decode a map grouped by code before dropping the records it was built from, and write
+// the symbol text, not the code, to anything that outlives the records.
+public final class WeakSymbolTable {
+
+    static final class Symbol {
+        private final int code;
+        private final String text;
+
+        private Symbol(int code, String text) {
+            this.code = code;
+            this.text = text;
+        }
+
+        public int getCode() { return code; }
+        public String getText() { return text; }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    // Keeps code and text reachable after the symbol itself is gone, for reclaiming
+    private static final class SymbolReference extends WeakReference<Symbol> {
+        private final int code;
+        private final String text;
+
+        SymbolReference(Symbol symbol, ReferenceQueue<Symbol> queue) {
+            super(symbol, queue);
+            this.code = symbol.code;
+            this.text = symbol.text;
+        }
+    }
+
+    private final String name;
+    private final ConcurrentHashMap<String, SymbolReference> byText = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Symbol> reclaimed = new ReferenceQueue<>();
+    // Guarded by this; replaced when it grows like SymbolTable's reverse lookup
+    private volatile SymbolReference[] byCode = new SymbolReference[16];
+    private int[] freeCodes = new int[16];
+    private int freeCount;
+    private int nextCode;
+    private volatile int size;
+
+    public WeakSymbolTable(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Symbols currently assigned a code; reclaimed ones are only noticed by the next intern()
+    public int size() {
+        return size;
+    }
+
+    // Returns the canonical symbol, assigning a free code on first sight; null for null
+    public Symbol intern(String text) {
+        if (text == null) {
+            return null;
+        }
+        Symbol symbol = live(byText.get(text));
+        if (symbol != null) {
+            return symbol;
+        }
+        synchronized (this) {
+            reclaim();
+            SymbolReference existing = byText.get(text);
+            symbol = live(existing);
+            if (symbol != null) {
+                return symbol;
+            }
+            if (existing != null) {
+                // Collected but not enqueued yet; free it now, reclaim() will skip it later
+                release(existing);
+            }
+            int code = freeCount > 0 ? freeCodes[--freeCount] : nextCode++;
+            // Keep our own canonical copy rather than a substring of some parser buffer
+            symbol = new Symbol(code, new String(text));
+            SymbolReference[] table = byCode;
+            if (code >= table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            table[code] = new SymbolReference(symbol, reclaimed);
+            byCode = table;
+            size++;
+            byText.put(symbol.text, table[code]);
+            return symbol;
+        }
+    }
+
+    // Looks a symbol up without interning it; NO_SYMBOL when it is not live
+    public int codeOf(String text) {
+        Symbol symbol = text == null ? null : live(byText.get(text));
+        return symbol == null ? SymbolTable.NO_SYMBOL : symbol.code;
+    }
+
+    public String symbol(int code) {
+        if (code == SymbolTable.NO_SYMBOL) {
+            return null;
+        }
+        SymbolReference[] table = byCode;
+        SymbolReference reference = code >= 0 && code < table.length ? table[code] : null;
+        if (reference == null) {
+            throw new IllegalArgumentException("Unknown " + name + " code: " + code);
+        }
+        return reference.text;
+    }
+
+    // Turns a map grouped by code back into one keyed by the symbol text
+    public <V> Map<String, V> decodeKeys(Map<Integer, V> byCodeMap) {
+        Map<String, V> result = new HashMap<>();
+        byCodeMap.forEach((code, value) -> result.put(symbol(code), value));
+        return result;
+    }
+
+    private static Symbol live(SymbolReference reference) {
+        return reference == null ? null : reference.get();
+    }
+
+    private void reclaim() {
+        Reference<? extends Symbol> reference;
+        while ((reference = reclaimed.poll()) != null) {
+            release((SymbolReference) reference);
+        }
+    }
+
+    private void release(SymbolReference reference) {
+        // Already released (early by intern) and maybe reassigned since
+        if (byCode[reference.code] != reference) {
+            return;
+        }
+        byCode[reference.code] = null;
+        byText.remove(reference.text, reference);
+        if (freeCount == freeCodes.length) {
+            freeCodes = Arrays.copyOf(freeCodes, freeCodes.length * 2);
+        }
+        freeCodes[freeCount++] = reference.code;
+        size--;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WeakSymbolTable[%s, %d symbols]", name, size);
+    }
+}
@@ -1,13 +1,198 @@
 package com.salesforce;
 
+import Java8Examples.AnalyticsViews;
+import Java8Examples.AppConfig;
+import com.sun.net.httpserver.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Hello world!
- *
+ * Embedded HTTP service for the analytics views, on the JDK's com.sun.net.httpserver.
+ * Responses come from precomputed AnalyticsViews with strong ETags, so a conditional
+ * GET that still matches is answered with 304 and no body. The dispatcher thread parses
+ * each request and hands it to a bounded pool of handlers; when the pool's threads and
+ * queue are full the request is answered straight away with 503 and Retry-After, so the
+ * dispatcher never runs a handler itself and keeps accepting connections.
  */
-public class App 
-{
-    public static void main( String[] args )
-    {
-        System.out.println( "Hello World!" );
+public class App {
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    static {
+        // The server writes headers and body separately; without TCP_NODELAY the body waits
+        // for the client's delayed ACK (~40 ms). Read once, when the server classes load.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private volatile AnalyticsViews views;
+
+    public App(int port, int threads, int queueCapacity) throws IOException {
+        this(port, threads, queueCapacity, AnalyticsViews.load());
+    }
+
+    public App(int port, int threads, int queueCapacity, AnalyticsViews views) throws IOException {
+        this(port, handlerPool(threads, queueCapacity), views);
+    }
+
+    // Handlers run on the given pool, which must reject work it has no room for
+    App(int port, ThreadPoolExecutor executor, AnalyticsViews views) throws IOException {
+        this.views = views;
+        this.executor = executor;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::dispatch);
+        // Requests are parsed on the dispatcher thread; dispatch() moves them to the pool
+        server.setExecutor(Runnable::run);
+    }
+
+    private static ThreadPoolExecutor handlerPool(int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "http-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    // The bound port, useful when constructed with port 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Rebuilds the views from the current datasets; in-flight requests keep the old ones
+    public void refresh() {
+        views = AnalyticsViews.load();
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        try {
+            executor.execute(() -> {
+                try {
+                    handle(exchange);
+                } catch (IOException e) {
+                    // The client went away; handle() has already closed the exchange
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            try {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+                sendError(exchange, 503, "Server busy, retry later");
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(exchange, 405, "Method " + method + " not allowed");
+                return;
+            }
+            if ("/health".equals(path)) {
+                send(exchange, 200, "{\"status\":\"UP\"}".getBytes(StandardCharsets.UTF_8), null);
+                return;
+            }
+            AnalyticsViews current = views;
+            if ("/api".equals(path) || "/".equals(path)) {
+                StringBuilder sb = new StringBuilder("{\"endpoints\":[");
+                String separator = "";
+                for (String endpoint : current.getPaths()) {
+                    sb.append(separator).append('"').append(endpoint).append('"');
+                    separator = ",";
+                }
+                sb.append("]}");
+                send(exchange, 200, sb.toString().getBytes(StandardCharsets.UTF_8), null);
+                return;
+            }
+            AnalyticsViews.View view = current.get(path);
+            if (view == null) {
+                sendError(exchange, 404, "No such endpoint: " + path);
+                return;
+            }
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", view.getEtag());
+            headers.set("Cache-Control", "no-cache");
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), view.getEtag())) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            send(exchange, 200, view.getBody(), view.getContentType());
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // If-None-Match holds "*" or a comma separated list of (possibly weak) entity tags
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body, String contentType) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType == null ? JSON : contentType);
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        AnalyticsViews.appendString(json, message);
+        send(exchange, status, json.append('}').toString().getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    // Usage: App [port]
+    public static void main(String[] args) throws IOException {
+        AppConfig config = AppConfig.get();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : config.getHttpPort();
+        App app = new App(port, config.getHttpThreads(), config.getHttpQueueCapacity());
+        app.start();
+        System.out.println("Analytics service listening on http://localhost:" + app.getPort() + " with " +
+                config.getHttpThreads() + " handler threads");
+        for (String endpoint : app.views.getPaths()) {
+            System.out.println("  GET " + endpoint);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(app::stop));
     }
 }
@@ -0,0 +1,147 @@
+package com.salesforce;
+
+import Java8Examples.AnalyticsViews;
+import Java8Examples.AppConfig;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Local load driver for the analytics service. Starts App on a free port, then runs
+ * closed-loop clients (each sends its next request when the previous one returns)
+ * over keep-alive connections against every endpoint. Half of the requests repeat
+ * the ETag they last saw in If-None-Match. Reports requests per second and the
+ * p50/p99/max latency for each kind of response.
+ * Usage: AppLoadDriver [clients] [seconds]
+ */
+public class AppLoadDriver {
+
+    private static final int WARMUP_SECONDS = 2;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        AppConfig config = AppConfig.get();
+
+        App app = new App(0, config.getHttpThreads(), config.getHttpQueueCapacity());
+        app.start();
+        try {
+            String base = "http://localhost:" + app.getPort();
+            List<String> paths = new ArrayList<>(AnalyticsViews.load().getPaths());
+            System.out.println("=== ANALYTICS SERVICE LOAD DRIVER - " + clients + " clients, " + seconds + "s, " +
+                    config.getHttpThreads() + " handler threads ===\n");
+
+            run(base, paths, clients, WARMUP_SECONDS);
+            Map<Integer, long[]> latencies = new TreeMap<>();
+            long start = System.nanoTime();
+            List<Map<Integer, long[]>> results = run(base, paths, clients, seconds);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            long total = 0;
+            for (Map<Integer, long[]> result : results) {
+                for (Map.Entry<Integer, long[]> entry : result.entrySet()) {
+                    latencies.merge(entry.getKey(), entry.getValue(), AppLoadDriver::concat);
+                    total += entry.getValue().length;
+                }
+            }
+            System.out.printf("%-8s %10s %10s %10s %10s%n", "Status", "Requests", "p50 ms", "p99 ms", "max ms");
+            List<long[]> all = new ArrayList<>(latencies.values());
+            latencies.forEach((status, values) -> printRow(String.valueOf(status), values));
+            printRow("all", all.stream().reduce(new long[0], AppLoadDriver::concat));
+            System.out.printf("%nThroughput: %.0f requests/s%n", total / elapsed);
+        } finally {
+            app.stop();
+        }
+    }
+
+    // Latencies in nanoseconds per response status, one map per client
+    private static List<Map<Integer, long[]>> run(String base, List<String> paths, int clients, int seconds)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<Map<Integer, long[]>>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            futures.add(pool.submit(() -> {
+                Map<Integer, LongList> byStatus = new HashMap<>();
+                Map<String, String> etags = new HashMap<>();
+                Random random = new Random(client);
+                byte[] buffer = new byte[8192];
+                while (System.nanoTime() < deadline) {
+                    String path = paths.get(random.nextInt(paths.size()));
+                    long begin = System.nanoTime();
+                    HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+                    String etag = etags.get(path);
+                    if (etag != null && random.nextBoolean()) {
+                        connection.setRequestProperty("If-None-Match", etag);
+                    }
+                    int status = connection.getResponseCode();
+                    // Drain the body fully so the connection goes back to the keep-alive pool
+                    try (InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+                        if (in != null) {
+                            while (in.read(buffer) >= 0) {
+                                // discard
+                            }
+                        }
+                    }
+                    long latency = System.nanoTime() - begin;
+                    String received = connection.getHeaderField("ETag");
+                    if (received != null) {
+                        etags.put(path, received);
+                    }
+                    byStatus.computeIfAbsent(status, s -> new LongList()).add(latency);
+                }
+                Map<Integer, long[]> result = new HashMap<>();
+                byStatus.forEach((status, values) -> result.put(status, values.toArray()));
+                return result;
+            }));
+        }
+        List<Map<Integer, long[]>> results = new ArrayList<>();
+        for (Future<Map<Integer, long[]>> future : futures) {
+            results.add(future.get());
+        }
+        pool.shutdown();
+        return results;
+    }
+
+    private static void printRow(String label, long[] values) {
+        Arrays.sort(values);
+        System.out.printf("%-8s %10d %10.3f %10.3f %10.3f%n", label, values.length,
+                percentile(values, 0.50) / 1e6, percentile(values, 0.99) / 1e6,
+                values.length == 0 ? 0 : values[values.length - 1] / 1e6);
+    }
+
+    // Nearest-rank percentile of sorted values
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Configuration must parse typed values, fall back to defaults and publish reloads without losing versions.
+ */
+public class AppConfigTest
+    extends TestCase
+{
+    private Path file;
+
+    public AppConfigTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( AppConfigTest.class );
+    }
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        file = Files.createTempFile( "config", ".properties" );
+    }
+
+    @Override
+    protected void tearDown() throws IOException
+    {
+        Files.deleteIfExists( file );
+        // Later tests in this JVM expect the configuration they started with
+        Path original = AppConfig.watchableFile();
+        if ( original != null )
+        {
+            AppConfig.reload( original );
+        }
+        else
+        {
+            AppConfig.override( new Properties() );
+        }
+    }
+
+    public void testValuesAreParsed()
+    {
+        Properties props = new Properties();
+        props.setProperty( "employee.highSalaryThreshold", " 80000.5 " );
+        props.setProperty( "inventory.lowStockThreshold", "3" );
+        props.setProperty( "module.timeoutMs", "1500" );
+        props.setProperty( "analytics.approximate", "true" );
+        props.setProperty( "sort.memoryBudgetMb", "2" );
+        props.setProperty( "cache.dir", "/tmp/results" );
+
+        AppConfig config = AppConfig.override( props );
+        assertSame( config, AppConfig.get() );
+        assertEquals( "override", config.getSource() );
+        assertEquals( 80000.5, config.getHighSalaryThreshold(), 0.0 );
+        assertEquals( 3, config.getLowStockThreshold() );
+        assertEquals( 1500, config.getModuleTimeoutMs() );
+        assertTrue( config.isApproximateAnalytics() );
+        assertEquals( 2L * 1024 * 1024, config.getSortMemoryBudgetBytes() );
+        assertEquals( "/tmp/results", config.getCacheDir() );
+    }
+
+    public void testMissingValuesFallBackToDefaults()
+    {
+        AppConfig config = AppConfig.override( new Properties() );
+        assertEquals( 75000.0, config.getHighSalaryThreshold(), 0.0 );
+        assertEquals( 10, config.getLowStockThreshold() );
+        assertEquals( 1, config.getShards() );
+        assertFalse( config.isSupervised() );
+        assertNull( config.getCacheDir() );
+        assertNull( config.getSnapshotDir() );
+        // 0 means one per available processor
+        assertEquals( Runtime.getRuntime().availableProcessors(), config.getPoolSize() );
+    }
+
+    public void testSystemPropertiesWin()
+    {
+        Properties props = new Properties();
+        props.setProperty( "order.recentDays", "7" );
+        System.setProperty( "order.recentDays", "30" );
+        try
+        {
+            assertEquals( 30, AppConfig.override( props ).getRecentOrderDays() );
+        }
+        finally
+        {
+            System.clearProperty( "order.recentDays" );
+        }
+    }
+
+    public void testInvalidValuesKeepThePreviousSnapshot()
+    {
+        AppConfig before = AppConfig.get();
+        Properties props = new Properties();
+        props.setProperty( "inventory.lowStockThreshold", "ten" );
+        try
+        {
+            AppConfig.override( props );
+            fail( "accepted a non-numeric threshold" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "inventory.lowStockThreshold" ) );
+        }
+        props.setProperty( "inventory.lowStockThreshold", "-1" );
+        try
+        {
+            AppConfig.override( props );
+            fail( "accepted a negative threshold" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "inventory.lowStockThreshold" ) );
+        }
+        assertSame( before, AppConfig.get() );
+    }
+
+    public void testEmptyRecentOrderWindowIsRejected()
+    {
+        AppConfig before = AppConfig.get();
+        Properties props = new Properties();
+        props.setProperty( "order.recentDays", "0" );
+        try
+        {
+            AppConfig.override( props );
+            fail( "accepted a zero-day window" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "order.recentDays must be >= 1" ) );
+        }
+        assertSame( before, AppConfig.get() );
+    }
+
+    public void testInvalidInitialValuesFallBackToDefaults()
+    {
+        Properties props = new Properties();
+        props.setProperty( "inventory.lowStockThreshold", "-1" );
+        props.setProperty( "employee.highSalaryThreshold", "90000" );
+
+        // Used by the static initializer, so it must not throw
+        AppConfig initial = AppConfig.initial( props, "broken.properties" );
+        assertEquals( "defaults", initial.getSource() );
+        assertEquals( 1, initial.getVersion() );
+        assertEquals( 10, initial.getLowStockThreshold() );
+        assertEquals( 75000.0, initial.getHighSalaryThreshold() );
+
+        props.setProperty( "inventory.lowStockThreshold", "4" );
+        assertEquals( "broken.properties", AppConfig.initial( props, "broken.properties" ).getSource() );
+    }
+
+    public void testReloadPublishesTheFileWithTheNextVersion() throws IOException
+    {
+        long version = AppConfig.get().getVersion();
+        write( "inventory.lowStockThreshold=4\n" );
+        AppConfig first = AppConfig.reload( file );
+        assertEquals( version + 1, first.getVersion() );
+        assertEquals( file.toString(), first.getSource() );
+        assertEquals( 4, AppConfig.get().getLowStockThreshold() );
+
+        write( "inventory.lowStockThreshold=6\n" );
+        AppConfig second = AppConfig.reload( file );
+        assertEquals( version + 2, second.getVersion() );
+        assertEquals( 6, AppConfig.get().getLowStockThreshold() );
+        // Snapshots already handed out do not change
+        assertEquals( 4, first.getLowStockThreshold() );
+    }
+
+    public void testFingerprintFollowsSettingsNotVersions() throws IOException
+    {
+        write( "inventory.lowStockThreshold=4\n" );
+        long first = AppConfig.reload( file ).getFingerprint();
+        assertEquals( first, AppConfig.reload( file ).getFingerprint() );
+        Properties same = new Properties();
+        same.setProperty( "inventory.lowStockThreshold", "4" );
+        assertEquals( first, AppConfig.override( same ).getFingerprint() );
+
+        write( "inventory.lowStockThreshold=5\n" );
+        assertFalse( first == AppConfig.reload( file ).getFingerprint() );
+    }
+
+    public void testFingerprintIgnoresTuningSettings() throws IOException
+    {
+        write( "inventory.lowStockThreshold=4\n" );
+        long first = AppConfig.reload( file ).getFingerprint();
+        write( "inventory.lowStockThreshold=4\nhttp.port=9090\nscheduler.agingMs=10\nprocessing.batchSize=64\n" );
+        assertEquals( first, AppConfig.reload( file ).getFingerprint() );
+
+        write( "inventory.lowStockThreshold=4\norder.recentDays=3\n" );
+        assertFalse( first == AppConfig.reload( file ).getFingerprint() );
+    }
+
+    public void testConcurrentOverridesGetDistinctVersions() throws Exception
+    {
+        int threads = 4;
+        int perThread = 50;
+        long version = AppConfig.get().getVersion();
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for ( int t = 0; t < threads; t++ )
+            {
+                futures.add( executor.submit( () -> {
+                    List<Long> versions = new ArrayList<>();
+                    for ( int i = 0; i < perThread; i++ )
+                    {
+                        versions.add( AppConfig.override( new Properties() ).getVersion() );
+                    }
+                    return versions;
+                } ) );
+            }
+            Set<Long> versions = new HashSet<>();
+            for ( Future<List<Long>> future : futures )
+            {
+                versions.addAll( future.get( 10, TimeUnit.SECONDS ) );
+            }
+            assertEquals( threads * perThread, versions.size() );
+            assertEquals( version + threads * perThread, AppConfig.get().getVersion() );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void write( String content ) throws IOException
+    {
+        Files.write( file, content.getBytes( StandardCharsets.UTF_8 ) );
+    }
+}
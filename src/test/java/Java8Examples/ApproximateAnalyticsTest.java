@@ -0,0 +1,196 @@
+package Java8Examples;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks the error bounds exposed by the sketches against exact answers.
+ */
+public class ApproximateAnalyticsTest
+    extends TestCase
+{
+    private static final int N = 200000;
+
+    public ApproximateAnalyticsTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ApproximateAnalyticsTest.class );
+    }
+
+    public void testHyperLogLogWithinThreeStandardErrors()
+    {
+        for ( int distinct : new int[] { 100, 10000, 1000000 } )
+        {
+            HyperLogLog sketch = new HyperLogLog( ApproximateAnalytics.HLL_PRECISION );
+            for ( int i = 0; i < distinct; i++ )
+            {
+                sketch.add( "customer-" + i );
+                // Duplicates must not move the estimate
+                sketch.add( "customer-" + ( i / 2 ) );
+            }
+            double error = Math.abs( sketch.estimate() - distinct ) / (double) distinct;
+            assertTrue( "error " + error + " for " + distinct, error <= 3 * sketch.relativeStandardError() );
+        }
+    }
+
+    public void testParallelDistinctCountMatchesSequential()
+    {
+        List<String> keys = IntStream.range( 0, N ).mapToObj( i -> "skill-" + ( i % 5000 ) )
+                .collect( Collectors.toList() );
+        HyperLogLog sequential = keys.stream()
+                .collect( ApproximateAnalytics.distinctCountOf( key -> key ) );
+        HyperLogLog parallel = keys.parallelStream()
+                .collect( ApproximateAnalytics.distinctCountOf( key -> key ) );
+
+        // Register-wise max is order independent, so the merge must be exact
+        assertEquals( sequential.estimate(), parallel.estimate() );
+        assertTrue( Math.abs( parallel.estimate() - 5000 ) <= 3 * 5000 * parallel.relativeStandardError() );
+    }
+
+    public void testKllQuantilesWithinRankError()
+    {
+        Random random = new Random( 7 );
+        double[] values = new double[N];
+        for ( int i = 0; i < N; i++ )
+        {
+            // Skewed like salaries and transaction amounts
+            values[i] = Math.exp( random.nextGaussian() ) * 50000;
+        }
+        List<Double> boxed = DoubleStream.of( values ).boxed().collect( Collectors.toList() );
+        KllSketch sketch = boxed.parallelStream().collect( ApproximateAnalytics.quantiles( Double::doubleValue ) );
+
+        double[] sorted = values.clone();
+        Arrays.sort( sorted );
+        assertEquals( N, sketch.getCount() );
+        assertEquals( sorted[0], sketch.getMin() );
+        assertEquals( sorted[N - 1], sketch.getMax() );
+        assertTrue( "retained " + sketch.retainedItems(), sketch.retainedItems() < 4 * KllSketch.DEFAULT_K );
+
+        for ( double fraction = 0.01; fraction < 1; fraction += 0.01 )
+        {
+            double estimate = sketch.quantile( fraction );
+            double trueRank = exactRank( sorted, estimate );
+            assertTrue( String.format( "q=%.2f true rank %.4f", fraction, trueRank ),
+                    Math.abs( trueRank - fraction ) <= sketch.normalizedRankError() );
+        }
+    }
+
+    public void testCountMinNeverUndercountsAndFindsHeavyHitters()
+    {
+        Map<String, Long> exact = new HashMap<>();
+        CountMinSketch left = new CountMinSketch( ApproximateAnalytics.CMS_EPSILON, ApproximateAnalytics.CMS_DELTA, 16 );
+        CountMinSketch right = new CountMinSketch( ApproximateAnalytics.CMS_EPSILON, ApproximateAnalytics.CMS_DELTA, 16 );
+        Random random = new Random( 11 );
+        for ( int i = 0; i < N; i++ )
+        {
+            // Zipf-like: a handful of items dominate, the tail is long
+            String item = "item-" + (int) Math.floor( Math.pow( random.nextDouble(), 4 ) * 10000 );
+            exact.merge( item, 1L, Long::sum );
+            ( i % 2 == 0 ? left : right ).add( item );
+        }
+        left.merge( right );
+
+        int overBound = 0;
+        for ( Map.Entry<String, Long> entry : exact.entrySet() )
+        {
+            long estimate = left.estimate( entry.getKey() );
+            assertTrue( estimate >= entry.getValue() );
+            if ( estimate - entry.getValue() > left.errorBound() )
+            {
+                overBound++;
+            }
+        }
+        assertTrue( "over bound: " + overBound, overBound <= exact.size() * ApproximateAnalytics.CMS_DELTA );
+
+        Set<String> reported = left.heavyHitters( 0.01 ).stream()
+                .map( Map.Entry::getKey ).collect( Collectors.toSet() );
+        for ( Map.Entry<String, Long> entry : exact.entrySet() )
+        {
+            if ( entry.getValue() >= 0.01 * N + left.errorBound() )
+            {
+                assertTrue( entry.getKey() + " missing", reported.contains( entry.getKey() ) );
+            }
+        }
+    }
+
+    public void testFrequenciesOfOrderItemsWithinErrorBound()
+    {
+        List<OrderProcessingSystem.Order> orders = new ArrayList<>();
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random( 13 );
+        LocalDateTime date = LocalDateTime.of( 2024, 1, 18, 11, 0 );
+        for ( int i = 0; i < N / 4; i++ )
+        {
+            List<String> items = new ArrayList<>();
+            for ( int l = random.nextInt( 4 ); l >= 0; l-- )
+            {
+                String item = "sku-" + (int) Math.floor( Math.pow( random.nextDouble(), 4 ) * 5000 );
+                items.add( item );
+                exact.merge( item, 1L, Long::sum );
+            }
+            orders.add( new OrderProcessingSystem.Order( "O" + i, "Customer", date, 10, "PENDING", items, "Mumbai" ) );
+        }
+        CountMinSketch sketch = BlockSpliterator.parallelStream( orders, false )
+                .collect( ApproximateAnalytics.frequencies( OrderProcessingSystem.Order::getItems ) );
+
+        long total = exact.values().stream().mapToLong( Long::longValue ).sum();
+        assertEquals( total, sketch.getTotalCount() );
+        int overBound = 0;
+        for ( Map.Entry<String, Long> entry : exact.entrySet() )
+        {
+            long estimate = sketch.estimate( entry.getKey() );
+            assertTrue( entry.getKey(), estimate >= entry.getValue() );
+            if ( estimate - entry.getValue() > sketch.errorBound() )
+            {
+                overBound++;
+            }
+        }
+        assertTrue( "over bound: " + overBound, overBound <= exact.size() * ApproximateAnalytics.CMS_DELTA );
+
+        Map<String, Long> reported = new HashMap<>();
+        for ( Map.Entry<String, Long> hitter : sketch.heavyHitters( ApproximateAnalytics.HEAVY_HITTER_FRACTION ) )
+        {
+            reported.put( hitter.getKey(), hitter.getValue() );
+        }
+        for ( Map.Entry<String, Long> entry : exact.entrySet() )
+        {
+            if ( entry.getValue() >= ApproximateAnalytics.HEAVY_HITTER_FRACTION * total )
+            {
+                assertTrue( entry.getKey() + " missing", reported.containsKey( entry.getKey() ) );
+            }
+        }
+        for ( Map.Entry<String, Long> hitter : reported.entrySet() )
+        {
+            // Anything reported is at most one error bound short of the threshold
+            assertTrue( hitter.getKey(), exact.get( hitter.getKey() )
+                    >= ApproximateAnalytics.HEAVY_HITTER_FRACTION * total - sketch.errorBound() );
+        }
+    }
+
+    private static double exactRank( double[] sorted, double value )
+    {
+        int index = Arrays.binarySearch( sorted, value );
+        if ( index < 0 )
+        {
+            index = -index - 1;
+        }
+        else
+        {
+            while ( index + 1 < sorted.length && sorted[index + 1] == value )
+            {
+                index++;
+            }
+            index++;
+        }
+        return (double) index / sorted.length;
+    }
+}
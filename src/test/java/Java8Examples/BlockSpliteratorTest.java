@@ -0,0 +1,127 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.stream.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Splits must cut on block boundaries and cover every element exactly once, in order.
+ */
+public class BlockSpliteratorTest
+    extends TestCase
+{
+    public BlockSpliteratorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( BlockSpliteratorTest.class );
+    }
+
+    public void testSplitsDownToSingleElements()
+    {
+        List<Integer> leaves = new ArrayList<>();
+        List<Long> leafSizes = new ArrayList<>();
+        split( BlockSpliterator.of( range( 7 ), 1, true ), leaves, leafSizes );
+
+        assertEquals( range( 7 ), leaves );
+        assertEquals( Collections.nCopies( 7, 1L ), leafSizes );
+    }
+
+    public void testSplitsStopAtWholeBlocks()
+    {
+        List<Integer> leaves = new ArrayList<>();
+        List<Long> leafSizes = new ArrayList<>();
+        split( BlockSpliterator.of( range( 10 ), 3, true ), leaves, leafSizes );
+
+        // Only the last block may be short
+        assertEquals( range( 10 ), leaves );
+        assertEquals( Arrays.asList( 3L, 3L, 3L, 1L ), leafSizes );
+    }
+
+    public void testForEachRemainingAfterTryAdvance()
+    {
+        BlockSpliterator<Integer> spliterator = BlockSpliterator.of( range( 5 ), 2, true );
+        List<Integer> seen = new ArrayList<>();
+        assertTrue( spliterator.tryAdvance( seen::add ) );
+        assertTrue( spliterator.tryAdvance( seen::add ) );
+        assertEquals( 3, spliterator.estimateSize() );
+
+        spliterator.forEachRemaining( seen::add );
+        assertEquals( range( 5 ), seen );
+        assertEquals( 0, spliterator.estimateSize() );
+        assertFalse( spliterator.tryAdvance( seen::add ) );
+        spliterator.forEachRemaining( seen::add );
+        assertEquals( 5, seen.size() );
+    }
+
+    public void testSizeAndCharacteristics()
+    {
+        BlockSpliterator<Integer> ordered = BlockSpliterator.of( range( 9 ), 4, true );
+        assertEquals( 9, ordered.estimateSize() );
+        assertEquals( 9, ordered.getExactSizeIfKnown() );
+        assertTrue( ordered.hasCharacteristics( Spliterator.SIZED ) );
+        assertTrue( ordered.hasCharacteristics( Spliterator.SUBSIZED ) );
+        assertTrue( ordered.hasCharacteristics( Spliterator.ORDERED ) );
+
+        Spliterator<Integer> prefix = ordered.trySplit();
+        assertEquals( 4, prefix.estimateSize() );
+        assertEquals( 5, ordered.estimateSize() );
+        assertEquals( ordered.characteristics(), prefix.characteristics() );
+
+        BlockSpliterator<Integer> unordered = BlockSpliterator.of( range( 9 ), 4, false );
+        assertFalse( unordered.hasCharacteristics( Spliterator.ORDERED ) );
+        assertFalse( unordered.trySplit().hasCharacteristics( Spliterator.ORDERED ) );
+
+        try
+        {
+            BlockSpliterator.of( range( 9 ), 0, true );
+            fail( "accepted an empty block" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    public void testParallelStreamMatchesSequential()
+    {
+        List<Integer> values = range( 10007 );
+        for ( int blockSize : new int[] { 1, 64, 1000, 20000 } )
+        {
+            List<Integer> sequential = StreamSupport.stream( BlockSpliterator.of( values, blockSize, true ), false )
+                .map( i -> i * 3 ).collect( Collectors.toList() );
+            List<Integer> parallel = StreamSupport.stream( BlockSpliterator.of( values, blockSize, true ), true )
+                .map( i -> i * 3 ).collect( Collectors.toList() );
+            long parallelSum = StreamSupport.stream( BlockSpliterator.of( values, blockSize, false ), true )
+                .mapToLong( i -> i ).sum();
+
+            assertEquals( "block " + blockSize, sequential, parallel );
+            assertEquals( "block " + blockSize, 10007L * 10006 / 2, parallelSum );
+        }
+    }
+
+    // Splits recursively and collects the leaves from left to right
+    private static void split( Spliterator<Integer> spliterator, List<Integer> leaves, List<Long> leafSizes )
+    {
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        if ( prefix == null )
+        {
+            leafSizes.add( spliterator.estimateSize() );
+            spliterator.forEachRemaining( leaves::add );
+            return;
+        }
+        split( prefix, leaves, leafSizes );
+        split( spliterator, leaves, leafSizes );
+    }
+
+    private static List<Integer> range( int size )
+    {
+        return IntStream.range( 0, size ).boxed().collect( Collectors.toList() );
+    }
+}
@@ -0,0 +1,220 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * The partitioned join must attribute line revenue and stock depletion like a plain nested loop, for any partition count.
+ */
+public class CrossModuleJoinEngineTest
+    extends TestCase
+{
+    private static final LocalDateTime DATE = LocalDateTime.of( 2024, 1, 18, 11, 0 );
+    private static final LocalDate EXPIRY = LocalDate.of( 2030, 1, 1 );
+
+    private final List<InventoryManagementSystem.Product> catalog = Arrays.asList(
+            product( "J001", "Join Laptop", "Join Electronics", 5 ),
+            product( "J002", "Join Phone", "Join Electronics", 40 ),
+            product( "J003", "Join Chair", "Join Furniture", 2 ),
+            product( "J004", "Join Lamp", "Join Furniture", 7 ) );
+
+    public CrossModuleJoinEngineTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( CrossModuleJoinEngineTest.class );
+    }
+
+    public void testLineRevenueIsAttributedByCategory()
+    {
+        List<OrderProcessingSystem.Order> orders = Arrays.asList(
+                order( 200, "PENDING", "Join Laptop", "Join Chair" ),
+                order( 300, "DELIVERED", "Join Laptop", "Join Unknown" ),
+                // Neither cancelled nor zero-amount orders are billed
+                order( 1000, "CANCELLED", "Join Laptop" ),
+                order( 0, "PENDING", "Join Phone" ) );
+
+        CrossModuleJoinEngine.JoinResult result = new CrossModuleJoinEngine( CrossModuleJoinEngine.JoinKey.NAME, 4 )
+                .join( orders, catalog );
+
+        Map<String, Double> expected = new TreeMap<>();
+        expected.put( "Join Electronics", 250.0 );
+        expected.put( "Join Furniture", 100.0 );
+        expected.put( CrossModuleJoinEngine.UNMATCHED, 150.0 );
+        assertEquals( expected, result.getRevenueByCategory() );
+        assertEquals( 3, result.getMatchedLines() );
+        assertEquals( 1, result.getUnmatchedLines() );
+        assertEquals( 350.0, result.getMatchedRevenue(), 0.0 );
+
+        Map<String, Double> sales = new TreeMap<>();
+        for ( FinancialCalculator.Transaction transaction : result.getSalesTransactions() )
+        {
+            assertEquals( "INCOME", transaction.getType() );
+            sales.put( transaction.getId(), transaction.getAmount() );
+        }
+        assertEquals( "{SALES-JOIN ELECTRONICS=250.0, SALES-JOIN FURNITURE=100.0}", sales.toString() );
+    }
+
+    public void testDepletionCountsOrderedUnitsPerProduct()
+    {
+        List<OrderProcessingSystem.Order> orders = Arrays.asList(
+                order( 30, "PENDING", "Join Laptop", "Join Laptop", "Join Chair" ),
+                order( 40, "PENDING", "Join Laptop", "Join Laptop", "Join Laptop", "Join Lamp" ) );
+
+        CrossModuleJoinEngine.JoinResult result = CrossModuleJoinEngine.withDefaults().join( orders, catalog );
+
+        Map<String, Long> ordered = new HashMap<>();
+        for ( CrossModuleJoinEngine.StockDepletion depletion : result.getDepletion() )
+        {
+            ordered.put( depletion.getProduct().getName(), depletion.getUnitsOrdered() );
+        }
+        assertEquals( Long.valueOf( 5 ), ordered.get( "Join Laptop" ) );
+        assertEquals( Long.valueOf( 0 ), ordered.get( "Join Phone" ) );
+        assertEquals( Long.valueOf( 1 ), ordered.get( "Join Chair" ) );
+        assertEquals( Long.valueOf( 1 ), ordered.get( "Join Lamp" ) );
+
+        // Laptop 5-5=0, Chair 2-1=1, Lamp 7-1=6, Phone 40: lowest remaining first
+        List<String> depleted = new ArrayList<>();
+        for ( CrossModuleJoinEngine.StockDepletion depletion : result.getDepletedBelow( 7 ) )
+        {
+            depleted.add( depletion.getProduct().getName() );
+        }
+        assertEquals( Arrays.asList( "Join Laptop", "Join Chair", "Join Lamp" ), depleted );
+        assertTrue( result.getDepletedBelow( 0 ).isEmpty() );
+    }
+
+    public void testPartitionCountDoesNotChangeTheResult()
+    {
+        List<OrderProcessingSystem.Order> orders = randomOrders( 2000 );
+        Map<String, Long> expected = nestedLoopRevenueCents( orders );
+
+        for ( int partitions : new int[] { 1, 2, 8, 64 } )
+        {
+            CrossModuleJoinEngine.JoinResult result =
+                new CrossModuleJoinEngine( CrossModuleJoinEngine.JoinKey.NAME, partitions ).join( orders, catalog );
+            assertEquals( "partitions " + partitions, expected, result.getRevenueCentsByCategory() );
+            long lines = 0;
+            for ( OrderProcessingSystem.Order order : orders )
+            {
+                lines += order.getAmount() > 0 ? order.getItemCount() : 0;
+            }
+            assertEquals( lines, result.getMatchedLines() + result.getUnmatchedLines() );
+        }
+    }
+
+    public void testLineCentsAddUpToTheOrderAmount()
+    {
+        OrderProcessingSystem.Order order = order( 10.00, "PENDING", "Join Laptop", "Join Phone", "Join Chair" );
+        assertEquals( 334, CrossModuleJoinEngine.lineCents( order, 0 ) );
+        assertEquals( 333, CrossModuleJoinEngine.lineCents( order, 1 ) );
+        assertEquals( 333, CrossModuleJoinEngine.lineCents( order, 2 ) );
+
+        CrossModuleJoinEngine.JoinResult result = CrossModuleJoinEngine.withDefaults()
+                .join( Collections.singletonList( order ), catalog );
+        assertEquals( 1000, result.getMatchedRevenueCents() );
+        assertEquals( "10.00", CrossModuleJoinEngine.formatCents( result.getMatchedRevenueCents() ) );
+        assertEquals( "-0.05", CrossModuleJoinEngine.formatCents( -5 ) );
+    }
+
+    public void testJoinOnProductId()
+    {
+        List<OrderProcessingSystem.Order> orders = Arrays.asList( order( 100, "PENDING", "J003", "Join Chair" ) );
+
+        CrossModuleJoinEngine.JoinResult result =
+            new CrossModuleJoinEngine( CrossModuleJoinEngine.JoinKey.PRODUCT_ID, 2 ).join( orders, catalog );
+
+        assertEquals( 1, result.getMatchedLines() );
+        assertEquals( 1, result.getUnmatchedLines() );
+        assertEquals( 50.0, result.getRevenueByCategory().get( "Join Furniture" ), 0.0 );
+    }
+
+    public void testFirstProductWinsOnDuplicateKeys()
+    {
+        List<InventoryManagementSystem.Product> duplicates = Arrays.asList(
+                product( "J010", "Join Desk", "Join Furniture", 3 ),
+                product( "J011", "Join Desk", "Join Electronics", 3 ) );
+
+        CrossModuleJoinEngine.JoinResult result = new CrossModuleJoinEngine( CrossModuleJoinEngine.JoinKey.NAME, 1 )
+                .join( Arrays.asList( order( 80, "PENDING", "Join Desk" ) ), duplicates );
+
+        assertEquals( Collections.singletonMap( "Join Furniture", 80.0 ), result.getRevenueByCategory() );
+        assertEquals( 1, result.getDepletion().get( 0 ).getUnitsOrdered() );
+        assertEquals( 0, result.getDepletion().get( 1 ).getUnitsOrdered() );
+    }
+
+    public void testPartitionsMustBeAPowerOfTwo()
+    {
+        try
+        {
+            new CrossModuleJoinEngine( CrossModuleJoinEngine.JoinKey.NAME, 6 );
+            fail( "accepted 6 partitions" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage().contains( "6" ) );
+        }
+    }
+
+    private Map<String, Long> nestedLoopRevenueCents( List<OrderProcessingSystem.Order> orders )
+    {
+        Map<String, Long> revenue = new TreeMap<>();
+        for ( OrderProcessingSystem.Order order : orders )
+        {
+            if ( order.getAmount() <= 0 || "CANCELLED".equals( order.getStatus() ) )
+            {
+                continue;
+            }
+            long cents = Math.round( order.getAmount() * 100 );
+            for ( int line = 0; line < order.getItemCount(); line++ )
+            {
+                String category = CrossModuleJoinEngine.UNMATCHED;
+                for ( InventoryManagementSystem.Product product : catalog )
+                {
+                    if ( product.getName().equals( order.getItem( line ) ) )
+                    {
+                        category = product.getCategory();
+                        break;
+                    }
+                }
+                // First lines take the remainder cents
+                long share = cents / order.getItemCount() + ( line < cents % order.getItemCount() ? 1 : 0 );
+                revenue.merge( category, share, Long::sum );
+            }
+        }
+        return revenue;
+    }
+
+    private static List<OrderProcessingSystem.Order> randomOrders( int count )
+    {
+        String[] items = { "Join Laptop", "Join Phone", "Join Chair", "Join Lamp", "Join Unknown" };
+        Random random = new Random( 7 );
+        List<OrderProcessingSystem.Order> orders = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            String[] lines = new String[1 + random.nextInt( 4 )];
+            for ( int l = 0; l < lines.length; l++ )
+            {
+                lines[l] = items[random.nextInt( items.length )];
+            }
+            orders.add( order( random.nextInt( 100000 ) / 100.0, "PENDING", lines ) );
+        }
+        return orders;
+    }
+
+    private static OrderProcessingSystem.Order order( double amount, String status, String... items )
+    {
+        return new OrderProcessingSystem.Order( "O", "Customer", DATE, amount, status, Arrays.asList( items ), "Mumbai" );
+    }
+
+    private static InventoryManagementSystem.Product product( String id, String name, String category, int quantity )
+    {
+        return new InventoryManagementSystem.Product( id, name, category, 10.0, quantity, 4.0, EXPIRY );
+    }
+}
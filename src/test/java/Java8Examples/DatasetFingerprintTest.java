@@ -0,0 +1,114 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.*;
+import java.util.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Fingerprints must depend on dataset content only, so the sample data hits the cache on every run.
+ */
+public class DatasetFingerprintTest
+    extends TestCase
+{
+    public DatasetFingerprintTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( DatasetFingerprintTest.class );
+    }
+
+    public void testSampleDatasetsAreStable()
+    {
+        assertEquals( DatasetFingerprint.ofEmployees( MainExecutor.createSampleEmployees() ),
+                DatasetFingerprint.ofEmployees( MainExecutor.createSampleEmployees() ) );
+        assertEquals( DatasetFingerprint.ofTransactions( MainExecutor.createSampleTransactions() ),
+                DatasetFingerprint.ofTransactions( MainExecutor.createSampleTransactions() ) );
+        assertEquals( DatasetFingerprint.ofProducts( MainExecutor.createSampleProducts() ),
+                DatasetFingerprint.ofProducts( MainExecutor.createSampleProducts() ) );
+        assertEquals( DatasetFingerprint.ofOrders( MainExecutor.createSampleOrders() ),
+                DatasetFingerprint.ofOrders( MainExecutor.createSampleOrders() ) );
+    }
+
+    public void testAnyFieldChangesTheFingerprint()
+    {
+        long base = DatasetFingerprint.ofOrders( Collections.singletonList( order( "Mumbai", 100.0 ) ) );
+        assertEquals( base, DatasetFingerprint.ofOrders( Collections.singletonList( order( "Mumbai", 100.0 ) ) ) );
+        assertFalse( base == DatasetFingerprint.ofOrders( Collections.singletonList( order( "Delhi", 100.0 ) ) ) );
+        assertFalse( base == DatasetFingerprint.ofOrders( Collections.singletonList( order( "Mumbai", 100.01 ) ) ) );
+        assertFalse( base == DatasetFingerprint.ofOrders( Collections.singletonList( order( null, 100.0 ) ) ) );
+    }
+
+    public void testOrderAndSizeMatter()
+    {
+        List<OrderProcessingSystem.Order> orders = Arrays.asList( order( "Mumbai", 1.0 ), order( "Delhi", 2.0 ) );
+        List<OrderProcessingSystem.Order> reversed = Arrays.asList( orders.get( 1 ), orders.get( 0 ) );
+        assertFalse( DatasetFingerprint.ofOrders( orders ) == DatasetFingerprint.ofOrders( reversed ) );
+        assertFalse( DatasetFingerprint.ofOrders( orders ) == DatasetFingerprint.ofOrders( orders.subList( 0, 1 ) ) );
+    }
+
+    public void testSnapshotsAreFingerprintedByFile() throws IOException
+    {
+        Path directory = Files.createTempDirectory( "fingerprint" );
+        Path file = directory.resolve( "orders.snap" );
+        Properties props = new Properties();
+        props.setProperty( "snapshot.dir", directory.toString() );
+        AppConfig.override( props );
+        try
+        {
+            // The first load writes the snapshot, the second one opens it lazily
+            MainExecutor.loadDataset( "orders", SnapshotSchema.ORDERS, MainExecutor::createSampleOrders );
+            List<OrderProcessingSystem.Order> orders =
+                MainExecutor.loadDataset( "orders", SnapshotSchema.ORDERS, MainExecutor::createSampleOrders );
+            long fingerprint = MainExecutor.fingerprint( orders, records -> {
+                throw new AssertionError( "decoded the snapshot records" );
+            } );
+            try ( Snapshot<OrderProcessingSystem.Order> snapshot = Snapshot.open( file, SnapshotSchema.ORDERS ) )
+            {
+                assertEquals( fingerprint, DatasetFingerprint.ofSnapshot( snapshot ) );
+            }
+
+            // Rewritten data gets a new fingerprint
+            SnapshotWriter.write( file, SnapshotSchema.ORDERS, Collections.singletonList( order( "Mumbai", 1.0 ) ) );
+            Files.setLastModifiedTime( file, FileTime.fromMillis( System.currentTimeMillis() + 2000 ) );
+            try ( Snapshot<OrderProcessingSystem.Order> snapshot = Snapshot.open( file, SnapshotSchema.ORDERS ) )
+            {
+                assertFalse( fingerprint == DatasetFingerprint.ofSnapshot( snapshot ) );
+            }
+
+            // Lists that are not snapshot views are hashed by content
+            List<OrderProcessingSystem.Order> sample = MainExecutor.createSampleOrders();
+            assertEquals( DatasetFingerprint.ofOrders( sample ),
+                MainExecutor.fingerprint( sample, DatasetFingerprint::ofOrders ) );
+        }
+        finally
+        {
+            MainExecutor.closeSnapshots();
+            Path original = AppConfig.watchableFile();
+            if ( original != null )
+            {
+                AppConfig.reload( original );
+            }
+            else
+            {
+                AppConfig.override( new Properties() );
+            }
+            Files.deleteIfExists( file );
+            Files.delete( directory );
+        }
+    }
+
+    private static OrderProcessingSystem.Order order( String address, double amount )
+    {
+        return new OrderProcessingSystem.Order( "ORD001", "Rajesh Kumar", LocalDateTime.of( 2024, 1, 18, 11, 0 ),
+                amount, "PENDING", Arrays.asList( "Laptop", "Mouse" ), address );
+    }
+}
@@ -0,0 +1,207 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Date range queries over the join-date index must match counting the employees one by one,
+ * including on band boundaries and for leap-day hires.
+ */
+public class EmployeeCohortAnalyticsTest
+    extends TestCase
+{
+    private static final String DEVELOPMENT = "Cohort Development";
+    private static final String SALES = "Cohort Sales";
+
+    public EmployeeCohortAnalyticsTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( EmployeeCohortAnalyticsTest.class );
+    }
+
+    public void testHeadcountIncludesTheJoinDay()
+    {
+        EmployeeCohortAnalytics analytics = new EmployeeCohortAnalytics( Arrays.asList(
+                employee( 2020, 3, 10, 50000, DEVELOPMENT ),
+                employee( 2020, 3, 10, 60000, SALES ),
+                employee( 2021, 7, 1, 70000, DEVELOPMENT ) ) );
+
+        assertEquals( 0, analytics.headcountOn( LocalDate.of( 2020, 3, 9 ) ) );
+        assertEquals( 2, analytics.headcountOn( LocalDate.of( 2020, 3, 10 ) ) );
+        assertEquals( 3, analytics.headcountOn( LocalDate.of( 2021, 7, 1 ) ) );
+        assertEquals( 1, analytics.headcountOn( LocalDate.of( 2021, 6, 30 ), DEVELOPMENT ) );
+        assertEquals( 2, analytics.headcountOn( LocalDate.of( 2021, 7, 1 ), DEVELOPMENT ) );
+        assertEquals( 0, analytics.headcountOn( LocalDate.of( 2030, 1, 1 ), "Cohort Nobody" ) );
+    }
+
+    public void testJoinedBetweenIsHalfOpen()
+    {
+        EmployeeCohortAnalytics analytics = new EmployeeCohortAnalytics( Arrays.asList(
+                employee( 2022, 1, 1, 40000, DEVELOPMENT ),
+                employee( 2022, 6, 30, 50000, DEVELOPMENT ),
+                employee( 2022, 7, 1, 90000, SALES ) ) );
+
+        EmployeeCohortAnalytics.CohortStats firstHalf =
+            analytics.joinedBetween( LocalDate.of( 2022, 1, 1 ), LocalDate.of( 2022, 7, 1 ) );
+        assertEquals( 2, firstHalf.getHeadcount() );
+        assertEquals( 45000.0, firstHalf.getAverageSalary(), 1e-9 );
+        assertEquals( "[2022-01-01 .. 2022-07-01)", firstHalf.getLabel() );
+
+        assertEquals( 1, analytics.joinedBetween( LocalDate.of( 2022, 7, 1 ), LocalDate.of( 2022, 7, 2 ) )
+                .getHeadcount() );
+        assertEquals( 0, analytics.joinedBetween( LocalDate.of( 2022, 7, 1 ), LocalDate.of( 2022, 7, 1 ) )
+                .getHeadcount() );
+        assertEquals( 1, analytics.joinedBetween( LocalDate.of( 2022, 1, 1 ), LocalDate.of( 2023, 1, 1 ), SALES )
+                .getHeadcount() );
+        assertEquals( 0.0, analytics.joinedBetween( LocalDate.of( 2010, 1, 1 ), LocalDate.of( 2011, 1, 1 ) )
+                .getAverageSalary(), 0.0 );
+    }
+
+    public void testBandBoundariesCountCompletedYears()
+    {
+        LocalDate asOf = LocalDate.of( 2024, 5, 15 );
+        EmployeeCohortAnalytics analytics = new EmployeeCohortAnalytics( Arrays.asList(
+                // Exactly two years on asOf: in 2-5, not 0-2
+                employee( 2022, 5, 15, 1000, DEVELOPMENT ),
+                // One day short of two years
+                employee( 2022, 5, 16, 2000, DEVELOPMENT ),
+                // Exactly five years: in 5+
+                employee( 2019, 5, 15, 3000, DEVELOPMENT ),
+                // One day short of five years
+                employee( 2019, 5, 16, 4000, DEVELOPMENT ),
+                // Joins on asOf: zero years, counted
+                employee( 2024, 5, 15, 5000, DEVELOPMENT ),
+                // Joins after asOf: in no band
+                employee( 2024, 5, 16, 6000, DEVELOPMENT ) ) );
+
+        List<EmployeeCohortAnalytics.CohortStats> bands = analytics.tenureBands( asOf, 2, 5 );
+        assertEquals( 3, bands.size() );
+        assertBand( bands.get( 0 ), "0-2 years", 2, 3500 );
+        assertBand( bands.get( 1 ), "2-5 years", 2, 2500 );
+        assertBand( bands.get( 2 ), "5+ years", 1, 3000 );
+        assertBand( analytics.tenureBand( asOf, 2, 3, DEVELOPMENT ), DEVELOPMENT + " 2-3 years", 1, 1000 );
+    }
+
+    public void testLeapDayHiresCompleteAYearOnMarchFirst()
+    {
+        EmployeeCohortAnalytics analytics = new EmployeeCohortAnalytics(
+                Collections.singletonList( employee( 2020, 2, 29, 1000, DEVELOPMENT ) ) );
+
+        assertEquals( 0, analytics.tenureBand( LocalDate.of( 2021, 2, 28 ), 1, 2 ).getHeadcount() );
+        assertEquals( 1, analytics.tenureBand( LocalDate.of( 2021, 3, 1 ), 1, 2 ).getHeadcount() );
+        // Four years later there is a Feb 29 again
+        assertEquals( 0, analytics.tenureBand( LocalDate.of( 2024, 2, 28 ), 4, 5 ).getHeadcount() );
+        assertEquals( 1, analytics.tenureBand( LocalDate.of( 2024, 2, 29 ), 4, 5 ).getHeadcount() );
+        assertEquals( 1, analytics.cohort( 2020 ).getHeadcount() );
+        assertEquals( 1, analytics.joinedBetween( LocalDate.of( 2020, 2, 29 ), LocalDate.of( 2020, 3, 1 ) )
+                .getHeadcount() );
+    }
+
+    public void testLeapDayAsOfDate()
+    {
+        LocalDate asOf = LocalDate.of( 2024, 2, 29 );
+        EmployeeCohortAnalytics analytics = new EmployeeCohortAnalytics( Arrays.asList(
+                // asOf minus one year is 2023-02-28
+                employee( 2023, 2, 28, 1000, DEVELOPMENT ),
+                employee( 2023, 3, 1, 2000, DEVELOPMENT ) ) );
+
+        assertEquals( 1, analytics.tenureBand( asOf, 1, 2 ).getHeadcount() );
+        assertEquals( 1, analytics.tenureBand( asOf, 0, 1 ).getHeadcount() );
+    }
+
+    public void testBandsAndCohortsMatchCountingOneByOne()
+    {
+        List<EmployeeDataProcessor.Employee> employees = new ArrayList<>();
+        Random random = new Random( 3 );
+        for ( int i = 0; i < 3000; i++ )
+        {
+            employees.add( employee( 2008 + random.nextInt( 16 ), 1 + random.nextInt( 12 ), 1 + random.nextInt( 28 ),
+                    30000 + random.nextInt( 90000 ), random.nextBoolean() ? DEVELOPMENT : SALES ) );
+        }
+        EmployeeCohortAnalytics analytics = new EmployeeCohortAnalytics( employees );
+        LocalDate asOf = LocalDate.of( 2024, 2, 29 );
+
+        int[][] bands = { { 0, 1 }, { 1, 3 }, { 3, 10 }, { 10, Integer.MAX_VALUE } };
+        for ( int[] band : bands )
+        {
+            int expected = 0;
+            double salary = 0;
+            for ( EmployeeDataProcessor.Employee employee : employees )
+            {
+                if ( !employee.getJoinDate().isAfter( asOf ) )
+                {
+                    int years = Period.between( employee.getJoinDate(), asOf ).getYears();
+                    if ( years >= band[0] && years < band[1] )
+                    {
+                        expected++;
+                        salary += employee.getSalary();
+                    }
+                }
+            }
+            EmployeeCohortAnalytics.CohortStats stats = analytics.tenureBand( asOf, band[0], band[1] );
+            assertEquals( stats.getLabel(), expected, stats.getHeadcount() );
+            assertEquals( stats.getLabel(), salary / expected, stats.getAverageSalary(), 1e-6 );
+        }
+
+        List<EmployeeCohortAnalytics.CohortStats> cohorts = analytics.cohorts();
+        assertEquals( 16, cohorts.size() );
+        int total = 0;
+        for ( EmployeeCohortAnalytics.CohortStats cohort : cohorts )
+        {
+            total += cohort.getHeadcount();
+        }
+        assertEquals( employees.size(), total );
+    }
+
+    public void testLatestJoinDateAndInvalidBands()
+    {
+        assertFalse( new EmployeeCohortAnalytics( Collections.<EmployeeDataProcessor.Employee>emptyList() )
+                .latestJoinDate().isPresent() );
+        EmployeeCohortAnalytics analytics = new EmployeeCohortAnalytics( Arrays.asList(
+                employee( 2021, 4, 1, 1000, DEVELOPMENT ),
+                employee( 2019, 4, 1, 1000, SALES ) ) );
+        assertEquals( LocalDate.of( 2021, 4, 1 ), analytics.latestJoinDate().get() );
+
+        try
+        {
+            analytics.tenureBands( LocalDate.of( 2024, 1, 1 ), 3, 3 );
+            fail( "accepted equal boundaries" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "increasing" ) );
+        }
+        try
+        {
+            analytics.tenureBand( LocalDate.of( 2024, 1, 1 ), -1, 2 );
+            fail( "accepted a negative band" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "-1" ) );
+        }
+    }
+
+    private static void assertBand( EmployeeCohortAnalytics.CohortStats band, String label, int headcount,
+                                    double averageSalary )
+    {
+        assertEquals( label, band.getLabel() );
+        assertEquals( label, headcount, band.getHeadcount() );
+        assertEquals( label, averageSalary, band.getAverageSalary(), 1e-9 );
+    }
+
+    private static EmployeeDataProcessor.Employee employee( int year, int month, int day, double salary,
+                                                            String department )
+    {
+        return new EmployeeDataProcessor.Employee( "C" + year + month + day, "Cohort Employee", salary, department,
+                LocalDate.of( year, month, day ), 30, Collections.<String>emptyList() );
+    }
+}
@@ -0,0 +1,190 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * A small memory budget must spill and merge into a sorted, stable stream and leave no run files behind.
+ */
+public class ExternalSorterTest
+    extends TestCase
+{
+    private static final int ORDERS = 10000;
+    private static final long SMALL_BUDGET = 20 * 1024;
+
+    private static final Comparator<OrderProcessingSystem.Order> BY_AMOUNT =
+        Comparator.comparingDouble( OrderProcessingSystem.Order::getAmount );
+
+    private Path directory;
+
+    public ExternalSorterTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ExternalSorterTest.class );
+    }
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory( "external-sort" );
+    }
+
+    @Override
+    protected void tearDown() throws IOException
+    {
+        try ( Stream<Path> files = Files.list( directory ) )
+        {
+            for ( Path file : files.collect( Collectors.toList() ) )
+            {
+                Files.delete( file );
+            }
+        }
+        Files.delete( directory );
+    }
+
+    public void testSmallBudgetSpillsAndMergesStably() throws IOException
+    {
+        ExternalSorter<OrderProcessingSystem.Order> sorter =
+            new ExternalSorter<>( RecordCodecs.ORDER, BY_AMOUNT, SMALL_BUDGET, directory );
+        List<OrderProcessingSystem.Order> sorted;
+        try ( Stream<OrderProcessingSystem.Order> stream = sorter.sort( orders().iterator() ) )
+        {
+            sorted = stream.collect( Collectors.toList() );
+        }
+
+        assertEquals( ORDERS, sorted.size() );
+        for ( int i = 1; i < sorted.size(); i++ )
+        {
+            OrderProcessingSystem.Order previous = sorted.get( i - 1 );
+            OrderProcessingSystem.Order current = sorted.get( i );
+            assertTrue( "out of order at " + i, previous.getAmount() <= current.getAmount() );
+            // Equal amounts keep their input order
+            if ( previous.getAmount() == current.getAmount() )
+            {
+                assertTrue( "unstable at " + i, sequence( previous ) < sequence( current ) );
+            }
+        }
+        ExternalSorter.Stats stats = sorter.getLastStats();
+        assertEquals( ORDERS, stats.getRecords() );
+        assertTrue( stats.toString(), stats.getRuns() > ExternalSorter.MAX_MERGE_FAN_IN );
+        assertTrue( stats.toString(), stats.getMergePasses() > 0 );
+        assertTrue( stats.getSpilledBytes() > 0 );
+        assertNoRunFiles();
+    }
+
+    public void testInputWithinBudgetStaysInMemory() throws IOException
+    {
+        ExternalSorter<OrderProcessingSystem.Order> sorter =
+            new ExternalSorter<>( RecordCodecs.ORDER, BY_AMOUNT, 64L * 1024 * 1024, directory );
+        try ( Stream<OrderProcessingSystem.Order> stream = sorter.sort( orders().subList( 0, 100 ).iterator() ) )
+        {
+            assertEquals( 100, stream.count() );
+        }
+        assertTrue( sorter.getLastStats().isInMemory() );
+        assertNoRunFiles();
+    }
+
+    public void testClosingAPartlyReadStreamDeletesTheRuns() throws IOException
+    {
+        ExternalSorter<OrderProcessingSystem.Order> sorter =
+            new ExternalSorter<>( RecordCodecs.ORDER, BY_AMOUNT, SMALL_BUDGET, directory );
+        try ( Stream<OrderProcessingSystem.Order> stream = sorter.sort( orders().iterator() ) )
+        {
+            assertEquals( 10, stream.limit( 10 ).count() );
+        }
+        assertNoRunFiles();
+    }
+
+    public void testComparatorFailingWhileSpillingLeavesNoRunFiles() throws IOException
+    {
+        Comparator<OrderProcessingSystem.Order> failsOnPoison = ( a, b ) -> {
+            if ( sequence( a ) == ORDERS / 2 || sequence( b ) == ORDERS / 2 )
+            {
+                throw new IllegalStateException( "poison" );
+            }
+            return BY_AMOUNT.compare( a, b );
+        };
+        ExternalSorter<OrderProcessingSystem.Order> sorter =
+            new ExternalSorter<>( RecordCodecs.ORDER, failsOnPoison, SMALL_BUDGET, directory );
+        try
+        {
+            sorter.sort( orders().iterator() ).close();
+            fail( "sorted past a failing comparator" );
+        }
+        catch ( IllegalStateException e )
+        {
+            assertEquals( "poison", e.getMessage() );
+        }
+        assertNoRunFiles();
+    }
+
+    public void testComparatorFailingWhileMergingLeavesNoRunFiles() throws IOException
+    {
+        AtomicBoolean failing = new AtomicBoolean();
+        Comparator<OrderProcessingSystem.Order> failsOnDemand = ( a, b ) -> {
+            if ( failing.get() )
+            {
+                throw new IllegalStateException( "merge" );
+            }
+            return BY_AMOUNT.compare( a, b );
+        };
+        ExternalSorter<OrderProcessingSystem.Order> sorter =
+            new ExternalSorter<>( RecordCodecs.ORDER, failsOnDemand, SMALL_BUDGET, directory );
+        Iterator<OrderProcessingSystem.Order> merged = sorter.sort( orders().iterator() ).iterator();
+        assertTrue( merged.hasNext() );
+        failing.set( true );
+        try
+        {
+            // Never closed: the failure itself has to release the runs
+            while ( merged.hasNext() )
+            {
+                merged.next();
+            }
+            fail( "merged past a failing comparator" );
+        }
+        catch ( IllegalStateException e )
+        {
+            assertEquals( "merge", e.getMessage() );
+        }
+        assertNoRunFiles();
+    }
+
+    private void assertNoRunFiles() throws IOException
+    {
+        try ( Stream<Path> files = Files.list( directory ) )
+        {
+            assertEquals( Collections.emptyList(), files.collect( Collectors.toList() ) );
+        }
+    }
+
+    private static List<OrderProcessingSystem.Order> orders()
+    {
+        List<OrderProcessingSystem.Order> orders = new ArrayList<>();
+        Random random = new Random( 42 );
+        LocalDateTime date = LocalDateTime.of( 2024, 1, 18, 11, 0 );
+        for ( int i = 0; i < ORDERS; i++ )
+        {
+            // Few distinct amounts, so most comparisons are ties
+            orders.add( new OrderProcessingSystem.Order( String.valueOf( i ), "Customer-" + random.nextInt( 100 ), date,
+                    random.nextInt( 50 ), "PENDING", Arrays.asList( "Laptop", "Mouse" ), "Mumbai" ) );
+        }
+        return orders;
+    }
+
+    private static int sequence( OrderProcessingSystem.Order order )
+    {
+        return Integer.parseInt( order.getOrderId() );
+    }
+}
@@ -0,0 +1,526 @@
+package Java8Examples;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * The publishers, processor and subscriber must never deliver more than was requested, must stop
+ * on cancel, and must end every stream with exactly one onComplete or onError.
+ */
+public class FlowTest
+    extends TestCase
+{
+    // Runs drains on the calling thread, so every signal has happened when a call returns
+    private static final Executor DIRECT = Runnable::run;
+
+    public FlowTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( FlowTest.class );
+    }
+
+    public void testAddDemandSaturates()
+    {
+        assertEquals( 5, Flow.addDemand( 2, 3 ) );
+        assertEquals( Long.MAX_VALUE, Flow.addDemand( Long.MAX_VALUE - 1, 2 ) );
+        assertEquals( Long.MAX_VALUE, Flow.addDemand( Long.MAX_VALUE, Long.MAX_VALUE ) );
+    }
+
+    public void testBufferedPublisherDeliversOnlyWhatWasRequested() throws Exception
+    {
+        BufferedPublisher<Integer> publisher = new BufferedPublisher<>( DIRECT, 8 );
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>( 2 );
+        publisher.subscribe( subscriber );
+        for ( int i = 0; i < 5; i++ )
+        {
+            assertEquals( 1, publisher.submit( i ) );
+        }
+        assertEquals( Arrays.asList( 0, 1 ), subscriber.items );
+        assertEquals( 3, publisher.getMaxBuffered() );
+
+        publisher.close();
+        // Buffered items are drained before onComplete
+        assertEquals( 0, subscriber.terminalSignals() );
+        subscriber.request( 10 );
+        assertEquals( Arrays.asList( 0, 1, 2, 3, 4 ), subscriber.items );
+        subscriber.assertCompleted();
+        assertEquals( 0, publisher.getSubscriberCount() );
+        try
+        {
+            publisher.submit( 5 );
+            fail( "submitted after close" );
+        }
+        catch ( IllegalStateException e )
+        {
+            assertTrue( e.getMessage().contains( "closed" ) );
+        }
+    }
+
+    public void testBufferedPublisherBlocksTheProducerUntilCancel() throws Exception
+    {
+        ExecutorService delivery = Executors.newSingleThreadExecutor();
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        try
+        {
+            BufferedPublisher<Integer> publisher = new BufferedPublisher<>( delivery, 1 );
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>( 0 );
+            publisher.subscribe( subscriber );
+            Future<Integer> submits = producer.submit( () ->
+            {
+                int delivered = 0;
+                for ( int i = 0; i < 3; i++ )
+                {
+                    delivered += publisher.submit( i );
+                }
+                return delivered;
+            } );
+            // The second submit waits for space that never comes
+            Thread.sleep( 100 );
+            assertFalse( submits.isDone() );
+
+            subscriber.subscription.cancel();
+            assertEquals( Integer.valueOf( 1 ), submits.get( 5, TimeUnit.SECONDS ) );
+            publisher.close();
+            delivery.submit( () -> null ).get();
+            assertTrue( subscriber.items.isEmpty() );
+            assertEquals( 0, subscriber.terminalSignals() );
+        }
+        finally
+        {
+            producer.shutdownNow();
+            delivery.shutdownNow();
+        }
+    }
+
+    public void testBufferedPublisherSignalsExactlyOneError() throws Exception
+    {
+        BufferedPublisher<Integer> publisher = new BufferedPublisher<>( DIRECT, 4 );
+        RecordingSubscriber<Integer> failing = new RecordingSubscriber<Integer>( Long.MAX_VALUE )
+        {
+            @Override
+            public void onNext( Integer item )
+            {
+                super.onNext( item );
+                if ( item == 1 )
+                {
+                    throw new IllegalStateException( "subscriber failed" );
+                }
+            }
+        };
+        RecordingSubscriber<Integer> healthy = new RecordingSubscriber<>( Long.MAX_VALUE );
+        publisher.subscribe( failing );
+        publisher.subscribe( healthy );
+        publisher.submit( 0 );
+        publisher.submit( 1 );
+        assertEquals( 1, publisher.submit( 2 ) );
+        failing.assertFailedWith( IllegalStateException.class );
+        assertEquals( Arrays.asList( 0, 1 ), failing.items );
+
+        // An error from the producer reaches the remaining subscriber once
+        IllegalArgumentException upstream = new IllegalArgumentException( "producer failed" );
+        publisher.closeExceptionally( upstream );
+        publisher.close();
+        assertSame( upstream, healthy.assertFailedWith( IllegalArgumentException.class ) );
+        assertEquals( Arrays.asList( 0, 1, 2 ), healthy.items );
+
+        // A subscriber arriving after close is terminated straight away
+        RecordingSubscriber<Integer> late = new RecordingSubscriber<>( 1 );
+        publisher.subscribe( late );
+        assertSame( upstream, late.assertFailedWith( IllegalArgumentException.class ) );
+    }
+
+    public void testBufferedPublisherRejectsNonPositiveRequests() throws Exception
+    {
+        BufferedPublisher<Integer> publisher = new BufferedPublisher<>( DIRECT, 4 );
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>( 0 );
+        publisher.subscribe( subscriber );
+        subscriber.request( 0 );
+        subscriber.assertFailedWith( IllegalArgumentException.class );
+        assertEquals( 0, publisher.submit( 1 ) );
+        publisher.close();
+        assertEquals( 1, subscriber.terminalSignals() );
+    }
+
+    public void testBatchingProcessorKeepsUpstreamDemandWithinPrefetch()
+    {
+        ManualSubscription upstream = new ManualSubscription();
+        BatchingProcessor<Integer, Integer> processor =
+            new BatchingProcessor<>( i -> i % 3 == 0 ? null : i * 10, 8 );
+        RecordingSubscriber<Integer> downstream = new RecordingSubscriber<>( 0 );
+        processor.onSubscribe( upstream );
+        assertEquals( 0, upstream.requested );
+        processor.subscribe( downstream );
+        assertEquals( 8, upstream.requested );
+
+        Random random = new Random( 1 );
+        int sent = 0;
+        int dropped = 0;
+        while ( sent < 200 )
+        {
+            downstream.request( 1 + random.nextInt( 5 ) );
+            // An honest upstream sends whatever it has been asked for
+            while ( sent < upstream.requested && sent < 200 )
+            {
+                dropped += sent % 3 == 0 ? 1 : 0;
+                processor.onNext( sent++ );
+                assertTrue( "delivered more than requested", downstream.items.size() <= downstream.requested );
+            }
+            // Sent but not yet delivered or dropped stays within the prefetch window
+            assertTrue( upstream.requested - downstream.items.size() - dropped <= 8 );
+        }
+        processor.onComplete();
+        downstream.request( Long.MAX_VALUE );
+
+        List<Integer> expected = IntStream.range( 0, 200 ).filter( i -> i % 3 != 0 ).map( i -> i * 10 )
+                .boxed().collect( Collectors.toList() );
+        assertEquals( expected, downstream.items );
+        downstream.assertCompleted();
+        // Few large requests rather than one per item
+        assertTrue( upstream.requests < 200 / 2 );
+    }
+
+    public void testBatchingProcessorErrorsSkipTheBufferAndArriveOnce()
+    {
+        ManualSubscription upstream = new ManualSubscription();
+        BatchingProcessor<Integer, Integer> processor = new BatchingProcessor<>( i -> i, 4 );
+        RecordingSubscriber<Integer> downstream = new RecordingSubscriber<>( 1 );
+        processor.onSubscribe( upstream );
+        processor.subscribe( downstream );
+        processor.onNext( 1 );
+        processor.onNext( 2 );
+        processor.onNext( 3 );
+
+        processor.onError( new IllegalStateException( "upstream failed" ) );
+        processor.onError( new IllegalStateException( "again" ) );
+        processor.onComplete();
+        downstream.request( 10 );
+
+        assertEquals( Arrays.asList( 1 ), downstream.items );
+        assertEquals( "upstream failed", downstream.assertFailedWith( IllegalStateException.class ).getMessage() );
+    }
+
+    public void testBatchingProcessorMapperFailureCancelsUpstream()
+    {
+        ManualSubscription upstream = new ManualSubscription();
+        BatchingProcessor<Integer, Integer> processor = new BatchingProcessor<>( i -> 10 / i, 4 );
+        RecordingSubscriber<Integer> downstream = new RecordingSubscriber<>( 10 );
+        processor.onSubscribe( upstream );
+        processor.subscribe( downstream );
+        processor.onNext( 5 );
+        processor.onNext( 0 );
+        processor.onNext( 2 );
+        processor.onComplete();
+
+        assertTrue( upstream.cancelled );
+        assertEquals( Arrays.asList( 2 ), downstream.items );
+        downstream.assertFailedWith( ArithmeticException.class );
+    }
+
+    public void testBatchingProcessorSubscriberFailureEndsTheStream()
+    {
+        ManualSubscription upstream = new ManualSubscription();
+        BatchingProcessor<Integer, Integer> processor = new BatchingProcessor<>( i -> i, 4 );
+        List<Integer> seen = new ArrayList<>();
+        RecordingSubscriber<Integer> downstream = new RecordingSubscriber<Integer>( 10 )
+        {
+            @Override
+            public void onNext( Integer item )
+            {
+                seen.add( item );
+                throw new IllegalStateException( "subscriber failed" );
+            }
+        };
+        processor.onSubscribe( upstream );
+        processor.subscribe( downstream );
+        processor.onNext( 1 );
+
+        assertTrue( upstream.cancelled );
+        assertEquals( "subscriber failed", downstream.assertFailedWith( IllegalStateException.class ).getMessage() );
+
+        // Later signals are dropped instead of stalling or reaching the subscriber again
+        processor.onNext( 2 );
+        processor.onComplete();
+        downstream.request( 10 );
+        assertEquals( Arrays.asList( 1 ), seen );
+        assertEquals( 1, downstream.terminalSignals() );
+    }
+
+    public void testBatchingProcessorCancelStopsEverything()
+    {
+        ManualSubscription upstream = new ManualSubscription();
+        BatchingProcessor<Integer, Integer> processor = new BatchingProcessor<>( i -> i, 4 );
+        RecordingSubscriber<Integer> downstream = new RecordingSubscriber<>( 1 );
+        processor.onSubscribe( upstream );
+        processor.subscribe( downstream );
+        processor.onNext( 1 );
+        processor.onNext( 2 );
+
+        downstream.subscription.cancel();
+        assertTrue( upstream.cancelled );
+        processor.onNext( 3 );
+        processor.onComplete();
+        downstream.request( 10 );
+        assertEquals( Arrays.asList( 1 ), downstream.items );
+        assertEquals( 0, downstream.terminalSignals() );
+
+        // A second upstream and a second subscriber are both turned away
+        ManualSubscription second = new ManualSubscription();
+        processor.onSubscribe( second );
+        assertTrue( second.cancelled );
+        RecordingSubscriber<Integer> another = new RecordingSubscriber<>( 1 );
+        processor.subscribe( another );
+        another.assertFailedWith( IllegalStateException.class );
+    }
+
+    public void testFoldingSubscriberRequestsInBatchesAndFolds() throws Exception
+    {
+        ManualSubscription upstream = new ManualSubscription();
+        FoldingSubscriber<Integer, ?, Integer> folding =
+            FoldingSubscriber.of( Collectors.summingInt( Integer::intValue ), 8 );
+        folding.onSubscribe( upstream );
+        assertEquals( 8, upstream.requested );
+        for ( int i = 1; i <= 20; i++ )
+        {
+            folding.onNext( i );
+            assertTrue( "more in flight than one batch", upstream.requested - i <= 8 );
+        }
+        assertEquals( 8 + 20 / 4 * 4, upstream.requested );
+        folding.onComplete();
+        folding.onError( new IllegalStateException( "late" ) );
+        assertEquals( Integer.valueOf( 210 ), folding.getResult().get() );
+        assertEquals( 20, folding.getCount() );
+
+        ManualSubscription second = new ManualSubscription();
+        folding.onSubscribe( second );
+        assertTrue( second.cancelled );
+        assertEquals( 0, second.requested );
+    }
+
+    public void testFoldingSubscriberFailuresAndCancel() throws Exception
+    {
+        ManualSubscription upstream = new ManualSubscription();
+        FoldingSubscriber<Integer, ?, List<Integer>> failing = FoldingSubscriber.of( Collector.of(
+                ArrayList<Integer>::new, ( list, i ) ->
+                {
+                    if ( i < 0 )
+                    {
+                        throw new IllegalArgumentException( "negative" );
+                    }
+                    list.add( i );
+                }, ( a, b ) -> a ), 4 );
+        failing.onSubscribe( upstream );
+        failing.onNext( 1 );
+        failing.onNext( -1 );
+        failing.onNext( 2 );
+        failing.onComplete();
+        assertTrue( upstream.cancelled );
+        assertEquals( 1, failing.getCount() );
+        assertCause( failing.getResult(), IllegalArgumentException.class );
+
+        FoldingSubscriber<Integer, ?, Long> upstreamError = FoldingSubscriber.of( Collectors.counting(), 4 );
+        upstreamError.onSubscribe( new ManualSubscription() );
+        upstreamError.onError( new IllegalStateException( "upstream failed" ) );
+        upstreamError.onComplete();
+        assertCause( upstreamError.getResult(), IllegalStateException.class );
+
+        ManualSubscription cancelledUpstream = new ManualSubscription();
+        FoldingSubscriber<Integer, ?, Long> cancelled = FoldingSubscriber.of( Collectors.counting(), 4 );
+        cancelled.onSubscribe( cancelledUpstream );
+        cancelled.cancel();
+        assertTrue( cancelledUpstream.cancelled );
+        assertTrue( cancelled.getResult().isCancelled() );
+    }
+
+    public void testIterablePublisherHonoursDemandAndCompletesOnce()
+    {
+        Flow.Publisher<Integer> publisher = FlowAdapters.fromIterable( Arrays.asList( 1, 2, 3, 4, 5 ), DIRECT );
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>( 2 );
+        publisher.subscribe( subscriber );
+        assertEquals( Arrays.asList( 1, 2 ), subscriber.items );
+        subscriber.request( 2 );
+        assertEquals( Arrays.asList( 1, 2, 3, 4 ), subscriber.items );
+        assertEquals( 0, subscriber.terminalSignals() );
+        subscriber.request( Long.MAX_VALUE );
+        subscriber.request( Long.MAX_VALUE );
+        assertEquals( Arrays.asList( 1, 2, 3, 4, 5 ), subscriber.items );
+        subscriber.assertCompleted();
+
+        RecordingSubscriber<Integer> cancelling = new RecordingSubscriber<>( 1 );
+        publisher.subscribe( cancelling );
+        cancelling.subscription.cancel();
+        cancelling.request( 10 );
+        assertEquals( Arrays.asList( 1 ), cancelling.items );
+        assertEquals( 0, cancelling.terminalSignals() );
+
+        RecordingSubscriber<Integer> invalid = new RecordingSubscriber<>( 0 );
+        publisher.subscribe( invalid );
+        invalid.request( -1 );
+        invalid.request( 1 );
+        invalid.assertFailedWith( IllegalArgumentException.class );
+        assertTrue( invalid.items.isEmpty() );
+    }
+
+    public void testIterablePublisherSignalsASourceFailureOnce()
+    {
+        Iterable<Integer> failingSource = () -> new Iterator<Integer>()
+        {
+            private int next;
+
+            @Override
+            public boolean hasNext()
+            {
+                return true;
+            }
+
+            @Override
+            public Integer next()
+            {
+                if ( next == 2 )
+                {
+                    throw new ConcurrentModificationException( "source changed" );
+                }
+                return next++;
+            }
+        };
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>( 10 );
+        FlowAdapters.fromIterable( failingSource, DIRECT ).subscribe( subscriber );
+        subscriber.request( 10 );
+        assertEquals( Arrays.asList( 0, 1 ), subscriber.items );
+        subscriber.assertFailedWith( ConcurrentModificationException.class );
+    }
+
+    public void testPipelineMatchesAStreamAcrossThreads() throws Exception
+    {
+        ExecutorService delivery = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            List<Integer> source = IntStream.range( 0, 5000 ).boxed().collect( Collectors.toList() );
+            BatchingProcessor<Integer, Integer> evens = new BatchingProcessor<>( i -> i % 2 == 0 ? i : null, 16 );
+            FoldingSubscriber<Integer, ?, Long> sum = FoldingSubscriber.of( Collectors.summingLong( i -> i ), 8 );
+            FlowAdapters.fromIterable( source, delivery ).subscribe( evens );
+            evens.subscribe( sum );
+            long expected = source.stream().filter( i -> i % 2 == 0 ).mapToLong( i -> i ).sum();
+            assertEquals( Long.valueOf( expected ), sum.getResult().get( 10, TimeUnit.SECONDS ) );
+            assertEquals( 2500, sum.getCount() );
+        }
+        finally
+        {
+            delivery.shutdownNow();
+        }
+    }
+
+    private static void assertCause( CompletableFuture<?> result, Class<? extends Throwable> type )
+        throws InterruptedException
+    {
+        try
+        {
+            result.get();
+            fail( "completed normally" );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( String.valueOf( e.getCause() ), type.isInstance( e.getCause() ) );
+        }
+    }
+
+    // Upstream stand-in that only records what it was asked for
+    private static class ManualSubscription
+        implements Flow.Subscription
+    {
+        private long requested;
+        private int requests;
+        private boolean cancelled;
+
+        @Override
+        public void request( long n )
+        {
+            requested = Flow.addDemand( requested, n );
+            requests++;
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+        }
+    }
+
+    private static class RecordingSubscriber<T>
+        implements Flow.Subscriber<T>
+    {
+        private final long initialRequest;
+        private final List<T> items = new CopyOnWriteArrayList<>();
+        private final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        private final AtomicInteger completions = new AtomicInteger();
+        private volatile Flow.Subscription subscription;
+        private long requested;
+
+        RecordingSubscriber( long initialRequest )
+        {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe( Flow.Subscription subscription )
+        {
+            this.subscription = subscription;
+            if ( initialRequest > 0 )
+            {
+                request( initialRequest );
+            }
+        }
+
+        @Override
+        public void onNext( T item )
+        {
+            items.add( item );
+        }
+
+        @Override
+        public void onError( Throwable throwable )
+        {
+            errors.add( throwable );
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completions.incrementAndGet();
+        }
+
+        void request( long n )
+        {
+            requested = n > 0 ? Flow.addDemand( requested, n ) : requested;
+            subscription.request( n );
+        }
+
+        int terminalSignals()
+        {
+            return errors.size() + completions.get();
+        }
+
+        void assertCompleted()
+        {
+            assertEquals( "onComplete", 1, completions.get() );
+            assertEquals( "onError " + errors, 0, errors.size() );
+        }
+
+        Throwable assertFailedWith( Class<? extends Throwable> type )
+        {
+            assertEquals( "onComplete", 0, completions.get() );
+            assertEquals( "onError " + errors, 1, errors.size() );
+            assertTrue( String.valueOf( errors.get( 0 ) ), type.isInstance( errors.get( 0 ) ) );
+            return errors.get( 0 );
+        }
+    }
+}
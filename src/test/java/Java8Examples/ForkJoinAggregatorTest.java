@@ -0,0 +1,138 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+import java.util.stream.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Fork/join aggregation must give the same answers as a sequential collect.
+ */
+public class ForkJoinAggregatorTest
+    extends TestCase
+{
+    private static final int RECORDS = 300000;
+
+    private ForkJoinAggregator aggregator;
+
+    public ForkJoinAggregatorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ForkJoinAggregatorTest.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        // More workers than cores and small leaves, so the splitting and merging really happen
+        aggregator = new ForkJoinAggregator( 4, 256 );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        aggregator.shutdown();
+    }
+
+    public void testMonoidsMatchSequentialCollect()
+    {
+        List<InventoryManagementSystem.Product> products = createProducts();
+
+        assertEquals( products.stream().mapToDouble( InventoryManagementSystem.Product::getTotalValue ).sum(),
+            aggregator.aggregate( products, Collectors.summingDouble( InventoryManagementSystem.Product::getTotalValue ) ),
+            1e-3 );
+        assertEquals( products.stream().filter( InventoryManagementSystem.Product::isLowStock ).count(),
+            (long) aggregator.aggregate( products,
+                Collectors.summingLong( ( InventoryManagementSystem.Product p ) -> p.isLowStock() ? 1 : 0 ) ) );
+
+        DoubleSummaryStatistics expected = products.stream()
+            .collect( Collectors.summarizingDouble( InventoryManagementSystem.Product::getPrice ) );
+        DoubleSummaryStatistics actual = aggregator.aggregate( products,
+            Collectors.summarizingDouble( InventoryManagementSystem.Product::getPrice ) );
+        assertEquals( expected.getCount(), actual.getCount() );
+        assertEquals( expected.getMin(), actual.getMin() );
+        assertEquals( expected.getMax(), actual.getMax() );
+        assertEquals( expected.getAverage(), actual.getAverage(), 1e-9 );
+
+        IntDoubleMap ratings = aggregator.aggregate( products, PrimitiveCollectors.averagingDoubleByInt(
+            InventoryManagementSystem.Product::getCategoryCode, InventoryManagementSystem.Product::getRating ) );
+        IntLongMap counts = aggregator.aggregate( products,
+            PrimitiveCollectors.countingByInt( InventoryManagementSystem.Product::getCategoryCode ) );
+        Map<Integer, Double> expectedRatings = products.stream().collect( Collectors.groupingBy(
+            InventoryManagementSystem.Product::getCategoryCode,
+            Collectors.averagingDouble( InventoryManagementSystem.Product::getRating ) ) );
+        assertEquals( expectedRatings.size(), ratings.size() );
+        for ( Map.Entry<Integer, Double> entry : expectedRatings.entrySet() )
+        {
+            assertEquals( entry.getValue(), ratings.get( entry.getKey() ), 1e-9 );
+        }
+        assertEquals( (long) RECORDS, counts.toMap( Integer::valueOf ).values().stream().mapToLong( Long::longValue ).sum() );
+        assertTrue( "expected work stealing", aggregator.getStealCount() > 0 );
+    }
+
+    public void testEncounterOrderIsKept()
+    {
+        List<Integer> numbers = IntStream.range( 0, RECORDS ).boxed().collect( Collectors.toList() );
+        assertEquals( numbers, aggregator.aggregate( numbers, Collectors.toList() ) );
+        assertEquals( "0123456789", aggregator.aggregate( numbers.subList( 0, 10 ),
+            Collectors.mapping( String::valueOf, Collectors.joining() ) ) );
+    }
+
+    public void testFinancialReportMatchesSequentialSums()
+    {
+        Random random = new Random( 5 );
+        String[] categories = { "Salary", "Rent", "Food", "Utilities", "Travel" };
+        List<FinancialCalculator.Transaction> transactions = new ArrayList<>();
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            transactions.add( new FinancialCalculator.Transaction( "T" + i, random.nextInt( 100000 ) / 100.0,
+                LocalDateTime.of( 2024, 1, 1, 0, 0 ).plusMinutes( i ), random.nextBoolean() ? "INCOME" : "EXPENSE",
+                categories[random.nextInt( categories.length )], null ) );
+        }
+        FinancialCalculator.FinancialReport report = FinancialCalculator.summarize( transactions );
+
+        double income = 0;
+        double expense = 0;
+        Map<String, Double> byCategory = new HashMap<>();
+        for ( FinancialCalculator.Transaction t : transactions )
+        {
+            if ( "INCOME".equals( t.getType() ) )
+            {
+                income += t.getAmount();
+            }
+            else
+            {
+                expense += t.getAmount();
+                byCategory.merge( t.getCategory(), t.getAmount(), Double::sum );
+            }
+        }
+        assertEquals( income, report.getTotalIncome(), 1e-3 );
+        assertEquals( expense, report.getTotalExpense(), 1e-3 );
+        assertEquals( byCategory.keySet(), report.getCategoryWiseExpense().keySet() );
+        for ( Map.Entry<String, Double> entry : byCategory.entrySet() )
+        {
+            assertEquals( entry.getValue(), report.getCategoryWiseExpense().get( entry.getKey() ), 1e-3 );
+        }
+    }
+
+    private static List<InventoryManagementSystem.Product> createProducts()
+    {
+        Random random = new Random( 4 );
+        String[] categories = { "Electronics", "Furniture", "Appliances", "Stationery", "Books" };
+        List<InventoryManagementSystem.Product> products = new ArrayList<>();
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            products.add( new InventoryManagementSystem.Product( "P" + i, "Product " + i,
+                categories[random.nextInt( categories.length )], 1 + random.nextInt( 100000 ) / 100.0,
+                random.nextInt( 50 ), 1 + random.nextInt( 40 ) / 10.0, LocalDate.of( 2030, 1, 1 ) ) );
+        }
+        return products;
+    }
+}
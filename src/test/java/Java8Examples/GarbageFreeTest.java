@@ -0,0 +1,261 @@
+package Java8Examples;
+
+import java.lang.management.ManagementFactory;
+import java.time.*;
+import java.util.*;
+import java.util.stream.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Measures bytes allocated per record on the garbage-free hot paths with the
+ * per-thread allocation counter, and checks the primitive maps against HashMap.
+ */
+public class GarbageFreeTest
+    extends TestCase
+{
+    private static final int RECORDS = 10000;
+    private static final int WARMUP_PASSES = 20;
+    private static final int PASSES = 100;
+    // A few hundred bytes per pass for clock refreshes and the counter itself are allowed
+    private static final double MAX_BYTES_PER_RECORD = 1.0;
+
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public GarbageFreeTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( GarbageFreeTest.class );
+    }
+
+    public void testOrderProcessingIntoHolderAllocatesNothing()
+    {
+        final List<OrderProcessingSystem.Order> orders = createOrders();
+        final OrderProcessingSystem.ProcessingResult holder = new OrderProcessingSystem.ProcessingResult();
+        final int[] checksum = new int[1];
+        double bytes = bytesPerRecord( () -> {
+            for ( int i = 0; i < orders.size(); i++ )
+            {
+                OrderProcessingSystem.Order order = orders.get( i );
+                if ( order.getAmount() > 0 && order.getStatusCode() != OrderProcessingSystem.Order.CANCELLED )
+                {
+                    OrderProcessingSystem.updateOrderStatus( order, holder );
+                    checksum[0] += holder.getMessage().length() + order.getItem( order.getItemCount() - 1 ).length();
+                }
+            }
+        } );
+        assertTrue( checksum[0] > 0 );
+        assertTrue( "bytes per order " + bytes, bytes < MAX_BYTES_PER_RECORD );
+        assertEquals( "Updated to PRIORITY", OrderProcessingSystem.updateOrderStatus( orders.get( 1 ) ).getMessage() );
+    }
+
+    public void testExpiryChecksAllocateNothing()
+    {
+        final List<InventoryManagementSystem.Product> products = createProducts();
+        // Never rereads the system clock, so the day cannot change between the passes and
+        // the expected count below
+        final CoarseClock clock = new CoarseClock( Long.MAX_VALUE, ZoneId.systemDefault() );
+        final int[] expired = new int[1];
+        double bytes = bytesPerRecord( () -> {
+            for ( int i = 0; i < products.size(); i++ )
+            {
+                if ( products.get( i ).isExpired( clock.epochDay() ) )
+                {
+                    expired[0]++;
+                }
+            }
+        } );
+        assertTrue( "bytes per product " + bytes, bytes < MAX_BYTES_PER_RECORD );
+
+        long expected = products.stream().filter( p -> p.getExpiryDate().isBefore( clock.today() ) ).count();
+        assertEquals( expected * ( WARMUP_PASSES + PASSES ), expired[0] );
+    }
+
+    public void testPrimitiveGroupingAllocatesNothingPerRecord()
+    {
+        final List<EmployeeDataProcessor.Employee> employees = createEmployees();
+        final List<InventoryManagementSystem.Product> products = createProducts();
+        final List<OrderProcessingSystem.Order> orders = createOrders();
+        final IntDoubleMap[] salaries = new IntDoubleMap[1];
+        final IntLongMap[] productCounts = new IntLongMap[1];
+        final IntDoubleMap[] spending = new IntDoubleMap[1];
+        // The groupings the modules run. Each pass allocates its result maps, sized by the
+        // number of keys, so compare against a pass over every record twice: same keys, and
+        // any difference is allocation per record
+        double once = bytesPerRecord( () -> {
+            salaries[0] = salariesByDepartment( employees );
+            productCounts[0] = countsByCategory( products );
+            spending[0] = spendingByCustomer( orders );
+        } );
+        final List<EmployeeDataProcessor.Employee> employeesTwice = twice( employees );
+        final List<InventoryManagementSystem.Product> productsTwice = twice( products );
+        final List<OrderProcessingSystem.Order> ordersTwice = twice( orders );
+        double doubled = bytesPerRecord( () -> {
+            salariesByDepartment( employeesTwice );
+            countsByCategory( productsTwice );
+            spendingByCustomer( ordersTwice );
+        } );
+        double bytes = ( doubled - once ) / 3;
+        assertTrue( "bytes per record " + bytes, bytes < MAX_BYTES_PER_RECORD );
+
+        Map<String, Double> expected = employees.stream()
+            .collect( Collectors.groupingBy( EmployeeDataProcessor.Employee::getDepartment,
+                Collectors.averagingDouble( EmployeeDataProcessor.Employee::getSalary ) ) );
+        assertEquals( expected.size(), salaries[0].size() );
+        for ( Map.Entry<String, Double> entry : expected.entrySet() )
+        {
+            assertEquals( entry.getValue(),
+                salaries[0].get( SymbolTable.DEPARTMENTS.codeOf( entry.getKey() ) ), 1e-6 );
+        }
+        assertEquals( RECORDS, productCounts[0].toMap( Integer::valueOf ).values().stream()
+            .mapToLong( Long::longValue ).sum() );
+        assertEquals( orders.stream().mapToDouble( OrderProcessingSystem.Order::getAmount ).sum(),
+            spending[0].toMap( Integer::valueOf ).values().stream().mapToDouble( Double::doubleValue ).sum(), 1e-3 );
+    }
+
+    public void testObjectDoubleMapMatchesHashMap()
+    {
+        Random random = new Random( 7 );
+        ObjectDoubleMap<String> map = new ObjectDoubleMap<>( 0 );
+        ObjectLongMap<String> counts = new ObjectLongMap<>( 0 );
+        Map<String, Double> expected = new HashMap<>();
+        for ( int i = 0; i < 100000; i++ )
+        {
+            String key = "key-" + random.nextInt( 5000 );
+            double value = random.nextInt( 1000 ) / 10.0;
+            if ( random.nextInt( 50 ) == 0 )
+            {
+                map.put( key, value );
+                expected.put( key, value );
+            }
+            else
+            {
+                map.addTo( key, value );
+                expected.merge( key, value, Double::sum );
+            }
+            counts.increment( key );
+        }
+        assertEquals( expected.size(), map.size() );
+        assertEquals( expected.size(), counts.size() );
+        for ( Map.Entry<String, Double> entry : expected.entrySet() )
+        {
+            assertTrue( map.containsKey( entry.getKey() ) );
+            assertEquals( entry.getValue(), map.get( entry.getKey() ), 1e-6 );
+        }
+        assertFalse( map.containsKey( "missing" ) );
+        assertEquals( -1.0, map.getOrDefault( "missing", -1 ) );
+        assertEquals( 100000L, counts.toMap().values().stream().mapToLong( Long::longValue ).sum() );
+        assertEquals( expected, map.toMap() );
+    }
+
+    public void testCoarseClockStaysWithinResolution() throws Exception
+    {
+        CoarseClock clock = new CoarseClock( 5, ZoneId.systemDefault() );
+        for ( int i = 0; i < 20; i++ )
+        {
+            long before = System.currentTimeMillis();
+            long millis = clock.millis();
+            assertTrue( before - millis <= 5 );
+            assertEquals( clock.today().toEpochDay(), clock.epochDay() );
+            Thread.sleep( 2 );
+        }
+        CoarseClock exact = new CoarseClock( 0, ZoneOffset.UTC );
+        assertEquals( LocalDate.now( ZoneOffset.UTC ).toEpochDay(), exact.epochDay(), 1 );
+    }
+
+    private static IntDoubleMap salariesByDepartment( List<EmployeeDataProcessor.Employee> employees )
+    {
+        return employees.stream().collect( PrimitiveCollectors.averagingDoubleByInt(
+            EmployeeDataProcessor.Employee::getDepartmentCode, EmployeeDataProcessor.Employee::getSalary ) );
+    }
+
+    private static IntLongMap countsByCategory( List<InventoryManagementSystem.Product> products )
+    {
+        return products.stream()
+            .collect( PrimitiveCollectors.countingByInt( InventoryManagementSystem.Product::getCategoryCode ) );
+    }
+
+    private static IntDoubleMap spendingByCustomer( List<OrderProcessingSystem.Order> orders )
+    {
+        return orders.stream().collect( PrimitiveCollectors.summingDoubleByInt(
+            OrderProcessingSystem.Order::getCustomerCode, OrderProcessingSystem.Order::getAmount ) );
+    }
+
+    private static <T> List<T> twice( List<T> records )
+    {
+        List<T> twice = new ArrayList<>( records );
+        twice.addAll( records );
+        return twice;
+    }
+
+    // Average bytes allocated by the current thread per record over PASSES runs of pass,
+    // each covering RECORDS records
+    private double bytesPerRecord( Runnable pass )
+    {
+        for ( int i = 0; i < WARMUP_PASSES; i++ )
+        {
+            pass.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes( threadId );
+        for ( int i = 0; i < PASSES; i++ )
+        {
+            pass.run();
+        }
+        long allocated = threads.getThreadAllocatedBytes( threadId ) - before;
+        return allocated / (double) ( (long) PASSES * RECORDS );
+    }
+
+    private static List<OrderProcessingSystem.Order> createOrders()
+    {
+        Random random = new Random( 1 );
+        String[] statuses = { "PENDING", "PENDING", "CANCELLED" };
+        List<OrderProcessingSystem.Order> orders = new ArrayList<>();
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            double amount = i == 1 ? 5000 : random.nextInt( 20 ) == 0 ? 0 : random.nextInt( 2500 );
+            orders.add( new OrderProcessingSystem.Order( "GF-" + i, "Customer-" + random.nextInt( 1000 ),
+                LocalDateTime.of( 2024, 1, 1, 0, 0 ).plusMinutes( i ), amount,
+                i == 1 ? "PENDING" : statuses[random.nextInt( statuses.length )],
+                Arrays.asList( "Laptop", "Mouse" ), "City-" + random.nextInt( 50 ) ) );
+        }
+        return orders;
+    }
+
+    private static List<InventoryManagementSystem.Product> createProducts()
+    {
+        Random random = new Random( 2 );
+        String[] categories = { "Electronics", "Furniture", "Food", "Books" };
+        List<InventoryManagementSystem.Product> products = new ArrayList<>();
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            products.add( new InventoryManagementSystem.Product( "P" + i, "Product " + i,
+                categories[random.nextInt( categories.length )], 1 + random.nextInt( 500 ),
+                random.nextInt( 100 ), 1 + random.nextInt( 40 ) / 10.0,
+                LocalDate.now().plusDays( random.nextInt( 200 ) - 100 ) ) );
+        }
+        return products;
+    }
+
+    private static List<EmployeeDataProcessor.Employee> createEmployees()
+    {
+        Random random = new Random( 3 );
+        String[] departments = { "Development", "Sales", "Marketing", "HR" };
+        List<EmployeeDataProcessor.Employee> employees = new ArrayList<>();
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            employees.add( new EmployeeDataProcessor.Employee( "E" + i, "Employee " + i,
+                40000 + random.nextInt( 80000 ), departments[random.nextInt( departments.length )],
+                LocalDate.of( 2015, 1, 1 ).plusDays( random.nextInt( 3000 ) ), 22 + random.nextInt( 40 ),
+                Collections.singletonList( "Java" ) ) );
+        }
+        return employees;
+    }
+}
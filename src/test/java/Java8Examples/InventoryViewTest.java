@@ -0,0 +1,147 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+import java.util.stream.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Views maintained from the change feed must match a full recomputation over the table.
+ */
+public class InventoryViewTest
+    extends TestCase
+{
+    private static final String[] CATEGORIES = { "Electronics", "Furniture", "Appliances", "Stationery", "Books" };
+    private static final int THRESHOLD = 10;
+
+    public InventoryViewTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( InventoryViewTest.class );
+    }
+
+    public void testRandomChangesMatchRecomputation()
+    {
+        Random random = new Random( 46 );
+        InventoryChangeFeed feed = new InventoryChangeFeed();
+        for ( int i = 0; i < 200; i++ )
+        {
+            feed.insert( product( random, "P" + i ) );
+        }
+        InventoryView view = new InventoryView( THRESHOLD );
+        feed.subscribe( view::apply );
+        assertMatches( feed.getProducts(), view );
+
+        int nextId = 200;
+        for ( int step = 0; step < 5000; step++ )
+        {
+            List<InventoryManagementSystem.Product> products = feed.getProducts();
+            InventoryManagementSystem.Product target = products.get( random.nextInt( products.size() ) );
+            switch ( random.nextInt( 4 ) )
+            {
+                case 0:
+                    feed.insert( product( random, "P" + nextId++ ) );
+                    break;
+                case 1:
+                    feed.update( product( random, target.getProductId() ) );
+                    break;
+                case 2:
+                    if ( products.size() > 1 )
+                    {
+                        feed.delete( target.getProductId() );
+                    }
+                    break;
+                default:
+                    feed.changeStock( target.getProductId(), random.nextInt( 21 ) - target.getQuantity() / 2 );
+            }
+            if ( step % 100 == 0 )
+            {
+                assertMatches( feed.getProducts(), view );
+            }
+        }
+        assertMatches( feed.getProducts(), view );
+        assertEquals( feed.getSequence(), view.getLastSequence() );
+    }
+
+    public void testDeletingExtremesExposesNextPrice()
+    {
+        InventoryChangeFeed feed = new InventoryChangeFeed();
+        InventoryView view = new InventoryView( THRESHOLD );
+        feed.subscribe( view::apply );
+        feed.insert( product( "A", "Books", 5.0, 3, 4.0 ) );
+        feed.insert( product( "B", "Books", 5.0, 30, 2.0 ) );
+        feed.insert( product( "C", "Furniture", 50.0, 30, 5.0 ) );
+
+        feed.delete( "A" );
+        assertEquals( 5.0, view.getPriceStats().getMin() );
+        feed.delete( "B" );
+        assertEquals( 50.0, view.getPriceStats().getMin() );
+        assertFalse( view.getCategoryAverageRatings().containsKey( SymbolTable.PRODUCT_CATEGORIES.intern( "Books" ) ) );
+
+        feed.changeStock( "C", -25 );
+        assertEquals( 1, view.getLowStockCount() );
+        assertEquals( 250.0, view.getTotalValue(), 1e-9 );
+        try
+        {
+            feed.changeStock( "C", -6 );
+            fail( "stock went negative" );
+        }
+        catch ( IllegalArgumentException expected )
+        {
+            assertEquals( 5, feed.get( "C" ).getQuantity() );
+        }
+    }
+
+    private static void assertMatches( List<InventoryManagementSystem.Product> products, InventoryView view )
+    {
+        assertEquals( products.size(), view.getCount() );
+        assertEquals( products.stream().mapToDouble( InventoryManagementSystem.Product::getTotalValue ).sum(),
+            view.getTotalValue(), 1e-6 );
+
+        DoubleSummaryStatistics prices = products.stream()
+            .collect( Collectors.summarizingDouble( InventoryManagementSystem.Product::getPrice ) );
+        InventoryView.PriceStats stats = view.getPriceStats();
+        assertEquals( prices.getMin(), stats.getMin() );
+        assertEquals( prices.getMax(), stats.getMax() );
+        assertEquals( prices.getAverage(), stats.getAverage(), 1e-9 );
+
+        Map<Integer, Double> ratings = products.stream().collect( Collectors.groupingBy(
+            InventoryManagementSystem.Product::getCategoryCode,
+            Collectors.averagingDouble( InventoryManagementSystem.Product::getRating ) ) );
+        IntDoubleMap actual = view.getCategoryAverageRatings();
+        assertEquals( ratings.size(), actual.size() );
+        for ( Map.Entry<Integer, Double> entry : ratings.entrySet() )
+        {
+            assertEquals( entry.getValue(), actual.get( entry.getKey() ), 1e-9 );
+        }
+
+        Comparator<InventoryManagementSystem.Product> byQuantityThenId =
+            Comparator.comparingInt( InventoryManagementSystem.Product::getQuantity )
+                .thenComparing( InventoryManagementSystem.Product::getProductId );
+        Map<Boolean, List<InventoryManagementSystem.Product>> expected = products.stream()
+            .sorted( byQuantityThenId )
+            .collect( Collectors.partitioningBy( p -> p.getQuantity() < THRESHOLD ) );
+        assertEquals( expected, view.getStockPartitions() );
+        assertEquals( expected.get( true ), view.getLowStock() );
+    }
+
+    private static InventoryManagementSystem.Product product( Random random, String id )
+    {
+        return product( id, CATEGORIES[random.nextInt( CATEGORIES.length )], 1 + random.nextInt( 1000 ) / 4.0,
+            random.nextInt( 40 ), 1 + random.nextInt( 40 ) / 10.0 );
+    }
+
+    private static InventoryManagementSystem.Product product( String id, String category, double price,
+                                                              int quantity, double rating )
+    {
+        return new InventoryManagementSystem.Product( id, "Product " + id, category, price, quantity, rating,
+            LocalDate.of( 2030, 1, 1 ) );
+    }
+}
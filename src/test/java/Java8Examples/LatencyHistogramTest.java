@@ -0,0 +1,152 @@
+package Java8Examples;
+
+import java.util.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Buckets must tile the whole long range with under 1% relative width, and percentiles must
+ * come out of the bucket holding the requested rank.
+ */
+public class LatencyHistogramTest
+    extends TestCase
+{
+    public LatencyHistogramTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( LatencyHistogramTest.class );
+    }
+
+    public void testSmallValuesHaveTheirOwnBuckets()
+    {
+        for ( int value = 0; value < 256; value++ )
+        {
+            int index = LatencyHistogram.indexOf( value );
+            assertEquals( value, index );
+            assertEquals( value, LatencyHistogram.lowestEquivalent( index ) );
+            assertEquals( value, LatencyHistogram.highestEquivalent( index ) );
+        }
+        // From 256 on, buckets are two wide, then four, ...
+        assertEquals( 256, LatencyHistogram.indexOf( 256 ) );
+        assertEquals( 256, LatencyHistogram.indexOf( 257 ) );
+        assertEquals( 257, LatencyHistogram.indexOf( 258 ) );
+        assertEquals( 384, LatencyHistogram.indexOf( 512 ) );
+        assertEquals( 515, LatencyHistogram.highestEquivalent( LatencyHistogram.indexOf( 512 ) ) );
+    }
+
+    public void testBucketsTileTheLongRange()
+    {
+        int last = LatencyHistogram.indexOf( Long.MAX_VALUE );
+        assertEquals( Long.MAX_VALUE, LatencyHistogram.highestEquivalent( last ) );
+        for ( int index = 0; index < last; index++ )
+        {
+            long lowest = LatencyHistogram.lowestEquivalent( index );
+            long highest = LatencyHistogram.highestEquivalent( index );
+            assertEquals( "gap after bucket " + index, highest + 1, LatencyHistogram.lowestEquivalent( index + 1 ) );
+            assertEquals( index, LatencyHistogram.indexOf( lowest ) );
+            assertEquals( index, LatencyHistogram.indexOf( highest ) );
+            assertTrue( "bucket " + index + " too wide", highest - lowest <= lowest / 128 );
+        }
+    }
+
+    public void testRandomValuesLandInABucketThatContainsThem()
+    {
+        Random random = new Random( 17 );
+        for ( int i = 0; i < 100000; i++ )
+        {
+            long value = random.nextLong() >>> random.nextInt( 64 );
+            int index = LatencyHistogram.indexOf( value );
+            assertTrue( value + "", LatencyHistogram.lowestEquivalent( index ) <= value );
+            assertTrue( value + "", LatencyHistogram.highestEquivalent( index ) >= value );
+        }
+    }
+
+    public void testPercentilesOfSmallValuesAreExact()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for ( int value = 1; value <= 100; value++ )
+        {
+            histogram.record( value );
+        }
+        assertEquals( 1, histogram.getValueAtPercentile( 0 ) );
+        assertEquals( 50, histogram.getValueAtPercentile( 50 ) );
+        assertEquals( 99, histogram.getValueAtPercentile( 99 ) );
+        // Rank 99.5 rounds up to the 100th value
+        assertEquals( 100, histogram.getValueAtPercentile( 99.5 ) );
+        assertEquals( 100, histogram.getValueAtPercentile( 100 ) );
+        assertEquals( 50.5, histogram.getMean(), 1e-9 );
+    }
+
+    public void testPercentilesStayWithinOnePercent()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100000];
+        Random random = new Random( 23 );
+        for ( int i = 0; i < values.length; i++ )
+        {
+            // Microseconds to seconds, in nanoseconds
+            values[i] = 1000 + (long) Math.pow( 10, 3 + random.nextDouble() * 6 );
+            histogram.record( values[i] );
+        }
+        Arrays.sort( values );
+        for ( double percentile : new double[] { 1, 25, 50, 90, 99, 99.9, 99.99 } )
+        {
+            long exact = values[(int) Math.ceil( percentile / 100 * values.length ) - 1];
+            long reported = histogram.getValueAtPercentile( percentile );
+            // The highest equivalent of the exact value's bucket
+            assertTrue( percentile + ": " + reported + " < " + exact, reported >= exact );
+            assertTrue( percentile + ": " + reported + " vs " + exact, reported - exact <= exact / 128 );
+        }
+        assertEquals( values[values.length - 1], histogram.getValueAtPercentile( 100 ) );
+        assertEquals( values[values.length - 1], histogram.getMax() );
+        assertEquals( values.length, histogram.getCount() );
+    }
+
+    public void testDrainAndAddMoveCountsAndMax()
+    {
+        LatencyHistogram source = new LatencyHistogram();
+        LatencyHistogram target = new LatencyHistogram();
+        source.record( 10 );
+        source.record( 5000 );
+        target.record( 7 );
+
+        source.drainInto( target );
+        assertEquals( 0, source.getCount() );
+        assertEquals( 0, source.getMax() );
+        assertEquals( 0, source.getValueAtPercentile( 99 ) );
+        assertEquals( 3, target.getCount() );
+        assertEquals( 5000, target.getMax() );
+        assertEquals( 10, target.getValueAtPercentile( 50 ) );
+
+        LatencyHistogram sum = new LatencyHistogram();
+        sum.record( 1 );
+        sum.add( target );
+        sum.add( target );
+        assertEquals( 7, sum.getCount() );
+        assertEquals( 5000, sum.getMax() );
+        assertEquals( 3, target.getCount() );
+
+        sum.reset();
+        assertEquals( 0, sum.getCount() );
+        assertEquals( 0.0, sum.getMean(), 0.0 );
+    }
+
+    public void testNegativeValuesAreRejected()
+    {
+        try
+        {
+            new LatencyHistogram().record( -1 );
+            fail( "recorded -1" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage().contains( "-1" ) );
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package Java8Examples;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * A hung module must time out on its own bulkhead while the others finish, and failures must be retried with backoff.
+ */
+public class ModuleSupervisorTest
+    extends TestCase
+{
+    public ModuleSupervisorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ModuleSupervisorTest.class );
+    }
+
+    public void testHungModuleTimesOutWithoutBlockingTheOthers() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch( 1 );
+        try ( ModuleSupervisor supervisor = new ModuleSupervisor( 100, 2, 10 ) )
+        {
+            // Ignores the interrupt, so its retry stays queued behind it on the bulkhead thread
+            CompletableFuture<ModuleSupervisor.ModuleResult> hung = supervisor.submit( "HUNG", () -> {
+                awaitUninterruptibly( release );
+                return new ModuleOutput( "HUNG_PROCESSED", "" );
+            } );
+            CompletableFuture<ModuleSupervisor.ModuleResult> fast = supervisor.submit( "FAST",
+                    () -> new ModuleOutput( "FAST_PROCESSED", "report\n" ) );
+
+            ModuleSupervisor.ModuleResult fastResult = fast.get( 5, TimeUnit.SECONDS );
+            assertTrue( fastResult.isSuccess() );
+            assertEquals( "FAST_PROCESSED", fastResult.getValue() );
+            assertEquals( "report\n", fastResult.getReport() );
+            assertFalse( hung.isDone() );
+
+            ModuleSupervisor.ModuleResult hungResult = hung.get( 5, TimeUnit.SECONDS );
+            assertEquals( ModuleSupervisor.Status.TIMED_OUT, hungResult.getStatus() );
+            assertNull( hungResult.getValue() );
+            assertEquals( 2, hungResult.getAttempts() );
+            assertEquals( 2, hungResult.getTimeouts() );
+            assertTrue( hungResult.getLatencyNanos() >= TimeUnit.MILLISECONDS.toNanos( 210 ) );
+        }
+        finally
+        {
+            release.countDown();
+        }
+    }
+
+    public void testRetryWaitsForTheTimedOutAttempt() throws Exception
+    {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        try ( ModuleSupervisor supervisor = new ModuleSupervisor( 50, 3, 0 ) )
+        {
+            ModuleSupervisor.ModuleResult result = supervisor.submit( "STUBBORN", () -> {
+                maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+                try
+                {
+                    if ( calls.incrementAndGet() == 1 )
+                    {
+                        // Swallows the interrupt and keeps working well past its deadline
+                        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( 80 );
+                        while ( System.nanoTime() < end )
+                        {
+                            Thread.interrupted();
+                        }
+                    }
+                    return new ModuleOutput( "STUBBORN_PROCESSED", "" );
+                }
+                finally
+                {
+                    running.decrementAndGet();
+                }
+            } ).get( 5, TimeUnit.SECONDS );
+
+            assertEquals( 1, maxRunning.get() );
+            assertTrue( result.getTimeouts() >= 1 );
+            assertEquals( result.getTimeouts() + 1, result.getAttempts() );
+            assertTrue( result.isSuccess() );
+        }
+    }
+
+    public void testFailuresAreRetriedWithBackoff() throws Exception
+    {
+        AtomicInteger calls = new AtomicInteger();
+        try ( ModuleSupervisor supervisor = new ModuleSupervisor( 5000, 3, 20 ) )
+        {
+            ModuleSupervisor.ModuleResult result = supervisor.submit( "FLAKY", () -> {
+                if ( calls.incrementAndGet() < 3 )
+                {
+                    throw new IllegalStateException( "transient" );
+                }
+                return new ModuleOutput( "FLAKY_PROCESSED", "" );
+            } ).get( 5, TimeUnit.SECONDS );
+
+            assertTrue( result.isSuccess() );
+            assertEquals( 3, result.getAttempts() );
+            assertEquals( 0, result.getTimeouts() );
+            // Backoffs of 20 ms and 40 ms before the second and third attempts
+            assertTrue( result.getLatencyNanos() >= TimeUnit.MILLISECONDS.toNanos( 60 ) );
+        }
+    }
+
+    public void testPersistentFailureKeepsTheLastError() throws Exception
+    {
+        AtomicInteger calls = new AtomicInteger();
+        try ( ModuleSupervisor supervisor = new ModuleSupervisor( 5000, 3, 0 ) )
+        {
+            ModuleSupervisor.ModuleResult result = supervisor.submit( "BROKEN", () -> {
+                throw new IllegalStateException( "attempt " + calls.incrementAndGet() );
+            } ).get( 5, TimeUnit.SECONDS );
+
+            assertEquals( ModuleSupervisor.Status.FAILED, result.getStatus() );
+            assertEquals( "attempt 3", result.getError() );
+            assertEquals( 3, result.getAttempts() );
+            assertEquals( 3, calls.get() );
+        }
+    }
+
+    public void testCloseCompletesModulesStillRunning() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch( 1 );
+        CountDownLatch started = new CountDownLatch( 1 );
+        CountDownLatch failedOnce = new CountDownLatch( 1 );
+        CompletableFuture<ModuleSupervisor.ModuleResult> hung;
+        CompletableFuture<ModuleSupervisor.ModuleResult> retrying;
+        try ( ModuleSupervisor supervisor = new ModuleSupervisor( 60000, 3, 60000 ) )
+        {
+            hung = supervisor.submit( "HUNG", () -> {
+                started.countDown();
+                awaitUninterruptibly( release );
+                return new ModuleOutput( "HUNG_PROCESSED", "" );
+            } );
+            // Fails once, then waits out a minute-long backoff
+            retrying = supervisor.submit( "RETRYING", () -> {
+                failedOnce.countDown();
+                throw new IllegalStateException( "transient" );
+            } );
+            assertTrue( started.await( 5, TimeUnit.SECONDS ) );
+            assertTrue( failedOnce.await( 5, TimeUnit.SECONDS ) );
+        }
+        try
+        {
+            ModuleSupervisor.ModuleResult hungResult = hung.get( 5, TimeUnit.SECONDS );
+            assertEquals( ModuleSupervisor.Status.FAILED, hungResult.getStatus() );
+            assertEquals( "supervisor closed", hungResult.getError() );
+            assertEquals( 1, hungResult.getAttempts() );
+            assertNull( hungResult.getValue() );
+            // Either closed while backing off or its retry was refused; never left pending
+            ModuleSupervisor.ModuleResult retryingResult = retrying.get( 5, TimeUnit.SECONDS );
+            assertEquals( ModuleSupervisor.Status.FAILED, retryingResult.getStatus() );
+            assertEquals( 1, retryingResult.getAttempts() );
+        }
+        finally
+        {
+            release.countDown();
+        }
+    }
+
+    public void testSubmitAfterCloseFails() throws Exception
+    {
+        ModuleSupervisor supervisor = new ModuleSupervisor( 5000, 1, 0 );
+        supervisor.close();
+        ModuleSupervisor.ModuleResult result = supervisor.submit( "LATE",
+                () -> new ModuleOutput( "LATE_PROCESSED", "" ) ).get( 5, TimeUnit.SECONDS );
+        assertEquals( ModuleSupervisor.Status.FAILED, result.getStatus() );
+        assertEquals( 0, result.getAttempts() );
+    }
+
+    private static void awaitUninterruptibly( CountDownLatch latch )
+    {
+        boolean interrupted = false;
+        while ( true )
+        {
+            try
+            {
+                latch.await();
+                break;
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
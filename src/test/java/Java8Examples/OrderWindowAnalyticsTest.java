@@ -0,0 +1,153 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Windows must close, slide and expire on event time, and count distinct customers within the sketch error.
+ */
+public class OrderWindowAnalyticsTest
+    extends TestCase
+{
+    private static final LocalDateTime START = LocalDateTime.of( 2024, 1, 18, 10, 0 );
+
+    private final List<OrderWindowAnalytics.WindowStats> closed = new ArrayList<>();
+    private OrderWindowAnalytics analytics;
+    private double highValue;
+
+    public OrderWindowAnalyticsTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( OrderWindowAnalyticsTest.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        analytics = new OrderWindowAnalytics( closed::add );
+        highValue = AppConfig.get().getHighValueOrderAmount();
+    }
+
+    public void testTumblingWindowIsEmittedWhenTheNextOneStarts()
+    {
+        analytics.accept( order( START.plusSeconds( 5 ), "A", highValue + 1, "PENDING" ) );
+        analytics.accept( order( START.plusSeconds( 30 ), "B", 10, "PENDING" ) );
+        // Counted, but cancelled orders bring no revenue and are never urgent
+        analytics.accept( order( START.plusSeconds( 50 ), "C", highValue + 1, "CANCELLED" ) );
+        assertTrue( closed.isEmpty() );
+
+        analytics.accept( order( START.plusMinutes( 1 ), "A", 20, "PENDING" ) );
+        assertEquals( 1, closed.size() );
+        OrderWindowAnalytics.WindowStats minute = closed.get( 0 );
+        assertEquals( "minute", minute.getWindow() );
+        assertEquals( millis( START ), minute.getStartMillis() );
+        assertEquals( millis( START.plusMinutes( 1 ) ), minute.getEndMillis() );
+        assertEquals( 3, minute.getOrderCount() );
+        assertEquals( highValue + 11, minute.getRevenue(), 1e-9 );
+        assertEquals( 1, minute.getUrgentCount() );
+        assertEquals( 3, minute.getDistinctCustomers() );
+    }
+
+    public void testLateEventsAreNotAddedToClosedWindows()
+    {
+        analytics.accept( order( START.plusMinutes( 2 ), "A", 10, "PENDING" ) );
+        analytics.accept( order( START, "B", 10, "PENDING" ) );
+
+        assertEquals( 1, analytics.getLateEvents() );
+        assertEquals( 2, analytics.getEventCount() );
+        // Still inside the last hour, so the sliding windows take it
+        assertEquals( 2, analytics.sliding( "last-hour" ).getOrderCount() );
+        assertEquals( 1, analytics.sliding( "last-minute" ).getOrderCount() );
+    }
+
+    public void testSlidingWindowsExpireWholeBuckets()
+    {
+        analytics.accept( order( START, "A", 100, "PENDING" ) );
+        analytics.accept( order( START.plusSeconds( 30 ), "B", 50, "PENDING" ) );
+        assertEquals( 150, analytics.sliding( "last-minute" ).getRevenue(), 1e-9 );
+
+        analytics.advanceTo( START.plusSeconds( 60 ) );
+        OrderWindowAnalytics.WindowStats lastMinute = analytics.sliding( "last-minute" );
+        assertEquals( 1, lastMinute.getOrderCount() );
+        assertEquals( 50, lastMinute.getRevenue(), 1e-9 );
+        assertEquals( 1, lastMinute.getDistinctCustomers() );
+
+        analytics.advanceTo( START.plusMinutes( 5 ) );
+        assertEquals( 0, analytics.sliding( "last-minute" ).getOrderCount() );
+        assertEquals( 0, analytics.sliding( "last-minute" ).getRevenue(), 1e-9 );
+        assertEquals( 2, analytics.sliding( "last-hour" ).getOrderCount() );
+
+        analytics.advanceTo( START.plusDays( 30 ) );
+        for ( OrderWindowAnalytics.WindowStats stats : analytics.slidingSnapshots() )
+        {
+            assertEquals( stats.getWindow(), 0, stats.getOrderCount() );
+        }
+    }
+
+    public void testEventsOlderThanASlidingWindowAreDropped()
+    {
+        analytics.accept( order( START.plusHours( 2 ), "A", 10, "PENDING" ) );
+        analytics.accept( order( START, "B", 10, "PENDING" ) );
+
+        // Too old for last-minute and last-hour, still inside last-7-days
+        assertEquals( 2, analytics.getDroppedEvents() );
+        assertEquals( 2, analytics.sliding( "last-7-days" ).getOrderCount() );
+    }
+
+    public void testDistinctCustomersStayWithinTheSketchError()
+    {
+        int customers = 5000;
+        for ( int i = 0; i < 3 * customers; i++ )
+        {
+            analytics.accept( order( START.plusSeconds( i % 3600 ), "Customer-" + i % customers, 10, "PENDING" ) );
+        }
+        long estimate = analytics.sliding( "last-7-days" ).getDistinctCustomers();
+        double error = new HyperLogLog( 11 ).relativeStandardError();
+        assertEquals( customers, estimate, 3 * error * customers );
+    }
+
+    public void testEmptySlidingWindowIsRejected()
+    {
+        // An empty bucket ring would divide by zero on the first event
+        try
+        {
+            new OrderWindowAnalytics.SlidingWindow( "empty", Duration.ZERO, Duration.ofHours( 1 ) );
+            fail( "built an empty window" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "empty" ) );
+        }
+    }
+
+    public void testUnknownSlidingWindowIsRejected()
+    {
+        try
+        {
+            analytics.sliding( "last-year" );
+            fail( "returned an unknown window" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage().contains( "last-year" ) );
+        }
+    }
+
+    private static OrderProcessingSystem.Order order( LocalDateTime time, String customer, double amount, String status )
+    {
+        return new OrderProcessingSystem.Order( "O", customer, time, amount, status, Arrays.asList( "Laptop" ), "Mumbai" );
+    }
+
+    private static long millis( LocalDateTime time )
+    {
+        return time.toInstant( ZoneOffset.UTC ).toEpochMilli();
+    }
+}
@@ -0,0 +1,257 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * A generated filter must accept exactly the records the equivalent composed Predicate accepts,
+ * for every operator and field type, and sum the same projection.
+ */
+public class PredicateCompilerTest
+    extends TestCase
+{
+    private static final String[] CATEGORIES = { "Compiled Tools", "Compiled Toys", "Compiled Books" };
+
+    private List<InventoryManagementSystem.Product> products;
+
+    public PredicateCompilerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( PredicateCompilerTest.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        products = new ArrayList<>();
+        Random random = new Random( 11 );
+        for ( int i = 0; i < 2000; i++ )
+        {
+            // Prices on a coarse grid so = and != have matches on both sides
+            products.add( new InventoryManagementSystem.Product( "C" + i, "Compiled " + i,
+                    CATEGORIES[random.nextInt( CATEGORIES.length )], random.nextInt( 40 ) * 2.5,
+                    random.nextInt( 100 ) - 10, random.nextInt( 50 ) / 10.0,
+                    random.nextBoolean() ? LocalDate.of( 2000, 1, 1 ) : LocalDate.of( 2100, 1, 1 ) ) );
+        }
+    }
+
+    public void testEveryOperatorOnEveryFieldType()
+    {
+        Object[][] fields = {
+            { "price", 50.0 },
+            { "quantity", 45 },
+            { "quantity", 45L },
+            { "rating", 2.5f },
+        };
+        for ( Object[] field : fields )
+        {
+            for ( Query.Op op : Query.Op.values() )
+            {
+                assertSameAsComposed( FilterSpec.on( InventoryManagementSystem.Product.class )
+                        .where( (String) field[0], op, field[1] ) );
+            }
+        }
+        for ( Query.Op op : new Query.Op[] { Query.Op.EQ, Query.Op.NE } )
+        {
+            assertSameAsComposed( FilterSpec.on( InventoryManagementSystem.Product.class )
+                    .where( "category", op, "Compiled Toys" ) );
+            assertSameAsComposed( FilterSpec.on( InventoryManagementSystem.Product.class )
+                    .where( "expired", op, Boolean.TRUE ) );
+        }
+    }
+
+    public void testNaNFailsEveryNumericClause()
+    {
+        List<InventoryManagementSystem.Product> nan = Collections.singletonList( new InventoryManagementSystem.Product(
+                "N", "Compiled NaN", "Compiled Tools", Double.NaN, 1, 1.0, LocalDate.of( 2100, 1, 1 ) ) );
+        for ( Query.Op op : Query.Op.values() )
+        {
+            FilterSpec<InventoryManagementSystem.Product> spec =
+                FilterSpec.on( InventoryManagementSystem.Product.class ).where( "price", op, 10.0 );
+            assertEquals( op.toString(), count( nan, spec.composed() ), spec.compile().count( nan ) );
+        }
+    }
+
+    public void testConjunctionsMatchComposedAnd()
+    {
+        FilterSpec<InventoryManagementSystem.Product> spec = FilterSpec.on( InventoryManagementSystem.Product.class )
+                .where( "price", Query.Op.GE, 20.0 )
+                .where( "quantity", Query.Op.LT, 30 )
+                .where( "category", Query.Op.NE, "Compiled Books" )
+                .where( "expired", Query.Op.EQ, Boolean.FALSE );
+        assertSameAsComposed( spec );
+
+        Predicate<InventoryManagementSystem.Product> handWritten = p -> p.getPrice() >= 20.0
+                && p.getQuantity() < 30 && !"Compiled Books".equals( p.getCategory() ) && !p.isExpired();
+        assertEquals( count( products, handWritten ), spec.compile().count( products ) );
+    }
+
+    public void testDisjunctionsOfCompiledFiltersMatchComposedOr()
+    {
+        FilterSpec<InventoryManagementSystem.Product> cheap = FilterSpec.on( InventoryManagementSystem.Product.class )
+                .where( "price", Query.Op.LT, 10.0 );
+        FilterSpec<InventoryManagementSystem.Product> scarceToys =
+            FilterSpec.on( InventoryManagementSystem.Product.class )
+                .where( "quantity", Query.Op.LE, 5 )
+                .where( "category", Query.Op.EQ, "Compiled Toys" );
+
+        Predicate<InventoryManagementSystem.Product> compiled = cheap.compile().or( scarceToys.compile() );
+        Predicate<InventoryManagementSystem.Product> composed = cheap.composed().or( scarceToys.composed() );
+        Predicate<InventoryManagementSystem.Product> mixed =
+            cheap.compile().and( scarceToys.compile().negate() ).or( scarceToys.composed() );
+        int matches = 0;
+        for ( InventoryManagementSystem.Product product : products )
+        {
+            assertEquals( product.toString(), composed.test( product ), compiled.test( product ) );
+            assertEquals( product.toString(), composed.test( product ), mixed.test( product ) );
+            matches += composed.test( product ) ? 1 : 0;
+        }
+        assertTrue( matches > 0 && matches < products.size() );
+    }
+
+    public void testSumMatchesComposedSum()
+    {
+        FilterSpec<InventoryManagementSystem.Product> spec = FilterSpec.on( InventoryManagementSystem.Product.class )
+                .where( "quantity", Query.Op.GT, 0 )
+                .where( "category", Query.Op.EQ, "Compiled Tools" );
+        Predicate<InventoryManagementSystem.Product> composed = spec.composed();
+
+        double expectedValue = 0;
+        long expectedUnits = 0;
+        for ( InventoryManagementSystem.Product product : products )
+        {
+            if ( composed.test( product ) )
+            {
+                expectedValue += product.getTotalValue();
+                expectedUnits += product.getQuantity();
+            }
+        }
+        assertEquals( expectedValue, spec.sumOf( "totalValue" ).compileSumming().sum( products ), 1e-6 );
+        // int projections are widened to double
+        assertEquals( (double) expectedUnits, spec.sumOf( "quantity" ).compileSumming().sum( products ), 0.0 );
+        assertEquals( 0.0, spec.sumOf( "price" ).compileSumming()
+                .sum( Collections.<InventoryManagementSystem.Product>emptyList() ), 0.0 );
+    }
+
+    public void testOnlySpecsWithAProjectionCompileToSummingFilters()
+    {
+        FilterSpec<InventoryManagementSystem.Product> spec = FilterSpec.on( InventoryManagementSystem.Product.class )
+                .where( "quantity", Query.Op.GT, 0 );
+        assertFalse( spec.compile() instanceof SummingFilter );
+        assertTrue( spec.sumOf( "price" ).compile() instanceof SummingFilter );
+        try
+        {
+            spec.compileSumming();
+            fail( "compiled a summing filter without sumOf" );
+        }
+        catch ( IllegalStateException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "sumOf" ) );
+        }
+    }
+
+    public void testOutOfRangeIntConstantsAreRejected()
+    {
+        for ( long bound : new long[] { 3_000_000_000L, Integer.MIN_VALUE - 1L } )
+        {
+            try
+            {
+                FilterSpec.on( InventoryManagementSystem.Product.class ).where( "quantity", Query.Op.LT, bound );
+                fail( "accepted " + bound );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                assertTrue( e.getMessage(), e.getMessage().contains( "out-of-range" ) );
+            }
+        }
+        // The int bounds themselves are fine
+        assertSameAsComposed( FilterSpec.on( InventoryManagementSystem.Product.class )
+                .where( "quantity", Query.Op.LT, (long) Integer.MAX_VALUE ) );
+    }
+
+    public void testInvalidClausesAreRejected()
+    {
+        assertRejected( "category", Query.Op.LT, "Compiled Toys" );
+        assertRejected( "quantity", Query.Op.EQ, 1.5 );
+        assertRejected( "price", Query.Op.EQ, "cheap" );
+        assertRejected( "expired", Query.Op.GT, Boolean.TRUE );
+        assertRejected( "colour", Query.Op.EQ, "red" );
+    }
+
+    public void testFilterIntoKeepsOrderAndCachesBySpec()
+    {
+        FilterSpec<InventoryManagementSystem.Product> spec = FilterSpec.on( InventoryManagementSystem.Product.class )
+                .where( "rating", Query.Op.GE, 4.0 );
+        List<InventoryManagementSystem.Product> expected = new ArrayList<>();
+        for ( InventoryManagementSystem.Product product : products )
+        {
+            if ( product.getRating() >= 4.0 )
+            {
+                expected.add( product );
+            }
+        }
+        List<Object> target = new ArrayList<>();
+        target.add( "existing" );
+        assertEquals( expected.size(), spec.compile().filterInto( products, target ) );
+        assertEquals( expected, target.subList( 1, target.size() ) );
+        assertSame( spec.compile(), FilterSpec.on( InventoryManagementSystem.Product.class )
+                .where( "rating", Query.Op.GE, 4.0 ).compile() );
+    }
+
+    public void testSpecsThatPrintAlikeCompileApart()
+    {
+        FilterSpec<InventoryManagementSystem.Product> two = FilterSpec.on( InventoryManagementSystem.Product.class )
+                .where( "name", Query.Op.EQ, "Product 1" ).where( "name", Query.Op.NE, "Product 2" );
+        FilterSpec<InventoryManagementSystem.Product> one = FilterSpec.on( InventoryManagementSystem.Product.class )
+                .where( "name", Query.Op.EQ, "Product 1' AND name != 'Product 2" );
+        assertEquals( two.toString(), one.toString() );
+        assertFalse( one.equals( two ) );
+
+        assertNotSame( two.compile(), one.compile() );
+        assertSameAsComposed( two );
+        assertSameAsComposed( one );
+    }
+
+    private void assertSameAsComposed( FilterSpec<InventoryManagementSystem.Product> spec )
+    {
+        Predicate<InventoryManagementSystem.Product> composed = spec.composed();
+        CompiledFilter<InventoryManagementSystem.Product> compiled = spec.compile();
+        for ( InventoryManagementSystem.Product product : products )
+        {
+            assertEquals( spec + " on " + product, composed.test( product ), compiled.test( product ) );
+        }
+        assertEquals( spec.toString(), count( products, composed ), compiled.count( products ) );
+    }
+
+    private static void assertRejected( String field, Query.Op op, Object value )
+    {
+        try
+        {
+            FilterSpec.on( InventoryManagementSystem.Product.class ).where( field, op, value );
+            fail( "accepted " + field + " " + op + " " + value );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( field ) );
+        }
+    }
+
+    private static <T> int count( List<T> records, Predicate<T> predicate )
+    {
+        int matches = 0;
+        for ( T record : records )
+        {
+            matches += predicate.test( record ) ? 1 : 0;
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,116 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+import java.util.stream.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * The int-keyed primitive maps and the collectors built on them must agree with HashMap and
+ * Collectors.groupingBy, sequentially and in parallel.
+ */
+public class PrimitiveCollectorsTest
+    extends TestCase
+{
+    public PrimitiveCollectorsTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( PrimitiveCollectorsTest.class );
+    }
+
+    public void testIntMapsMatchHashMap()
+    {
+        Random random = new Random( 11 );
+        IntDoubleMap sums = new IntDoubleMap();
+        IntLongMap counts = new IntLongMap();
+        Map<Integer, Double> expectedSums = new HashMap<>();
+        Map<Integer, Long> expectedCounts = new HashMap<>();
+        for ( int i = 0; i < 200000; i++ )
+        {
+            // Key 0 marks free slots internally; negative keys must work too
+            int key = random.nextInt( 20000 ) - 100;
+            double value = random.nextInt( 1000 ) / 10.0;
+            sums.addTo( key, value );
+            counts.increment( key );
+            expectedSums.merge( key, value, Double::sum );
+            expectedCounts.merge( key, 1L, Long::sum );
+        }
+        sums.put( 0, 42 );
+        expectedSums.put( 0, 42.0 );
+
+        assertEquals( expectedSums.size(), sums.size() );
+        assertEquals( expectedCounts, counts.toMap( Integer::valueOf ) );
+        for ( Map.Entry<Integer, Double> entry : expectedSums.entrySet() )
+        {
+            assertTrue( sums.containsKey( entry.getKey() ) );
+            assertEquals( entry.getValue(), sums.get( entry.getKey() ), 1e-6 );
+        }
+        assertFalse( sums.containsKey( 50000 ) );
+        assertEquals( -1.0, sums.getOrDefault( 50000, -1 ) );
+
+        // Merge into an empty map, then into one that already holds the same keys
+        IntDoubleMap merged = new IntDoubleMap().addAll( sums ).addAll( sums );
+        for ( Map.Entry<Integer, Double> entry : expectedSums.entrySet() )
+        {
+            assertEquals( 2 * entry.getValue(), merged.get( entry.getKey() ), 1e-6 );
+        }
+    }
+
+    public void testPrimitiveCollectorsMatchGroupingBy()
+    {
+        List<OrderProcessingSystem.Order> orders = createOrders();
+        Map<Integer, Double> expectedSums = orders.stream()
+            .collect( Collectors.groupingBy( OrderProcessingSystem.Order::getCustomerCode,
+                Collectors.summingDouble( OrderProcessingSystem.Order::getAmount ) ) );
+        Map<Integer, Double> expectedAverages = orders.stream()
+            .collect( Collectors.groupingBy( OrderProcessingSystem.Order::getCustomerCode,
+                Collectors.averagingDouble( OrderProcessingSystem.Order::getAmount ) ) );
+        Map<String, Long> expectedCounts = orders.stream()
+            .collect( Collectors.groupingBy( OrderProcessingSystem.Order::getShippingAddress,
+                Collectors.counting() ) );
+
+        for ( boolean parallel : new boolean[] { false, true } )
+        {
+            IntDoubleMap sums = ( parallel ? orders.parallelStream() : orders.stream() )
+                .collect( PrimitiveCollectors.summingDoubleByInt( OrderProcessingSystem.Order::getCustomerCode,
+                    OrderProcessingSystem.Order::getAmount ) );
+            IntDoubleMap averages = ( parallel ? orders.parallelStream() : orders.stream() )
+                .collect( PrimitiveCollectors.averagingDoubleByInt( OrderProcessingSystem.Order::getCustomerCode,
+                    OrderProcessingSystem.Order::getAmount ) );
+            ObjectLongMap<String> counts = ( parallel ? orders.parallelStream() : orders.stream() )
+                .collect( PrimitiveCollectors.counting( OrderProcessingSystem.Order::getShippingAddress ) );
+            ObjectDoubleMap<String> byName = ( parallel ? orders.parallelStream() : orders.stream() )
+                .collect( PrimitiveCollectors.summingDouble( OrderProcessingSystem.Order::getCustomerName,
+                    OrderProcessingSystem.Order::getAmount ) );
+
+            assertEquals( expectedSums.size(), sums.size() );
+            assertEquals( expectedCounts, counts.toMap() );
+            for ( Map.Entry<Integer, Double> entry : expectedSums.entrySet() )
+            {
+                assertEquals( entry.getValue(), sums.get( entry.getKey() ), 1e-6 );
+                assertEquals( expectedAverages.get( entry.getKey() ), averages.get( entry.getKey() ), 1e-6 );
+                assertEquals( entry.getValue(), byName.get( SymbolTable.CUSTOMERS.symbol( entry.getKey() ) ), 1e-6 );
+            }
+        }
+    }
+
+    private static List<OrderProcessingSystem.Order> createOrders()
+    {
+        Random random = new Random( 1 );
+        List<OrderProcessingSystem.Order> orders = new ArrayList<>();
+        for ( int i = 0; i < 10000; i++ )
+        {
+            orders.add( new OrderProcessingSystem.Order( "PC-" + i, "Customer-" + random.nextInt( 1000 ),
+                LocalDateTime.of( 2024, 1, 1, 0, 0 ).plusMinutes( i ), random.nextInt( 2500 ), "PENDING",
+                Arrays.asList( "Laptop", "Mouse" ), "City-" + random.nextInt( 50 ) ) );
+        }
+        return orders;
+    }
+}
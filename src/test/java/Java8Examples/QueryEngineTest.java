@@ -0,0 +1,193 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+import java.util.stream.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Queries must parse or fail with a clear message, pick an index only when it is selective,
+ * and return what the equivalent plain stream computes.
+ */
+public class QueryEngineTest
+    extends TestCase
+{
+    private static final int ORDERS = 5000;
+    private static final String[] STATUSES = { "PENDING", "DELIVERED", "CANCELLED", "SHIPPED" };
+
+    private List<OrderProcessingSystem.Order> orders;
+    private QueryEngine engine;
+
+    public QueryEngineTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( QueryEngineTest.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        orders = new ArrayList<>();
+        Random random = new Random( 5 );
+        for ( int i = 0; i < ORDERS; i++ )
+        {
+            orders.add( new OrderProcessingSystem.Order( "Q" + i, "Query Customer " + random.nextInt( 500 ),
+                    LocalDateTime.of( 2024, 1, 1, 0, 0 ).plusMinutes( i ), random.nextInt( 300000 ) / 100.0,
+                    STATUSES[random.nextInt( STATUSES.length )], Arrays.asList( "Laptop" ), "Mumbai" ) );
+        }
+        // The same rows twice: through the column store, and through the record getters
+        engine = new QueryEngine()
+                .register( QueryTable.of( "orders", SnapshotSchema.ORDERS, orders )
+                        .withHashIndex( "customerName" ).withHashIndex( "status" ).withSortedIndex( "amount" )
+                        .withColumnStore() )
+                .register( QueryTable.of( "order_records", SnapshotSchema.ORDERS, orders ) );
+    }
+
+    public void testParserErrorsNameTheProblemAndOffset()
+    {
+        assertParseError( "SELECT , orderId FROM orders", "Expected a name at offset 7" );
+        assertParseError( "SELECT orderId orders", "Expected FROM at offset 15" );
+        assertParseError( "SELECT median(amount) FROM orders", "Unknown aggregate median" );
+        assertParseError( "SELECT sum(*) FROM orders", "sum(*) is not supported" );
+        assertParseError( "SELECT orderId FROM orders WHERE amount ~ 3", "Unexpected character '~' at offset 40" );
+        assertParseError( "SELECT orderId FROM orders WHERE status = 'PENDING", "Unterminated string at offset 42" );
+        assertParseError( "SELECT orderId FROM orders WHERE amount", "Expected a comparison operator" );
+        assertParseError( "SELECT orderId FROM orders LIMIT ten", "Expected a number" );
+        assertParseError( "SELECT orderId FROM orders extra", "Unexpected 'extra'" );
+        assertParseError( "SELECT status, count(*) FROM orders", "must appear in GROUP BY" );
+        assertParseError( "SELECT orderId FROM orders ORDER BY amount", "is not a selected item" );
+    }
+
+    public void testUnknownTablesAndColumnsAreRejected()
+    {
+        assertExecuteError( "SELECT orderId FROM invoices", "Unknown table invoices" );
+        assertExecuteError( "SELECT orderId FROM orders WHERE total > 3", "total" );
+        assertExecuteError( "SELECT sum(status) FROM orders", "needs a numeric column" );
+    }
+
+    public void testSelectiveEqualityUsesTheHashIndex()
+    {
+        String plan = engine.explain( "EXPLAIN SELECT orderId FROM orders WHERE customerName = 'Query Customer 7'" );
+        assertTrue( plan, plan.contains( "* IndexLookup orders.customerName = 'Query Customer 7' via hash index" ) );
+    }
+
+    public void testSelectiveRangeUsesTheSortedIndex()
+    {
+        String plan = engine.explain( "SELECT orderId FROM orders WHERE amount > 2990" );
+        assertTrue( plan, plan.contains( "* IndexRange orders.amount > 2990 via sorted index" ) );
+    }
+
+    public void testUnselectiveConditionsScan()
+    {
+        String plan = engine.explain( "SELECT orderId FROM orders WHERE amount > 10 AND status != 'CANCELLED'" );
+        assertTrue( plan, plan.contains( "* ColumnarScan orders" ) );
+
+        plan = engine.explain( "SELECT orderId FROM order_records WHERE amount > 10" );
+        assertTrue( plan, plan.contains( "* FullScan order_records" ) );
+    }
+
+    public void testFilteredRowsMatchAStream()
+    {
+        for ( String table : new String[] { "orders", "order_records" } )
+        {
+            QueryEngine.QueryResult result = engine.execute(
+                    "SELECT orderId FROM " + table + " WHERE amount >= 1000 AND amount < 1500 AND status = 'PENDING'" );
+            Set<Object> ids = new HashSet<>();
+            for ( Object[] row : result.getRows() )
+            {
+                ids.add( row[0] );
+            }
+            Set<Object> expected = orders.stream()
+                    .filter( o -> o.getAmount() >= 1000 && o.getAmount() < 1500 && "PENDING".equals( o.getStatus() ) )
+                    .map( OrderProcessingSystem.Order::getOrderId )
+                    .collect( Collectors.toSet() );
+            assertEquals( table, expected, ids );
+        }
+    }
+
+    public void testGroupedAggregatesMatchAStream()
+    {
+        QueryEngine.QueryResult result = engine.execute( "SELECT status, count(*), sum(amount), avg(amount), "
+                + "min(amount), max(amount) FROM orders WHERE amount > 100 GROUP BY status ORDER BY count(*) DESC" );
+
+        Map<String, DoubleSummaryStatistics> expected = orders.stream()
+                .filter( o -> o.getAmount() > 100 )
+                .collect( Collectors.groupingBy( OrderProcessingSystem.Order::getStatus,
+                        Collectors.summarizingDouble( OrderProcessingSystem.Order::getAmount ) ) );
+        assertEquals( Arrays.asList( "status", "count(*)", "sum(amount)", "avg(amount)", "min(amount)", "max(amount)" ),
+                result.getColumns() );
+        assertEquals( expected.size(), result.getRows().size() );
+        long previousCount = Long.MAX_VALUE;
+        for ( Object[] row : result.getRows() )
+        {
+            DoubleSummaryStatistics stats = expected.get( row[0] );
+            assertEquals( stats.getCount(), ( (Long) row[1] ).longValue() );
+            assertEquals( stats.getSum(), (Double) row[2], 1e-6 );
+            assertEquals( stats.getAverage(), (Double) row[3], 1e-9 );
+            assertEquals( stats.getMin(), (Double) row[4], 0.0 );
+            assertEquals( stats.getMax(), (Double) row[5], 0.0 );
+            assertTrue( "not descending", stats.getCount() <= previousCount );
+            previousCount = stats.getCount();
+        }
+    }
+
+    public void testOrderByAndLimitMatchAStream()
+    {
+        QueryEngine.QueryResult result = engine.execute(
+                "SELECT orderId, amount FROM orders WHERE status = 'SHIPPED' ORDER BY amount DESC LIMIT 5" );
+
+        List<Double> expected = orders.stream()
+                .filter( o -> "SHIPPED".equals( o.getStatus() ) )
+                .map( OrderProcessingSystem.Order::getAmount )
+                .sorted( Comparator.reverseOrder() )
+                .limit( 5 )
+                .collect( Collectors.toList() );
+        List<Object> amounts = new ArrayList<>();
+        for ( Object[] row : result.getRows() )
+        {
+            amounts.add( row[1] );
+        }
+        assertEquals( expected, amounts );
+    }
+
+    public void testAggregatesOverNoRowsGiveOneRow()
+    {
+        QueryEngine.QueryResult result = engine.execute( "SELECT count(*), avg(amount) FROM orders WHERE amount < 0" );
+        assertEquals( 1, result.getRows().size() );
+        assertEquals( 0L, result.getRows().get( 0 )[0] );
+        assertNull( result.getRows().get( 0 )[1] );
+    }
+
+    private static void assertParseError( String text, String message )
+    {
+        try
+        {
+            Query.parse( text );
+            fail( "parsed " + text );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( message ) );
+        }
+    }
+
+    private void assertExecuteError( String text, String message )
+    {
+        try
+        {
+            engine.execute( text );
+            fail( "executed " + text );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( message ) );
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Cached outputs must come back whole from either tier, only under the same input and configuration.
+ */
+public class ResultCacheTest
+    extends TestCase
+{
+    private static final long INPUT = 0x1234L;
+    private static final long CONFIG = 0x5678L;
+
+    private Path directory;
+
+    public ResultCacheTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ResultCacheTest.class );
+    }
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory( "result-cache" );
+    }
+
+    @Override
+    protected void tearDown() throws IOException
+    {
+        try ( DirectoryStream<Path> files = Files.newDirectoryStream( directory ) )
+        {
+            for ( Path file : files )
+            {
+                Files.delete( file );
+            }
+        }
+        Files.delete( directory );
+    }
+
+    public void testMemoryHitReturnsResultAndReport()
+    {
+        ResultCache cache = new ResultCache( 4, 0, null );
+        assertNull( cache.get( "ORDER", INPUT, CONFIG ) );
+        cache.put( "ORDER", INPUT, CONFIG, new ModuleOutput( "ORDER_PROCESSED:VALID_3", "Total Orders: 4\n" ) );
+
+        ModuleOutput hit = cache.get( "ORDER", INPUT, CONFIG );
+        assertEquals( "ORDER_PROCESSED:VALID_3", hit.getResult() );
+        assertEquals( "Total Orders: 4\n", hit.getReport() );
+        assertEquals( 1, cache.getStats().getMemoryHits() );
+        assertEquals( 1, cache.getStats().getMisses() );
+    }
+
+    public void testDifferentConfigurationOrInputMisses()
+    {
+        ResultCache cache = new ResultCache( 4, 0, null );
+        cache.put( "ORDER", INPUT, CONFIG, new ModuleOutput( "ORDER_PROCESSED", "" ) );
+
+        assertNull( cache.get( "ORDER", INPUT, CONFIG + 1 ) );
+        assertNull( cache.get( "ORDER", INPUT + 1, CONFIG ) );
+        assertNull( cache.get( "EMPLOYEE", INPUT, CONFIG ) );
+        assertEquals( 3, cache.getStats().getMisses() );
+    }
+
+    public void testDiskTierSurvivesANewInstance()
+    {
+        String report = "Processing Order Data...\nTop Customer: Neha Gupta ($2300.25)\n\n";
+        new ResultCache( 4, 0, directory ).put( "ORDER", INPUT, CONFIG, new ModuleOutput( "ORDER_PROCESSED", report ) );
+
+        ResultCache restarted = new ResultCache( 4, 0, directory );
+        ModuleOutput hit = restarted.get( "ORDER", INPUT, CONFIG );
+        assertEquals( "ORDER_PROCESSED", hit.getResult() );
+        assertEquals( report, hit.getReport() );
+        assertEquals( 1, restarted.getStats().getDiskHits() );
+        // Promoted into memory by the disk hit
+        restarted.get( "ORDER", INPUT, CONFIG );
+        assertEquals( 1, restarted.getStats().getMemoryHits() );
+    }
+
+    public void testLeastRecentlyUsedEntryIsEvicted()
+    {
+        ResultCache cache = new ResultCache( 2, 0, null );
+        cache.put( "A", INPUT, CONFIG, new ModuleOutput( "A", "" ) );
+        cache.put( "B", INPUT, CONFIG, new ModuleOutput( "B", "" ) );
+        assertNotNull( cache.get( "A", INPUT, CONFIG ) );
+        cache.put( "C", INPUT, CONFIG, new ModuleOutput( "C", "" ) );
+
+        assertEquals( 1, cache.getStats().getEvictions() );
+        assertNull( cache.get( "B", INPUT, CONFIG ) );
+        assertNotNull( cache.get( "A", INPUT, CONFIG ) );
+        assertNotNull( cache.get( "C", INPUT, CONFIG ) );
+    }
+
+    public void testExpiredEntriesAreDroppedFromBothTiers() throws Exception
+    {
+        ResultCache cache = new ResultCache( 4, 20, directory );
+        cache.put( "ORDER", INPUT, CONFIG, new ModuleOutput( "ORDER_PROCESSED", "" ) );
+        Thread.sleep( 50 );
+
+        assertNull( cache.get( "ORDER", INPUT, CONFIG ) );
+        assertEquals( 2, cache.getStats().getExpirations() );
+        try ( DirectoryStream<Path> files = Files.newDirectoryStream( directory, "*.cache" ) )
+        {
+            assertFalse( files.iterator().hasNext() );
+        }
+    }
+
+    public void testCorruptFileIsAMiss() throws IOException
+    {
+        new ResultCache( 4, 0, directory ).put( "ORDER", INPUT, CONFIG, new ModuleOutput( "ORDER_PROCESSED", "" ) );
+        try ( DirectoryStream<Path> files = Files.newDirectoryStream( directory, "*.cache" ) )
+        {
+            for ( Path file : files )
+            {
+                Files.write( file, "not a timestamp".getBytes( StandardCharsets.UTF_8 ) );
+            }
+        }
+        PrintStream err = System.err;
+        System.setErr( new PrintStream( new ByteArrayOutputStream() ) );
+        try
+        {
+            assertNull( new ResultCache( 4, 0, directory ).get( "ORDER", INPUT, CONFIG ) );
+        }
+        finally
+        {
+            System.setErr( err );
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Department figures kept incrementally by the salary store must equal a fresh pass over the
+ * employees after every batch, and a failed batch must leave no trace.
+ */
+public class SalaryStoreTest
+    extends TestCase
+{
+    private static final String DEVELOPMENT = "Salary Development";
+    private static final String OPERATIONS = "Salary Operations";
+
+    public SalaryStoreTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( SalaryStoreTest.class );
+    }
+
+    public void testTransferMovesTheEmployeeBetweenDepartments()
+    {
+        SalaryStore store = new SalaryStore( Arrays.asList(
+                employee( "S1", 10, DEVELOPMENT ), employee( "S2", 20, DEVELOPMENT ), employee( "S3", 30, OPERATIONS ) ) );
+        SalaryStore.Snapshot before = store.snapshot();
+
+        SalaryStore.Snapshot after = store.batch().transfer( "S2", OPERATIONS ).commit();
+
+        assertEquals( OPERATIONS, store.getDepartment( "S2" ) );
+        assertStats( after.getDepartmentStats( DEVELOPMENT ), 1, 10, 10, 10 );
+        assertStats( after.getDepartmentStats( OPERATIONS ), 2, 50, 20, 30 );
+        assertStats( after.getTotal(), 3, 60, 10, 30 );
+        assertEquals( 1, after.getVersion() );
+        // Readers holding the old snapshot keep seeing it
+        assertStats( before.getDepartmentStats( DEVELOPMENT ), 2, 30, 10, 20 );
+        assertEquals( 0, before.getVersion() );
+    }
+
+    public void testRaiseDepartmentOnlyRaisesItsMembers()
+    {
+        SalaryStore store = new SalaryStore( Arrays.asList(
+                employee( "S1", 1000, DEVELOPMENT ), employee( "S2", 2000, DEVELOPMENT ),
+                employee( "S3", 4000, OPERATIONS ) ) );
+
+        // S3 joins Development earlier in the same batch, so it is raised too
+        store.batch().transfer( "S3", DEVELOPMENT ).raiseDepartment( DEVELOPMENT, 10 ).raise( "S1", 50 ).commit();
+
+        assertEquals( 1650.0, store.getSalary( "S1" ), 1e-9 );
+        assertEquals( 2200.0, store.getSalary( "S2" ), 1e-9 );
+        assertEquals( 4400.0, store.getSalary( "S3" ), 1e-9 );
+        assertStats( store.snapshot().getDepartmentStats( DEVELOPMENT ), 3, 8250, 1650, 4400 );
+        assertEquals( 0, store.snapshot().getDepartmentStats( OPERATIONS ).getCount() );
+        assertEquals( 0.0, store.snapshot().getDepartmentStats( OPERATIONS ).getMax(), 0.0 );
+        assertFalse( store.snapshot().getDepartmentStats().containsKey( OPERATIONS ) );
+
+        // A department nobody belongs to is a no-op
+        store.batch().raiseDepartment( "Salary Nobody", 10 ).commit();
+        assertEquals( 1650.0, store.getSalary( "S1" ), 1e-9 );
+    }
+
+    public void testMinAndMaxAreRescannedWhenTheirHolderLeaves()
+    {
+        SalaryStore store = new SalaryStore( Arrays.asList(
+                employee( "S1", 10, DEVELOPMENT ), employee( "S2", 20, DEVELOPMENT ),
+                employee( "S3", 30, DEVELOPMENT ), employee( "S4", 30, DEVELOPMENT ) ) );
+
+        // One of two holders of the max leaves: the max stays
+        store.batch().transfer( "S3", OPERATIONS ).commit();
+        assertStats( store.snapshot().getDepartmentStats( DEVELOPMENT ), 3, 60, 10, 30 );
+
+        // The last holder of the max leaves
+        store.batch().transfer( "S4", OPERATIONS ).commit();
+        assertStats( store.snapshot().getDepartmentStats( DEVELOPMENT ), 2, 30, 10, 20 );
+
+        // The min holder's salary rises above everyone else's
+        store.batch().setSalary( "S1", 25 ).commit();
+        assertStats( store.snapshot().getDepartmentStats( DEVELOPMENT ), 2, 45, 20, 25 );
+
+        // A cut below the current min lowers it without a rescan
+        store.batch().adjustSalary( "S2", -15 ).commit();
+        assertStats( store.snapshot().getDepartmentStats( DEVELOPMENT ), 2, 30, 5, 25 );
+        assertStats( store.snapshot().getDepartmentStats( OPERATIONS ), 2, 60, 30, 30 );
+    }
+
+    public void testAFailedBatchPublishesNothingAndInternsNothing()
+    {
+        SalaryStore store = new SalaryStore( Arrays.asList(
+                employee( "S1", 100, DEVELOPMENT ), employee( "S2", 200, OPERATIONS ) ) );
+        String newDepartment = "Salary Department " + System.nanoTime();
+
+        SalaryStore.Batch batch = store.batch()
+                .transfer( "S1", newDepartment )
+                .raise( "S2", 10 )
+                // Valid when recorded, negative at commit
+                .adjustSalary( "S2", -1000 );
+        try
+        {
+            batch.commit();
+            fail( "committed a negative salary" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "Invalid salary" ) );
+        }
+        assertEquals( 0, store.snapshot().getVersion() );
+        assertEquals( 200.0, store.getSalary( "S2" ), 0.0 );
+        assertEquals( DEVELOPMENT, store.getDepartment( "S1" ) );
+        assertEquals( SymbolTable.NO_SYMBOL, SymbolTable.DEPARTMENTS.codeOf( newDepartment ) );
+
+        // The same transfer on its own applies and interns the department
+        store.batch().transfer( "S1", newDepartment ).commit();
+        assertEquals( newDepartment, store.getDepartment( "S1" ) );
+        assertStats( store.snapshot().getDepartmentStats( newDepartment ), 1, 100, 100, 100 );
+        assertTrue( SymbolTable.DEPARTMENTS.codeOf( newDepartment ) != SymbolTable.NO_SYMBOL );
+    }
+
+    public void testInvalidChangesAreRejectedWhenRecorded()
+    {
+        SalaryStore store = new SalaryStore( Collections.singletonList( employee( "S1", 100, DEVELOPMENT ) ) );
+        try
+        {
+            store.batch().raise( "S9", 10 );
+            fail( "accepted an unknown employee" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "S9" ) );
+        }
+        try
+        {
+            store.batch().setSalary( "S1", Double.NaN );
+            fail( "accepted NaN" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "NaN" ) );
+        }
+    }
+
+    public void testEveryRetotalIntervalTheSumsAreRecomputedExactly()
+    {
+        List<EmployeeDataProcessor.Employee> employees = new ArrayList<>();
+        for ( int i = 0; i < 300; i++ )
+        {
+            employees.add( employee( "S" + i, 1000 + i * 0.37, i % 3 == 0 ? OPERATIONS : DEVELOPMENT ) );
+        }
+        SalaryStore store = new SalaryStore( employees );
+        Random random = new Random( 9 );
+        SalaryStore.Snapshot snapshot = store.snapshot();
+        while ( snapshot.getVersion() < 4096 )
+        {
+            String id = "S" + random.nextInt( employees.size() );
+            snapshot = store.batch().adjustSalary( id, random.nextInt( 1000 ) / 100.0 + 0.01 ).commit();
+            if ( snapshot.getVersion() < 4096 )
+            {
+                // Running sums may have drifted, but only by rounding
+                assertEquals( slotOrderSum( store, employees, DEVELOPMENT ),
+                        snapshot.getDepartmentStats( DEVELOPMENT ).getSum(), 1e-6 );
+            }
+        }
+        // Version 4096 re-totals in slot order, exactly like a fresh pass
+        assertEquals( slotOrderSum( store, employees, DEVELOPMENT ), snapshot.getDepartmentStats( DEVELOPMENT ).getSum(),
+                0.0 );
+        assertEquals( slotOrderSum( store, employees, OPERATIONS ), snapshot.getDepartmentStats( OPERATIONS ).getSum(),
+                0.0 );
+        assertEquals( 200, snapshot.getDepartmentStats( DEVELOPMENT ).getCount() );
+    }
+
+    private static double slotOrderSum( SalaryStore store, List<EmployeeDataProcessor.Employee> employees,
+                                        String department )
+    {
+        double sum = 0;
+        for ( EmployeeDataProcessor.Employee employee : employees )
+        {
+            if ( department.equals( store.getDepartment( employee.getId() ) ) )
+            {
+                sum += store.getSalary( employee.getId() );
+            }
+        }
+        return sum;
+    }
+
+    private static void assertStats( SalaryStore.DepartmentStats stats, int count, double sum, double min, double max )
+    {
+        assertEquals( stats.toString(), count, stats.getCount() );
+        assertEquals( stats.toString(), sum, stats.getSum(), 1e-9 );
+        assertEquals( stats.toString(), min, stats.getMin(), 1e-9 );
+        assertEquals( stats.toString(), max, stats.getMax(), 1e-9 );
+    }
+
+    private static EmployeeDataProcessor.Employee employee( String id, double salary, String department )
+    {
+        return new EmployeeDataProcessor.Employee( id, "Salary " + id, salary, department, LocalDate.of( 2020, 1, 1 ),
+                30, Collections.<String>emptyList() );
+    }
+}
@@ -0,0 +1,112 @@
+package Java8Examples;
+
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Runs the aggregation in worker JVMs and checks that the merged partials match
+ * a single-process pass over the same data.
+ */
+public class ShardedExecutorTest
+    extends TestCase
+{
+    private static final int N = 100000;
+
+    public ShardedExecutorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ShardedExecutorTest.class );
+    }
+
+    public void testEveryConfigSettingIsForwardedToWorkers()
+    {
+        String[] keys = { "grouping.partitions", "cache.maxEntries", "aggregation.parallelism", "scheduler.agingMs",
+            "snapshot.dir", "sharded.test.unrelated" };
+        try
+        {
+            for ( String key : keys )
+            {
+                System.setProperty( key, "8" );
+            }
+            List<String> options = ShardedExecutor.forwardedSettings();
+            for ( int i = 0; i < keys.length - 1; i++ )
+            {
+                assertTrue( keys[i] + " in " + options, options.contains( "-D" + keys[i] + "=8" ) );
+            }
+            assertFalse( options.contains( "-Dsharded.test.unrelated=8" ) );
+        }
+        finally
+        {
+            for ( String key : keys )
+            {
+                System.clearProperty( key );
+            }
+        }
+    }
+
+    public void testMergedShardsMatchSingleProcess() throws Exception
+    {
+        Random random = new Random( 42 );
+        String[] departments = { "Development", "Testing", "Sales", "Support", "Finance", "HR" };
+        String[] categories = { "Electronics", "Furniture", "Books", "Toys", "Garden" };
+
+        List<EmployeeDataProcessor.Employee> employees = new ArrayList<>();
+        List<FinancialCalculator.Transaction> transactions = new ArrayList<>();
+        List<InventoryManagementSystem.Product> products = new ArrayList<>();
+        List<OrderProcessingSystem.Order> orders = new ArrayList<>();
+        for ( int i = 0; i < N; i++ )
+        {
+            employees.add( new EmployeeDataProcessor.Employee( "E" + i, "Employee " + i,
+                    40000 + random.nextInt( 80000 ), departments[i % departments.length],
+                    LocalDate.of( 2015, 1, 1 ).plusDays( random.nextInt( 3000 ) ), 22 + random.nextInt( 40 ),
+                    Arrays.asList( "Java", "SQL" ) ) );
+            transactions.add( new FinancialCalculator.Transaction( "T" + i, random.nextInt( 500000 ) / 100.0,
+                    LocalDateTime.of( 2024, 1, 1, 0, 0 ).plusMinutes( random.nextInt( 500000 ) ),
+                    i % 3 == 0 ? "INCOME" : "EXPENSE", categories[i % categories.length], "txn" ) );
+            orders.add( new OrderProcessingSystem.Order( "O" + i, "Customer " + random.nextInt( 5000 ),
+                    LocalDateTime.of( 2024, 6, 1, 0, 0 ).plusMinutes( i ), random.nextInt( 300000 ) / 100.0,
+                    i % 10 == 0 ? "CANCELLED" : "PENDING",
+                    Arrays.asList( "Product " + random.nextInt( 2000 ), "Product " + random.nextInt( 4000 ) ),
+                    "City " + ( i % 50 ) ) );
+        }
+        for ( int i = 0; i < 2000; i++ )
+        {
+            products.add( new InventoryManagementSystem.Product( "P" + i, "Product " + i,
+                    categories[i % categories.length], 10 + random.nextInt( 1000 ), random.nextInt( 50 ),
+                    1 + random.nextInt( 40 ) / 10.0, LocalDate.of( 2027, 1, 1 ) ) );
+        }
+
+        PartialAggregates single = PartialAggregates.compute( employees, transactions, products, orders, products );
+
+        int shards = Math.max( 2, Math.min( 4, Runtime.getRuntime().availableProcessors() ) );
+        ShardedExecutor executor = new ShardedExecutor( shards, Files.createTempDirectory( "sharded-test" ) );
+        PartialAggregates merged;
+        try
+        {
+            merged = executor.execute( employees, transactions, products, orders );
+        }
+        finally
+        {
+            executor.cleanUp();
+        }
+
+        assertEquals( single.toResults(), merged.toResults() );
+        assertEquals( single.getMaxSalary(), merged.getMaxSalary() );
+        assertEquals( single.getTopCustomers().keySet(), merged.getTopCustomers().keySet() );
+        assertEquals( new HashSet<>( single.getHighPaidEmployees() ), new HashSet<>( merged.getHighPaidEmployees() ) );
+        assertEquals( single.getProductsByCategory(), merged.getProductsByCategory() );
+        assertEquals( single.getUnitsByProduct(), merged.getUnitsByProduct() );
+        assertEquals( single.getLowStockCount(), merged.getLowStockCount() );
+        // Cents add up the same in any grouping
+        assertEquals( single.getRevenueCentsByCategory(), merged.getRevenueCentsByCategory() );
+    }
+}
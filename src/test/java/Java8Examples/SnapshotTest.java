@@ -0,0 +1,245 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.stream.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Every schema must read back exactly what was written, including nulls, empty lists and null list elements.
+ */
+public class SnapshotTest
+    extends TestCase
+{
+    private Path directory;
+
+    public SnapshotTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( SnapshotTest.class );
+    }
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory( "snapshot" );
+    }
+
+    @Override
+    protected void tearDown() throws IOException
+    {
+        try ( Stream<Path> files = Files.list( directory ) )
+        {
+            for ( Path file : files.collect( Collectors.toList() ) )
+            {
+                Files.delete( file );
+            }
+        }
+        Files.delete( directory );
+    }
+
+    public void testEmployeesRoundTrip() throws IOException
+    {
+        List<EmployeeDataProcessor.Employee> employees = Arrays.asList(
+                new EmployeeDataProcessor.Employee( "E1", "Aarav", 85000.25, "Development",
+                        LocalDate.of( 2020, 3, 15 ), 28, Arrays.asList( "Java", "Spring" ) ),
+                new EmployeeDataProcessor.Employee( "E2", null, -1.5, null, null, -3, null ),
+                new EmployeeDataProcessor.Employee( "E3", "Priya", 0, "Testing",
+                        LocalDate.of( 1999, 12, 31 ), 0, Collections.<String>emptyList() ),
+                new EmployeeDataProcessor.Employee( "E4", "", 1e9, "Development",
+                        LocalDate.of( 2024, 2, 29 ), Integer.MAX_VALUE, Arrays.asList( null, "Java", null ) ) );
+
+        try ( Snapshot<EmployeeDataProcessor.Employee> snapshot = roundTrip( "employees", SnapshotSchema.EMPLOYEES,
+                employees ) )
+        {
+            List<EmployeeDataProcessor.Employee> read = snapshot.records();
+            assertEquals( employees.size(), read.size() );
+            for ( int i = 0; i < employees.size(); i++ )
+            {
+                EmployeeDataProcessor.Employee expected = employees.get( i );
+                EmployeeDataProcessor.Employee actual = read.get( i );
+                assertEquals( expected.getId(), actual.getId() );
+                assertEquals( expected.getName(), actual.getName() );
+                assertEquals( expected.getSalary(), actual.getSalary(), 0.0 );
+                assertEquals( expected.getDepartment(), actual.getDepartment() );
+                assertEquals( expected.getJoinDate(), actual.getJoinDate() );
+                assertEquals( expected.getAge(), actual.getAge() );
+                assertEquals( expected.getSkills(), actual.getSkills() );
+            }
+            assertEquals( Arrays.asList( 85000.25, -1.5, 0.0, 1e9 ),
+                    snapshot.doubles( "salary" ).boxed().collect( Collectors.toList() ) );
+        }
+    }
+
+    public void testTransactionsRoundTrip() throws IOException
+    {
+        List<FinancialCalculator.Transaction> transactions = Arrays.asList(
+                new FinancialCalculator.Transaction( "T1", 5000.0, LocalDateTime.of( 2024, 1, 15, 10, 30 ),
+                        "INCOME", "Salary", "Monthly salary" ),
+                new FinancialCalculator.Transaction( "T2", 0.01, null, null, null, null ),
+                // Earlier than the previous row, with nanos: a negative delta
+                new FinancialCalculator.Transaction( "T3", -300.0, LocalDateTime.of( 1970, 1, 1, 0, 0, 0, 999999999 ),
+                        "EXPENSE", "Utilities", "Électricité" ),
+                new FinancialCalculator.Transaction( "T4", 1500.0, LocalDateTime.of( 2024, 1, 15, 10, 30 ),
+                        "EXPENSE", "Salary", "" ) );
+
+        try ( Snapshot<FinancialCalculator.Transaction> snapshot = roundTrip( "transactions",
+                SnapshotSchema.TRANSACTIONS, transactions ) )
+        {
+            List<FinancialCalculator.Transaction> read = snapshot.records();
+            assertEquals( transactions.size(), read.size() );
+            for ( int i = 0; i < transactions.size(); i++ )
+            {
+                FinancialCalculator.Transaction expected = transactions.get( i );
+                FinancialCalculator.Transaction actual = read.get( i );
+                assertEquals( expected.getId(), actual.getId() );
+                assertEquals( expected.getAmount(), actual.getAmount(), 0.0 );
+                assertEquals( expected.getTimestamp(), actual.getTimestamp() );
+                assertEquals( expected.getType(), actual.getType() );
+                assertEquals( expected.getCategory(), actual.getCategory() );
+                assertEquals( expected.getDescription(), actual.getDescription() );
+            }
+        }
+    }
+
+    public void testProductsRoundTrip() throws IOException
+    {
+        List<InventoryManagementSystem.Product> products = Arrays.asList(
+                new InventoryManagementSystem.Product( "P1", "Laptop", "Electronics", 899.99, 15, 4.5,
+                        LocalDate.of( 2026, 12, 31 ) ),
+                new InventoryManagementSystem.Product( null, null, null, 0, 0, 0, null ),
+                new InventoryManagementSystem.Product( "P3", "Notebook", "Stationery", 4.99, -2, 5.0,
+                        LocalDate.of( 2025, 3, 31 ) ) );
+
+        try ( Snapshot<InventoryManagementSystem.Product> snapshot = roundTrip( "products", SnapshotSchema.PRODUCTS,
+                products ) )
+        {
+            List<InventoryManagementSystem.Product> read = snapshot.records();
+            assertEquals( products.size(), read.size() );
+            for ( int i = 0; i < products.size(); i++ )
+            {
+                InventoryManagementSystem.Product expected = products.get( i );
+                InventoryManagementSystem.Product actual = read.get( i );
+                assertEquals( expected.getProductId(), actual.getProductId() );
+                assertEquals( expected.getName(), actual.getName() );
+                assertEquals( expected.getCategory(), actual.getCategory() );
+                assertEquals( expected.getPrice(), actual.getPrice(), 0.0 );
+                assertEquals( expected.getQuantity(), actual.getQuantity() );
+                assertEquals( expected.getRating(), actual.getRating(), 0.0 );
+                assertEquals( expected.getExpiryDate(), actual.getExpiryDate() );
+            }
+        }
+    }
+
+    public void testOrdersRoundTrip() throws IOException
+    {
+        List<OrderProcessingSystem.Order> orders = Arrays.asList(
+                new OrderProcessingSystem.Order( "O1", "Rajesh Kumar", LocalDateTime.of( 2024, 1, 18, 11, 0 ), 1299.99,
+                        "PENDING", Arrays.asList( "Laptop", "Mouse" ), "Mumbai" ),
+                new OrderProcessingSystem.Order( "O2", null, null, 0, null, Collections.<String>emptyList(), null ),
+                new OrderProcessingSystem.Order( "O3", "Rajesh Kumar", LocalDateTime.of( 2024, 1, 15, 16, 45 ), 89.5,
+                        "CANCELLED", Arrays.asList( "Mouse", null ), "Delhi" ) );
+
+        try ( Snapshot<OrderProcessingSystem.Order> snapshot = roundTrip( "orders", SnapshotSchema.ORDERS, orders ) )
+        {
+            List<OrderProcessingSystem.Order> read = snapshot.records();
+            assertEquals( orders.size(), read.size() );
+            for ( int i = 0; i < orders.size(); i++ )
+            {
+                OrderProcessingSystem.Order expected = orders.get( i );
+                OrderProcessingSystem.Order actual = read.get( i );
+                assertEquals( expected.getOrderId(), actual.getOrderId() );
+                assertEquals( expected.getCustomerName(), actual.getCustomerName() );
+                assertEquals( expected.getOrderDate(), actual.getOrderDate() );
+                assertEquals( expected.getAmount(), actual.getAmount(), 0.0 );
+                assertEquals( expected.getStatus(), actual.getStatus() );
+                assertEquals( expected.getItems(), actual.getItems() );
+                assertEquals( expected.getShippingAddress(), actual.getShippingAddress() );
+            }
+        }
+    }
+
+    public void testRecordsAreBuiltOnceAndKeepTheirChanges() throws IOException
+    {
+        List<OrderProcessingSystem.Order> orders = Collections.singletonList(
+                new OrderProcessingSystem.Order( "O1", "Rajesh Kumar", LocalDateTime.of( 2024, 1, 18, 11, 0 ), 10,
+                        "PENDING", Arrays.asList( "Laptop" ), "Mumbai" ) );
+
+        try ( Snapshot<OrderProcessingSystem.Order> snapshot = roundTrip( "orders", SnapshotSchema.ORDERS, orders ) )
+        {
+            OrderProcessingSystem.Order first = snapshot.records().get( 0 );
+            first.setStatus( "PROCESSED" );
+            assertSame( first, snapshot.records().get( 0 ) );
+            assertEquals( "PROCESSED", snapshot.records().get( 0 ).getStatus() );
+        }
+    }
+
+    public void testOpeningWithTheWrongSchemaFails() throws IOException
+    {
+        Path file = directory.resolve( "products.snap" );
+        SnapshotWriter.write( file, SnapshotSchema.PRODUCTS, MainExecutor.createSampleProducts() );
+        try
+        {
+            Snapshot.open( file, SnapshotSchema.ORDERS ).close();
+            fail( "opened products as orders" );
+        }
+        catch ( IOException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "product" ) );
+        }
+    }
+
+    public void testFailedAppendKeepsThePreviousSnapshot() throws IOException
+    {
+        Path file = directory.resolve( "products.snap" );
+        List<InventoryManagementSystem.Product> products = MainExecutor.createSampleProducts();
+        SnapshotWriter.write( file, SnapshotSchema.PRODUCTS, products );
+        byte[] before = Files.readAllBytes( file );
+
+        // The second record fails half-way into its row
+        try
+        {
+            SnapshotWriter.write( file, SnapshotSchema.PRODUCTS, Arrays.asList( products.get( 0 ), null ) );
+            fail( "wrote a null product" );
+        }
+        catch ( NullPointerException e )
+        {
+            // expected
+        }
+        assertTrue( Arrays.equals( before, Files.readAllBytes( file ) ) );
+
+        SnapshotWriter<InventoryManagementSystem.Product> writer = new SnapshotWriter<>( file, SnapshotSchema.PRODUCTS );
+        writer.append( products.get( 1 ) );
+        writer.abort();
+        writer.close();
+        assertTrue( Arrays.equals( before, Files.readAllBytes( file ) ) );
+
+        // No column or temp files are left behind
+        try ( Stream<Path> files = Files.list( directory ) )
+        {
+            assertEquals( Collections.singletonList( file ), files.collect( Collectors.toList() ) );
+        }
+        try ( Snapshot<InventoryManagementSystem.Product> snapshot = Snapshot.open( file, SnapshotSchema.PRODUCTS ) )
+        {
+            assertEquals( products.size(), snapshot.getRowCount() );
+        }
+    }
+
+    private <T> Snapshot<T> roundTrip( String name, SnapshotSchema<T> schema, List<T> records ) throws IOException
+    {
+        Path file = directory.resolve( name + ".snap" );
+        SnapshotWriter.write( file, schema, records );
+        Snapshot<T> snapshot = Snapshot.open( file, schema );
+        assertEquals( records.size(), snapshot.getRowCount() );
+        return snapshot;
+    }
+}
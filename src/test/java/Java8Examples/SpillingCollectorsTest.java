@@ -0,0 +1,166 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.stream.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * The spilling groupingBy must give the same groups as Collectors.groupingBy and leave no files behind.
+ */
+public class SpillingCollectorsTest
+    extends TestCase
+{
+    private static final int RECORDS = 100000;
+
+    private Path tempDirectory;
+
+    public SpillingCollectorsTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( SpillingCollectorsTest.class );
+    }
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        tempDirectory = Files.createTempDirectory( "spilling-test" );
+    }
+
+    @Override
+    protected void tearDown() throws IOException
+    {
+        try ( Stream<Path> files = Files.list( tempDirectory ) )
+        {
+            for ( Path file : files.collect( Collectors.toList() ) )
+            {
+                Files.delete( file );
+            }
+        }
+        Files.delete( tempDirectory );
+    }
+
+    public void testSpilledSumsMatchGroupingBy() throws IOException
+    {
+        List<OrderProcessingSystem.Order> orders = createOrders();
+        Map<String, Double> expected = orders.stream().collect( Collectors.groupingBy(
+            OrderProcessingSystem.Order::getCustomerName,
+            Collectors.summingDouble( OrderProcessingSystem.Order::getAmount ) ) );
+
+        // A budget of a few thousand orders forces spilling, and splitting spilled partitions again
+        SpillingCollectors.Groups<String, Double> groups = orders.stream().collect( spillingSum( 256 * 1024 ) );
+        SpillingCollectors.Stats stats = groups.getStats();
+        assertFalse( stats.isInMemory() );
+        assertEquals( RECORDS, stats.getRecords() );
+        assertTrue( stats.getSpilledBytes() > 0 );
+
+        assertSums( expected, groups.toMap() );
+        stats = groups.getStats();
+        assertEquals( expected.size(), stats.getGroups() );
+        assertTrue( "expected oversized partitions to be split: " + stats, stats.getRepartitions() > 0 );
+        assertNoFilesLeft();
+    }
+
+    public void testParallelStreamMergesSpillFiles() throws IOException
+    {
+        List<OrderProcessingSystem.Order> orders = createOrders();
+        Map<String, Double> expected = orders.stream().collect( Collectors.groupingBy(
+            OrderProcessingSystem.Order::getCustomerName,
+            Collectors.summingDouble( OrderProcessingSystem.Order::getAmount ) ) );
+
+        SpillingCollectors.Groups<String, Double> groups = orders.parallelStream().collect( spillingSum( 64 * 1024 ) );
+        assertEquals( RECORDS, groups.getStats().getRecords() );
+        assertSums( expected, groups.toMap() );
+        assertNoFilesLeft();
+    }
+
+    public void testListsKeepEveryRecordAndSmallInputsStayInMemory() throws IOException
+    {
+        List<FinancialCalculator.Transaction> transactions = new ArrayList<>();
+        for ( int i = 0; i < 5000; i++ )
+        {
+            transactions.add( new FinancialCalculator.Transaction( "T" + i, i, LocalDateTime.of( 2020, 1, 1, 0, 0 )
+                .plusDays( i ), i % 2 == 0 ? "INCOME" : "EXPENSE", "Food", null ) );
+        }
+        SpillingCollectors.Groups<YearMonth, List<FinancialCalculator.Transaction>> spilled = transactions.stream()
+            .collect( SpillingCollectors.groupingBy( ( FinancialCalculator.Transaction t ) -> YearMonth.from( t.getTimestamp() ),
+                RecordCodecs.TRANSACTION, Collectors.toList(), 32 * 1024, 8, tempDirectory ) );
+        Map<YearMonth, List<String>> ids = new HashMap<>();
+        spilled.forEach( ( month, list ) -> ids.put( month,
+            list.stream().map( FinancialCalculator.Transaction::getId ).collect( Collectors.toList() ) ) );
+        assertEquals( transactions.stream().collect( Collectors.groupingBy( ( FinancialCalculator.Transaction t ) ->
+                YearMonth.from( t.getTimestamp() ),
+            Collectors.mapping( FinancialCalculator.Transaction::getId, Collectors.toList() ) ) ), ids );
+
+        SpillingCollectors.Groups<YearMonth, Long> small = transactions.stream().limit( 100 )
+            .collect( SpillingCollectors.groupingBy( ( FinancialCalculator.Transaction t ) -> YearMonth.from( t.getTimestamp() ),
+                RecordCodecs.TRANSACTION, Collectors.counting(), 1 << 20, 8, tempDirectory ) );
+        assertTrue( small.getStats().isInMemory() );
+        assertEquals( 100L, small.toMap().values().stream().mapToLong( Long::longValue ).sum() );
+        assertNoFilesLeft();
+    }
+
+    public void testCloseDeletesUnreadPartitions() throws IOException
+    {
+        SpillingCollectors.Groups<String, Double> groups = createOrders().stream().collect( spillingSum( 64 * 1024 ) );
+        try ( Stream<Map.Entry<String, Double>> entries = groups.stream() )
+        {
+            assertEquals( 10, entries.limit( 10 ).count() );
+        }
+        assertNoFilesLeft();
+        try
+        {
+            groups.stream();
+            fail( "groups can only be consumed once" );
+        }
+        catch ( IllegalStateException expected )
+        {
+            // expected
+        }
+    }
+
+    private Collector<OrderProcessingSystem.Order, ?, SpillingCollectors.Groups<String, Double>> spillingSum( long budget )
+    {
+        return SpillingCollectors.groupingBy( OrderProcessingSystem.Order::getCustomerName, RecordCodecs.ORDER,
+            Collectors.summingDouble( OrderProcessingSystem.Order::getAmount ), budget, 16, tempDirectory );
+    }
+
+    private static void assertSums( Map<String, Double> expected, Map<String, Double> actual )
+    {
+        assertEquals( expected.keySet(), actual.keySet() );
+        for ( Map.Entry<String, Double> entry : expected.entrySet() )
+        {
+            assertEquals( entry.getValue(), actual.get( entry.getKey() ), 1e-6 );
+        }
+    }
+
+    private void assertNoFilesLeft() throws IOException
+    {
+        try ( Stream<Path> files = Files.list( tempDirectory ) )
+        {
+            assertEquals( 0, files.count() );
+        }
+    }
+
+    private static List<OrderProcessingSystem.Order> createOrders()
+    {
+        Random random = new Random( 47 );
+        List<OrderProcessingSystem.Order> orders = new ArrayList<>();
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            orders.add( new OrderProcessingSystem.Order( "O" + i, "Customer " + random.nextInt( 20000 ),
+                LocalDateTime.of( 2024, 1, 1, 0, 0 ), random.nextInt( 100000 ) / 100.0, "PENDING",
+                Collections.emptyList(), null ) );
+        }
+        return orders;
+    }
+}
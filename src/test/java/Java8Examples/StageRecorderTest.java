@@ -0,0 +1,108 @@
+package Java8Examples;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Recorded stages must come back from the analyzer per module, with their counts, sizes and allocation.
+ */
+public class StageRecorderTest
+    extends TestCase
+{
+    private Path recording;
+
+    public StageRecorderTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( StageRecorderTest.class );
+    }
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        recording = Files.createTempFile( "stages", ".rec" );
+    }
+
+    @Override
+    protected void tearDown() throws IOException
+    {
+        StageRecorder.stop();
+        Files.deleteIfExists( recording );
+    }
+
+    public void testStagesAreSummarizedPerModule() throws IOException
+    {
+        List<byte[]> retained = new ArrayList<>();
+        StageRecorder.start( recording );
+        String result = StageRecorder.inModule( "ORDER", () -> {
+            try ( StageRecorder.Stage stage = StageRecorder.begin( "filter.valid", 10 ) )
+            {
+                stage.bytes( 4096 );
+            }
+            for ( int i = 0; i < 2; i++ )
+            {
+                try ( StageRecorder.Stage stage = StageRecorder.begin( "groupingBy.customer" ) )
+                {
+                    retained.add( new byte[1 << 20] );
+                    stage.records( 5 );
+                }
+            }
+            return "done";
+        } );
+        assertEquals( "done", StageRecorder.time( "load.orders", 3, () -> result ) );
+        assertEquals( recording, StageRecorder.stop() );
+        assertFalse( StageRecorder.isRecording() );
+
+        StageRecordingAnalyzer.Report report = StageRecordingAnalyzer.summarize( recording );
+        assertEquals( 5, report.getEvents() );
+        assertEquals( 4, report.getStages().size() );
+        // The module row leads its stages
+        assertEquals( "ORDER", report.getStages().get( 0 ).getModule() );
+        assertEquals( StageRecorder.MODULE_STAGE, report.getStages().get( 0 ).getStage() );
+
+        StageRecordingAnalyzer.StageSummary filter = report.find( "ORDER", "filter.valid" );
+        assertEquals( 1, filter.getEvents() );
+        assertEquals( 10, filter.getRecords() );
+        assertEquals( 4096, filter.getBytes() );
+        StageRecordingAnalyzer.StageSummary grouping = report.find( "ORDER", "groupingBy.customer" );
+        assertEquals( 2, grouping.getEvents() );
+        assertEquals( 10, grouping.getRecords() );
+        assertTrue( "allocated " + grouping.getAllocatedBytes(), grouping.getAllocatedBytes() >= 2 << 20 );
+        assertTrue( report.find( "ORDER", StageRecorder.MODULE_STAGE ).getTotalNanos() >= grouping.getTotalNanos() );
+        // Outside inModule() stages belong to no module
+        assertEquals( 3, report.find( StageRecorder.NO_MODULE, "load.orders" ).getRecords() );
+        assertEquals( 2, retained.size() );
+    }
+
+    public void testStagesCostNothingWithoutARecording()
+    {
+        assertFalse( StageRecorder.isRecording() );
+        assertNull( StageRecorder.stop() );
+        assertSame( StageRecorder.begin( "a", 1 ), StageRecorder.begin( "b" ) );
+    }
+
+    public void testTruncatedRecordingKeepsCompleteEvents() throws IOException
+    {
+        StageRecorder.start( recording );
+        for ( int i = 0; i < 3; i++ )
+        {
+            StageRecorder.begin( "stage" ).close();
+        }
+        StageRecorder.stop();
+        byte[] bytes = Files.readAllBytes( recording );
+        Files.write( recording, Arrays.copyOf( bytes, bytes.length - 5 ) );
+
+        StageRecordingAnalyzer.Report report = StageRecordingAnalyzer.summarize( recording );
+        assertEquals( 2, report.getEvents() );
+        assertEquals( 2, report.find( StageRecorder.NO_MODULE, "stage" ).getEvents() );
+    }
+}
@@ -0,0 +1,227 @@
+package Java8Examples;
+
+import java.lang.management.ManagementFactory;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests for the interned string dictionaries used by the record classes.
+ */
+public class SymbolTableTest
+    extends TestCase
+{
+    private static final int RECORDS = 200000;
+
+    public SymbolTableTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( SymbolTableTest.class );
+    }
+
+    public void testInternAssignsDenseStableCodes()
+    {
+        SymbolTable table = new SymbolTable( "test" );
+        int a = table.intern( "Electronics" );
+        int b = table.intern( "Furniture" );
+
+        assertEquals( 0, a );
+        assertEquals( 1, b );
+        assertEquals( a, table.intern( new String( "Electronics" ) ) );
+        assertEquals( "Furniture", table.symbol( b ) );
+        assertEquals( SymbolTable.NO_SYMBOL, table.codeOf( "Toys" ) );
+        assertEquals( SymbolTable.NO_SYMBOL, table.intern( null ) );
+        assertNull( table.symbol( SymbolTable.NO_SYMBOL ) );
+        assertEquals( 2, table.size() );
+    }
+
+    public void testConcurrentInternAgreesOnCodes() throws Exception
+    {
+        final SymbolTable table = new SymbolTable( "concurrent" );
+        ExecutorService pool = Executors.newFixedThreadPool( 8 );
+        List<Future<int[]>> futures = new ArrayList<>();
+        for ( int t = 0; t < 8; t++ )
+        {
+            futures.add( pool.submit( () -> {
+                int[] codes = new int[1000];
+                for ( int i = 0; i < codes.length; i++ )
+                {
+                    codes[i] = table.intern( "symbol-" + i );
+                }
+                return codes;
+            } ) );
+        }
+        int[] expected = futures.get( 0 ).get();
+        for ( Future<int[]> future : futures )
+        {
+            assertTrue( Arrays.equals( expected, future.get() ) );
+        }
+        pool.shutdown();
+
+        assertEquals( 1000, table.size() );
+        for ( int i = 0; i < expected.length; i++ )
+        {
+            assertEquals( "symbol-" + i, table.symbol( expected[i] ) );
+        }
+    }
+
+    public void testRecordsExposeCodesAndDecodedValues()
+    {
+        OrderProcessingSystem.Order order = new OrderProcessingSystem.Order( "ORD1", "Rajesh Kumar",
+                LocalDateTime.now(), 10.0, "CANCELLED", Arrays.asList( "Laptop", "Mouse" ), "Mumbai" );
+
+        assertEquals( OrderProcessingSystem.Order.CANCELLED, order.getStatusCode() );
+        assertEquals( "CANCELLED", order.getStatus() );
+        assertEquals( Arrays.asList( "Laptop", "Mouse" ), order.getItems() );
+        assertSame( order.getCustomerName(), SymbolTable.CUSTOMERS.intern( "Rajesh Kumar" ).getText() );
+        assertEquals( "Rajesh Kumar", SymbolTable.CUSTOMERS.symbol( order.getCustomerCode() ) );
+        assertEquals( "Mumbai", order.getShippingAddress() );
+
+        order.setStatus( "PRIORITY" );
+        assertEquals( OrderProcessingSystem.Order.PRIORITY, order.getStatusCode() );
+    }
+
+    /**
+     * Measures what real Order and Employee records keep per instance, built from freshly
+     * parsed field strings, against those field strings themselves. Counted as bytes the
+     * constructors allocate, which is what the records retain, so no GC is involved.
+     */
+    public void testRecordsRetainCodesInsteadOfTheirFieldStrings()
+    {
+        String[] statuses = { "PENDING", "CANCELLED", "PRIORITY", "STANDARD" };
+        String[] cities = { "Mumbai", "Delhi", "Bangalore", "Kolkata", "Chennai" };
+        String[] items = { "Laptop", "Mouse", "Keyboard", "Books", "Smartphone", "Case" };
+        String[] departments = { "Development", "Testing", "Operations" };
+        LocalDateTime orderDate = LocalDateTime.of( 2024, 1, 18, 11, 0 );
+        LocalDate joinDate = LocalDate.of( 2020, 3, 15 );
+
+        // What a loader produces: a new String per field of every record
+        String[][] orderFields = new String[RECORDS][];
+        String[][] employeeFields = new String[RECORDS][];
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            orderFields[i] = new String[] { parsed( "Customer-" + i % 500 ), parsed( statuses[i % statuses.length] ),
+                    parsed( items[i % items.length] ), parsed( items[( i + 1 ) % items.length] ),
+                    parsed( cities[i % cities.length] ) };
+            employeeFields[i] = new String[] { parsed( departments[i % departments.length] ),
+                    parsed( items[i % items.length] ), parsed( items[( i + 2 ) % items.length] ) };
+        }
+        long orderStringBytes = allocatedBy( () -> copyAll( orderFields ) );
+        long employeeStringBytes = allocatedBy( () -> copyAll( employeeFields ) );
+
+        // Item and skill lists come from the loader as well
+        List<List<String>> orderItems = new ArrayList<>();
+        List<List<String>> employeeSkills = new ArrayList<>();
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            orderItems.add( Arrays.asList( orderFields[i][2], orderFields[i][3] ) );
+            employeeSkills.add( Arrays.asList( employeeFields[i][1], employeeFields[i][2] ) );
+        }
+        OrderProcessingSystem.Order[] orders = new OrderProcessingSystem.Order[RECORDS];
+        EmployeeDataProcessor.Employee[] employees = new EmployeeDataProcessor.Employee[RECORDS];
+        // The first pass interns the symbols and warms up the constructors
+        buildOrders( orders, orderFields, orderItems, orderDate );
+        buildEmployees( employees, employeeFields, employeeSkills, joinDate );
+        long orderBytes = allocatedBy( () -> buildOrders( orders, orderFields, orderItems, orderDate ) );
+        long employeeBytes = allocatedBy( () -> buildEmployees( employees, employeeFields, employeeSkills, joinDate ) );
+
+        assertEquals( "Customer-7", orders[7].getCustomerName() );
+        assertEquals( items[( 9 + 2 ) % items.length], employees[9].getSkills().get( 1 ) );
+        // An Order keeps its object and item codes; the same fields as strings take several times that
+        assertTrue( "orders retain " + orderBytes + " bytes vs " + orderStringBytes + " for their strings",
+                orderBytes * 2 < orderStringBytes );
+        assertTrue( "employees retain " + employeeBytes + " bytes vs " + employeeStringBytes + " for their strings",
+                employeeBytes * 2 < employeeStringBytes );
+    }
+
+    public void testUnusedCustomersAreReclaimed() throws InterruptedException
+    {
+        WeakSymbolTable table = new WeakSymbolTable( "reclaimed" );
+        List<WeakSymbolTable.Symbol> held = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            WeakSymbolTable.Symbol symbol = table.intern( "Customer-" + i );
+            if ( i < 10 )
+            {
+                held.add( symbol );
+            }
+        }
+        assertEquals( 1000, table.size() );
+        assertSame( held.get( 3 ), table.intern( new String( "Customer-3" ) ) );
+
+        // Reclaiming is noticed by intern(); a new symbol reuses a freed code
+        int reused = -1;
+        for ( int attempt = 0; attempt < 50 && table.size() > 11; attempt++ )
+        {
+            System.gc();
+            Thread.sleep( 20 );
+            reused = table.intern( "Customer-new-" + attempt ).getCode();
+        }
+        assertTrue( "still " + table.size() + " symbols", table.size() <= 11 + 50 );
+        assertTrue( "code " + reused + " was not reused", reused >= 0 && reused < 1000 );
+        assertEquals( SymbolTable.NO_SYMBOL, table.codeOf( "Customer-500" ) );
+        // Held symbols keep their codes and text
+        for ( int i = 0; i < held.size(); i++ )
+        {
+            assertEquals( i, held.get( i ).getCode() );
+            assertEquals( "Customer-" + i, table.symbol( i ) );
+        }
+    }
+
+    private static String parsed( String value )
+    {
+        return new String( value.toCharArray() );
+    }
+
+    private static void copyAll( String[][] fields )
+    {
+        String[][] copies = new String[fields.length][];
+        for ( int i = 0; i < fields.length; i++ )
+        {
+            copies[i] = new String[fields[i].length];
+            for ( int f = 0; f < fields[i].length; f++ )
+            {
+                copies[i][f] = parsed( fields[i][f] );
+            }
+        }
+        assertEquals( fields.length, copies.length );
+    }
+
+    private static void buildOrders( OrderProcessingSystem.Order[] orders, String[][] fields,
+                                     List<List<String>> items, LocalDateTime date )
+    {
+        for ( int i = 0; i < orders.length; i++ )
+        {
+            String[] f = fields[i];
+            orders[i] = new OrderProcessingSystem.Order( "ORD", f[0], date, 10.0, f[1], items.get( i ), f[4] );
+        }
+    }
+
+    private static void buildEmployees( EmployeeDataProcessor.Employee[] employees, String[][] fields,
+                                        List<List<String>> skills, LocalDate date )
+    {
+        for ( int i = 0; i < employees.length; i++ )
+        {
+            employees[i] = new EmployeeDataProcessor.Employee( "E", "Name", 50000, fields[i][0], date, 30,
+                    skills.get( i ) );
+        }
+    }
+
+    private static long allocatedBy( Runnable work )
+    {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes( threadId );
+        work.run();
+        return threads.getThreadAllocatedBytes( threadId ) - before;
+    }
+}
@@ -0,0 +1,196 @@
+package Java8Examples;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tiers must share the worker by weight, aging must lift a starved tier and a full tier must shed on its own.
+ */
+public class TieredOrderSchedulerTest
+    extends TestCase
+{
+    private final CountDownLatch release = new CountDownLatch( 1 );
+    private final List<String> served = Collections.synchronizedList( new ArrayList<String>() );
+
+    public TieredOrderSchedulerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( TieredOrderSchedulerTest.class );
+    }
+
+    public void testBackloggedTiersShareByWeight() throws InterruptedException
+    {
+        TieredOrderScheduler scheduler = blockedScheduler( 3, 1, 0, 100 );
+        fill( scheduler, 40, 40 );
+        List<String> order = drain( scheduler );
+
+        // Weights 3:1 give three PRIORITY orders for every STANDARD one while both are backlogged
+        assertEquals( 30, Collections.frequency( order.subList( 0, 40 ), "PRIORITY" ) );
+        assertEquals( 80, order.size() );
+    }
+
+    public void testAgingLiftsTheStarvedTier() throws InterruptedException
+    {
+        TieredOrderScheduler scheduler = blockedScheduler( 8, 1, 1, 100 );
+        fill( scheduler, 40, 40 );
+        Thread.sleep( 20 );
+        List<String> order = drain( scheduler );
+
+        // Without aging 8:1 would serve 3 STANDARD orders in the first 27; aged it gets up to weight 4
+        int standard = Collections.frequency( order.subList( 0, 27 ), "STANDARD" );
+        assertTrue( "aged STANDARD orders served: " + standard, standard >= 8 );
+        assertTrue( scheduler.getStats().get( TieredOrderScheduler.STANDARD_TIER ).getAged() > 0 );
+        assertEquals( 0, scheduler.getStats().get( TieredOrderScheduler.PRIORITY_TIER ).getAged() );
+    }
+
+    public void testFullTierShedsWithoutTouchingTheOther() throws InterruptedException
+    {
+        TieredOrderScheduler scheduler = blockedScheduler( 8, 1, 0, 5 );
+        fill( scheduler, 0, 10 );
+        assertTrue( scheduler.submit( order( 2000 ) ) );
+        drain( scheduler );
+
+        TieredOrderScheduler.TierStats priority = scheduler.getStats().get( TieredOrderScheduler.PRIORITY_TIER );
+        TieredOrderScheduler.TierStats standard = scheduler.getStats().get( TieredOrderScheduler.STANDARD_TIER );
+        assertEquals( 0, priority.getShed() );
+        assertEquals( 2, priority.getCompleted() );
+        assertEquals( 5, standard.getShed() );
+        assertEquals( 5, standard.getCompleted() );
+        assertEquals( 5 / 10.0, standard.getSloAttainment(), 1e-9 );
+        assertEquals( 10, standard.getSubmitted() );
+    }
+
+    public void testRejectedOrdersAreNotCountedAsSubmitted() throws InterruptedException
+    {
+        TieredOrderScheduler scheduler = new TieredOrderScheduler( Collections.singletonList(
+            new TieredOrderScheduler.Tier( "ONLY", 1, 60000, 10 ) ), 1, 0, o -> o.getAmount() > 1000 ? 1 : 0,
+            o -> served.add( "ONLY" ) );
+        assertTrue( scheduler.submit( order( 100 ) ) );
+        try
+        {
+            scheduler.submit( order( 2000 ) );
+            fail( "routed an order to a missing tier" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "tier 1" ) );
+        }
+        scheduler.shutdown();
+        try
+        {
+            scheduler.submit( order( 100 ) );
+            fail( "accepted an order after shutdown" );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // expected
+        }
+        assertTrue( scheduler.awaitTermination( 10, TimeUnit.SECONDS ) );
+
+        TieredOrderScheduler.TierStats only = scheduler.getStats().get( 0 );
+        assertEquals( 1, only.getSubmitted() );
+        assertEquals( 1, only.getCompleted() );
+        assertEquals( 0, only.getShed() );
+    }
+
+    public void testFailingOrdersDoNotStopTheWorker() throws InterruptedException
+    {
+        TieredOrderScheduler scheduler = new TieredOrderScheduler( Collections.singletonList(
+            new TieredOrderScheduler.Tier( "ONLY", 1, 60000, 10 ) ), 1, 0, o -> 0, o -> {
+                if ( o.getAmount() > 1000 )
+                {
+                    throw new AssertionError( "bad order" );
+                }
+                if ( o.getAmount() > 500 )
+                {
+                    throw new IllegalStateException( "bad order" );
+                }
+                served.add( "ONLY" );
+            } );
+        scheduler.submit( order( 2000 ) );
+        scheduler.submit( order( 600 ) );
+        scheduler.submit( order( 100 ) );
+        scheduler.shutdown();
+        assertTrue( scheduler.awaitTermination( 10, TimeUnit.SECONDS ) );
+
+        // The single worker outlived both failures and served the last order
+        assertEquals( Collections.singletonList( "ONLY" ), served );
+        TieredOrderScheduler.TierStats only = scheduler.getStats().get( 0 );
+        assertEquals( 3, only.getCompleted() );
+        assertEquals( 2, only.getFailed() );
+    }
+
+    // One worker, held on a first PRIORITY order until drain() so the queues can fill up
+    private TieredOrderScheduler blockedScheduler( double priorityWeight, double standardWeight, long agingMillis,
+                                                   int capacity ) throws InterruptedException
+    {
+        CountDownLatch started = new CountDownLatch( 1 );
+        TieredOrderScheduler scheduler = new TieredOrderScheduler( Arrays.asList(
+            new TieredOrderScheduler.Tier( "PRIORITY", priorityWeight, 60000, capacity ),
+            new TieredOrderScheduler.Tier( "STANDARD", standardWeight, 60000, capacity ) ),
+            1, agingMillis, o -> o.getAmount() > 1000 ? 0 : 1, o -> {
+                if ( "BLOCKER".equals( o.getOrderId() ) )
+                {
+                    started.countDown();
+                    awaitQuietly( release );
+                    return;
+                }
+                served.add( o.getAmount() > 1000 ? "PRIORITY" : "STANDARD" );
+            } );
+        OrderProcessingSystem.Order blocker = new OrderProcessingSystem.Order( "BLOCKER", "Test", LocalDateTime.now(),
+            2000, "PENDING", Collections.singletonList( "Item" ), "Address" );
+        scheduler.submit( blocker );
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+        return scheduler;
+    }
+
+    private static void fill( TieredOrderScheduler scheduler, int priority, int standard )
+    {
+        for ( int i = 0; i < Math.max( priority, standard ); i++ )
+        {
+            if ( i < priority )
+            {
+                scheduler.submit( order( 2000 ) );
+            }
+            if ( i < standard )
+            {
+                scheduler.submit( order( 100 ) );
+            }
+        }
+    }
+
+    private List<String> drain( TieredOrderScheduler scheduler ) throws InterruptedException
+    {
+        release.countDown();
+        scheduler.shutdown();
+        assertTrue( scheduler.awaitTermination( 10, TimeUnit.SECONDS ) );
+        return new ArrayList<>( served );
+    }
+
+    private static OrderProcessingSystem.Order order( double amount )
+    {
+        return new OrderProcessingSystem.Order( "O", "Test", LocalDateTime.now(), amount, "PENDING",
+            Collections.singletonList( "Item" ), "Address" );
+    }
+
+    private static void awaitQuietly( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
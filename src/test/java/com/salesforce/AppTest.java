@@ -1,5 +1,13 @@
 package com.salesforce;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+
+import Java8Examples.AnalyticsViews;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -35,4 +43,145 @@ public class AppTest
     {
         assertTrue( true );
     }
+
+    /**
+     * Every endpoint serves JSON with an ETag, and repeating the ETag gives 304
+     */
+    public void testEndpointsServeJsonWithEtags() throws Exception
+    {
+        App app = new App( 0, 2, 16 );
+        app.start();
+        try
+        {
+            String base = "http://localhost:" + app.getPort();
+            for ( String path : AnalyticsViews.load().getPaths() )
+            {
+                HttpURLConnection first = open( base + path, null );
+                assertEquals( path, 200, first.getResponseCode() );
+                assertTrue( path, first.getContentType().startsWith( "application/json" ) );
+                String body = read( first.getInputStream() );
+                assertTrue( path + " -> " + body, body.startsWith( "{" ) && body.endsWith( "}" ) );
+                String etag = first.getHeaderField( "ETag" );
+                assertNotNull( path, etag );
+
+                HttpURLConnection second = open( base + path, etag );
+                assertEquals( path, 304, second.getResponseCode() );
+                assertEquals( path, etag, second.getHeaderField( "ETag" ) );
+
+                HttpURLConnection stale = open( base + path, "\"0\"" );
+                assertEquals( path, 200, stale.getResponseCode() );
+                read( stale.getInputStream() );
+            }
+
+            String customers = read( open( base + AnalyticsViews.CUSTOMER_SPENDING, null ).getInputStream() );
+            assertTrue( customers, customers.contains( "\"customer\":\"Rajesh Kumar\"" ) );
+            assertFalse( "cancelled orders are excluded", customers.contains( "Neha Gupta" ) );
+
+            assertEquals( 404, open( base + "/api/nothing", null ).getResponseCode() );
+            HttpURLConnection post = open( base + AnalyticsViews.FINANCIAL_REPORT, null );
+            post.setRequestMethod( "POST" );
+            assertEquals( 405, post.getResponseCode() );
+        }
+        finally
+        {
+            app.stop();
+        }
+    }
+
+    /**
+     * A full handler pool answers 503 with Retry-After instead of running the request on the dispatcher
+     */
+    public void testSaturatedPoolAnswersServiceUnavailable() throws Exception
+    {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor( 1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>( 1 ) );
+        App app = new App( 0, pool, AnalyticsViews.load() );
+        app.start();
+        CountDownLatch release = new CountDownLatch( 1 );
+        try
+        {
+            // One task running and one queued: no room left
+            pool.execute( () -> awaitQuietly( release ) );
+            pool.execute( () -> awaitQuietly( release ) );
+            String base = "http://localhost:" + app.getPort();
+
+            HttpURLConnection busy = open( base + "/health", null );
+            assertEquals( 503, busy.getResponseCode() );
+            assertEquals( "1", busy.getHeaderField( "Retry-After" ) );
+            assertEquals( "{\"error\":\"Server busy, retry later\"}", read( busy.getErrorStream() ) );
+
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while ( pool.getActiveCount() > 0 || !pool.getQueue().isEmpty() )
+            {
+                assertTrue( "pool never drained", System.currentTimeMillis() < deadline );
+                Thread.sleep( 10 );
+            }
+            assertEquals( 200, open( base + "/health", null ).getResponseCode() );
+        }
+        finally
+        {
+            release.countDown();
+            app.stop();
+        }
+    }
+
+    /**
+     * Error messages quoting the request path stay valid JSON whatever the path decodes to
+     */
+    public void testErrorMessagesAreEscaped() throws Exception
+    {
+        StringBuilder escaped = new StringBuilder();
+        AnalyticsViews.appendString( escaped, "a\"b\\c\nd\te\u0001" );
+        assertEquals( "\"a\\\"b\\\\c\\nd\\te\\u0001\"", escaped.toString() );
+
+        App app = new App( 0, 1, 4 );
+        app.start();
+        try
+        {
+            HttpURLConnection missing = open( "http://localhost:" + app.getPort() + "/api/bad%0Aline%22%01", null );
+            assertEquals( 404, missing.getResponseCode() );
+            assertEquals( "{\"error\":\"No such endpoint: /api/bad\\nline\\\"\\u0001\"}",
+                    read( missing.getErrorStream() ) );
+        }
+        finally
+        {
+            app.stop();
+        }
+    }
+
+    private static void awaitQuietly( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static HttpURLConnection open( String url, String ifNoneMatch ) throws Exception
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL( url ).openConnection();
+        if ( ifNoneMatch != null )
+        {
+            connection.setRequestProperty( "If-None-Match", ifNoneMatch );
+        }
+        return connection;
+    }
+
+    private static String read( InputStream in ) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ( ( n = in.read( buffer ) ) >= 0 )
+        {
+            out.write( buffer, 0, n );
+        }
+        in.close();
+        return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+    }
 }